@@ -0,0 +1,429 @@
+// Author:   Jose Santos
+// FileName: BenchmarkCompare.java
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//******************************************************************************************************
+/** This class compares the results of a JMH run (as written by "-rf json") with a baseline run, and
+  * flags every benchmark that got worse by more than a threshold. A benchmark is matched by its name
+  * along with its parameters. Its score is compared the way its mode reads: a throughput has to go
+  * down to get worse, while a time per operation has to go up. When both runs were profiled with
+  * "-prof gc", the bytes allocated per operation are compared as well (a benchmark that allocated
+  * nothing gets worse as soon as it allocates anything). It's run by the benchmark-compare target:
+  *
+  *   java BenchmarkCompare RESULT BASELINE [THRESHOLD]
+  *
+  * where THRESHOLD is the percentage a benchmark may get worse by (DEFAULT_THRESHOLD by default). The
+  * exit code is 0 when nothing got worse, 1 when anything did, and 2 when the files can't be read.
+  * Note that a benchmark found in only one of the runs is listed, but never counts as worse.
+  */
+//******************************************************************************************************
+public class BenchmarkCompare
+{
+	// the default percentage a benchmark may get worse by
+	public static final double DEFAULT_THRESHOLD = 10.0;
+
+	// the secondary metric of "-prof gc" that holds the bytes allocated per operation
+	public static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+	// the least number of bytes per operation that counts as allocating (JMH reports a few stray ones)
+	private static final double MIN_ALLOCATION = 1.0;
+
+	//**************************************************************************************************
+	private BenchmarkCompare()
+	{
+	}
+
+	//**************************************************************************************************
+	private static double getAllocation(Map<String, Object> result)
+	{
+		// will hold the bytes allocated per operation (NaN if they weren't profiled)
+		double retVal = Double.NaN;
+
+		// the name of the metric is prefixed by a symbol that depends on the version of JMH
+		Object metrics = result.get("secondaryMetrics");
+		if (metrics instanceof Map)
+		{
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)metrics).entrySet())
+			{
+				if (entry.getKey().toString().endsWith(ALLOCATION_METRIC))
+				{
+					retVal = getScore(entry.getValue());
+				}
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private static String getName(Map<String, Object> result)
+	{
+		// the name of the benchmark (without the package the benchmarks are compiled into)
+		String retVal = String.valueOf(result.get("benchmark"));
+		retVal        = retVal.substring(retVal.lastIndexOf('.', retVal.lastIndexOf('.') - 1) + 1);
+
+		// followed by its parameters (sorted, so their order in the file doesn't matter)
+		Object params = result.get("params");
+		if (params instanceof Map)
+		{
+			retVal += new TreeMap<Object, Object>((Map<?, ?>)params).toString();
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private static double getScore(Object metric)
+	{
+		// will hold the score of the metric (NaN if it has none)
+		double retVal = Double.NaN;
+
+		if (metric instanceof Map)
+		{
+			Object score = ((Map<?, ?>)metric).get("score");
+			if (score instanceof Number)
+			{
+				retVal = ((Number)score).doubleValue();
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private static boolean isWorse(double baseline, double score, boolean higherIsBetter,
+	                               double threshold)
+	{
+		// will hold whether or not the score got worse by more than the threshold
+		boolean retVal = false;
+
+		if (!Double.isNaN(baseline) && !Double.isNaN(score))
+		{
+			// work out by how much it changed, the way that makes getting worse positive
+			double change = (higherIsBetter ? baseline - score : score - baseline);
+			retVal        = change > Math.abs(baseline) * threshold / 100.0;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Compares the JMH results named by the first option with the baseline named by the second, and
+	  * prints how every benchmark changed. The third option (if any) is the percentage a benchmark
+	  * may get worse by.
+	  * @param args the options
+	  */
+	//**************************************************************************************************
+	public static void main(String args[])
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: java BenchmarkCompare RESULT BASELINE [THRESHOLD]");
+			System.exit(2);
+		}
+
+		try
+		{
+			// read both runs
+			double                           threshold = (args.length > 2) ?
+			                                             Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+			Path                             baseline  = Paths.get(args[1]);
+			if (!Files.exists(baseline))
+			{
+				throw new IOException("There's no baseline in " + baseline + " (one is recorded on " +
+				                      "the reference machine by running the benchmark-baseline target)");
+			}
+			Map<String, Map<String, Object>> results   = read(Paths.get(args[0]));
+			Map<String, Map<String, Object>> baselines = read(baseline);
+
+			// compare them
+			int numOfWorse = compare(results, baselines, threshold);
+			if (numOfWorse > 0)
+			{
+				System.out.println(numOfWorse + " benchmark(s) got worse by more than " + threshold +
+				                   "%");
+				System.exit(1);
+			}
+			System.out.println("No benchmark got worse by more than " + threshold + "%");
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			// tell the user what went wrong
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	//**************************************************************************************************
+	private static int compare(Map<String, Map<String, Object>> results,
+	                           Map<String, Map<String, Object>> baselines, double threshold)
+	{
+		// will hold the number of benchmarks that got worse
+		int retVal = 0;
+
+		for (Map.Entry<String, Map<String, Object>> entry : results.entrySet())
+		{
+			// get the result and its baseline
+			String              name     = entry.getKey();
+			Map<String, Object> result   = entry.getValue();
+			Map<String, Object> baseline = baselines.get(name);
+			if (baseline == null)
+			{
+				System.out.printf("%-60s new%n", name);
+				continue;
+			}
+
+			// a throughput is better the higher it is, anything else (a time) the lower it is
+			boolean higherIsBetter = "thrpt".equals(result.get("mode"));
+			double  baseScore      = getScore(baseline.get("primaryMetric"));
+			double  score          = getScore(result.get("primaryMetric"));
+			boolean worse          = isWorse(baseScore, score, higherIsBetter, threshold);
+
+			// allocating more bytes per operation is always worse
+			double  baseBytes = getAllocation(baseline);
+			double  bytes     = getAllocation(result);
+			boolean allocates = isWorse(Math.max(baseBytes, MIN_ALLOCATION), bytes, false, threshold);
+
+			// print the change
+			System.out.printf("%-60s %12.3f -> %12.3f %s (%+.1f%%)  %10.1f -> %10.1f B/op%s%n", name,
+			                  baseScore, score, String.valueOf(result.get("unit")),
+			                  (score - baseScore) * 100.0 / baseScore, baseBytes, bytes,
+			                  (worse || allocates) ? "  WORSE" : "");
+			if (worse || allocates)
+			{
+				retVal++;
+			}
+		}
+
+		// list the benchmarks that are gone
+		for (String name : baselines.keySet())
+		{
+			if (!results.containsKey(name))
+			{
+				System.out.printf("%-60s gone%n", name);
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	@SuppressWarnings("unchecked")
+	private static Map<String, Map<String, Object>> read(Path file) throws IOException
+	{
+		// the results have to be there
+		if (!Files.exists(file))
+		{
+			throw new IOException(file + " doesn't exist (it's written by the benchmark target)");
+		}
+
+		// will hold the results, by the name of their benchmark (in the order of the file)
+		Map<String, Map<String, Object>> retVal = new LinkedHashMap<String, Map<String, Object>>();
+
+		// JMH writes an array of results
+		String text   = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		Object values = new JsonReader(text).readDocument();
+		if (!(values instanceof List))
+		{
+			throw new IOException(file + " doesn't hold JMH results");
+		}
+
+		for (Object value : (List<Object>)values)
+		{
+			if (value instanceof Map)
+			{
+				// keep the result (along with its unit)
+				Map<String, Object> result = (Map<String, Object>)value;
+				Object              metric = result.get("primaryMetric");
+				if (metric instanceof Map)
+				{
+					result.put("unit", ((Map<?, ?>)metric).get("scoreUnit"));
+				}
+				retVal.put(getName(result), result);
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** This class reads a JSON document into Maps (for the objects), Lists (for the arrays), Strings,
+	  * Doubles, Booleans and nulls. Note that it only handles as much of JSON as JMH writes, along with
+	  * its escapes.
+	  */
+	//**************************************************************************************************
+	private static class JsonReader
+	{
+		// data members
+		private int    m_position;
+		private String m_text;
+
+		//**********************************************************************************************
+		public JsonReader(String text)
+		{
+			// start reading from the first character
+			m_text     = text;
+			m_position = 0;
+		}
+
+		//**********************************************************************************************
+		private void expect(char c)
+		{
+			// the next character has to be the indicated one
+			skipSpace();
+			if (m_position >= m_text.length() || m_text.charAt(m_position) != c)
+			{
+				throw new IllegalArgumentException("Expected '" + c + "' at " + m_position);
+			}
+			m_position++;
+		}
+
+		//**********************************************************************************************
+		private char peek()
+		{
+			// get the next character that isn't a space (0 at the end)
+			skipSpace();
+			return (m_position < m_text.length()) ? m_text.charAt(m_position) : 0;
+		}
+
+		//**********************************************************************************************
+		public Object readDocument()
+		{
+			// a document is a single value
+			Object retVal = readValue();
+			if (peek() != 0)
+			{
+				throw new IllegalArgumentException("Unexpected text at " + m_position);
+			}
+
+			return retVal;
+		}
+
+		//**********************************************************************************************
+		private Object readValue()
+		{
+			// will hold the value
+			Object retVal = null;
+
+			char c = peek();
+			if (c == '{')
+			{
+				// an object is a list of names and values
+				Map<String, Object> object = new LinkedHashMap<String, Object>();
+				expect('{');
+				while (peek() != '}')
+				{
+					String name = readString();
+					expect(':');
+					object.put(name, readValue());
+					if (peek() == ',')
+					{
+						expect(',');
+					}
+				}
+				expect('}');
+				retVal = object;
+			}
+			else if (c == '[')
+			{
+				// an array is a list of values
+				List<Object> array = new ArrayList<Object>();
+				expect('[');
+				while (peek() != ']')
+				{
+					array.add(readValue());
+					if (peek() == ',')
+					{
+						expect(',');
+					}
+				}
+				expect(']');
+				retVal = array;
+			}
+			else if (c == '"')
+			{
+				retVal = readString();
+			}
+			else
+			{
+				// anything else is a word (a number, true, false or null)
+				int start = m_position;
+				while (m_position < m_text.length() &&
+				       ",]} \t\r\n".indexOf(m_text.charAt(m_position)) < 0)
+				{
+					m_position++;
+				}
+				String word = m_text.substring(start, m_position);
+				if (word.equals("true") || word.equals("false"))
+				{
+					retVal = Boolean.valueOf(word);
+				}
+				else if (!word.equals("null"))
+				{
+					try
+					{
+						retVal = Double.valueOf(word);
+					}
+					catch (NumberFormatException e)
+					{
+						throw new IllegalArgumentException("Unexpected \"" + word + "\" at " + start);
+					}
+				}
+			}
+
+			return retVal;
+		}
+
+		//**********************************************************************************************
+		private String readString()
+		{
+			// will hold the characters of the string
+			StringBuilder retVal = new StringBuilder();
+
+			expect('"');
+			while (m_position < m_text.length() && m_text.charAt(m_position) != '"')
+			{
+				char c = m_text.charAt(m_position++);
+				if (c == '\\' && m_position < m_text.length())
+				{
+					// an escaped character
+					c = m_text.charAt(m_position++);
+					if (c == 'u' && m_position + 4 <= m_text.length())
+					{
+						String code = m_text.substring(m_position, m_position + 4);
+						c           = (char)Integer.parseInt(code, 16);
+						m_position += 4;
+					}
+					else if (c == 'n' || c == 't' || c == 'r' || c == 'b' || c == 'f')
+					{
+						c = "\n\t\r\b\f".charAt("ntrbf".indexOf(c));
+					}
+				}
+				retVal.append(c);
+			}
+			expect('"');
+
+			return retVal.toString();
+		}
+
+		//**********************************************************************************************
+		private void skipSpace()
+		{
+			// skip the white space
+			while (m_position < m_text.length() && Character.isWhitespace(m_text.charAt(m_position)))
+			{
+				m_position++;
+			}
+		}
+	}
+}
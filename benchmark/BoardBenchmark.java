@@ -0,0 +1,78 @@
+// Author:   Jose Santos
+// FileName: BoardBenchmark.java
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************************************
+/** This class measures how fast the full rows of a BoardModel are cascaded. Since a cascade empties
+  * the rows it works on, every operation first fills the bottom rows again, so fillRows() is measured
+  * on its own as well (the cost of the cascade is the difference between the two).
+  */
+//******************************************************************************************************
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark
+{
+	// the number of full rows cascaded by every operation
+	@Param({"1", "4"})
+	public int m_numOfFullRows;
+
+	// data members
+	private BoardModel m_board;
+
+	//**************************************************************************************************
+	/** Fills the bottom rows of the BoardModel, then cascades them.
+	  * @return the number of rows that were removed
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public int cascadeRows()
+	{
+		// fill the rows, then cascade them
+		fillRows();
+		return m_board.cascadeRows();
+	}
+
+	//**************************************************************************************************
+	/** Fills the bottom rows of the BoardModel (leaving a gap in every other row above them, so the
+	  * cascade has rows to drop).
+	  * @return the BoardModel
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public BoardModel fillRows()
+	{
+		// fill the rows that are cascaded
+		int rows = m_board.getNumOfRows();
+		for (int y = rows - m_numOfFullRows; y < rows; y++)
+		{
+			for (int x = 0; x < m_board.getNumOfCols(); x++)
+			{
+				m_board.fillCell(x, y, 0xFF808080);
+			}
+		}
+
+		// give the rows above them something to drop
+		for (int y = rows - m_numOfFullRows - 4; y < rows - m_numOfFullRows; y++)
+		{
+			m_board.fillCell(y % m_board.getNumOfCols(), y, 0xFF808080);
+		}
+
+		return m_board;
+	}
+
+	//**************************************************************************************************
+	/** Creates the BoardModel (the size of the board of the game).
+	  */
+	//**************************************************************************************************
+	@Setup
+	public void setUp()
+	{
+		m_board = new BoardModel(BatchRunner.DEFAULT_ROWS, BatchRunner.DEFAULT_COLS, 0xFF000000);
+	}
+}
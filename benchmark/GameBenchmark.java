@@ -0,0 +1,95 @@
+// Author:   Jose Santos
+// FileName: GameBenchmark.java
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************************************
+/** This class measures the paths that a game goes through for every Shape: handing out the next Shape,
+  * landing a Shape (which runs the logic of the game), and playing a whole game with the greedy bot.
+  */
+//******************************************************************************************************
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark
+{
+	// the most Shapes of a simulated game (so that a game that goes well still ends)
+	private static final int MAX_PIECES = 1000;
+
+	// the Randomizer that hands out the Shapes
+	@Param({"uniform", "bag"})
+	public String m_randomizer;
+
+	// data members
+	private BoardModel      m_board;
+	private GameEngine      m_engine;
+	private ShapeGenerator  m_generator;
+	private PlacementSearch m_search;
+	private long            m_seed;
+
+	//**************************************************************************************************
+	/** Hands out the next Shape and puts it back into its pool, just like a Shape that has landed.
+	  * @return the Shape
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public Shape generateShape()
+	{
+		Shape shape = m_generator.generateShape(m_board);
+		m_generator.releaseShape(shape);
+		return shape;
+	}
+
+	//**************************************************************************************************
+	/** Drops the current Shape straight down, which lands it and runs the logic of the game (cascading
+	  * the full rows and bringing in the next Shape). A new game is started once the game is over.
+	  * @return the result of landing the Shape
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public int runLogic()
+	{
+		// land the Shape
+		int retVal = m_engine.applyCommand(InputCommand.HARD_DROP);
+
+		// keep on playing
+		if (retVal == GameEngine.TICK_GAME_OVER)
+		{
+			m_engine.startGame(++m_seed);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Plays a whole game with the greedy bot (up to MAX_PIECES Shapes).
+	  * @return how the game turned out
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public GameResult simulateGame()
+	{
+		return BatchRunner.playGame(m_engine, m_search, ++m_seed, MAX_PIECES, 0);
+	}
+
+	//**************************************************************************************************
+	/** Creates the ShapeGenerator, the GameEngine and the bot, and starts a game.
+	  */
+	//**************************************************************************************************
+	@Setup
+	public void setUp()
+	{
+		m_seed      = 1;
+		m_board     = new BoardModel(BatchRunner.DEFAULT_ROWS, BatchRunner.DEFAULT_COLS, 0xFF000000);
+		m_generator = new ShapeGenerator(ShapeGenerator.createRandomizer(m_randomizer), m_seed);
+		m_engine    = new GameEngine(BatchRunner.DEFAULT_ROWS, BatchRunner.DEFAULT_COLS,
+		                             new ShapeGenerator(ShapeGenerator.createRandomizer(m_randomizer), m_seed));
+		m_search    = HeuristicBot.createSearch("greedy", new BotWeights(), ForkJoinPool.commonPool());
+		m_engine.startGame(m_seed);
+	}
+}
@@ -0,0 +1,118 @@
+// Author:   Jose Santos
+// FileName: ShapeBenchmark.java
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//******************************************************************************************************
+/** This class measures how fast a Shape finds out whether it can move or turn, and how fast it turns,
+  * for every kind of Shape. The Shape sits in the middle of a BoardModel that has a few landed cells,
+  * so the checks go through the same lookups as they do during a game.
+  */
+//******************************************************************************************************
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShapeBenchmark
+{
+	// the kind of Shape (indexed as in the ShapeTable)
+	@Param({"0", "1", "2", "3", "4", "5", "6"})
+	public int m_type;
+
+	// data members
+	private Shape m_shape;
+
+	//**************************************************************************************************
+	/** Checks whether the Shape can move down.
+	  * @return true if the Shape can move down
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public boolean canMoveDown()
+	{
+		return m_shape.canMoveDown();
+	}
+
+	//**************************************************************************************************
+	/** Checks whether the Shape can be turned clockwise.
+	  * @return true if the Shape can be turned
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public boolean canRotate()
+	{
+		return m_shape.canRotate();
+	}
+
+	//**************************************************************************************************
+	/** Turns the Shape clockwise and back again on the BoardModel (so it ends up where it started).
+	  * @return the Shape
+	  */
+	//**************************************************************************************************
+	@Benchmark
+	public Shape rotate()
+	{
+		m_shape.rotate(1, true, true);
+		m_shape.rotate(-1, true, true);
+		return m_shape;
+	}
+
+	//**************************************************************************************************
+	/** Creates the BoardModel with a few landed cells and places the Shape in the middle of it.
+	  */
+	//**************************************************************************************************
+	@Setup
+	public void setUp()
+	{
+		// create the BoardModel with an uneven floor
+		BoardModel board = new BoardModel(BatchRunner.DEFAULT_ROWS, BatchRunner.DEFAULT_COLS, 0xFF000000);
+		for (int x = 0; x < board.getNumOfCols(); x += 2)
+		{
+			board.fillCell(x, board.getNumOfRows() - 1, 0xFF808080);
+		}
+
+		// pick a Shape of the kind being measured
+		ShapeGenerator generator = new ShapeGenerator(new FixedRandomizer(m_type), 1);
+		m_shape = generator.generateShape(board);
+
+		// move it down to the middle of the BoardModel
+		board.setShape(m_shape);
+		for (int y = 0; y < board.getNumOfRows() / 2; y++)
+		{
+			m_shape.moveDown();
+		}
+	}
+
+	//**************************************************************************************************
+	/** This class always picks the same kind of Shape.
+	  */
+	//**************************************************************************************************
+	private static class FixedRandomizer implements Randomizer
+	{
+		// data members
+		private final int m_type;
+
+		FixedRandomizer(int type)
+		{
+			m_type = type;
+		}
+
+		public String getName()
+		{
+			return "fixed";
+		}
+
+		public int nextShape(SplittableRandom random)
+		{
+			return m_type;
+		}
+
+		public void reset()
+		{
+		}
+	}
+}
@@ -0,0 +1,249 @@
+// Author:   Jose Santos
+// FileName: AutoRepeat.java
+
+import java.nio.ByteBuffer;
+
+//******************************************************************************************************
+/** This class creates an AutoRepeat object which works out when a held down command is given again.
+  * Moving left or right is given once when its key is pressed, then again after the delayed auto shift
+  * (DAS), and from then on at the auto repeat rate (ARR). The soft drop simply repeats at the ARR.
+  * Note that the timing only depends on the times passed in by the game, never on the rate at which
+  * the keyboard repeats its keys. Pressing left cancels a held right (and the other way around), so
+  * the last direction pressed always wins.
+  */
+//******************************************************************************************************
+public class AutoRepeat
+{
+	// the default delayed auto shift (in milliseconds)
+	public static final long DEFAULT_DAS = 170;
+
+	// the default auto repeat rate (in milliseconds between repeats)
+	public static final long DEFAULT_ARR = 50;
+
+	//**************************************************************************************//
+	// NOTE: The most repeats handed out at once. An ARR of 0 hands this many out on every  //
+	//       update, which is enough to slide a Shape across the widest BoardModel.         //
+	//**************************************************************************************//
+	public static final int MAX_REPEATS = BoardModel.MAX_COLS;
+
+	// data members
+	private long    m_arr;
+	private long    m_das;
+	private boolean m_held[];
+	private long    m_nextRepeat[];
+
+	//**************************************************************************************************
+	/** Creates an AutoRepeat object with the default DAS and ARR.
+	  */
+	//**************************************************************************************************
+	public AutoRepeat()
+	{
+		this(DEFAULT_DAS, DEFAULT_ARR);
+	}
+
+	//**************************************************************************************************
+	/** Creates an AutoRepeat object with the indicated DAS and ARR.
+	  * @param das the delayed auto shift (in milliseconds)
+	  * @param arr the auto repeat rate (in milliseconds between repeats)
+	  */
+	//**************************************************************************************************
+	public AutoRepeat(long das, long arr)
+	{
+		// set the timing
+		setTiming(das, arr);
+
+		// nothing is held down yet
+		m_held       = new boolean[InputCommand.values().length];
+		m_nextRepeat = new long[m_held.length];
+	}
+
+	//**************************************************************************************************
+	/** Returns the auto repeat rate.
+	  * @return the auto repeat rate (in milliseconds between repeats)
+	  */
+	//**************************************************************************************************
+	public long getARR()
+	{
+		// get the auto repeat rate
+		return m_arr;
+	}
+
+	//**************************************************************************************************
+	/** Returns the delayed auto shift.
+	  * @return the delayed auto shift (in milliseconds)
+	  */
+	//**************************************************************************************************
+	public long getDAS()
+	{
+		// get the delayed auto shift
+		return m_das;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of times the indicated command is due to be given again by the indicated
+	  * time. Note that the repeats handed out are used up.
+	  * @param command the command to check
+	  * @param now the current time (in milliseconds)
+	  * @return the number of repeats that are due (0 if the command isn't held down)
+	  */
+	//**************************************************************************************************
+	public int getRepeats(InputCommand command, long now)
+	{
+		// will hold the number of repeats
+		int retVal = 0;
+
+		// get the index of the command
+		int index = command.ordinal();
+
+		if (m_held[index] && m_nextRepeat[index] <= now)
+		{
+			if (m_arr == 0)
+			{
+				// an ARR of 0 moves as far as possible straight away
+				retVal = MAX_REPEATS;
+				m_nextRepeat[index] = now;
+			}
+			else
+			{
+				// count every repeat that has come due since the last update
+				while (m_nextRepeat[index] <= now && retVal < MAX_REPEATS)
+				{
+					m_nextRepeat[index] += m_arr;
+					retVal++;
+				}
+
+				// a long stall doesn't leave a backlog of repeats behind it
+				if (m_nextRepeat[index] <= now)
+				{
+					m_nextRepeat[index] = now + m_arr;
+				}
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Marks the indicated command as held down since the indicated time. Note that commands that
+	  * don't auto repeat are ignored.
+	  * @param command the command whose key was pressed
+	  * @param now the current time (in milliseconds)
+	  */
+	//**************************************************************************************************
+	public void press(InputCommand command, long now)
+	{
+		if (command.isAutoRepeat())
+		{
+			// the command is held down
+			m_held[command.ordinal()] = true;
+
+			if (command == InputCommand.SOFT_DROP)
+			{
+				// the soft drop repeats at the ARR straight away
+				m_nextRepeat[command.ordinal()] = now + m_arr;
+			}
+			else
+			{
+				// a sideways move waits for the DAS before repeating
+				m_nextRepeat[command.ordinal()] = now + m_das;
+
+				// the last direction pressed wins
+				release(command == InputCommand.MOVE_LEFT ? InputCommand.MOVE_RIGHT : InputCommand.MOVE_LEFT);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Reads back the commands that are held down, as written by writeState().
+	  * @param buffer the ByteBuffer to read from
+	  */
+	//**************************************************************************************************
+	public void readState(ByteBuffer buffer)
+	{
+		// get the commands that are held down (one bit each)
+		long held = Varint.read(buffer);
+
+		for (int i = 0; i < m_held.length; i++)
+		{
+			// a held command is followed by the time of its next repeat
+			m_held[i] = (held & (1L << i)) != 0;
+			if (m_held[i])
+			{
+				m_nextRepeat[i] = Varint.read(buffer);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Marks the indicated command as no longer held down.
+	  * @param command the command whose key was released
+	  */
+	//**************************************************************************************************
+	public void release(InputCommand command)
+	{
+		// the command is no longer held down
+		m_held[command.ordinal()] = false;
+	}
+
+	//**************************************************************************************************
+	/** Marks every command as no longer held down.
+	  */
+	//**************************************************************************************************
+	public void releaseAll()
+	{
+		for (int i = 0; i < m_held.length; i++)
+		{
+			// the command is no longer held down
+			m_held[i] = false;
+		}
+	}
+
+	//**************************************************************************************************
+	/** Sets the delayed auto shift and the auto repeat rate.
+	  * @param das the delayed auto shift (in milliseconds)
+	  * @param arr the auto repeat rate (in milliseconds between repeats)
+	  * @throws IllegalArgumentException if either value is negative
+	  */
+	//**************************************************************************************************
+	public void setTiming(long das, long arr)
+	{
+		// negative delays make no sense
+		if (das < 0 || arr < 0)
+		{
+			throw new IllegalArgumentException("DAS and ARR must not be negative");
+		}
+
+		// store the timing
+		m_das = das;
+		m_arr = arr;
+	}
+
+	//**************************************************************************************************
+	/** Writes the commands that are held down (and when each one repeats next) to the passed in
+	  * ByteBuffer, so that they can be read back by readState(). Note that the timing isn't written.
+	  * @param buffer the ByteBuffer to write to
+	  */
+	//**************************************************************************************************
+	public void writeState(ByteBuffer buffer)
+	{
+		// gather the commands that are held down (one bit each)
+		long held = 0;
+		for (int i = 0; i < m_held.length; i++)
+		{
+			if (m_held[i])
+			{
+				held |= 1L << i;
+			}
+		}
+
+		// write them, each followed by the time of its next repeat
+		Varint.write(buffer, held);
+		for (int i = 0; i < m_held.length; i++)
+		{
+			if (m_held[i])
+			{
+				Varint.write(buffer, m_nextRepeat[i]);
+			}
+		}
+	}
+}
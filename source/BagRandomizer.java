@@ -0,0 +1,86 @@
+// Author:   Jose Santos
+// FileName: BagRandomizer.java
+
+import java.util.SplittableRandom;
+
+//******************************************************************************************************
+/** This class creates a BagRandomizer object which deals the Shapes out of a bag holding one of each
+  * kind. Once the bag is empty, it is refilled and shuffled again. Note that this guarantees that every
+  * kind of Shape shows up once in every 7 Shapes.
+  */
+//******************************************************************************************************
+public class BagRandomizer implements Randomizer
+{
+	// data members
+	private int m_bag[];
+	private int m_numOfDealt;
+
+	//**************************************************************************************************
+	/** Creates a BagRandomizer object whose bag starts out empty.
+	  */
+	//**************************************************************************************************
+	public BagRandomizer()
+	{
+		// create the bag (it will hold one of each kind of Shape)
+		m_bag = new int[ShapeTable.NUM_OF_SHAPES];
+
+		// start with an empty bag
+		reset();
+	}
+
+	//**************************************************************************************************
+	/** Returns the name of this BagRandomizer.
+	  * @return "bag"
+	  */
+	//**************************************************************************************************
+	public String getName()
+	{
+		// get the name
+		return "bag";
+	}
+
+	//**************************************************************************************************
+	/** Returns the kind of the next Shape in the bag. Note that the bag is refilled and shuffled when
+	  * it runs out.
+	  * @param random the source of random numbers of the game
+	  * @return the kind of the next Shape
+	  */
+	//**************************************************************************************************
+	public int nextShape(SplittableRandom random)
+	{
+		// refill the bag once every Shape in it has been dealt
+		if (m_numOfDealt == m_bag.length)
+		{
+			// put one of each kind of Shape in the bag
+			for (int i = 0; i < m_bag.length; i++)
+			{
+				m_bag[i] = i;
+			}
+
+			// shuffle the bag (Fisher-Yates)
+			for (int i = m_bag.length - 1; i > 0; i--)
+			{
+				int j    = random.nextInt(i + 1);
+				int temp = m_bag[i];
+				m_bag[i] = m_bag[j];
+				m_bag[j] = temp;
+			}
+
+			// nothing has been dealt from the new bag
+			m_numOfDealt = 0;
+		}
+
+		// deal the next Shape out of the bag
+		return m_bag[m_numOfDealt++];
+	}
+
+	//**************************************************************************************************
+	/** Resets this BagRandomizer so that the bag is empty (it will be filled on the next Shape).
+	  */
+	//**************************************************************************************************
+	public void reset()
+	{
+		// pretend that the whole bag has been dealt
+		m_numOfDealt = m_bag.length;
+	}
+}
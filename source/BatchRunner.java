@@ -0,0 +1,506 @@
+// Author:   Jose Santos
+// FileName: BatchRunner.java
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+//******************************************************************************************************
+/** This class creates a BatchRunner object which plays a batch of games without a window. Each game is
+  * played by a bot from its first Shape until the game is over, and the games are spread over a pool
+  * of threads. Once the batch is done, the throughput and the spread of the scores, the rows cleared
+  * and the time taken to decide on each Shape are printed. Note that nothing in here touches Swing, so
+  * a batch can be run on a machine without a display:
+  *
+  *   java -jar tetris.jar --headless --games 100 --threads 4 --seed 1 --bot lookahead
+  *
+  * Game i of a batch is started from the seed of the batch plus i, so the same batch always hands out
+  * the same Shapes. When the bot has no time budget, it also always plays them the same way.
+  */
+//******************************************************************************************************
+public class BatchRunner
+{
+	// the default settings of a batch
+	public static final String DEFAULT_BOT        = "greedy";
+	public static final int    DEFAULT_COLS       = 10;
+	public static final int    DEFAULT_GAMES      = 100;
+	public static final String DEFAULT_RANDOMIZER = "uniform";
+	public static final int    DEFAULT_ROWS       = 16;
+
+	// the percentiles of the latencies that are printed, and their names
+	private static final double PERCENTILES[]      = {50.0, 90.0, 99.0, 99.9};
+	private static final String PERCENTILE_NAMES[] = {"p50", "p90", "p99", "p99.9"};
+
+	// data members
+	private String     m_bot;
+	private long       m_budget;
+	private int        m_cols;
+	private int        m_maxPieces;
+	private int        m_numOfGames;
+	private int        m_numOfThreads;
+	private String     m_randomizer;
+	private int        m_rows;
+	private long       m_seed;
+	private BotWeights m_weights;
+
+	//**************************************************************************************************
+	/** Creates a BatchRunner object with the default settings. That is, DEFAULT_GAMES games of the
+	  * DEFAULT_BOT are played on a thread per core, with no time budget and no limit on their length.
+	  */
+	//**************************************************************************************************
+	public BatchRunner()
+	{
+		// set the default settings
+		m_bot          = DEFAULT_BOT;
+		m_budget       = 0;
+		m_cols         = DEFAULT_COLS;
+		m_maxPieces    = 0;
+		m_numOfGames   = DEFAULT_GAMES;
+		m_numOfThreads = Runtime.getRuntime().availableProcessors();
+		m_randomizer   = DEFAULT_RANDOMIZER;
+		m_rows         = DEFAULT_ROWS;
+		m_seed         = 1;
+		m_weights      = new BotWeights();
+	}
+
+	//**************************************************************************************************
+	private static double average(int values[])
+	{
+		// add up the values
+		double sum = 0.0;
+		for (int i = 0; i < values.length; i++)
+		{
+			sum += values[i];
+		}
+
+		return (values.length > 0) ? sum / values.length : 0.0;
+	}
+
+	//**************************************************************************************************
+	private static String getArgument(String args[], int i)
+	{
+		// every option but --headless is followed by its value
+		if (i + 1 >= args.length)
+		{
+			throw new IllegalArgumentException("Missing value for " + args[i]);
+		}
+
+		return args[i + 1];
+	}
+
+	//**************************************************************************************************
+	/** Returns the BotWeights that the bot plays with.
+	  * @return the BotWeights of the bot
+	  */
+	//**************************************************************************************************
+	public BotWeights getWeights()
+	{
+		// get the weights
+		return m_weights;
+	}
+
+	//**************************************************************************************************
+	/** Plays a batch of games as told by the passed in options, and prints how it went.
+	  * @param args the options of the batch
+	  */
+	//**************************************************************************************************
+	public static void main(String args[])
+	{
+		// nothing in a batch needs a display
+		System.setProperty("java.awt.headless", "true");
+
+		// create the BatchRunner
+		BatchRunner runner = new BatchRunner();
+
+		try
+		{
+			// read the options
+			runner.parseArgs(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// tell the user what went wrong, and how it's done right
+			System.err.println(e.getMessage());
+			printUsage(System.err);
+			System.exit(1);
+		}
+
+		// play the games
+		long start           = System.nanoTime();
+		GameResult results[] = runner.run();
+		long elapsed         = System.nanoTime() - start;
+
+		// print how they went
+		printReport(System.out, results, elapsed);
+	}
+
+	//**************************************************************************************************
+	/** Reads the options of a batch. The options are:
+	  *
+	  *   --headless          plays the batch instead of opening the window (see Tetris)
+	  *   --games N           the number of games to play
+	  *   --threads T         the number of threads to play them on
+	  *   --seed S            the seed of the first game
+	  *   --bot NAME          the bot that plays the games ("greedy" or "lookahead")
+	  *   --weights W,W,W,W,W the BotWeights of the bot
+	  *   --randomizer NAME   the Randomizer of the Shapes ("uniform", "bag" or "history")
+	  *   --budget MS         the time budget of each Shape (0 for none)
+	  *   --max-pieces P      the most Shapes of a game (0 for no limit)
+	  *   --rows R            the number of rows of the board (at most BoardModel.MAX_ROWS)
+	  *   --cols C            the number of columns of the board (at most BoardModel.MAX_COLS)
+	  *
+	  * @param args the options
+	  * @throws IllegalArgumentException if an option is unknown or its value is invalid
+	  */
+	//**************************************************************************************************
+	public void parseArgs(String args[])
+	{
+		try
+		{
+			for (int i = 0; i < args.length; i++)
+			{
+				// get the option
+				String option = args[i];
+
+				if (option.equals("--headless"))
+				{
+					// this is what got us here, so there is nothing more to do
+					continue;
+				}
+
+				// get the value of the option
+				String value = getArgument(args, i++);
+
+				if (option.equals("--games"))
+				{
+					m_numOfGames = Integer.parseInt(value);
+				}
+				else if (option.equals("--threads"))
+				{
+					m_numOfThreads = Integer.parseInt(value);
+				}
+				else if (option.equals("--seed"))
+				{
+					m_seed = Long.parseLong(value);
+				}
+				else if (option.equals("--bot"))
+				{
+					// make sure that the bot exists
+					HeuristicBot.createSearch(value, m_weights, ForkJoinPool.commonPool());
+					m_bot = value;
+				}
+				else if (option.equals("--weights"))
+				{
+					m_weights = BotWeights.parse(value);
+				}
+				else if (option.equals("--randomizer"))
+				{
+					// make sure that the Randomizer exists
+					ShapeGenerator.createRandomizer(value);
+					m_randomizer = value;
+				}
+				else if (option.equals("--budget"))
+				{
+					m_budget = Long.parseLong(value);
+				}
+				else if (option.equals("--max-pieces"))
+				{
+					m_maxPieces = Integer.parseInt(value);
+				}
+				else if (option.equals("--rows"))
+				{
+					m_rows = Integer.parseInt(value);
+				}
+				else if (option.equals("--cols"))
+				{
+					m_cols = Integer.parseInt(value);
+				}
+				else
+				{
+					throw new IllegalArgumentException("Unknown option: " + option);
+				}
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+		}
+
+		// a batch needs at least one game and one thread
+		if (m_numOfGames <= 0 || m_numOfThreads <= 0)
+		{
+			throw new IllegalArgumentException("The number of games and threads must be positive");
+		}
+
+		// the games are played on BoardModels of a valid dimension (see BoardModel)
+		if (m_rows <= 0 || m_cols <= 0 || m_rows > BoardModel.MAX_ROWS || m_cols > BoardModel.MAX_COLS)
+		{
+			throw new IllegalArgumentException("The number of rows must be between 1 and " +
+			                                   BoardModel.MAX_ROWS + ", and the number of columns " +
+			                                   "between 1 and " + BoardModel.MAX_COLS);
+		}
+	}
+
+	//**************************************************************************************************
+	private static long percentile(long sorted[], double percent)
+	{
+		// the value below which the indicated percentage of the sorted values lie
+		int index = (int)Math.ceil(percent / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+
+	//**************************************************************************************************
+	/** Plays a game on the passed in GameEngine from the indicated seed until it's over (or until the
+	  * indicated number of Shapes have been played). Note that this is run on the calling thread.
+	  * @param engine the GameEngine to play the game on
+	  * @param search the PlacementSearch used to find each Placement
+	  * @param seed the seed to start the game from
+	  * @param maxPieces the most Shapes to play (0 for no limit)
+	  * @param budget the time budget of each Shape (in milliseconds, 0 for none)
+	  * @return how the game turned out
+	  */
+	//**************************************************************************************************
+	public static GameResult playGame(GameEngine engine, PlacementSearch search, long seed, int maxPieces,
+	                                  long budget)
+	{
+		// start the game
+		engine.startGame(seed);
+
+		// will hold the time taken to decide on each Shape
+		long latencies[] = new long[256];
+		int  numOfPieces = 0;
+
+		// play Shapes until the game is over (or the limit is reached)
+		int result = GameEngine.TICK_LOCKED;
+		while (result != GameEngine.TICK_GAME_OVER && (maxPieces <= 0 || numOfPieces < maxPieces))
+		{
+			// a Shape without a time budget is searched to the end (its deadline is as far away as it
+			// can be without overflowing when it's compared)
+			long start    = System.nanoTime();
+			long deadline = start + ((budget > 0) ? budget * 1000000L : Long.MAX_VALUE / 2);
+
+			// play the current Shape
+			result = HeuristicBot.playShape(engine, search, deadline);
+
+			// remember how long it took
+			if (numOfPieces == latencies.length)
+			{
+				latencies = Arrays.copyOf(latencies, latencies.length * 2);
+			}
+			latencies[numOfPieces++] = System.nanoTime() - start;
+		}
+
+		return new GameResult(seed, engine.getScore(), engine.getLines(), numOfPieces,
+		                      Arrays.copyOf(latencies, numOfPieces));
+	}
+
+	//**************************************************************************************************
+	private static void printDistribution(PrintStream out, String name, int values[])
+	{
+		// sort the values so that their percentiles can be picked out
+		int sorted[] = values.clone();
+		Arrays.sort(sorted);
+
+		// print the smallest, the median, the average and the largest value
+		out.printf("%-10s min %d  p50 %d  mean %.1f  max %d%n", name, sorted[0],
+		           sorted[(sorted.length - 1) / 2], average(sorted), sorted[sorted.length - 1]);
+	}
+
+	//**************************************************************************************************
+	/** Prints how a batch of games went. That is, the throughput of the batch, the spread of the scores
+	  * and of the rows cleared, and the percentiles of the time taken to decide on each Shape.
+	  * @param out the PrintStream to print to
+	  * @param results the GameResults of the batch
+	  * @param elapsed the time the batch took (in nanoseconds)
+	  */
+	//**************************************************************************************************
+	public static void printReport(PrintStream out, GameResult results[], long elapsed)
+	{
+		// gather the outcome of every game
+		int  scores[]    = new int[results.length];
+		int  lines[]     = new int[results.length];
+		long numOfPieces = 0;
+		for (int i = 0; i < results.length; i++)
+		{
+			scores[i]    = results[i].getScore();
+			lines[i]     = results[i].getLines();
+			numOfPieces += results[i].getNumOfPieces();
+		}
+
+		// gather the latency of every Shape
+		long latencies[] = new long[(int)numOfPieces];
+		int  count       = 0;
+		for (int i = 0; i < results.length; i++)
+		{
+			long gameLatencies[] = results[i].getLatencies();
+			System.arraycopy(gameLatencies, 0, latencies, count, gameLatencies.length);
+			count += gameLatencies.length;
+		}
+		Arrays.sort(latencies);
+
+		// print the throughput
+		double seconds = elapsed / 1.0e9;
+		out.printf("games      %d in %.2f s (%.1f games/s)%n", results.length, seconds, results.length / seconds);
+		out.printf("pieces     %d (%.0f pieces/s)%n", numOfPieces, numOfPieces / seconds);
+
+		// print the spread of the scores and of the rows cleared
+		if (results.length > 0)
+		{
+			printDistribution(out, "score", scores);
+			printDistribution(out, "lines", lines);
+		}
+
+		// print the percentiles of the latencies (in microseconds)
+		if (latencies.length > 0)
+		{
+			out.print("latency us");
+			for (int i = 0; i < PERCENTILES.length; i++)
+			{
+				out.printf(" %s %.1f ", PERCENTILE_NAMES[i], percentile(latencies, PERCENTILES[i]) / 1000.0);
+			}
+			out.printf(" max %.1f%n", latencies[latencies.length - 1] / 1000.0);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Prints the options of a batch.
+	  * @param out the PrintStream to print to
+	  */
+	//**************************************************************************************************
+	public static void printUsage(PrintStream out)
+	{
+		out.println("Usage: java -jar tetris.jar --headless [options]");
+		out.println("  --games N           the number of games to play (default " + DEFAULT_GAMES + ")");
+		out.println("  --threads T         the number of threads to play them on (default: one per core)");
+		out.println("  --seed S            the seed of the first game (default 1)");
+		out.println("  --bot NAME          greedy or lookahead (default " + DEFAULT_BOT + ")");
+		out.println("  --weights W,W,W,W,W the weights of the bot");
+		out.println("  --randomizer NAME   uniform, bag or history (default " + DEFAULT_RANDOMIZER + ")");
+		out.println("  --budget MS         the time budget of each Shape (default 0, for none)");
+		out.println("  --max-pieces P      the most Shapes of a game (default 0, for no limit)");
+		out.println("  --rows R            the number of rows (default " + DEFAULT_ROWS + ")");
+		out.println("  --cols C            the number of columns (default " + DEFAULT_COLS + ")");
+	}
+
+	//**************************************************************************************************
+	/** Plays the games of this batch, spread over its threads, and returns how each one turned out.
+	  * Note that the games share a PlacementSearch (and so its TranspositionTable), and the search of
+	  * each Shape runs on the thread of its game, with idle threads helping out.
+	  * @return the GameResults of the games (in the order of their seeds)
+	  */
+	//**************************************************************************************************
+	public GameResult[] run()
+	{
+		// the games and their searches run on the same pool
+		ForkJoinPool pool = new ForkJoinPool(m_numOfThreads);
+
+		try
+		{
+			// create the bot
+			final PlacementSearch search = HeuristicBot.createSearch(m_bot, m_weights, pool);
+
+			// start every game
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			ForkJoinTask<GameResult> games[] = new ForkJoinTask[m_numOfGames];
+			for (int i = 0; i < m_numOfGames; i++)
+			{
+				final long seed = m_seed + i;
+				games[i] = pool.submit(new Callable<GameResult>()
+				{
+					public GameResult call()
+					{
+						// each game has its own GameEngine, handing out the Shapes of its seed
+						Randomizer randomizer = ShapeGenerator.createRandomizer(m_randomizer);
+						GameEngine engine     = new GameEngine(m_rows, m_cols, new ShapeGenerator(randomizer, seed));
+
+						return playGame(engine, search, seed, m_maxPieces, m_budget);
+					}
+				});
+			}
+
+			// wait for the games to finish (in order)
+			GameResult retVal[] = new GameResult[m_numOfGames];
+			for (int i = 0; i < m_numOfGames; i++)
+			{
+				retVal[i] = games[i].get();
+			}
+
+			return retVal;
+		}
+		catch (InterruptedException e)
+		{
+			// keep the interrupt for the caller
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The batch was interrupted", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("A game of the batch failed", e.getCause());
+		}
+		finally
+		{
+			// the threads are no longer needed
+			pool.shutdownNow();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Sets the name of the bot that plays the games.
+	  * @param bot the name of the bot ("greedy" or "lookahead")
+	  */
+	//**************************************************************************************************
+	public void setBot(String bot)
+	{
+		// set the bot
+		m_bot = bot;
+	}
+
+	//**************************************************************************************************
+	/** Sets the number of games to play and the seed of the first one.
+	  * @param numOfGames the number of games to play
+	  * @param seed the seed of the first game
+	  */
+	//**************************************************************************************************
+	public void setGames(int numOfGames, long seed)
+	{
+		// set the games
+		m_numOfGames = numOfGames;
+		m_seed       = seed;
+	}
+
+	//**************************************************************************************************
+	/** Sets the most Shapes of a game.
+	  * @param maxPieces the most Shapes of a game (0 for no limit)
+	  */
+	//**************************************************************************************************
+	public void setMaxPieces(int maxPieces)
+	{
+		// set the limit
+		m_maxPieces = maxPieces;
+	}
+
+	//**************************************************************************************************
+	/** Sets the number of threads to play the games on.
+	  * @param numOfThreads the number of threads
+	  */
+	//**************************************************************************************************
+	public void setNumOfThreads(int numOfThreads)
+	{
+		// set the number of threads
+		m_numOfThreads = numOfThreads;
+	}
+
+	//**************************************************************************************************
+	/** Sets the BotWeights that the bot plays with.
+	  * @param weights the BotWeights of the bot
+	  */
+	//**************************************************************************************************
+	public void setWeights(BotWeights weights)
+	{
+		// set the weights
+		m_weights = weights;
+	}
+}
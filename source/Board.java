@@ -3,21 +3,23 @@
 
 import java.awt.*;
 import javax.swing.*;
-import java.util.List;
-import java.util.ArrayList;
 
+//******************************************************************************************************
+/** This class creates a Board object which displays a BoardModel. Note that all the rules of the game
+  * live in the BoardModel. The cells are painted by a single BoardCanvas, and the Board forwards
+  * everything else to the BoardModel.
+  */
+//******************************************************************************************************
 @SuppressWarnings("serial")
 public class Board extends JPanel
 {
 	// data members
-	private BoardCell m_boardCells[][];
-	private Color     m_color;
-	private int       m_numOfCols;
-	private int       m_numOfRows;
-	private JLabel    m_titleLabel;
-	private JPanel    m_boardPanel;
-	private Shape     m_currentShape;
-	private String    m_title;
+	private BoardCanvas  m_canvas;
+	private Color        m_color;
+	private BoardModel   m_model;
+	private RenderCanvas m_renderCanvas;
+	private JLabel       m_titleLabel;
+	private String       m_title;
 
 	//**************************************************************************************************
 	/** Creates a Board object that will have the specified dimension, along with a title. Note that the
@@ -42,11 +44,8 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public Board(int rows, int cols, String title, Color color)
 	{
-		// set the number of columns
-		m_numOfCols = cols;
-
-		// set the number of rows
-		m_numOfRows = rows;
+		// create the BoardModel that this Board will display
+		m_model = new BoardModel(rows, cols, color.getRGB());
 
 		// set the color of this Board
 		m_color = color;
@@ -60,47 +59,14 @@ public class Board extends JPanel
 		// initially, make the label invisible
 		m_titleLabel.setVisible(false);
 
+		// create the BoardCanvas that will paint the cells
+		m_canvas = new BoardCanvas(m_model);
+
 		// initialize all the panels
 		initPanels();
 
-		// initialize the board cells
-		initBoardCells();
-
-		// generate the current Shape
-		m_currentShape = generateShape();
-
-		// add the current Shape to this Board
-		m_currentShape.addToBoard(true);
-	}
-
-	//**************************************************************************************************
-	/** Attaches the List of BoardCells to the indicated row. Note that if the indicated row is invalid,
-	  * nothing is done.
-	  * @param rowNum the number of the row at which to attach the List of BoardCells
-	  * @param row the List of BoardCells
-	  */
-	//**************************************************************************************************
-	public void attachRow(int rowNum, List<BoardCell> row)
-	{
-		// make sure that the indicated row is valid
-		if (validYPos(rowNum))
-		{
-			// attach all the BoardCells in the passed in List to the indicated row of this Board
-			for (int col = 0; col < getNumOfCols(); col++)
-			{
-				// get the next BoardCell from the passed in List
-				BoardCell boardCell = row.get(col);
-
-				// set the empty status of the BoardCell in this Board
-				m_boardCells[rowNum][col].setEmpty( boardCell.isEmpty());
-
-				// set the color of the BoardCell in this Board
-				m_boardCells[rowNum][col].setColor( boardCell.getColor());
-
-				// set the border paint status of the BoardCell in this Board
-				m_boardCells[rowNum][col].getCellJButton().setBorderPainted(boardCell.getCellJButton().isBorderPainted());
-			}
-		}
+		// the BoardCanvas will now follow every change made to the BoardModel
+		m_model.setListener(m_canvas);
 	}
 
 	//**************************************************************************************************
@@ -109,126 +75,34 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public void cascadeRows()
 	{
-		// will hold copies of all the non-empty rows
-		List<List<BoardCell>> nonEmptyRows = new ArrayList<List<BoardCell>>();
-
-		// temporarily remove the current shape from the Board
-		m_currentShape.removeFromBoard(true);
-
-		// clear any rows that are completely filled
-		for (int row = getNumOfRows() - 1; row >= 0; row--)
-		{
-			// check to see if the next row is full
-			if (rowIsFull(row))
-			{
-				// clear this row since it's full
-				clearRow(row);
-			}
-		}
-
-		// store copies of all the non-empty rows
-		for (int row = getNumOfRows() - 1; row >= 0; row--)
-		{
-			// check to see if the next row is non-empty
-			if (!rowIsEmpty(row))
-			{
-				// store a copy of the non-empty row
-				nonEmptyRows.add(copyOfRow(row));
-
-				// remove the actual row from the Board
-				clearRow(row);
-			}
-		}
-
-		// add the non-empty rows back to the Board in the order that they were stored
-		for (int i = 0; i < nonEmptyRows.size(); i++)
-		{
-			// get the next non-empty row of BoardCells
-			List<BoardCell>nonEmptyRow = nonEmptyRows.get(i);
-
-			// add the non-empty row back to the Board
-			attachRow((getNumOfRows() - 1) - i, nonEmptyRow);
-		}
-
-		// add the current Shape back to the Board
-		m_currentShape.addToBoard(true);
-
+		// cascade the rows of the BoardModel
+		m_model.cascadeRows();
 	}
 
 	//**************************************************************************************************
-	/** Clears this entire Board so that all the BoardCells are empty.
+	/** Clears this entire Board so that all the cells are empty.
 	  */
 	//**************************************************************************************************
 	public void clearBoard()
 	{
-		// clear all the rows of this Board
-		for (int row = 0; row < getNumOfRows(); row++)
-		{
-			// clear the row
-			clearRow(row);
-		}
+		// clear the BoardModel
+		m_model.clearBoard();
 	}
+
 	//**************************************************************************************************
-	/** Clears the specified row of any non-empty BoardCells. Note that if the indicated row does not
+	/** Clears the specified row of any non-empty cells. Note that if the indicated row does not
 	  * exist, nothing is done.
-	  * @param rowNum the row of BoardCells to clear
+	  * @param rowNum the row of cells to clear
 	  */
 	//**************************************************************************************************
 	public void clearRow(int rowNum)
 	{
-		// make sure that the indicated row is valid
-		if (validYPos(rowNum))
-		{
-			// set each BoardCell in this row to be empty
-			for (int col = 0; col < getNumOfCols(); col++)
-			{
-				// get the next BoardCell in the indicated row
-				BoardCell boardCell = m_boardCells[rowNum][col];
-
-				// set this BoardCell to be empty
-				boardCell.setEmpty(true);
-
-				// the color of the BoardCell will now be that of the Board
-				boardCell.setColor(getColor());
-
-				// disable the border paint on the BoardCell
-				boardCell.getCellJButton().setBorderPainted(false);
-			}
-		}
+		// clear the row of the BoardModel
+		m_model.clearRow(rowNum);
 	}
 
 	//**************************************************************************************************
-	/** Returns a List containing a copy of the indicated row of BoardCells. Note that if the indicated
-	  * row number is invalid, a null value is returned. Because this is a deep copy of BoardCells,
-	  * the returned List will contain different BoardCell references than the ones in the actual
-	  * Board.
-	  * @param rowNum the row of BoardCells desired
-	  * @return a List containing a copy of the indicated row of BoardCells
-	  */
-	//**************************************************************************************************
-	public List<BoardCell> copyOfRow(int rowNum)
-	{
-		// will holds the BoardCells contained in the specified row
-		List<BoardCell> rowOfBoardCells = null;
-
-		// make sure that the indicated row is valid
-		if (validYPos(rowNum))
-		{
-			// create the List of BoardCells
-			rowOfBoardCells = new ArrayList<BoardCell>();
-
-			// copy all the BoardCells of the indicated row
-			for (int col = 0; col < getNumOfCols(); col++)
-			{
-				rowOfBoardCells.add(new BoardCell(m_boardCells[rowNum][col]));
-			}
-		}
-
-		return rowOfBoardCells;
-	}
-
-	//**************************************************************************************************
-	/** Displays the board panel. That is, all the BoardCells in this Board are displayed.
+	/** Displays the board panel. That is, all the cells in this Board are displayed.
 	  */
 	//**************************************************************************************************
 	public void displayBoardPanel()
@@ -236,15 +110,8 @@ public class Board extends JPanel
 		// display the title
 		m_titleLabel.setVisible(true);
 
-		// display the board panel
-		for (int row = 0; row < m_boardCells.length; row++)
-		{
-			for (int col = 0; col < m_boardCells[row].length; col++)
-			{
-				// display this particular BoardCell
-				m_boardCells[row][col].display();
-			}
-		}
+		// display the cells
+		m_canvas.display();
 	}
 
 	//**************************************************************************************************
@@ -254,99 +121,41 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public boolean fullRowExists()
 	{
-		// holds whether or not there exists a full row
-		boolean retVal = false;
-
-		// go through each row of the Board to see if it's full
-		for (int row = 0; row < getNumOfRows(); row++)
-		{
-			// check to see if the next row if empty
-			if (rowIsFull(row))
-			{
-				// this row is full
-				retVal = true;
-				break;
-			}
-		}
-
-		return retVal;
+		// check the BoardModel for a full row
+		return m_model.fullRowExists();
 	}
 
 	//**************************************************************************************************
-	/** Returns a randomly generated Shape.
-	  * @return a randomly generated Shape
+	/** Returns the BoardCanvas that paints the cells of this Board.
+	  * @return the BoardCanvas of this Board
 	  */
 	//**************************************************************************************************
-    public Shape generateShape()
-    {
-		// generate a random value (between 0 and 255) for the r value
-		int r = (int)(Math.random() * 256);
-
-		// generate a random value (between 0 and 255) for the b value
-		int g = (int)(Math.random() * 256);
-
-		// generate a random value (between 0 and 255) for the g value
-		int b = (int)(Math.random() * 256);
-
-		// generate a random color
-		Color color = new Color(r, g, b);
-
-		// the array from which we will randomly select a Shape
-		Shape shapes[] = {new TShape(this, color), new LShape(this, color), new JShape(this, color),
-		                  new ZShape(this, color), new SShape(this, color), new OShape(this, color),
-		                  new IShape(this, color)};
-
-
-		// from the array, randomly select a Shape and store it
-		Shape shape = shapes[(int)(Math.random() * shapes.length)];
-
-		// get the Shape
-		return shape;
-	}
-
-	//**************************************************************************************************
-	/** Returns a BoardCell at the indicated x and y position. Note that if either the x or
-	  * y position is invalid, a null value will be returned.
-	  * @param x the x position of the BoardCell to retrieve
-	  * @param y the y position of the BoardCell to retrieve
-	  * @return a BoardCell at the indicated x and y position
-	  */
-	//**************************************************************************************************
-	public BoardCell getBoardCell(int x, int y)
+	public BoardCanvas getCanvas()
 	{
-		// will hold the desired BoardCell
-		BoardCell boardCell = null;
-
-		// make sure the specified x and y values are valid
-		if (validPos(x, y))
-		{
-			// get the indicated BoardCell
-			boardCell = m_boardCells[y][x];
-		}
-
-		return boardCell;
+		// get the BoardCanvas
+		return m_canvas;
 	}
 
 	//**************************************************************************************************
-	/** Returns all the BoardCells of this Board as a 2D array.
-	  * @return all the BoardCells of this Board
+	/** Returns the color of this Board.
+	  * @return the color of this Board
 	  */
 	//**************************************************************************************************
-	public BoardCell[][] getBoardCells()
+	public Color getColor()
 	{
-		// get all the BoardCells of this Board
-		return m_boardCells;
+		// get the color of this Board
+		return m_color;
 	}
 
 	//**************************************************************************************************
-	/** Returns the color of this Board.
-	  * @return the color of this Board
+	/** Returns the BoardModel that this Board displays.
+	  * @return the BoardModel that this Board displays
 	  */
 	//**************************************************************************************************
-	public Color getColor()
+	public BoardModel getModel()
 	{
-		// get the color of this Board
-		return m_color;
+		// get the BoardModel
+		return m_model;
 	}
 
 	//**************************************************************************************************
@@ -357,7 +166,7 @@ public class Board extends JPanel
 	public int getNumOfCols()
 	{
 		// get the number of columns
-		return m_numOfCols;
+		return m_model.getNumOfCols();
 	}
 
 	//**************************************************************************************************
@@ -368,34 +177,7 @@ public class Board extends JPanel
 	public int getNumOfRows()
 	{
 		// get the number of rows
-		return m_numOfRows;
-	}
-
-	//**************************************************************************************************
-	/** Returns a List containing the indicated row of BoardCells. Note that if the indicated row
-	  * number is invalid, a null value is returned.
-	  * @param rowNum the row of BoardCells desired
-	  */
-	//**************************************************************************************************
-	public List<BoardCell> getRow(int rowNum)
-	{
-		// will holds the BoardCells contained in the specified row
-		List<BoardCell> rowOfBoardCells = null;
-
-		// make sure that the indicated row is valid
-		if (validYPos(rowNum))
-		{
-			// create the List of BoardCells
-			rowOfBoardCells = new ArrayList<BoardCell>();
-
-			// store all the BoardCells of the indicated row
-			for (int col = 0; col < getNumOfCols(); col++)
-			{
-				rowOfBoardCells.add(m_boardCells[rowNum][col]);
-			}
-		}
-
-		return rowOfBoardCells;
+		return m_model.getNumOfRows();
 	}
 
 	//**************************************************************************************************
@@ -405,8 +187,8 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public Shape getShape()
 	{
-		// get the current Shape
-		return m_currentShape;
+		// get the current Shape of the BoardModel
+		return m_model.getShape();
 	}
 
 	//**************************************************************************************************
@@ -420,86 +202,17 @@ public class Board extends JPanel
 		return m_title;
 	}
 
-	//**************************************************************************************************
-	private void initBoardCells()
-	{
-		//***************************************************************************************//
-		// NOTE: Create arrays in the 2D array. Note that the number of rows in the 2D array are //
-		//       determined by the number of rows in the board.                                  //
-		//***************************************************************************************//
-		m_boardCells = new BoardCell[m_numOfRows][];
-
-		//*******************************************************************************//
-		// NOTE: Create a BoardCell for each area of the boardPanel. Note that since the //
-		//       boardPanel has a rowNum x colNum grid layout, these BoardCells will act //
-		//       as grid cells. That is, the appropriate ones will light up when a shape //
-		//       happens to be on the board.                                             //
-		//*******************************************************************************//
-		for (int row = 0; row < m_numOfRows; row++)
-		{
-			// create columns for the next array in the 2D array of BoardCells
-			m_boardCells[row] = new BoardCell[m_numOfCols];
-
-			for (int col = 0; col < m_numOfCols; col++)
-			{
-				// create a BoardCell for this particular area of the boardPanel
-				m_boardCells[row][col] = new BoardCell(col, row, getColor());
-
-				// add the BoardCell to the boardPanel
-				m_boardPanel.add(m_boardCells[row][col].getCellJButton());
-			}
-		}
-	}
-
 	//**************************************************************************************************
 	private void initPanels()
 	{
 		// set the layout of this Board to a BorderLayout
 		setLayout(new BorderLayout());
 
-		// create the board panel
-		m_boardPanel = new JPanel(new GridLayout(m_numOfRows, m_numOfCols));
-
 		// add the title of the board to the NORTH of this Board
 		add(m_titleLabel, BorderLayout.NORTH);
 
-		// add the board panel to the CENTER of this Board
-		add(m_boardPanel, BorderLayout.CENTER);
-	}
-
-	//**************************************************************************************************
-	/** Moves the current shape to the direction indicated. Note that the Shape can only be moved if
-	  * no obstacles are obstructing it. An obstacle can include a boundary or any Block from the Board
-	  * that is currently filled.
-	  * @param direction the direction in which to move the current Shape
-	  */
-	//**************************************************************************************************
-	public void moveShape(String direction)
-	{
-		if (direction.equals("Left"))
-		{
-			// move the current shape to the left
-			m_currentShape.moveLeft();
-		}
-		else if (direction.equals("Right"))
-		{
-			// move the current shape to the right
-			m_currentShape.moveRight();
-		}
-		else if (direction.equals("Down"))
-		{
-			// move the current shape down
-			m_currentShape.moveDown();
-		}
-		else if (direction.equals("Up"))
-		{
-			// make sure the current shape can be rotated
-			if (m_currentShape.canRotate())
-			{
-				// rotate the current shape
-				m_currentShape.rotate(true, true);
-			}
-		}
+		// add the BoardCanvas to the CENTER of this Board
+		add(m_canvas, BorderLayout.CENTER);
 	}
 
 	//**************************************************************************************************
@@ -510,25 +223,8 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public boolean rowIsEmpty(int rowNum)
 	{
-		// holds whether or not the indicated row is empty
-		boolean retVal = true;
-
-		// make sure that the indicated row is valid
-		if (validYPos(rowNum))
-		{
-			// check each column of the indicated row to see whether or not it's empty
-			for (int col = 0; col < getNumOfCols(); col++)
-			{
-				if (!m_boardCells[rowNum][col].isEmpty())
-				{
-					// this BoardCell is not empty and therefore, the indicated row is not fully empty
-					retVal = false;
-					break;
-				}
-			}
-		}
-
-		return retVal;
+		// check the row of the BoardModel
+		return m_model.rowIsEmpty(rowNum);
 	}
 
 	//**************************************************************************************************
@@ -539,26 +235,33 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public boolean rowIsFull(int rowNum)
 	{
-		// holds whether or not the indicated row is full
-		boolean retVal = true;
+		// check the row of the BoardModel
+		return m_model.rowIsFull(rowNum);
+	}
 
-		// make sure that the indicated row is valid
-		if (validYPos(rowNum))
+	//**************************************************************************************************
+	/** Has the cells of this Board rendered by the passed in RenderLoop from now on (which is started
+	  * if it isn't running yet). A RenderCanvas takes the place of the BoardCanvas on the screen, while
+	  * the BoardCanvas keeps following the BoardModel. Note that this must be called on the event
+	  * dispatch thread, and that the cells can't go back to being painted by Swing afterwards.
+	  * @param renderLoop the RenderLoop that renders the cells
+	  */
+	//**************************************************************************************************
+	public void setRenderLoop(RenderLoop renderLoop)
+	{
+		// put a RenderCanvas in place of the BoardCanvas (once)
+		if (m_renderCanvas == null)
 		{
-			// check each column of the indicated row to see whether or not it's full
-			for (int col = 0; col < getNumOfCols(); col++)
-			{
-				if (m_boardCells[rowNum][col].isEmpty())
-				{
-					// this BoardCell is empty and therefore, the indicated row is not completely full
-					retVal = false;
-					break;
-				}
-			}
+			m_renderCanvas = new RenderCanvas(m_canvas);
+			remove(m_canvas);
+			add(m_renderCanvas, BorderLayout.CENTER);
 		}
 
-		return retVal;
+		// have the RenderLoop render it
+		renderLoop.add(m_renderCanvas);
+		renderLoop.start();
 	}
+
 	//**************************************************************************************************
 	/** Sets the current Shape of this Board.
 	  * @param shape the current Shape of this Board
@@ -566,24 +269,8 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public void setShape(Shape shape)
 	{
-		// remove the old shape from its Board
-		shape.removeFromBoard(true);
-
-		// the associated Board of the passed in Shape will be this Board
-		shape.setBoard(this);
-
-		// set the current Shape
-		m_currentShape = shape;
-
-		// set the focal Block of the current Shape to be centered
-		m_currentShape.getFocalBlock().setXPos(getNumOfCols() / 2);
-		m_currentShape.getFocalBlock().setYPos(0);
-
-		// re-adjust the Blocks of the Shape according to where the focal block is positioned
-		m_currentShape.initCoordinates();
-
-		// add the current Shape to this Board
-		m_currentShape.addToBoard(true);
+		// set the current Shape of the BoardModel
+		m_model.setShape(shape);
 	}
 
 	//**************************************************************************************************
@@ -600,40 +287,6 @@ public class Board extends JPanel
 		m_titleLabel.setText(title);
 	}
 
-	//**************************************************************************************************
-	/** Returns true if the passed in Shape happens to lie on top of the specified BoardCell. False is
-	  * returned otherwise.
-	  * @param shape the shape to be checked
-	  * @param boardCell the BoardCell to be checked
-	  * @return true if the passed in Shape lies on top of the specified BoardCell (false otherwise)
-	  */
-	//**************************************************************************************************
-	public boolean shapeOnBoardCell(Shape shape, BoardCell boardCell)
-	{
-		// we'll assume the Shape doesn't lie on top of the BoardCell
-		boolean retVal = false;
-
-		// get the List of Blocks that compose the Shape
-		List<Block> blocks = shape.getBlocks();
-
-		for (int i = 0; i < blocks.size(); i++)
-		{
-			// get the next Block of the Shape
-			Block block = blocks.get(i);
-
-			// check to see the BoardCell has the same coordinates as the Block
-			if (block.getXPos() == boardCell.getXPos() &&
-			    block.getYPos() == boardCell.getYPos())
-			{
-				// this Shape lies on the BoardCell
-				retVal = true;
-				break;
-			}
-		}
-
-		return retVal;
-	}
-
 	//**************************************************************************************************
 	/** Returns true if both the x and y values are valid.
 	  * @param x the x position to check
@@ -643,17 +296,8 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public boolean validPos(int x, int y)
 	{
-		// holds whether or not the passed position is valid
-		boolean retVal = false;
-
-		// check for the validity of the passed in position
-		if (validXPos(x) && validYPos(y))
-		{
-			// the passed in position value IS valid
-			retVal = true;
-		}
-
-		return retVal;
+		// check the position against the BoardModel
+		return m_model.validPos(x, y);
 	}
 
 	//**************************************************************************************************
@@ -664,17 +308,8 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public boolean validXPos(int x)
 	{
-		// holds whether or not the passed in x value is valid
-		boolean retVal = false;
-
-		// check for the validity of the passed in x value
-		if (x >= 0 && x < getNumOfCols())
-		{
-			// the passed in x value IS valid
-			retVal = true;
-		}
-
-		return retVal;
+		// check the x value against the BoardModel
+		return m_model.validXPos(x);
 	}
 
 	//**************************************************************************************************
@@ -685,17 +320,7 @@ public class Board extends JPanel
 	//**************************************************************************************************
 	public boolean validYPos(int y)
 	{
-		// holds whether or not the passed in y value is valid
-		boolean retVal = false;
-
-		// check for the validity of the passed in y value
-		if (y >= 0 && y < getNumOfRows())
-		{
-			// the passed in y value IS valid
-			retVal = true;
-		}
-
-		return retVal;
+		// check the y value against the BoardModel
+		return m_model.validYPos(y);
 	}
-
-}
\ No newline at end of file
+}
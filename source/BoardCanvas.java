@@ -0,0 +1,348 @@
+// Author:   Jose Santos
+// FileName: BoardCanvas.java
+
+import java.awt.*;
+import javax.swing.*;
+
+//******************************************************************************************************
+/** This class creates a BoardCanvas object which paints the cells of a BoardModel itself, rather than
+  * relying on a component per cell. The cells are never painted from the BoardModel itself, but from
+  * the last BoardSnapshot that the game published to the SnapshotBuffer of the BoardCanvas (see
+  * publish()), so the painting never takes a lock, and the game never waits for the painting. Note
+  * that the BoardCanvas remembers which cells have changed since the last repaint, and only asks Swing
+  * to repaint the smallest rectangle holding all of them once they've been published. The current
+  * Shape can also be drawn part of the way towards the next row, so that it falls smoothly in between
+  * the ticks of the game, and the ghost of the Shape shows where it would land.
+  */
+//******************************************************************************************************
+@SuppressWarnings("serial")
+public class BoardCanvas extends JComponent implements BoardModelListener
+{
+	// the preferred size (in pixels) of a single cell
+	public static final int CELL_SIZE = 20;
+
+	// data members
+	private boolean          m_dirty;
+	private volatile boolean m_displayed;
+	private int              m_dirtyMaxCol;
+	private int              m_dirtyMaxRow;
+	private int              m_dirtyMinCol;
+	private int              m_dirtyMinRow;
+	private double           m_fallOffset;
+	private int              m_fallMaxRow;
+	private int              m_fallMinRow;
+	private long             m_ghostHash;
+	private int              m_ghostMaxRow;
+	private int              m_ghostMinRow;
+	private GameMetrics      m_metrics;
+	private BoardModel       m_model;
+	private Rectangle        m_published;
+	private BoardSnapshot    m_snapshot;
+	private SnapshotBuffer   m_snapshots;
+	private TileCache        m_tiles;
+
+	//**************************************************************************************************
+	/** Creates a BoardCanvas object that paints the passed in BoardModel. Note that nothing is painted
+	  * until the BoardCanvas is displayed.
+	  * @param model the BoardModel to paint
+	  */
+	//**************************************************************************************************
+	public BoardCanvas(BoardModel model)
+	{
+		// store the BoardModel
+		m_model = model;
+
+		// the painting is timed when the GameMetrics are enabled
+		m_metrics = GameMetrics.getInstance();
+
+		// the cells are published into the BoardSnapshots of a SnapshotBuffer, and painted with the
+		// tiles of every BoardCanvas (the empty one is painted until the first is published)
+		m_snapshots = new SnapshotBuffer(model.getNumOfRows(), model.getNumOfCols());
+		m_snapshot  = m_snapshots.acquire();
+		m_tiles     = TileCache.getInstance();
+
+		// no cells have changed before a BoardSnapshot was published yet
+		m_published = new Rectangle();
+
+		// no Shape (nor its ghost) has been drawn yet
+		m_fallMinRow  = model.getNumOfRows();
+		m_fallMaxRow  = -1;
+		m_ghostMinRow = model.getNumOfRows();
+		m_ghostMaxRow = -1;
+
+		// the BoardCanvas is not displayed until asked to
+		m_displayed = false;
+
+		// every pixel of the BoardCanvas is painted, so Swing doesn't have to paint what's behind it
+		setOpaque(true);
+
+		// set the preferred size according to the dimension of the BoardModel
+		setPreferredSize(new Dimension(model.getNumOfCols() * CELL_SIZE, model.getNumOfRows() * CELL_SIZE));
+	}
+
+	//**************************************************************************************************
+	/** Marks the cell at the indicated x and y position as dirty. Note that the dirty cells are only
+	  * repainted once the BoardModel has been published (see publish()) and the BoardSnapshot has been
+	  * acquired (see snapshotPublished()).
+	  * @param x the x position of the cell that changed
+	  * @param y the y position of the cell that changed
+	  */
+	//**************************************************************************************************
+	public synchronized void cellChanged(int x, int y)
+	{
+		if (!m_dirty)
+		{
+			// this cell starts a new dirty rectangle
+			m_dirtyMinCol = x;
+			m_dirtyMaxCol = x;
+			m_dirtyMinRow = y;
+			m_dirtyMaxRow = y;
+			m_dirty       = true;
+		}
+		else
+		{
+			// grow the dirty rectangle so that it holds this cell
+			m_dirtyMinCol = Math.min(m_dirtyMinCol, x);
+			m_dirtyMaxCol = Math.max(m_dirtyMaxCol, x);
+			m_dirtyMinRow = Math.min(m_dirtyMinRow, y);
+			m_dirtyMaxRow = Math.max(m_dirtyMaxRow, y);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Displays this BoardCanvas. That is, the cells of the BoardModel are painted from now on.
+	  */
+	//**************************************************************************************************
+	public void display()
+	{
+		// the cells are painted from now on
+		m_displayed = true;
+
+		// paint all the cells
+		repaint();
+	}
+
+	//**************************************************************************************************
+	private int getCellX(int col)
+	{
+		// the columns are spread evenly over the width of the BoardCanvas
+		return col * getWidth() / m_model.getNumOfCols();
+	}
+
+	//**************************************************************************************************
+	private int getCellY(int row)
+	{
+		// the rows are spread evenly over the height of the BoardCanvas
+		return row * getHeight() / m_model.getNumOfRows();
+	}
+
+	//**************************************************************************************************
+	/** Returns the BoardModel that this BoardCanvas paints.
+	  * @return the BoardModel of this BoardCanvas
+	  */
+	//**************************************************************************************************
+	public BoardModel getModel()
+	{
+		// get the BoardModel
+		return m_model;
+	}
+
+	//**************************************************************************************************
+	/** Returns the SnapshotBuffer that the BoardModel is published to. Note that the BoardSnapshots are
+	  * only ever acquired by a single painter: this BoardCanvas (see snapshotPublished()), or a
+	  * RenderCanvas that takes its place.
+	  * @return the SnapshotBuffer of this BoardCanvas
+	  */
+	//**************************************************************************************************
+	public SnapshotBuffer getSnapshots()
+	{
+		// get the SnapshotBuffer
+		return m_snapshots;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if this BoardCanvas is displayed (see display()).
+	  * @return true if the cells of the BoardModel are painted (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean isDisplayed()
+	{
+		// get whether or not the BoardCanvas is displayed
+		return m_displayed;
+	}
+
+	//**************************************************************************************************
+	/** Paints the cells of the BoardModel that lie in the clip of the passed in Graphics, as they were
+	  * when last published (see BoardSnapshot.paint()). Note that no lock is held while painting.
+	  * @param g the Graphics to paint with
+	  */
+	//**************************************************************************************************
+	protected void paintComponent(Graphics g)
+	{
+		// get the area that has to be painted
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+		{
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+
+		// nothing but the background of the parent is painted until this BoardCanvas is displayed
+		if (!m_displayed)
+		{
+			g.setColor(getParent() != null ? getParent().getBackground() : getBackground());
+			g.fillRect(clip.x, clip.y, clip.width, clip.height);
+			return;
+		}
+
+		// paint the BoardSnapshot that was last acquired (the BoardModel may be changing meanwhile)
+		long start = m_metrics.start();
+		m_snapshot.paint(g, clip, getWidth(), getHeight(), m_tiles);
+		m_metrics.stop(GameMetrics.PAINT, start);
+
+		// a key press that was waiting for this painting is now on the screen
+		m_metrics.framePainted();
+	}
+
+	//**************************************************************************************************
+	/** Copies the BoardModel (along with its current Shape and the state of the game) into the back
+	  * BoardSnapshot of the SnapshotBuffer and publishes it, and hands the cells that changed since the
+	  * last time over to the next call to snapshotPublished(). Note that this must be called while
+	  * holding the lock of the GameEngine, and that it never waits for the painting.
+	  * @param engine the GameEngine that runs the game
+	  * @param fallOffset how far (as a fraction of a row) the current Shape is drawn towards the next
+	  *                   row
+	  * @param ghost true to publish the ghost of the current Shape as well
+	  */
+	//**************************************************************************************************
+	public void publish(GameEngine engine, double fallOffset, boolean ghost)
+	{
+		// copy the BoardModel and publish it
+		m_snapshots.publish(m_model, fallOffset, engine, ghost);
+
+		//****************************************************************************************//
+		// NOTE: The dirty cells are handed over after the BoardSnapshot is published, so that    //
+		//       they're never repainted from a BoardSnapshot older than the one that holds them. //
+		//****************************************************************************************//
+		synchronized (this)
+		{
+			if (m_dirty)
+			{
+				// add the dirty rectangle to the cells that are waiting to be repainted
+				if (m_published.isEmpty())
+				{
+					m_published.setBounds(m_dirtyMinCol, m_dirtyMinRow, 0, 0);
+				}
+				m_published.add(m_dirtyMinCol, m_dirtyMinRow);
+				m_published.add(m_dirtyMaxCol + 1, m_dirtyMaxRow + 1);
+
+				// a new batch of dirty cells can now begin
+				m_dirty = false;
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private void repaintRows(int fromRow, int toRow)
+	{
+		// only the rows of the BoardCanvas are repainted (nothing is when there are none)
+		fromRow = Math.max(0, fromRow);
+		toRow   = Math.min(m_model.getNumOfRows() - 1, toRow);
+		if (fromRow <= toRow)
+		{
+			int y1 = getCellY(fromRow);
+			int y2 = getCellY(toRow + 1);
+			repaint(0, y1, getWidth(), y2 - y1);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Acquires the BoardSnapshot that was last published to the SnapshotBuffer, and repaints what it
+	  * changed: the cells that changed in the BoardModel, the rows of the current Shape (and the row
+	  * it is falling into) when it has moved, and the rows of its ghost when the ghost has moved. Note
+	  * that this must be called on the event dispatch thread, and never while a RenderCanvas paints
+	  * the BoardModel in place of this BoardCanvas.
+	  */
+	//**************************************************************************************************
+	public void snapshotPublished()
+	{
+		// take the cells that changed before the last BoardSnapshot was published (before picking it
+		// up, so that none of them changed after the one they're repainted from)
+		Rectangle cells = takePublishedCells();
+
+		// pick up the last BoardSnapshot (it's painted until the next one is picked up)
+		m_snapshot = m_snapshots.acquire();
+
+		// find the rows covered by the current Shape and by its ghost
+		int  numOfRows   = m_snapshot.getNumOfRows();
+		int  minRow      = numOfRows;
+		int  maxRow      = -1;
+		int  ghostMinRow = numOfRows;
+		int  ghostMaxRow = -1;
+		long ghostHash   = 0;
+		for (int row = 0; row < numOfRows; row++)
+		{
+			if (m_snapshot.getShapeBits(row) != 0)
+			{
+				minRow = Math.min(minRow, row);
+				maxRow = row;
+			}
+			if (m_snapshot.getGhostBits(row) != 0)
+			{
+				ghostMinRow = Math.min(ghostMinRow, row);
+				ghostMaxRow = row;
+				ghostHash   = ghostHash * 31 + m_snapshot.getGhostBits(row);
+			}
+		}
+
+		// the Shape is repainted when it was or is drawn somewhere else
+		double offset = m_snapshot.getFallOffset();
+		if (offset != m_fallOffset || minRow != m_fallMinRow || maxRow != m_fallMaxRow)
+		{
+			// repaint the rows it was and is drawn over (along with the rows they're falling into)
+			repaintRows(Math.min(minRow, m_fallMinRow), Math.max(maxRow, m_fallMaxRow) + 1);
+
+			// remember where the Shape is drawn for the next BoardSnapshot
+			m_fallOffset = offset;
+			m_fallMinRow = minRow;
+			m_fallMaxRow = maxRow;
+		}
+
+		// the ghost is repainted when it was or is drawn somewhere else
+		if (ghostHash != m_ghostHash || ghostMinRow != m_ghostMinRow || ghostMaxRow != m_ghostMaxRow)
+		{
+			// repaint the rows it was and is drawn over
+			repaintRows(Math.min(ghostMinRow, m_ghostMinRow), Math.max(ghostMaxRow, m_ghostMaxRow));
+
+			// remember where the ghost is drawn for the next BoardSnapshot
+			m_ghostHash   = ghostHash;
+			m_ghostMinRow = ghostMinRow;
+			m_ghostMaxRow = ghostMaxRow;
+		}
+
+		// repaint the cells that changed in the BoardModel (if any)
+		if (cells != null)
+		{
+			int x1 = getCellX(cells.x);
+			int y1 = getCellY(cells.y);
+			int x2 = getCellX(cells.x + cells.width);
+			int y2 = getCellY(cells.y + cells.height);
+			repaint(x1, y1, x2 - x1, y2 - y1);
+		}
+	}
+
+	//**************************************************************************************************
+	private synchronized Rectangle takePublishedCells()
+	{
+		// will hold the cells that are waiting to be repainted (null if there are none)
+		Rectangle retVal = null;
+
+		if (!m_published.isEmpty())
+		{
+			// take the cells (no cells are waiting from now on)
+			retVal = new Rectangle(m_published);
+			m_published.setSize(0, 0);
+		}
+
+		return retVal;
+	}
+}
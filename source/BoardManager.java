@@ -3,39 +3,78 @@
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.*;
 
 //******************************************************************************************************
 /** This class creates a BoardManager object which holds two Boards. One Board is used to display
-  * the falling Shapes of the Tetris game. The other is used to display the next Shape.
+  * the falling Shapes of the Tetris game. The other is used to display the next Shape. Note that the
+  * rules of the game are run by a GameEngine on the BoardModels of the two Boards, and that the
+  * GameEngine is ticked by a GameLoop on a thread of its own. The GameLoop can be shared by many
+  * BoardManagers, in which case all of their GameEngines are ticked in a single pass. Anything that
+  * the GameLoop has to tell Swing about is handed over to the event dispatch thread.
   */
 //******************************************************************************************************
 @SuppressWarnings("serial")
-public class BoardManager extends JPanel implements ActionListener, KeyListener, Subject
+public class BoardManager extends JPanel implements GameLoopListener, KeyListener
 {
-	// reference to the subject implementation
-	private SubjectImpl m_subject;
+	// the default time (in milliseconds) that a game played by a bot stays over before it restarts
+	public static final int DEFAULT_RESTART_DELAY = 0;
 
 	// data members
-	private Board        m_gameBoard;
-	private Board        m_nextShapeBoard;
-	private int          m_animationDelay = 1000;
-	private JFrame       m_window;
-	private JPanel       m_gameBoardPanel;
-	private JPanel       m_nextShapeBoardPanel;
-	private JPanel       m_scorePanel;
-	private Timer        m_animationTimer;
-	private int          m_level;
-	private int          m_score;
+	private BotController   m_bot;
+	private CheckpointFile  m_checkpoint;
+	private Path            m_checkpointDirectory;
+	private volatile int    m_endedGame;
+	private GameEngine      m_engine;
+	private volatile double m_fallOffset;
+	private AtomicBoolean   m_framePending;
+	private Board           m_gameBoard;
+	private volatile int    m_game;
+	private Runnable        m_gameOver;
+	private GameLoop        m_gameLoop;
+	private GameMetrics     m_metrics;
+	private Board           m_nextShapeBoard;
+	private boolean         m_playing;
+	private Path            m_replayDirectory;
+	private ReplayWriter    m_replayWriter;
+	private int             m_restartDelay;
+	private Timer           m_restartTimer;
+	private JFrame          m_window;
+	private JPanel          m_gameBoardPanel;
+	private JPanel          m_nextShapeBoardPanel;
+	private Runnable        m_render;
+	private boolean         m_rendered;
+	private JPanel          m_scorePanel;
+	private boolean         m_keysDown[];
 
 	//**************************************************************************************************
 	/** Creates a BoardManager object consisting of a game Board and a Board containing the next
-	  * shape.
+	  * shape. Note that the game is ticked by a GameLoop of its own.
 	  * @param gameBoard the game Board
 	  * @param window the window for which to register a keyListener
 	  */
 	//**************************************************************************************************
 	public BoardManager(Board gameBoard, TetrisGUI window)
+	{
+		this(gameBoard, window, new GameLoop());
+	}
+
+	//**************************************************************************************************
+	/** Creates a BoardManager object consisting of a game Board and a Board containing the next
+	  * shape, whose game is ticked by the passed in GameLoop.
+	  * @param gameBoard the game Board
+	  * @param window the window for which to register a keyListener
+	  * @param gameLoop the GameLoop that ticks the game (it may be shared with other BoardManagers)
+	  */
+	//**************************************************************************************************
+	public BoardManager(Board gameBoard, TetrisGUI window, GameLoop gameLoop)
 	{
 		// store the game Board
 		m_gameBoard = gameBoard;
@@ -46,11 +85,26 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 		// store a reference to the window that this BoardManager is associated with
 		m_window = window;
 
-		// initialize the level to 1
-		m_level = 1;
+		// create the GameEngine that will run the game on the BoardModels of the two Boards
+		m_engine = new GameEngine(gameBoard.getModel(), m_nextShapeBoard.getModel());
+
+		// the deferred listeners of the game are called on the event dispatch thread
+		m_engine.getEvents().setExecutor(new Executor()
+		{
+			public void execute(Runnable runnable)
+			{
+				SwingUtilities.invokeLater(runnable);
+			}
+		});
+
+		// store the GameLoop that will tick the GameEngine
+		m_gameLoop = gameLoop;
+
+		// the frames and key presses are followed when the GameMetrics are enabled
+		m_metrics = GameMetrics.getInstance();
 
-		// initialize the score to 0
-		m_score = 0;
+		// create the Runnables that hand the work of the GameLoop over to the event dispatch thread
+		initRunnables();
 
 		// initialize the panels
 		initPanels();
@@ -61,59 +115,49 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 		// add the nextShapeBoard to the nextShapeBoardPanel
 		m_nextShapeBoardPanel.add(m_nextShapeBoard);
 
-		// create the subject
-		m_subject = new SubjectImpl();
+		// no key is held down yet
+		m_keysDown = new boolean[InputCommand.values().length];
+
+		// a game played by a bot restarts straight away by default
+		m_restartDelay = DEFAULT_RESTART_DELAY;
+
+		//****************************************************************************************//
+		// NOTE: Have BoardManager process Key events only if there's a TetrisGUI associated      //
+		//       with this BoardManager. The listener stays for good (the keys are simply ignored //
+		//       in between games), so restarting a game never adds it again.                     //
+		//****************************************************************************************//
+		if (m_window != null)
+		{
+			m_window.addKeyListener(this);
+		}
 	}
 
 	//**************************************************************************************************
-	/** Moves the current Shape down when the animation timer initiates this method.
-	  */
-	//**************************************************************************************************
-	public void actionPerformed(ActionEvent event)
+	private void askToRestart()
 	{
-		if (gameOver())
-		{
-			// end the game
-			endGame();
+		// store the choice
+		int choice = JOptionPane.showConfirmDialog(null,
+		                                          "Begin a new game?",
+		                                          "New Game",
+		                                           JOptionPane.YES_NO_OPTION);
 
-			// call the restart() method which restarts the game if the user chooses to do so
-			restartGame();
-		}
-		// only run the logic if the current Shape of the game Board can no longer move down
-		else if (!m_gameBoard.getShape().canMoveDown())
+        //*****************************************************************************************//
+		// NOTE: Restart the game only if the user selects the YES_OPTION. If either the NO_OPTION //
+		//       is selected or the 'x' button is clicked, exit the application.                   //
+		//*****************************************************************************************//
+		if (choice == JOptionPane.YES_OPTION)
 		{
-			// run the logic of the game
-			runLogic();
+			// start the game again (the GameEngine resets the score, level and gravity, and tells the
+			// listeners about it)
+			restartGame();
 		}
 		else
 		{
-			// move the current shape of the game Board down one position
-			m_gameBoard.moveShape("Down");
+			// exit the application
+			System.exit(0);
 		}
 	}
 
-	//**************************************************************************************************
-	/** Adds an Observer to this BoardManager (which is a Subject).
-	  * @param observer the Observer that will now be observing this BoardManager
-	  */
-	//**************************************************************************************************
-	public void attach(Observer observer)
-	{
-		// attach the Observer to the Subject
-		m_subject.attach(observer);
-	}
-
-	//**************************************************************************************************
-	/** Detaches an observer from this BoardManager (which is a Subject).
-	  * @param observer the Observer that will no longer be observing this BoardManager
-	  */
-	//**************************************************************************************************
-	public void detach(Observer observer)
-	{
-		// detach the Observer from the Subject
-		m_subject.detach(observer);
-	}
-
 	//**************************************************************************************************
 	/** Displays the two Boards in this BoardManager.
 	  */
@@ -128,19 +172,40 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	}
 
 	//**************************************************************************************************
-	/** Ends the game. Note that this stops the animation timer and removes the keyListener.
+	/** Ends the game. Note that the GameEngine is taken out of the GameLoop, and that the keys are
+	  * ignored until the next game starts. Nothing is done if no game is being played.
 	  */
 	//**************************************************************************************************
 	public void endGame()
 	{
-		// stop the animation timer
-		m_animationTimer.stop();
+		// a game is only ended once
+		if (!m_playing)
+		{
+			return;
+		}
+		m_playing = false;
 
-		// remove the key listener only there's actually a TetrisGUI associated with this BoardManager
-		if (m_window != null)
+		// the GameLoop no longer ticks the game (it keeps ticking any other games)
+		m_gameLoop.remove(m_engine);
+
+		// finish recording the game
+		stopRecording();
+
+		// a game that is over is never resumed
+		if (m_checkpoint != null)
 		{
-			// this BoardManager will no longer receive key events
-			m_window.removeKeyListener(this);
+			synchronized (m_engine)
+			{
+				m_checkpoint.clear();
+			}
+		}
+
+		// print what the GameMetrics have recorded so far (along with how the tiles were painted)
+		if (m_metrics.isEnabled())
+		{
+			System.out.println(m_gameBoard.getTitle() + " is over");
+			m_metrics.print(System.out);
+			TileCache.getInstance().print(System.out);
 		}
 	}
 
@@ -151,29 +216,95 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	//**************************************************************************************************
 	public boolean gameOver()
 	{
-		// holds whether or not it is game over
-		boolean retVal = false;
+		// ask the GameEngine whether or not it is game over
+		return m_engine.gameOver();
+	}
 
-		// determine if it is game over
-		if ( m_gameBoard.getShape().onFirstRow() &&
-		    !m_gameBoard.getShape().canMoveDown())
+	//**************************************************************************************************
+	/** Publishes the state in between two ticks to the BoardCanvases (so that the current Shape can be
+	  * drawn part of the way towards the next row) and has the event dispatch thread repaint them, and
+	  * saves the state of the game when there is a CheckpointFile. Note that this is called on the
+	  * thread of the GameLoop, and that at most one repaint is waiting at any time (the BoardSnapshots
+	  * published in the meantime are skipped).
+	  * @param engine the GameEngine that was ticked
+	  * @param alpha the fraction of a tick that has passed since the last tick
+	  */
+	//**************************************************************************************************
+	public void frameReady(GameEngine engine, double alpha)
+	{
+		// keep a copy of the state of the game in case the JVM dies (this never waits for the disk)
+		if (m_checkpoint != null)
 		{
-			// it is game over
-			retVal = true;
+			m_checkpoint.save(engine);
 		}
 
-		return retVal;
+		// work out how far the current Shape has fallen towards the next row
+		m_fallOffset = engine.getFallProgress(alpha);
+
+		// publish the BoardModels (this never waits for the painting)
+		publishBoards(engine);
+
+		// a key pressed on this board before the last tick is now on its way to the screen
+		if (m_bot == null)
+		{
+			m_metrics.inputApplied();
+		}
+
+		// only hand over a frame if the last one has been drawn (otherwise the frame is dropped)
+		if (m_framePending.compareAndSet(false, true))
+		{
+			SwingUtilities.invokeLater(m_render);
+		}
+		else
+		{
+			m_metrics.frameDropped();
+		}
 	}
 
 	//**************************************************************************************************
-	/** Returns the animation timer of this BoardManager.
-	  * @return the animation timer of this BoardManager
+	/** Hands the end of the game over to the event dispatch thread, and has a bot think about the next
+	  * Shape once one lands. Note that this is called on the thread of the GameLoop, and that the score
+	  * and level reach the display as GameEvents (see GameEventBus).
+	  * @param engine the GameEngine that was ticked
+	  * @param result TICK_LOCKED if a Shape landed, or TICK_GAME_OVER if the game is over
 	  */
 	//**************************************************************************************************
-	public Timer getAnimationTimer()
+	public void gameTicked(GameEngine engine, int result)
 	{
-		// get the animation timer
-		return m_animationTimer;
+		if (result == GameEngine.TICK_GAME_OVER)
+		{
+			// publish the last BoardModels of the game, then end it (and offer to restart it)
+			publishBoards(engine);
+			m_endedGame = m_game;
+			SwingUtilities.invokeLater(m_gameOver);
+		}
+		// a bot starts thinking about the new Shape right away
+		else if (m_bot != null)
+		{
+			m_bot.shapeSpawned(engine);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns the GameLoop that ticks the game of this BoardManager.
+	  * @return the GameLoop of this BoardManager
+	  */
+	//**************************************************************************************************
+	public GameLoop getGameLoop()
+	{
+		// get the GameLoop
+		return m_gameLoop;
+	}
+
+	//**************************************************************************************************
+	/** Returns the GameEngine that runs the game of this BoardManager.
+	  * @return the GameEngine of this BoardManager
+	  */
+	//**************************************************************************************************
+	public GameEngine getEngine()
+	{
+		// get the GameEngine
+		return m_engine;
 	}
 
 	//**************************************************************************************************
@@ -195,7 +326,7 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	public int getLevel()
 	{
 		// get the level of the game
-		return m_level;
+		return m_engine.getLevel();
 	}
 
 	//**************************************************************************************************
@@ -206,7 +337,7 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	public int getScore()
 	{
 		// get the score of the game
-		return m_score;
+		return m_engine.getScore();
 	}
 
 	//**************************************************************************************************
@@ -255,30 +386,135 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	}
 
 	//**************************************************************************************************
-	/** Moves the current to the direction indicated by the key press. Note that the following are the
-	  * key being read:
-	  *                  left arrow key  = move left,
-	  *                  right arrow key = move right,
-	  *                  down arrow key  = move down,
-	  *                  up arrow key    = rotate
+	private void initRunnables()
+	{
+		// no frame is waiting to be drawn yet
+		m_framePending = new AtomicBoolean(false);
+
+		// this draws the current Shape part of the way towards the next row
+		m_render = new Runnable()
+		{
+			public void run()
+			{
+				m_framePending.set(false);
+				showBoards();
+			}
+		};
+
+		// this ends the game and offers to restart it (a bot simply starts a new game)
+		m_gameOver = new Runnable()
+		{
+			public void run()
+			{
+				// show the last BoardModels that were published
+				showBoards();
+
+				// the game may have been restarted in the meantime, in which case it isn't over
+				if (m_endedGame != m_game)
+				{
+					return;
+				}
+
+				endGame();
+
+				if (m_bot != null)
+				{
+					// the last board stays up for the restart delay (the timer is reused)
+					m_restartTimer.setInitialDelay(m_restartDelay);
+					m_restartTimer.restart();
+				}
+				else
+				{
+					askToRestart();
+				}
+			}
+		};
+
+		// this starts a new game once the restart delay is over
+		m_restartTimer = new Timer(0, new ActionListener()
+		{
+			public void actionPerformed(ActionEvent event)
+			{
+				startGame();
+			}
+		});
+		m_restartTimer.setRepeats(false);
+	}
+
+	//**************************************************************************************************
+	private InputCommand getCommand(int keyCode)
+	{
+		// will hold the command of the key (null if the key has no command)
+		InputCommand retVal = null;
+
+		switch (keyCode)
+		{
+			case KeyEvent.VK_LEFT:    retVal = InputCommand.MOVE_LEFT;  break;
+			case KeyEvent.VK_RIGHT:   retVal = InputCommand.MOVE_RIGHT; break;
+			case KeyEvent.VK_DOWN:    retVal = InputCommand.SOFT_DROP;  break;
+			case KeyEvent.VK_SPACE:   retVal = InputCommand.HARD_DROP;  break;
+			case KeyEvent.VK_UP:
+			case KeyEvent.VK_X:       retVal = InputCommand.ROTATE_CW;  break;
+			case KeyEvent.VK_Z:
+			case KeyEvent.VK_CONTROL: retVal = InputCommand.ROTATE_CCW; break;
+			case KeyEvent.VK_C:
+			case KeyEvent.VK_SHIFT:   retVal = InputCommand.HOLD;       break;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Queues the command of the key that was pressed. Note that the following are the keys being
+	  * read:
+	  *                  left arrow key     = move left,
+	  *                  right arrow key    = move right,
+	  *                  down arrow key     = soft drop,
+	  *                  space              = hard drop,
+	  *                  up arrow key or X  = rotate clockwise,
+	  *                  Z or control       = rotate counterclockwise,
+	  *                  C or shift         = hold
+	  * The key repeats of the keyboard are ignored, since the GameEngine repeats held down commands
+	  * itself.
 	  */
 	//**************************************************************************************************
 	public void keyPressed(KeyEvent event)
 	{
-		// get the String representation of the key that was just pressed
-		String key = KeyEvent.getKeyText(event.getKeyCode());
+		// get the command of the key that was just pressed
+		InputCommand command = getCommand(event.getKeyCode());
+
+		// only queue the first press of a key that has a command (while a game is being played)
+		if (m_playing && command != null && !m_keysDown[command.ordinal()])
+		{
+			// the key is now held down
+			m_keysDown[command.ordinal()] = true;
+
+			// time the press until it's drawn (when the GameMetrics are enabled)
+			m_metrics.inputPressed();
 
-		// move the shape of game board according to the key that was pressed
-		m_gameBoard.moveShape(key);
+			// queue the press of the command
+			m_engine.getInput().press(command);
+		}
 	}
 
 	//**************************************************************************************************
-	/** Note that this method is never used. It is only here because this class implements a
-	  * KeyListener.
+	/** Queues the release of the command of the key that was released.
 	  */
 	//**************************************************************************************************
 	public void keyReleased(KeyEvent event)
 	{
+		// get the command of the key that was just released
+		InputCommand command = getCommand(event.getKeyCode());
+
+		// only queue the release of a key that was held down
+		if (command != null && m_keysDown[command.ordinal()])
+		{
+			// the key is no longer held down
+			m_keysDown[command.ordinal()] = false;
+
+			// queue the release of the command
+			m_engine.getInput().release(command);
+		}
 	}
 
 	//**************************************************************************************************
@@ -291,82 +527,58 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	}
 
 	//**************************************************************************************************
-	/** Allows for this BoardManager to notify its Observers that a change to it has occurred.
+	/** Ends the game that is being played (if any) and starts a new one straight away. Note that the
+	  * GameEngine, the GameLoop, the listeners and the timer of this BoardManager are all reused, so
+	  * a BoardManager can be restarted any number of times.
 	  */
 	//**************************************************************************************************
-	public void notifyObservers()
+	public void restartGame()
 	{
-		// notify all the Observers of the Subject that a change has occurred
-		m_subject.notifyObservers();
+		// a restart that was waiting for its delay is no longer needed
+		m_restartTimer.stop();
+
+		// end the game and start a new one
+		endGame();
+		startGame();
 	}
 
 	//**************************************************************************************************
-	/** Restarts the game if the user chooses to do so. Note that upon calling this method, a dialog
-	  * box will appear that prompts the user whether or not to continue. If the yes option is selected
-	  * then the game will be restarted. If the no option is selected, then the game will be exited.
+	/** Runs the logic of the Tetris game. This includes things like cascading full blocks when the
+	  * current Shape can no longer move downward.
 	  */
 	//**************************************************************************************************
-	public void restartGame()
+	public void runLogic()
 	{
-		// store the choice
-		int choice = JOptionPane.showConfirmDialog(null,
-		                                          "Begin a new game?",
-		                                          "New Game",
-		                                           JOptionPane.YES_NO_OPTION);
-
-        //*****************************************************************************************//
-		// NOTE: Restart the game only if the user selects the YES_OPTION. If either the NO_OPTION //
-		//       is selected or the 'x' button is clicked, exit the application.                   //
-		//*****************************************************************************************//
-		if (choice == JOptionPane.YES_OPTION)
+		// have the GameEngine run the logic of the game (without getting in the way of the GameLoop)
+		synchronized (m_engine)
 		{
-			// reset the score
-			m_score = -1;
-
-			// reset the level
-			m_level = 1;
-
-			// reset the animation delay
-			m_animationDelay = 1000;
-
-			// start the game again
-			startGame();
-
-			// notify the observers
-			notifyObservers();
-		}
-		else
-		{
-			// exit the application
-			System.exit(0);
+			m_engine.runLogic();
 		}
 	}
 
 	//**************************************************************************************************
-	/** Runs the logic of the Tetris game. This includes things like cascading full blocks when the
-	  * current Shape can no longer move downward.
+	/** Sets the bot that plays the game of this BoardManager. Note that the bot plays through the same
+	  * InputQueue as the keyboard, so a BoardManager played by a bot should have no window.
+	  * @param bot the BotController that plays the game (null for a person)
 	  */
 	//**************************************************************************************************
-	public void runLogic()
+	public void setBot(BotController bot)
 	{
-		//************************************************************************************//
-		// NOTE: Set the current Shape of the game Board to be that which is contained in the //
-		//       nextShapeBoard.                                                              //
-		//************************************************************************************//
-		m_gameBoard.setShape(m_nextShapeBoard.getShape());
-
-		// generate a new next Shape
-		m_nextShapeBoard.setShape(m_nextShapeBoard.generateShape());
-
-		// cascade rows if there exists at least one full row
-		if (m_gameBoard.fullRowExists())
-		{
-			// cascade the full rows
-			m_gameBoard.cascadeRows();
-		}
+		// store the bot
+		m_bot = bot;
+	}
 
-		// notify all observers
-		notifyObservers();
+	//**************************************************************************************************
+	/** Sets the directory that the state of the game of this BoardManager is kept in while it's played
+	  * (see CheckpointFile), in a file named after the Board. When the file holds a game that was cut
+	  * short, the next game started by this BoardManager resumes it instead of starting over.
+	  * @param directory the directory of the checkpoint file (null to keep no checkpoint)
+	  */
+	//**************************************************************************************************
+	public void setCheckpointDirectory(Path directory)
+	{
+		// store the directory
+		m_checkpointDirectory = directory;
 	}
 
 	//**************************************************************************************************
@@ -377,7 +589,49 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	public void setLevel(int level)
 	{
 		// set the level of the game
-		m_level = level;
+		m_engine.setLevel(level);
+	}
+
+	//**************************************************************************************************
+	/** Has the game Board and the Board containing the next Shape rendered by the passed in RenderLoop
+	  * from now on, rather than painted by Swing (see Board.setRenderLoop()).
+	  * @param renderLoop the RenderLoop that renders the Boards
+	  */
+	//**************************************************************************************************
+	public void setRenderLoop(RenderLoop renderLoop)
+	{
+		// render both Boards
+		m_gameBoard.setRenderLoop(renderLoop);
+		m_nextShapeBoard.setRenderLoop(renderLoop);
+
+		// the BoardSnapshots are acquired by the RenderLoop from now on (never by the BoardCanvases)
+		m_rendered = true;
+	}
+
+	//**************************************************************************************************
+	/** Sets the directory that the games of this BoardManager are recorded into. Each game is written
+	  * to a replay file of its own (see ReplayWriter), named after the Board and the time it started.
+	  * Note that a game resumed from a checkpoint isn't recorded, since a replay starts at the first
+	  * tick of its game.
+	  * @param directory the directory of the replay files (null to stop recording)
+	  */
+	//**************************************************************************************************
+	public void setReplayDirectory(Path directory)
+	{
+		// store the directory
+		m_replayDirectory = directory;
+	}
+
+	//**************************************************************************************************
+	/** Sets how long a game played by a bot stays over before a new one is started, so that its last
+	  * board can be seen (in attract mode, say).
+	  * @param millis the delay (in milliseconds)
+	  */
+	//**************************************************************************************************
+	public void setRestartDelay(int millis)
+	{
+		// store the delay
+		m_restartDelay = millis;
 	}
 
 	//**************************************************************************************************
@@ -388,38 +642,158 @@ public class BoardManager extends JPanel implements ActionListener, KeyListener,
 	public void setScore(int score)
 	{
 		// set the score of the game
-		m_score = score;
+		m_engine.setScore(score);
 	}
 
 	//**************************************************************************************************
-	/** Starts the game.
+	/** Starts the game. Note that a game that is still being played is ended first.
 	  */
 	//**************************************************************************************************
 	public void startGame()
 	{
-		// clear both boards
-		m_gameBoard.clearBoard();
-		m_nextShapeBoard.clearBoard();
+		// end the game that is still being played (if any)
+		endGame();
+
+		// this is a new game (any game over on its way from the last one is now stale)
+		m_playing = true;
+		m_game++;
 
-		// generate a new shape for the game board
-		m_gameBoard.setShape(m_gameBoard.generateShape());
+		// open the checkpoint file (if there is to be one)
+		openCheckpoint();
 
-		// generate a new shape for the nextShapeBoard
-		m_nextShapeBoard.setShape(m_nextShapeBoard.generateShape());
+		synchronized (m_engine)
+		{
+			// resume the game that was cut short (if any)
+			if (m_checkpoint == null || !m_checkpoint.restore(m_engine))
+			{
+				// have the GameEngine start a new game on both boards
+				m_engine.startGame();
+
+				// record the game from its first tick
+				startRecording();
+			}
+
+			// a bot starts thinking about the first Shape right away
+			if (m_bot != null)
+			{
+				m_bot.shapeSpawned(m_engine);
+			}
+
+			// publish the BoardModels as the game starts
+			m_fallOffset = 0.0;
+			publishBoards(m_engine);
+		}
 
-		// create the animation Timer
-		m_animationTimer = new Timer(m_animationDelay, this);
+		// no key is held down at the start of a game
+		Arrays.fill(m_keysDown, false);
 
-		// display the main panel
+		// display the main panel (showing the BoardModels as the game starts)
+		showBoards();
 		displayMainPanel();
 
-		// initiate the animation Timer
-		m_animationTimer.start();
+		// have the GameLoop start ticking the game
+		m_gameLoop.add(m_engine, this);
+	}
 
-		// have BoardManager process Key events only if there's a TetrisGUI associated with this BoardManager
-		if (m_window != null)
+	//**************************************************************************************************
+	private void openCheckpoint()
+	{
+		// the checkpoint file is opened once
+		if (m_checkpointDirectory != null && m_checkpoint == null)
 		{
-			m_window.addKeyListener(this);
+			// name the checkpoint file after the Board
+			String name = m_gameBoard.getTitle().replaceAll("\\W+", "") + ".checkpoint";
+
+			try
+			{
+				// map the file (holding the biggest state of the game)
+				m_checkpoint = new CheckpointFile(m_checkpointDirectory.resolve(name),
+				                                  m_engine.getMaxStateSize());
+			}
+			catch (IOException e)
+			{
+				// the game is played without a checkpoint
+				System.err.println("Couldn't open the checkpoint file: " + e.getMessage());
+				m_checkpointDirectory = null;
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private void publishBoards(GameEngine engine)
+	{
+		//****************************************************************************************//
+		// NOTE: This is called while holding the lock of the GameEngine, so the BoardModels are  //
+		//       copied as they were at the end of a tick. Only the game Board shows a ghost.     //
+		//****************************************************************************************//
+		m_gameBoard.getCanvas().publish(engine, m_fallOffset, true);
+		m_nextShapeBoard.getCanvas().publish(engine, 0.0, false);
+	}
+
+	//**************************************************************************************************
+	private void showBoards()
+	{
+		// the BoardCanvases repaint what the last BoardSnapshots changed (unless a RenderLoop renders
+		// them, in which case it acquires the BoardSnapshots itself)
+		if (!m_rendered)
+		{
+			m_gameBoard.getCanvas().snapshotPublished();
+			m_nextShapeBoard.getCanvas().snapshotPublished();
+		}
+	}
+
+	//**************************************************************************************************
+	private void startRecording()
+	{
+		// only record when there's somewhere to record to
+		if (m_replayDirectory != null)
+		{
+			// name the replay file after the Board and the time the game started
+			String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+			String name = m_gameBoard.getTitle().replaceAll("\\W+", "") + "-" + time + ".replay";
+
+			try
+			{
+				// record the seed of the game, and from then on every event it applies
+				BoardModel model = m_gameBoard.getModel();
+				m_replayWriter   = new ReplayWriter(m_replayDirectory.resolve(name),
+				                                    m_engine.getGenerator().getSeed(),
+				                                    model.getNumOfRows(), model.getNumOfCols(),
+				                                    m_engine.getGenerator().getRandomizer().getName());
+				m_engine.setRecorder(m_replayWriter);
+			}
+			catch (IOException e)
+			{
+				// the game is played without being recorded
+				System.err.println("Couldn't record the game: " + e.getMessage());
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private void stopRecording()
+	{
+		if (m_replayWriter != null)
+		{
+			// the GameEngine no longer records its events
+			synchronized (m_engine)
+			{
+				m_engine.setRecorder(null);
+			}
+
+			try
+			{
+				// end the replay file at the last tick of the game
+				m_replayWriter.close(m_engine.getTicks());
+			}
+			catch (IOException e)
+			{
+				// the replay file may be missing its end
+				System.err.println("Couldn't finish recording the game: " + e.getMessage());
+			}
+
+			// the game is no longer being recorded
+			m_replayWriter = null;
 		}
 	}
 }
\ No newline at end of file
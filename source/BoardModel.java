@@ -0,0 +1,601 @@
+// Author:   Jose Santos
+// FileName: BoardModel.java
+
+import java.util.Arrays;
+
+//******************************************************************************************************
+/** This class creates a BoardModel object which holds the state of a Board without relying on any
+  * Swing components. Each row is packed into a long, where bit x is set when the cell in column x is
+  * filled, and the colors of all the cells are kept in a single array of RGB values. A Board is only a
+  * view of its BoardModel, so a game can be played entirely on BoardModels when no window is needed.
+  * Note that the number of filled cells of every row is counted as the cells are written, so a full
+  * row is always known without having to scan it. The Zobrist hash of the filled cells is kept up to
+  * date the same way.
+  */
+//******************************************************************************************************
+public class BoardModel
+{
+	// the largest number of columns that can be packed into the bitmask of a row
+	public static final int MAX_COLS = 64;
+
+	// the largest number of rows (every cell has a Zobrist key of its own)
+	public static final int MAX_ROWS = Zobrist.MAX_ROWS;
+
+	// data members
+	private int                m_cellColors[];
+	private int                m_clearedRows[];
+	private int                m_color;
+	private Shape              m_currentShape;
+	private long               m_hash;
+	private BoardModelListener m_listener;
+	private int                m_numOfClearedRows;
+	private int                m_numOfCols;
+	private int                m_numOfFullRows;
+	private int                m_numOfRows;
+	private int                m_rowCounts[];
+	private long               m_rows[];
+
+	//**************************************************************************************************
+	/** Creates a BoardModel object that will have the specified dimension and color. Note that all the
+	  * cells of the BoardModel are initially empty.
+	  * @param rows the number of rows composing this BoardModel (at most MAX_ROWS)
+	  * @param cols the number of columns composing this BoardModel (at most MAX_COLS)
+	  * @param color the RGB value of the color of this BoardModel
+	  * @throws IllegalArgumentException if the dimension is out of range
+	  */
+	//**************************************************************************************************
+	public BoardModel(int rows, int cols, int color)
+	{
+		// a row is packed into a long, so we can't have more columns than there are bits in a long (nor
+		// more rows than there are Zobrist keys for)
+		if (rows <= 0 || cols <= 0 || rows > MAX_ROWS || cols > MAX_COLS)
+		{
+			throw new IllegalArgumentException("Invalid board dimension: " + rows + " x " + cols);
+		}
+
+		// set the number of columns
+		m_numOfCols = cols;
+
+		// set the number of rows
+		m_numOfRows = rows;
+
+		// set the color of this BoardModel
+		m_color = color;
+
+		// create the occupancy bitmasks and the fill counters (all rows start out empty)
+		m_rows      = new long[rows];
+		m_rowCounts = new int[rows];
+
+		// create the array that reports the rows removed by the last cascade
+		m_clearedRows = new int[rows];
+
+		// create the color plane and paint every cell with the color of this BoardModel
+		m_cellColors = new int[rows * cols];
+		Arrays.fill(m_cellColors, color);
+	}
+
+	//**************************************************************************************************
+	/** Cascades any rows of this BoardModel that are completely filled. Note that the current Shape is
+	  * kept out of the way while the rows are cascaded. The rows that were removed can be found with
+	  * getClearedRow() afterwards.
+	  * @return the number of rows that were removed
+	  */
+	//**************************************************************************************************
+	public int cascadeRows()
+	{
+		// temporarily remove the current shape from the BoardModel
+		if (m_currentShape != null)
+		{
+			m_currentShape.removeFromBoard(true);
+		}
+
+		// remove the full rows and drop the rows above them
+		int numOfClearedRows = clearFullRows();
+
+		// add the current Shape back to the BoardModel
+		if (m_currentShape != null)
+		{
+			m_currentShape.addToBoard(true);
+		}
+
+		return numOfClearedRows;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the cell at the indicated x and y position could hold a Block of the passed in
+	  * Shape. That is, the cell must lie on this BoardModel, and it must either be empty or be filled by
+	  * the Shape itself. Note that masking out the Shape this way means it never has to be removed from
+	  * the BoardModel (and put back) just to find out where it is allowed to go.
+	  * @param x the x position of the cell to check
+	  * @param y the y position of the cell to check
+	  * @param shape the Shape whose own Blocks don't count as obstacles (may be null)
+	  * @return true if the cell could hold a Block of the Shape (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean cellIsFree(int x, int y, Shape shape)
+	{
+		// a cell that lies outside this BoardModel can never hold a Block
+		boolean retVal = false;
+
+		// make sure the specified x and y values are valid
+		if (validPos(x, y))
+		{
+			// the cell is free if its bit isn't set, or if the bit is set by the Shape itself
+			retVal = (m_rows[y] & (1L << x)) == 0 || (shape != null && shape.occupies(x, y));
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Clears this entire BoardModel so that all the cells are empty.
+	  */
+	//**************************************************************************************************
+	public void clearBoard()
+	{
+		// clear all the rows of this BoardModel
+		for (int row = 0; row < getNumOfRows(); row++)
+		{
+			// clear the row
+			clearRow(row);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Empties the cell at the indicated x and y position. Note that the color of the cell goes back to
+	  * that of this BoardModel. If the position is invalid, nothing is done.
+	  * @param x the x position of the cell to empty
+	  * @param y the y position of the cell to empty
+	  */
+	//**************************************************************************************************
+	public void clearCell(int x, int y)
+	{
+		// make sure the specified x and y values are valid
+		if (validPos(x, y))
+		{
+			// the index of the cell in the color plane
+			int index = y * m_numOfCols + x;
+
+			// only touch the cell (and tell the listener) when something actually changes
+			if ((m_rows[y] & (1L << x)) != 0 || m_cellColors[index] != m_color)
+			{
+				// the cell is no longer occupied
+				if ((m_rows[y] & (1L << x)) != 0)
+				{
+					// a full row stops being full once one of its cells is emptied
+					if (m_rowCounts[y] == m_numOfCols)
+					{
+						m_numOfFullRows--;
+					}
+
+					m_rows[y] &= ~(1L << x);
+					m_rowCounts[y]--;
+
+					// flip the key of the cell out of the hash
+					m_hash ^= Zobrist.getKey(x, y);
+				}
+
+				// the color of the cell will now be that of the BoardModel
+				m_cellColors[index] = m_color;
+
+				// let the view know that this cell has changed
+				fireCellChanged(x, y);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Removes every full row of this BoardModel and drops the rows above them into their place. This
+	  * is done in a single pass from the bottom row up: a row that is full is skipped, and every other
+	  * row is moved down by the number of full rows found below it. Note that rows below the lowest full
+	  * row never move, nothing is allocated, and the view is only told about the cells whose contents
+	  * actually changed.
+	  * @return the number of rows that were removed
+	  */
+	//**************************************************************************************************
+	public int clearFullRows()
+	{
+		// no rows have been removed yet
+		m_numOfClearedRows = 0;
+
+		// there is nothing to do unless there is at least one full row
+		if (m_numOfFullRows > 0)
+		{
+			// find the lowest full row (everything below it stays put)
+			int lowestRow = m_numOfRows - 1;
+			while (m_rowCounts[lowestRow] != m_numOfCols)
+			{
+				lowestRow--;
+			}
+
+			// the row that the next row which is kept will be moved to
+			int toRow = lowestRow;
+
+			for (int fromRow = lowestRow; fromRow >= 0; fromRow--)
+			{
+				if (m_rowCounts[fromRow] == m_numOfCols)
+				{
+					// report the full row, and leave it behind
+					m_clearedRows[m_numOfClearedRows++] = fromRow;
+				}
+				else
+				{
+					// drop the row into place
+					moveRow(fromRow, toRow);
+					toRow--;
+				}
+			}
+
+			// the rows left at the top are now empty
+			for (int row = toRow; row >= 0; row--)
+			{
+				clearRow(row);
+			}
+
+			// none of the rows are full anymore
+			m_numOfFullRows = 0;
+		}
+
+		return m_numOfClearedRows;
+	}
+
+	//**************************************************************************************************
+	/** Clears the specified row of any non-empty cells. Note that if the indicated row does not exist,
+	  * nothing is done.
+	  * @param rowNum the row of cells to clear
+	  */
+	//**************************************************************************************************
+	public void clearRow(int rowNum)
+	{
+		// make sure that the indicated row is valid
+		if (validYPos(rowNum))
+		{
+			// set each cell in this row to be empty
+			for (int col = 0; col < getNumOfCols(); col++)
+			{
+				clearCell(col, rowNum);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Fills the cell at the indicated x and y position with the specified color. If the position is
+	  * invalid, nothing is done.
+	  * @param x the x position of the cell to fill
+	  * @param y the y position of the cell to fill
+	  * @param color the RGB value of the color of the cell
+	  */
+	//**************************************************************************************************
+	public void fillCell(int x, int y, int color)
+	{
+		// make sure the specified x and y values are valid
+		if (validPos(x, y))
+		{
+			// the index of the cell in the color plane
+			int index = y * m_numOfCols + x;
+
+			// only touch the cell (and tell the listener) when something actually changes
+			if ((m_rows[y] & (1L << x)) == 0 || m_cellColors[index] != color)
+			{
+				// the cell is now occupied
+				if ((m_rows[y] & (1L << x)) == 0)
+				{
+					m_rows[y] |= (1L << x);
+					m_rowCounts[y]++;
+
+					// flip the key of the cell into the hash
+					m_hash ^= Zobrist.getKey(x, y);
+
+					// the row becomes full once its last cell is filled
+					if (m_rowCounts[y] == m_numOfCols)
+					{
+						m_numOfFullRows++;
+					}
+				}
+
+				// the cell takes on the passed in color
+				m_cellColors[index] = color;
+
+				// let the view know that this cell has changed
+				fireCellChanged(x, y);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private void fireCellChanged(int x, int y)
+	{
+		// a headless BoardModel has nobody to tell
+		if (m_listener != null)
+		{
+			m_listener.cellChanged(x, y);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns true if a full row exists in this BoardModel. False is returned otherwise.
+	  * @return true if a full row exists in this BoardModel (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean fullRowExists()
+	{
+		// the full rows are counted as the cells are written
+		return m_numOfFullRows > 0;
+	}
+
+	//**************************************************************************************************
+	/** Returns the RGB value of the color of the cell at the indicated x and y position. Note that if
+	  * the position is invalid, the color of this BoardModel is returned.
+	  * @param x the x position of the cell
+	  * @param y the y position of the cell
+	  * @return the RGB value of the color of the cell
+	  */
+	//**************************************************************************************************
+	public int getCellColor(int x, int y)
+	{
+		// will hold the color of the cell
+		int color = m_color;
+
+		// make sure the specified x and y values are valid
+		if (validPos(x, y))
+		{
+			// get the color of the indicated cell
+			color = m_cellColors[y * m_numOfCols + x];
+		}
+
+		return color;
+	}
+
+	//**************************************************************************************************
+	/** Returns one of the rows that were removed by the last cascade. Note that the rows are numbered
+	  * as they were before the cascade, and that they are reported from the bottom row up.
+	  * @param i the index of the removed row (from 0 up to getNumOfClearedRows() - 1)
+	  * @return the number of the removed row
+	  */
+	//**************************************************************************************************
+	public int getClearedRow(int i)
+	{
+		// get the removed row
+		return m_clearedRows[i];
+	}
+
+	//**************************************************************************************************
+	/** Returns the RGB value of the color of this BoardModel.
+	  * @return the RGB value of the color of this BoardModel
+	  */
+	//**************************************************************************************************
+	public int getColor()
+	{
+		// get the color of this BoardModel
+		return m_color;
+	}
+
+	//**************************************************************************************************
+	/** Returns the Zobrist hash of the filled cells of this BoardModel (including those of the current
+	  * Shape). Note that the hash is kept up to date as the cells are written.
+	  * @return the hash of this BoardModel
+	  */
+	//**************************************************************************************************
+	public long getHash()
+	{
+		// get the hash
+		return m_hash;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows that were removed by the last cascade.
+	  * @return the number of rows that were removed by the last cascade
+	  */
+	//**************************************************************************************************
+	public int getNumOfClearedRows()
+	{
+		// get the number of removed rows
+		return m_numOfClearedRows;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of columns composing this BoardModel.
+	  * @return the number of columns composing this BoardModel
+	  */
+	//**************************************************************************************************
+	public int getNumOfCols()
+	{
+		// get the number of columns
+		return m_numOfCols;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows composing this BoardModel.
+	  * @return the number of rows composing this BoardModel
+	  */
+	//**************************************************************************************************
+	public int getNumOfRows()
+	{
+		// get the number of rows
+		return m_numOfRows;
+	}
+
+	//**************************************************************************************************
+	/** Returns the bitmask of the indicated row. Bit x of the bitmask is set when the cell in column x
+	  * is filled. Note that if the indicated row is invalid, 0 is returned.
+	  * @param rowNum the row whose bitmask is desired
+	  * @return the bitmask of the indicated row
+	  */
+	//**************************************************************************************************
+	public long getRowBits(int rowNum)
+	{
+		// will hold the bitmask of the row
+		long rowBits = 0;
+
+		// make sure that the indicated row is valid
+		if (validYPos(rowNum))
+		{
+			// get the bitmask of the row
+			rowBits = m_rows[rowNum];
+		}
+
+		return rowBits;
+	}
+
+	//**************************************************************************************************
+	/** Returns the current Shape of this BoardModel.
+	  * @return the current Shape of this BoardModel
+	  */
+	//**************************************************************************************************
+	public Shape getShape()
+	{
+		// get the current Shape
+		return m_currentShape;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the cell at the indicated x and y position is empty. Note that a position which
+	  * lies outside this BoardModel is never considered empty.
+	  * @param x the x position of the cell to check
+	  * @param y the y position of the cell to check
+	  * @return true if the cell is empty (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean isEmpty(int x, int y)
+	{
+		// a cell is empty only if it exists and its bit is not set
+		return validPos(x, y) && (m_rows[y] & (1L << x)) == 0;
+	}
+
+	//**************************************************************************************************
+	private void moveRow(int fromRow, int toRow)
+	{
+		// a row that stays where it is doesn't have to be touched
+		if (fromRow != toRow)
+		{
+			// find out which cells change their occupancy
+			long changed = m_rows[toRow] ^ m_rows[fromRow];
+
+			// move the bitmask and the fill counter
+			m_rows[toRow]      = m_rows[fromRow];
+			m_rowCounts[toRow] = m_rowCounts[fromRow];
+
+			// flip the keys of the cells that change their occupancy
+			m_hash ^= Zobrist.getRowKey(toRow, changed);
+
+			// move the colors, telling the view only about the cells that actually change
+			for (int col = 0; col < m_numOfCols; col++)
+			{
+				// get the index of the cell in both rows
+				int from = fromRow * m_numOfCols + col;
+				int to   = toRow   * m_numOfCols + col;
+
+				if ((changed & (1L << col)) != 0 || m_cellColors[to] != m_cellColors[from])
+				{
+					m_cellColors[to] = m_cellColors[from];
+					fireCellChanged(col, toRow);
+				}
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the indicated row is completely empty. False is returned otherwise.
+	  * @param rowNum the row to check
+	  * @return true if the indicated row is completely empty (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean rowIsEmpty(int rowNum)
+	{
+		// an invalid row has no filled cells, so it is considered empty
+		return !validYPos(rowNum) || m_rowCounts[rowNum] == 0;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the indicated row is completely full. False is returned otherwise.
+	  * @param rowNum the row to check
+	  * @return true if the indicated row is completely full (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean rowIsFull(int rowNum)
+	{
+		// as with the original Board, an invalid row is reported as full
+		return !validYPos(rowNum) || m_rowCounts[rowNum] == m_numOfCols;
+	}
+
+	//**************************************************************************************************
+	/** Sets the listener that will be told whenever a cell of this BoardModel changes. Note that a
+	  * null value means that nobody is listening.
+	  * @param listener the listener of this BoardModel
+	  */
+	//**************************************************************************************************
+	public void setListener(BoardModelListener listener)
+	{
+		// set the listener
+		m_listener = listener;
+	}
+
+	//**************************************************************************************************
+	/** Sets the current Shape of this BoardModel. Note that the Shape is only removed from the
+	  * BoardModel it was on before if it's still the current Shape of that BoardModel. A Shape that has
+	  * landed (or was put aside) no longer owns the cells under it, so they are left alone.
+	  * @param shape the current Shape of this BoardModel
+	  */
+	//**************************************************************************************************
+	public void setShape(Shape shape)
+	{
+		// remove the old shape from its BoardModel (as long as it's still on there)
+		if (shape.getBoard() != null && shape.getBoard().getShape() == shape)
+		{
+			shape.removeFromBoard(true);
+		}
+
+		// the associated BoardModel of the passed in Shape will be this BoardModel
+		shape.setBoard(this);
+
+		// set the current Shape
+		m_currentShape = shape;
+
+		// set the focal Block of the current Shape to be centered
+		m_currentShape.getFocalBlock().setXPos(getNumOfCols() / 2);
+		m_currentShape.getFocalBlock().setYPos(0);
+
+		// re-adjust the Blocks of the Shape according to where the focal block is positioned
+		m_currentShape.initCoordinates();
+
+		// add the current Shape to this BoardModel
+		m_currentShape.addToBoard(true);
+	}
+
+	//**************************************************************************************************
+	/** Returns true if both the x and y values are valid.
+	  * @param x the x position to check
+	  * @param y the y position to check
+	  * @return true if both the x and y values are valid
+	  */
+	//**************************************************************************************************
+	public boolean validPos(int x, int y)
+	{
+		// check for the validity of the passed in position
+		return validXPos(x) && validYPos(y);
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the passed in x value is valid.
+	  * @param x the x position to check
+	  * @return true if the passed in x value is valid
+	  */
+	//**************************************************************************************************
+	public boolean validXPos(int x)
+	{
+		// check for the validity of the passed in x value
+		return x >= 0 && x < m_numOfCols;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the passed in y value is valid.
+	  * @param y the y position to check
+	  * @return true if the passed in y value is valid
+	  */
+	//**************************************************************************************************
+	public boolean validYPos(int y)
+	{
+		// check for the validity of the passed in y value
+		return y >= 0 && y < m_numOfRows;
+	}
+}
@@ -0,0 +1,19 @@
+// Author:   Jose Santos
+// FileName: BoardModelListener.java
+
+//******************************************************************************************************
+/** This is a BoardModelListener interface that allows a view to follow the changes made to a
+  * BoardModel. Note that the BoardModel calls cellChanged() every time one of its cells is filled or
+  * emptied, whereby, the view is able to refresh that particular cell.
+  */
+//******************************************************************************************************
+public interface BoardModelListener
+{
+	//**************************************************************************************************
+	/** Tells this listener that the cell at the indicated x and y position has changed.
+	  * @param x the x position of the cell that changed
+	  * @param y the y position of the cell that changed
+	  */
+	//**************************************************************************************************
+	public void cellChanged(int x, int y);
+}
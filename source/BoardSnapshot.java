@@ -0,0 +1,338 @@
+// Author:   Jose Santos
+// FileName: BoardSnapshot.java
+
+import java.awt.*;
+
+//******************************************************************************************************
+/** This class creates a BoardSnapshot object which holds a copy of a BoardModel as it was at the end
+  * of a tick: which cells are filled and their colors, the current Shape (and how far it's drawn
+  * towards the next row), the ghost of the current Shape where it would land, and the score, level and
+  * rows cleared by the game. A BoardSnapshot is copied by the thread that runs the game while it holds
+  * the lock of the GameEngine, and handed over to the thread that paints it by a SnapshotBuffer, so the
+  * painting never needs the lock. Note that a BoardSnapshot is meant to be reused for every frame, so
+  * copying one creates nothing.
+  */
+//******************************************************************************************************
+public class BoardSnapshot
+{
+	// data members
+	private int    m_blockCols[];
+	private int    m_blockRows[];
+	private int    m_cellColors[];
+	private int    m_color;
+	private int    m_dropRows;
+	private double m_fallOffset;
+	private long   m_ghostBits[];
+	private int    m_level;
+	private int    m_lines;
+	private int    m_numOfBlocks;
+	private int    m_numOfCols;
+	private int    m_numOfRows;
+	private long   m_rowBits[];
+	private int    m_score;
+	private long   m_shapeBits[];
+	private int    m_shapeColor;
+	private long   m_tick;
+
+	//**************************************************************************************************
+	/** Creates an empty BoardSnapshot object for a BoardModel of the indicated dimension.
+	  * @param rows the number of rows of the BoardModel
+	  * @param cols the number of columns of the BoardModel
+	  */
+	//**************************************************************************************************
+	public BoardSnapshot(int rows, int cols)
+	{
+		// store the dimension
+		m_numOfRows = rows;
+		m_numOfCols = cols;
+
+		// create the cells (all empty)
+		m_cellColors = new int[rows * cols];
+		m_rowBits    = new long[rows];
+		m_shapeBits  = new long[rows];
+		m_ghostBits  = new long[rows];
+
+		// a Shape is made up of at most four Blocks, but the arrays grow if needed
+		m_blockCols = new int[4];
+		m_blockRows = new int[4];
+	}
+
+	//**************************************************************************************************
+	/** Copies the passed in BoardModel (along with its current Shape) and the state of the game into
+	  * this BoardSnapshot. Note that this must be called while holding the lock of the GameEngine.
+	  * @param model the BoardModel to copy (of the dimension of this BoardSnapshot)
+	  * @param fallOffset how far (as a fraction of a row) the current Shape is drawn towards the next
+	  *                   row
+	  * @param engine the GameEngine that runs the game
+	  * @param ghost true to copy the ghost of the current Shape as well
+	  */
+	//**************************************************************************************************
+	public void copy(BoardModel model, double fallOffset, GameEngine engine, boolean ghost)
+	{
+		// copy the state of the game
+		m_tick  = engine.getTicks();
+		m_score = engine.getScore();
+		m_level = engine.getLevel();
+		m_lines = engine.getLines();
+
+		// copy the color of the BoardModel and the cells
+		m_color = model.getColor();
+		for (int row = 0; row < m_numOfRows; row++)
+		{
+			m_rowBits[row]   = model.getRowBits(row);
+			m_shapeBits[row] = 0;
+			m_ghostBits[row] = 0;
+			for (int col = 0; col < m_numOfCols; col++)
+			{
+				m_cellColors[row * m_numOfCols + col] = model.getCellColor(col, row);
+			}
+		}
+
+		// copy the Blocks of the current Shape (if it's on the BoardModel)
+		Shape shape   = model.getShape();
+		m_numOfBlocks = 0;
+		m_dropRows    = 0;
+		m_fallOffset  = 0.0;
+		if (shape != null && shape.getBoard() == model)
+		{
+			copyShape(shape, fallOffset, ghost);
+		}
+	}
+
+	//**************************************************************************************************
+	private void copyShape(Shape shape, double fallOffset, boolean ghost)
+	{
+		// store the color of the Shape and how far it has fallen towards the next row
+		m_shapeColor = shape.getRGB();
+		m_fallOffset = fallOffset;
+
+		// find out how far the Shape would fall (without moving it)
+		while (ghost && shape.canMove(0, m_dropRows + 1))
+		{
+			m_dropRows++;
+		}
+
+		// make room for the Blocks
+		int numOfBlocks = shape.getBlocks().size();
+		if (numOfBlocks > m_blockCols.length)
+		{
+			m_blockCols = new int[numOfBlocks];
+			m_blockRows = new int[numOfBlocks];
+		}
+
+		for (int i = 0; i < numOfBlocks; i++)
+		{
+			// get the next Block of the Shape
+			Block block = shape.getBlocks().get(i);
+			int   col   = block.getXPos();
+			int   row   = block.getYPos();
+
+			// only the Blocks on the BoardModel are drawn
+			if (col >= 0 && col < m_numOfCols && row >= 0 && row < m_numOfRows)
+			{
+				m_blockCols[m_numOfBlocks] = col;
+				m_blockRows[m_numOfBlocks] = row;
+				m_numOfBlocks++;
+				m_shapeBits[row] |= 1L << col;
+			}
+		}
+
+		// the ghost lies where the Blocks would land (on the cells that the Shape doesn't cover)
+		for (int i = 0; i < m_numOfBlocks && m_dropRows > 0; i++)
+		{
+			m_ghostBits[m_blockRows[i] + m_dropRows] |= 1L << m_blockCols[i];
+		}
+		for (int i = 0; i < m_numOfBlocks && m_dropRows > 0; i++)
+		{
+			m_ghostBits[m_blockRows[i] + m_dropRows] &= ~m_shapeBits[m_blockRows[i] + m_dropRows];
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows that the current Shape would fall before it lands (0 if it has no
+	  * ghost).
+	  * @return the number of rows between the current Shape and its ghost
+	  */
+	//**************************************************************************************************
+	public int getDropRows()
+	{
+		// get the number of rows
+		return m_dropRows;
+	}
+
+	//**************************************************************************************************
+	/** Returns how far (as a fraction of a row) the current Shape is drawn towards the next row.
+	  * @return the fall offset of the current Shape
+	  */
+	//**************************************************************************************************
+	public double getFallOffset()
+	{
+		// get the fall offset
+		return m_fallOffset;
+	}
+
+	//**************************************************************************************************
+	/** Returns the bitmask of the columns that the ghost of the current Shape covers in the indicated
+	  * row (see BoardModel.getRowBits()).
+	  * @param rowNum the row whose bitmask is desired
+	  * @return the bitmask of the ghost in the row
+	  */
+	//**************************************************************************************************
+	public long getGhostBits(int rowNum)
+	{
+		// get the bitmask of the row
+		return m_ghostBits[rowNum];
+	}
+
+	//**************************************************************************************************
+	/** Returns the level of the game.
+	  * @return the level
+	  */
+	//**************************************************************************************************
+	public int getLevel()
+	{
+		// get the level
+		return m_level;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows cleared during the game.
+	  * @return the number of rows cleared
+	  */
+	//**************************************************************************************************
+	public int getLines()
+	{
+		// get the number of rows cleared
+		return m_lines;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of columns of this BoardSnapshot.
+	  * @return the number of columns
+	  */
+	//**************************************************************************************************
+	public int getNumOfCols()
+	{
+		// get the number of columns
+		return m_numOfCols;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows of this BoardSnapshot.
+	  * @return the number of rows
+	  */
+	//**************************************************************************************************
+	public int getNumOfRows()
+	{
+		// get the number of rows
+		return m_numOfRows;
+	}
+
+	//**************************************************************************************************
+	/** Returns the score of the game.
+	  * @return the score
+	  */
+	//**************************************************************************************************
+	public int getScore()
+	{
+		// get the score
+		return m_score;
+	}
+
+	//**************************************************************************************************
+	/** Returns the bitmask of the columns that the current Shape covers in the indicated row (see
+	  * BoardModel.getRowBits()).
+	  * @param rowNum the row whose bitmask is desired
+	  * @return the bitmask of the current Shape in the row
+	  */
+	//**************************************************************************************************
+	public long getShapeBits(int rowNum)
+	{
+		// get the bitmask of the row
+		return m_shapeBits[rowNum];
+	}
+
+	//**************************************************************************************************
+	/** Returns the tick of the game after which this BoardSnapshot was copied.
+	  * @return the tick
+	  */
+	//**************************************************************************************************
+	public long getTick()
+	{
+		// get the tick
+		return m_tick;
+	}
+
+	//**************************************************************************************************
+	/** Paints the cells of this BoardSnapshot that lie in the passed in clip, spreading them evenly
+	  * over an area of the indicated size. Note that an empty cell is painted with the color of the
+	  * BoardModel (or as part of the ghost), while a filled cell is painted with its own color and a
+	  * raised border. Either way, a cell is painted by copying its tile over (see TileCache).
+	  * @param g the Graphics to paint with
+	  * @param clip the area that has to be painted
+	  * @param width the width of the area that the cells are spread over
+	  * @param height the height of the area that the cells are spread over
+	  * @param tiles the TileCache that holds the tiles of the cells
+	  */
+	//**************************************************************************************************
+	public void paint(Graphics g, Rectangle clip, int width, int height, TileCache tiles)
+	{
+		// find the cells that lie in the clip
+		int areaWidth  = Math.max(1, width);
+		int areaHeight = Math.max(1, height);
+		int minCol     = Math.max(0, clip.x * m_numOfCols / areaWidth);
+		int maxCol     = Math.min(m_numOfCols - 1, (clip.x + clip.width) * m_numOfCols / areaWidth);
+		int minRow     = Math.max(0, clip.y * m_numOfRows / areaHeight);
+		int maxRow     = Math.min(m_numOfRows - 1, (clip.y + clip.height) * m_numOfRows / areaHeight);
+
+		for (int row = minRow; row <= maxRow; row++)
+		{
+			// get the top and the height of the cells of this row
+			int y          = row * height / m_numOfRows;
+			int cellHeight = (row + 1) * height / m_numOfRows - y;
+
+			for (int col = minCol; col <= maxCol; col++)
+			{
+				// get the left and the width of this cell, its bit and its color
+				int  x         = col * width / m_numOfCols;
+				int  cellWidth = (col + 1) * width / m_numOfCols - x;
+				long bit       = 1L << col;
+				int  color     = m_cellColors[row * m_numOfCols + col];
+
+				if ((m_shapeBits[row] & bit) != 0)
+				{
+					// the current Shape is painted on its own, so it leaves the cell empty
+					tiles.drawTile(g, m_color, x, y, cellWidth, cellHeight, TileCache.FLAT);
+				}
+				else if ((m_rowBits[row] & bit) != 0)
+				{
+					// a filled cell has a raised border
+					tiles.drawTile(g, color, x, y, cellWidth, cellHeight, TileCache.RAISED);
+				}
+				else if ((m_ghostBits[row] & bit) != 0)
+				{
+					// the ghost shows where the current Shape would land
+					tiles.drawTile(g, m_shapeColor, x, y, cellWidth, cellHeight, TileCache.GHOST);
+				}
+				else
+				{
+					// an empty cell is flat
+					tiles.drawTile(g, color, x, y, cellWidth, cellHeight, TileCache.FLAT);
+				}
+			}
+		}
+
+		for (int i = 0; i < m_numOfBlocks; i++)
+		{
+			// get the cell of the next Block of the current Shape
+			int x          = m_blockCols[i] * width / m_numOfCols;
+			int y          = m_blockRows[i] * height / m_numOfRows;
+			int cellWidth  = (m_blockCols[i] + 1) * width / m_numOfCols - x;
+			int cellHeight = (m_blockRows[i] + 1) * height / m_numOfRows - y;
+
+			// paint the Block part of the way towards the next row (in the color of the Shape)
+			int offset = (int)(m_fallOffset * cellHeight);
+			tiles.drawTile(g, m_shapeColor, x, y + offset, cellWidth, cellHeight, TileCache.RAISED);
+		}
+	}
+}
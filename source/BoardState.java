@@ -0,0 +1,425 @@
+// Author:   Jose Santos
+// FileName: BoardState.java
+
+//******************************************************************************************************
+/** This class creates a BoardState object which is a bare copy of the landed cells of a BoardModel,
+  * made for trying out where to put a Shape. Each row is a bitmask (just like in the BoardModel), and
+  * nothing is listened to or painted, so a BoardState can be copied and changed by the thousands from
+  * any thread. Note that a Shape is described by its kind, rotation and the x and y position of its
+  * focal Block, with the positions of its Blocks looked up in the ShapeTable. Cells above the top row
+  * are considered free, so that a Shape can be placed while part of it is still above the BoardState.
+  * The Zobrist hash of the filled cells is kept up to date as Shapes are placed, so BoardStates that
+  * are reached in different ways can be told apart (or found to be the same) at a glance.
+  */
+//******************************************************************************************************
+public class BoardState
+{
+	// data members
+	private long    m_fullRow;
+	private long    m_hash;
+	private int     m_numOfCols;
+	private int     m_numOfRows;
+	private long    m_rows[];
+	private boolean m_toppedOut;
+
+	//**************************************************************************************************
+	/** Creates an empty BoardState object of the specified dimension.
+	  * @param rows the number of rows composing this BoardState (at most BoardModel.MAX_ROWS)
+	  * @param cols the number of columns composing this BoardState (at most BoardModel.MAX_COLS)
+	  * @throws IllegalArgumentException if the dimension is out of range
+	  */
+	//**************************************************************************************************
+	public BoardState(int rows, int cols)
+	{
+		// the dimension is limited the same way as that of a BoardModel
+		if (rows <= 0 || cols <= 0 || rows > BoardModel.MAX_ROWS || cols > BoardModel.MAX_COLS)
+		{
+			throw new IllegalArgumentException("Invalid board dimension: " + rows + " x " + cols);
+		}
+
+		// store the dimension
+		m_numOfRows = rows;
+		m_numOfCols = cols;
+
+		// create the rows (all empty)
+		m_rows = new long[rows];
+
+		// the bitmask of a full row has a bit set for every column
+		m_fullRow = (cols == 64) ? -1L : (1L << cols) - 1;
+	}
+
+	//**************************************************************************************************
+	/** Creates a BoardState object that holds the landed cells of the passed in BoardModel. Note that
+	  * the cells of the current Shape of the BoardModel are left out, since it hasn't landed yet.
+	  * @param model the BoardModel to copy
+	  */
+	//**************************************************************************************************
+	public BoardState(BoardModel model)
+	{
+		this(model.getNumOfRows(), model.getNumOfCols());
+
+		// copy the rows
+		for (int y = 0; y < m_numOfRows; y++)
+		{
+			m_rows[y] = model.getRowBits(y);
+		}
+
+		// leave out the cells of the current Shape
+		Shape shape = model.getShape();
+		for (int i = 0; shape != null && i < shape.getBlocks().size(); i++)
+		{
+			// get the next Block of the current Shape
+			Block block = shape.getBlocks().get(i);
+
+			// empty the cell of the Block
+			if (block.getYPos() >= 0 && block.getYPos() < m_numOfRows)
+			{
+				m_rows[block.getYPos()] &= ~(1L << block.getXPos());
+			}
+		}
+
+		// work out the hash of the landed cells
+		for (int y = 0; y < m_numOfRows; y++)
+		{
+			m_hash ^= Zobrist.getRowKey(y, m_rows[y]);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Creates a BoardState object that is a copy of the passed in BoardState.
+	  * @param state the BoardState to copy
+	  */
+	//**************************************************************************************************
+	public BoardState(BoardState state)
+	{
+		this(state.m_numOfRows, state.m_numOfCols);
+
+		// copy the rows and whether or not the BoardState has topped out
+		copyFrom(state);
+	}
+
+	//**************************************************************************************************
+	private int clearFullRows()
+	{
+		// the row that the next row that isn't full is moved to (working up from the floor)
+		int to = m_numOfRows - 1;
+
+		for (int from = m_numOfRows - 1; from >= 0; from--)
+		{
+			// only the rows that aren't full are kept
+			if (m_rows[from] != m_fullRow)
+			{
+				// flip the keys of the cells that change their occupancy
+				m_hash ^= Zobrist.getRowKey(to, m_rows[to] ^ m_rows[from]);
+				m_rows[to--] = m_rows[from];
+			}
+		}
+
+		// the number of rows cleared is the number of rows left over at the top
+		int cleared = to + 1;
+
+		// the rows left over at the top are empty
+		for (int y = to; y >= 0; y--)
+		{
+			m_hash   ^= Zobrist.getRowKey(y, m_rows[y]);
+			m_rows[y] = 0;
+		}
+
+		return cleared;
+	}
+
+	//**************************************************************************************************
+	/** Makes this BoardState a copy of the passed in BoardState. Note that both must have the same
+	  * dimension. This lets a search reuse its BoardStates instead of creating new ones.
+	  * @param state the BoardState to copy
+	  */
+	//**************************************************************************************************
+	public void copyFrom(BoardState state)
+	{
+		// copy the rows
+		System.arraycopy(state.m_rows, 0, m_rows, 0, m_numOfRows);
+
+		// copy the hash and whether or not the BoardState has topped out
+		m_hash      = state.m_hash;
+		m_toppedOut = state.m_toppedOut;
+	}
+
+	//**************************************************************************************************
+	/** Returns the y position at which the indicated Shape comes to rest when it's dropped straight down
+	  * from the indicated position.
+	  * @param type the kind of Shape
+	  * @param rotation the rotation of the Shape
+	  * @param x the x position of the focal Block
+	  * @param y the y position of the focal Block to drop from
+	  * @return the y position of the focal Block once the Shape is at rest, or -1 if the Shape doesn't
+	  * fit at the position it's dropped from
+	  */
+	//**************************************************************************************************
+	public int dropY(int type, int rotation, int x, int y)
+	{
+		// will hold the y position of the focal Block
+		int retVal = -1;
+
+		if (fits(type, rotation, x, y))
+		{
+			// move down for as long as the Shape fits
+			retVal = y;
+			while (fits(type, rotation, x, retVal + 1))
+			{
+				retVal++;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the indicated Shape fits at the indicated position. That is, each of its Blocks
+	  * lies between the walls, above the floor, and on an empty cell (or above the top row).
+	  * @param type the kind of Shape
+	  * @param rotation the rotation of the Shape
+	  * @param x the x position of the focal Block
+	  * @param y the y position of the focal Block
+	  * @return true if the Shape fits (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean fits(int type, int rotation, int x, int y)
+	{
+		// we'll assume that the Shape fits
+		boolean retVal = true;
+
+		for (int i = 0; i < ShapeTable.NUM_OF_BLOCKS; i++)
+		{
+			// get the position of the Block
+			int xPos = x + ShapeTable.getXOffset(type, rotation, i);
+			int yPos = y + ShapeTable.getYOffset(type, rotation, i);
+
+			// the Block must be between the walls, above the floor and on an empty cell
+			if (xPos < 0 || xPos >= m_numOfCols || yPos >= m_numOfRows ||
+			    (yPos >= 0 && (m_rows[yPos] & (1L << xPos)) != 0))
+			{
+				retVal = false;
+				break;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the sum of the heights of all the columns.
+	  * @return the aggregate height of this BoardState
+	  */
+	//**************************************************************************************************
+	public int getAggregateHeight()
+	{
+		// will hold the aggregate height
+		int retVal = 0;
+
+		for (int x = 0; x < m_numOfCols; x++)
+		{
+			// add the height of the column
+			retVal += getColumnHeight(x);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the sum of the differences in height between neighboring columns.
+	  * @return the bumpiness of this BoardState
+	  */
+	//**************************************************************************************************
+	public int getBumpiness()
+	{
+		// will hold the bumpiness
+		int retVal = 0;
+
+		// add up the differences in height between each column and the next
+		int previous = getColumnHeight(0);
+		for (int x = 1; x < m_numOfCols; x++)
+		{
+			int height = getColumnHeight(x);
+			retVal  += Math.abs(height - previous);
+			previous = height;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the height of the indicated column. That is, the number of rows from the floor up to and
+	  * including its highest filled cell.
+	  * @param x the column
+	  * @return the height of the column (0 if it's empty)
+	  */
+	//**************************************************************************************************
+	public int getColumnHeight(int x)
+	{
+		// will hold the height of the column
+		int retVal = 0;
+
+		// get the bit of the column
+		long bit = 1L << x;
+
+		// find the highest filled cell of the column
+		for (int y = 0; y < m_numOfRows; y++)
+		{
+			if ((m_rows[y] & bit) != 0)
+			{
+				retVal = m_numOfRows - y;
+				break;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the Zobrist hash of the filled cells of this BoardState.
+	  * @return the hash of this BoardState
+	  */
+	//**************************************************************************************************
+	public long getHash()
+	{
+		// get the hash
+		return m_hash;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of holes. That is, the number of empty cells that have a filled cell somewhere
+	  * above them.
+	  * @return the number of holes in this BoardState
+	  */
+	//**************************************************************************************************
+	public int getHoles()
+	{
+		// will hold the number of holes
+		int retVal = 0;
+
+		// the columns that have had a filled cell so far (going down)
+		long covered = 0;
+
+		for (int y = 0; y < m_numOfRows; y++)
+		{
+			// every covered column that is empty on this row has a hole
+			retVal += Long.bitCount(covered & ~m_rows[y]);
+
+			// the filled cells of this row cover their columns from now on
+			covered |= m_rows[y];
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of columns composing this BoardState.
+	  * @return the number of columns composing this BoardState
+	  */
+	//**************************************************************************************************
+	public int getNumOfCols()
+	{
+		// get the number of columns
+		return m_numOfCols;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows composing this BoardState.
+	  * @return the number of rows composing this BoardState
+	  */
+	//**************************************************************************************************
+	public int getNumOfRows()
+	{
+		// get the number of rows
+		return m_numOfRows;
+	}
+
+	//**************************************************************************************************
+	/** Returns the bitmask of the indicated row.
+	  * @param rowNum the row whose bitmask is desired
+	  * @return the bitmask of the row
+	  */
+	//**************************************************************************************************
+	public long getRowBits(int rowNum)
+	{
+		// get the bitmask of the row
+		return m_rows[rowNum];
+	}
+
+	//**************************************************************************************************
+	/** Returns the sum of the depths of the wells. A well is a column that is lower than the columns on
+	  * both sides of it (or a wall), and its depth is how far it is below the lower of the two.
+	  * @return the sum of the depths of the wells of this BoardState
+	  */
+	//**************************************************************************************************
+	public int getWells()
+	{
+		// will hold the sum of the depths of the wells
+		int retVal = 0;
+
+		// get the height of every column once
+		int heights[] = new int[m_numOfCols];
+		for (int x = 0; x < m_numOfCols; x++)
+		{
+			heights[x] = getColumnHeight(x);
+		}
+
+		for (int x = 0; x < m_numOfCols; x++)
+		{
+			// a wall is as high as the BoardState
+			int left  = (x > 0) ? heights[x - 1] : m_numOfRows;
+			int right = (x < m_numOfCols - 1) ? heights[x + 1] : m_numOfRows;
+
+			// add the depth of the well (if the column is one)
+			retVal += Math.max(0, Math.min(left, right) - heights[x]);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if a Shape was placed with part of it above the top row, which ends the game.
+	  * @return true if this BoardState has topped out (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean isToppedOut()
+	{
+		// get whether or not the BoardState has topped out
+		return m_toppedOut;
+	}
+
+	//**************************************************************************************************
+	/** Places the indicated Shape at the indicated position and clears any rows that it fills. Note
+	  * that the Shape is assumed to fit there.
+	  * @param type the kind of Shape
+	  * @param rotation the rotation of the Shape
+	  * @param x the x position of the focal Block
+	  * @param y the y position of the focal Block
+	  * @return the number of rows cleared
+	  */
+	//**************************************************************************************************
+	public int place(int type, int rotation, int x, int y)
+	{
+		for (int i = 0; i < ShapeTable.NUM_OF_BLOCKS; i++)
+		{
+			// get the position of the Block
+			int xPos = x + ShapeTable.getXOffset(type, rotation, i);
+			int yPos = y + ShapeTable.getYOffset(type, rotation, i);
+
+			if (yPos >= 0)
+			{
+				// fill the cell of the Block (flipping its key into the hash)
+				m_rows[yPos] |= 1L << xPos;
+				m_hash       ^= Zobrist.getKey(xPos, yPos);
+			}
+			else
+			{
+				// a Block that lands above the top row ends the game
+				m_toppedOut = true;
+			}
+		}
+
+		// clear the full rows
+		return clearFullRows();
+	}
+}
@@ -0,0 +1,25 @@
+// Author:   Jose Santos
+// FileName: BotController.java
+
+//******************************************************************************************************
+/** This is a BotController interface that allows for a game to be played by a bot rather than by a
+  * person. A bot plays through the same InputQueue as the keyboard, so it can only do what a person
+  * could. Note that a bot is told about each new Shape on the thread of the GameLoop (while it holds
+  * the lock of the GameEngine), so it must do its thinking on a thread of its own.
+  */
+//******************************************************************************************************
+public interface BotController
+{
+	//**************************************************************************************************
+	/** Called when a new Shape starts falling on the game BoardModel of the passed in GameEngine.
+	  * @param engine the GameEngine whose game the bot is playing
+	  */
+	//**************************************************************************************************
+	public void shapeSpawned(GameEngine engine);
+
+	//**************************************************************************************************
+	/** Stops the bot for good. Note that any thinking that is going on is abandoned.
+	  */
+	//**************************************************************************************************
+	public void shutdown();
+}
@@ -0,0 +1,159 @@
+// Author:   Jose Santos
+// FileName: BotWeights.java
+
+//******************************************************************************************************
+/** This class creates a BotWeights object which holds the weights that a bot gives to each feature
+  * of a BoardState when judging where to put a Shape. The score of a BoardState is the sum of each
+  * feature times its weight, so features that are bad (such as holes) are given negative weights.
+  * Note that the default weights are well known to play a steady game, but they can be tuned (see
+  * WeightTuner).
+  */
+//******************************************************************************************************
+public class BotWeights
+{
+	// the features (note that these index the weights)
+	public static final int AGGREGATE_HEIGHT = 0;
+	public static final int LINES_CLEARED    = 1;
+	public static final int HOLES            = 2;
+	public static final int BUMPINESS        = 3;
+	public static final int WELLS            = 4;
+
+	// the number of features
+	public static final int NUM_OF_FEATURES = 5;
+
+	// the score given to a BoardState that has topped out
+	public static final double TOPPED_OUT_SCORE = -1.0e9;
+
+	// the default weights (the wells are left out, since the others were tuned without them)
+	private static final double DEFAULT_WEIGHTS[] = {-0.510066, 0.760666, -0.35663, -0.184483, 0.0};
+
+	// data members
+	private double m_weights[];
+
+	//**************************************************************************************************
+	/** Creates a BotWeights object holding the default weights.
+	  */
+	//**************************************************************************************************
+	public BotWeights()
+	{
+		this(DEFAULT_WEIGHTS);
+	}
+
+	//**************************************************************************************************
+	/** Creates a BotWeights object holding the passed in weights (indexed by feature).
+	  * @param weights the weights of the features
+	  * @throws IllegalArgumentException if there isn't a weight for every feature
+	  */
+	//**************************************************************************************************
+	public BotWeights(double weights[])
+	{
+		// there must be a weight for every feature
+		if (weights.length != NUM_OF_FEATURES)
+		{
+			throw new IllegalArgumentException("Expected " + NUM_OF_FEATURES + " weights");
+		}
+
+		// keep a copy of the weights, so they can't be changed from the outside
+		m_weights = weights.clone();
+	}
+
+	//**************************************************************************************************
+	/** Returns the score of the passed in BoardState. The higher the score, the better the BoardState.
+	  * @param state the BoardState to judge (after the Shape has been placed)
+	  * @param linesCleared the number of rows cleared by placing the Shape
+	  * @return the score of the BoardState
+	  */
+	//**************************************************************************************************
+	public double evaluate(BoardState state, int linesCleared)
+	{
+		// will hold the score
+		double retVal = TOPPED_OUT_SCORE;
+
+		// a BoardState that has topped out is as bad as it gets
+		if (!state.isToppedOut())
+		{
+			retVal = m_weights[AGGREGATE_HEIGHT] * state.getAggregateHeight() +
+			         m_weights[LINES_CLEARED]    * linesCleared +
+			         m_weights[HOLES]            * state.getHoles() +
+			         m_weights[BUMPINESS]        * state.getBumpiness() +
+			         m_weights[WELLS]            * state.getWells();
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the weight of the indicated feature.
+	  * @param feature the feature
+	  * @return the weight of the feature
+	  */
+	//**************************************************************************************************
+	public double getWeight(int feature)
+	{
+		// get the weight
+		return m_weights[feature];
+	}
+
+	//**************************************************************************************************
+	/** Returns a copy of the weights (indexed by feature).
+	  * @return a copy of the weights
+	  */
+	//**************************************************************************************************
+	public double[] getWeights()
+	{
+		// hand out a copy of the weights
+		return m_weights.clone();
+	}
+
+	//**************************************************************************************************
+	/** Returns the BotWeights written in the passed in String (as written by toString()).
+	  * @param text the weights separated by commas
+	  * @return the BotWeights
+	  * @throws IllegalArgumentException if the String doesn't hold a weight for every feature
+	  */
+	//**************************************************************************************************
+	public static BotWeights parse(String text)
+	{
+		// split the weights apart
+		String parts[] = text.split(",");
+
+		// there must be a weight for every feature
+		if (parts.length != NUM_OF_FEATURES)
+		{
+			throw new IllegalArgumentException("Expected " + NUM_OF_FEATURES + " weights: " + text);
+		}
+
+		// read each weight
+		double weights[] = new double[NUM_OF_FEATURES];
+		for (int i = 0; i < NUM_OF_FEATURES; i++)
+		{
+			weights[i] = Double.parseDouble(parts[i].trim());
+		}
+
+		return new BotWeights(weights);
+	}
+
+	//**************************************************************************************************
+	/** Returns the weights separated by commas.
+	  * @return the weights separated by commas
+	  */
+	//**************************************************************************************************
+	public String toString()
+	{
+		// will hold the weights
+		StringBuilder retVal = new StringBuilder();
+
+		for (int i = 0; i < NUM_OF_FEATURES; i++)
+		{
+			// separate the weights with commas
+			if (i > 0)
+			{
+				retVal.append(',');
+			}
+
+			retVal.append(m_weights[i]);
+		}
+
+		return retVal.toString();
+	}
+}
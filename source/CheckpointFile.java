@@ -0,0 +1,240 @@
+// Author:   Jose Santos
+// FileName: CheckpointFile.java
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+//******************************************************************************************************
+/** This class creates a CheckpointFile object which keeps a copy of the state of a running game (see
+  * GameEngine.writeState()) in a small file that is mapped into memory. Saving the state is just a
+  * copy into the mapping, which the operating system writes to the disk in its own time, so the game
+  * never waits for the disk. Should the JVM die, the last state saved is still in the file, and the
+  * game can be resumed from it. The file is laid out as:
+  *
+  *   header  "TCKP", the version and the size of a slot (4 bytes each)
+  *   slots   two of them, each holding the generation (8 bytes), the length of the state (4 bytes),
+  *           the CRC-32 of the generation, the length and the state (4 bytes), and the state itself
+  *
+  * Each save goes into the slot that doesn't hold the last one, with the next generation. A save that
+  * is cut short by a crash no longer matches its CRC-32, so the other slot (with the save before it)
+  * is used instead. Note that the state is only as safe as the operating system keeps it: a crash of
+  * the JVM loses nothing, while a crash of the machine may lose the saves that weren't written yet.
+  */
+//******************************************************************************************************
+public class CheckpointFile
+{
+	// the first bytes of a checkpoint file, and the version of the layout that follows them
+	public static final int MAGIC   = 0x54434B50;
+	public static final int VERSION = 1;
+
+	// the positions of the header, and its size
+	private static final int HEADER_VERSION   = 4;
+	private static final int HEADER_SLOT_SIZE = 8;
+	private static final int HEADER_SIZE      = 16;
+
+	// the positions of a slot, and the size of everything before the state
+	private static final int SLOT_GENERATION = 0;
+	private static final int SLOT_LENGTH     = 8;
+	private static final int SLOT_CRC        = 12;
+	private static final int SLOT_STATE      = 16;
+
+	// data members
+	private FileChannel      m_channel;
+	private CRC32            m_crc;
+	private long             m_generation;
+	private MappedByteBuffer m_map;
+	private int              m_slotSize;
+	private ByteBuffer       m_state;
+	private ByteBuffer       m_view;
+
+	//**************************************************************************************************
+	/** Creates a CheckpointFile object that keeps the state of a game in the file at the indicated
+	  * path. A file that doesn't exist yet (or that was laid out for a different size of state) is
+	  * started over empty.
+	  * @param file the path of the checkpoint file
+	  * @param maxStateSize the most bytes taken by the state (see GameEngine.getMaxStateSize())
+	  * @throws IOException if the file can't be opened or mapped
+	  */
+	//**************************************************************************************************
+	public CheckpointFile(Path file, int maxStateSize) throws IOException
+	{
+		// each slot holds the biggest state (rounded up to a cache line)
+		m_slotSize = (SLOT_STATE + maxStateSize + 63) & ~63;
+
+		// open the file and map all of it
+		m_channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+		                             StandardOpenOption.WRITE);
+		m_map     = m_channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 2 * m_slotSize);
+		m_view    = m_map.duplicate();
+
+		// the state is written aside first, in order to know its length and CRC-32
+		m_state = ByteBuffer.allocate(maxStateSize);
+		m_crc   = new CRC32();
+
+		if (m_map.getInt(0) != MAGIC || m_map.getInt(HEADER_VERSION) != VERSION ||
+		    m_map.getInt(HEADER_SLOT_SIZE) != m_slotSize)
+		{
+			// start the file over
+			clear();
+			m_map.putInt(HEADER_VERSION, VERSION);
+			m_map.putInt(HEADER_SLOT_SIZE, m_slotSize);
+			m_map.putInt(0, MAGIC);
+		}
+		else
+		{
+			// carry on from the generation of the last save
+			int slot = findLastSave();
+			if (slot >= 0)
+			{
+				m_generation = m_map.getLong(getSlotOffset(slot) + SLOT_GENERATION);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Throws away the saved state, so that nothing is resumed from this CheckpointFile (until the
+	  * next save). This is called once a game is over.
+	  */
+	//**************************************************************************************************
+	public void clear()
+	{
+		// a slot of generation 0 never holds a save
+		for (int slot = 0; slot < 2; slot++)
+		{
+			m_map.putLong(getSlotOffset(slot) + SLOT_GENERATION, 0);
+		}
+		m_generation = 0;
+	}
+
+	//**************************************************************************************************
+	/** Closes this CheckpointFile. Note that the saved state is written to the disk first (which may
+	  * take a while), so this shouldn't be called by the thread that ticks the game.
+	  * @throws IOException if the file can't be written or closed
+	  */
+	//**************************************************************************************************
+	public void close() throws IOException
+	{
+		// write everything to the disk and close the file
+		m_map.force();
+		m_channel.close();
+	}
+
+	//**************************************************************************************************
+	private int findLastSave()
+	{
+		// will hold the slot of the last save
+		int retVal = -1;
+
+		// the valid slot with the newest generation holds the last save
+		long newest = 0;
+		for (int slot = 0; slot < 2; slot++)
+		{
+			long generation = m_map.getLong(getSlotOffset(slot) + SLOT_GENERATION);
+			if (generation > newest && isValid(slot))
+			{
+				retVal = slot;
+				newest = generation;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private long getCRC(int offset, int length)
+	{
+		// the CRC-32 covers the generation, the length and the state (read through a view of its own)
+		m_view.limit(offset + SLOT_CRC).position(offset + SLOT_GENERATION);
+		m_crc.reset();
+		m_crc.update(m_view);
+		m_view.limit(offset + SLOT_STATE + length).position(offset + SLOT_STATE);
+		m_crc.update(m_view);
+
+		return m_crc.getValue();
+	}
+
+	//**************************************************************************************************
+	private int getSlotOffset(int slot)
+	{
+		// the slots follow the header
+		return HEADER_SIZE + slot * m_slotSize;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if there is a saved state to resume from.
+	  * @return true if a state was saved (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean hasSave()
+	{
+		// look for a valid save
+		return findLastSave() >= 0;
+	}
+
+	//**************************************************************************************************
+	private boolean isValid(int slot)
+	{
+		// a slot is valid if its length makes sense and its CRC-32 checks out
+		int offset = getSlotOffset(slot);
+		int length = m_map.getInt(offset + SLOT_LENGTH);
+
+		return length > 0 && length <= m_slotSize - SLOT_STATE &&
+		       (int)getCRC(offset, length) == m_map.getInt(offset + SLOT_CRC);
+	}
+
+	//**************************************************************************************************
+	/** Puts the passed in GameEngine back into the last state saved.
+	  * @param engine the GameEngine to resume (whose BoardModels have the size of the saved game)
+	  * @return true if the game was resumed, or false if there was no state to resume from
+	  */
+	//**************************************************************************************************
+	public boolean restore(GameEngine engine)
+	{
+		// find the last save
+		int slot = findLastSave();
+
+		if (slot >= 0)
+		{
+			// read the state of the slot
+			int        offset = getSlotOffset(slot);
+			ByteBuffer state  = m_map.duplicate();
+			state.limit(offset + SLOT_STATE + m_map.getInt(offset + SLOT_LENGTH));
+			state.position(offset + SLOT_STATE);
+			engine.readState(state.slice());
+		}
+
+		return slot >= 0;
+	}
+
+	//**************************************************************************************************
+	/** Saves the state of the passed in GameEngine. This is meant to be called by the thread that ticks
+	  * the game (in between ticks), and creates no objects.
+	  * @param engine the GameEngine to save
+	  */
+	//**************************************************************************************************
+	public void save(GameEngine engine)
+	{
+		// write the state aside
+		m_state.clear();
+		engine.writeState(m_state);
+		m_state.flip();
+
+		// the save goes into the slot that doesn't hold the last one
+		m_generation++;
+		int offset = getSlotOffset((int)(m_generation & 1));
+
+		// copy the state into the slot, followed by the generation and the length
+		m_map.position(offset + SLOT_STATE);
+		m_map.put(m_state);
+		m_map.putLong(offset + SLOT_GENERATION, m_generation);
+		m_map.putInt(offset + SLOT_LENGTH, m_state.limit());
+
+		// the CRC-32 is written last, so that the slot only checks out once everything is in it
+		m_map.putInt(offset + SLOT_CRC, (int)getCRC(offset, m_state.limit()));
+	}
+}
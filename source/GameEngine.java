@@ -0,0 +1,1265 @@
+// Author:   Jose Santos
+// FileName: GameEngine.java
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+//******************************************************************************************************
+/** This class creates a GameEngine object which runs the rules of the Tetris game on a pair of
+  * BoardModels. One BoardModel holds the falling Shapes while the other holds the next Shape. Note
+  * that a GameEngine never touches a Swing component, so a game can be ticked without a window. The
+  * BoardManager simply drives a GameEngine from its animation timer.
+  */
+//******************************************************************************************************
+public class GameEngine
+{
+	// the number of logical ticks run by step() per second of play
+	public static final int TICKS_PER_SECOND = 60;
+
+	// the fastest gravity (in rows per tick). At 20G a Shape reaches the bottom the moment it appears
+	public static final double MAX_GRAVITY = 20.0;
+
+	// the level at which the gravity stops getting faster
+	public static final int MAX_GRAVITY_LEVEL = 20;
+
+	// the number of ticks that a Shape may rest on something before it lands
+	public static final int LOCK_DELAY = 30;
+
+	// the number of times moving or rotating a resting Shape may restart its lock delay
+	public static final int MAX_LOCK_RESETS = 15;
+
+	// the number of points that must be scored in order to reach the next level
+	public static final int POINTS_PER_LEVEL = 10;
+
+	// the results of a tick
+	public static final int TICK_MOVED     = 0;
+	public static final int TICK_LOCKED    = 1;
+	public static final int TICK_GAME_OVER = 2;
+
+	// data members
+	private AutoRepeat     m_autoRepeat;
+	private boolean        m_canHold;
+	private GameEventBus   m_events;
+	private BoardModel     m_gameBoard;
+	private ShapeGenerator m_generator;
+	private double         m_gravity;
+	private double         m_gravityProgress;
+	private Shape          m_heldShape;
+	private InputQueue     m_input;
+	private int            m_level;
+	private long           m_lastHash;
+	private int            m_lines;
+	private int            m_linesCleared;
+	private int            m_lockResets;
+	private int            m_lockTicks;
+	private GameMetrics    m_metrics;
+	private BoardModel     m_nextShapeBoard;
+	private InputRecorder  m_recorder;
+	private int            m_score;
+	private int            m_stateColors[];
+	private long           m_ticks;
+
+	//**************************************************************************************************
+	/** Creates a headless GameEngine object whose game BoardModel has the specified dimension. Note
+	  * that the BoardModel holding the next Shape is created as well.
+	  * @param rows the number of rows composing the game BoardModel
+	  * @param cols the number of columns composing the game BoardModel
+	  */
+	//**************************************************************************************************
+	public GameEngine(int rows, int cols)
+	{
+		this(rows, cols, new ShapeGenerator(new UniformRandomizer(), System.nanoTime()));
+	}
+
+	//**************************************************************************************************
+	/** Creates a headless GameEngine object whose game BoardModel has the specified dimension, with its
+	  * Shapes handed out by the passed in ShapeGenerator.
+	  * @param rows the number of rows composing the game BoardModel
+	  * @param cols the number of columns composing the game BoardModel
+	  * @param generator the ShapeGenerator that hands out the Shapes of the game
+	  */
+	//**************************************************************************************************
+	public GameEngine(int rows, int cols, ShapeGenerator generator)
+	{
+		this(new BoardModel(rows, cols, Color.BLACK.getRGB()),
+		     new BoardModel(2, 5, new Color(205, 205, 205).getRGB()), generator);
+	}
+
+	//**************************************************************************************************
+	/** Creates a GameEngine object that runs the game on the passed in BoardModels. Note that the
+	  * Shapes are picked uniformly at random.
+	  * @param gameBoard the BoardModel holding the falling Shapes
+	  * @param nextShapeBoard the BoardModel holding the next Shape
+	  */
+	//**************************************************************************************************
+	public GameEngine(BoardModel gameBoard, BoardModel nextShapeBoard)
+	{
+		this(gameBoard, nextShapeBoard, new ShapeGenerator(new UniformRandomizer(), System.nanoTime()));
+	}
+
+	//**************************************************************************************************
+	/** Creates a GameEngine object that runs the game on the passed in BoardModels, with its Shapes
+	  * handed out by the passed in ShapeGenerator.
+	  * @param gameBoard the BoardModel holding the falling Shapes
+	  * @param nextShapeBoard the BoardModel holding the next Shape
+	  * @param generator the ShapeGenerator that hands out the Shapes of the game
+	  */
+	//**************************************************************************************************
+	public GameEngine(BoardModel gameBoard, BoardModel nextShapeBoard, ShapeGenerator generator)
+	{
+		// store the ShapeGenerator
+		m_generator = generator;
+
+		//****************************************************************************************//
+		// NOTE: A bot queues every command of a Placement at once (each one pressed and          //
+		//       released), so the InputQueue holds a press and a release of a move across the    //
+		//       whole game BoardModel, along with the drops, the turns and the hard drop.        //
+		//****************************************************************************************//
+		int capacity = 2 * (gameBoard.getNumOfCols() + ShapeTable.NUM_OF_BLOCKS + 3);
+		m_input      = new InputQueue(Math.max(InputQueue.DEFAULT_CAPACITY, capacity));
+
+		// create the AutoRepeat that repeats the held down commands
+		m_autoRepeat = new AutoRepeat();
+
+		// store the game BoardModel
+		m_gameBoard = gameBoard;
+
+		// store the BoardModel holding the next Shape
+		m_nextShapeBoard = nextShapeBoard;
+
+		// the logic is timed when the GameMetrics are enabled
+		m_metrics = GameMetrics.getInstance();
+
+		// create the GameEventBus that tells the listeners what happens in the game
+		m_events = new GameEventBus(this);
+
+		// initialize the level to 1
+		m_level = 1;
+
+		// initialize the score to 0
+		m_score = 0;
+
+		// initialize the gravity
+		m_gravity = getGravity(m_level);
+	}
+
+	//**************************************************************************************************
+	/** Applies the indicated command to the current Shape of the game BoardModel. Note that a hard
+	  * drop lands the Shape straight away, and holding swaps the Shape with the one put aside (once per
+	  * Shape).
+	  * @param command the command to apply
+	  * @return TICK_MOVED if the current Shape is still falling, TICK_LOCKED if it landed, or
+	  * TICK_GAME_OVER if the game is over
+	  */
+	//**************************************************************************************************
+	public int applyCommand(InputCommand command)
+	{
+		// holds the result of the command
+		int result = TICK_MOVED;
+
+		// get the current Shape of the game BoardModel
+		Shape shape = m_gameBoard.getShape();
+
+		switch (command)
+		{
+			case MOVE_LEFT:
+				// move the current shape to the left
+				if (shape.canMoveLeft())
+				{
+					shape.moveLeft();
+					shapeMoved();
+				}
+				break;
+
+			case MOVE_RIGHT:
+				// move the current shape to the right
+				if (shape.canMoveRight())
+				{
+					shape.moveRight();
+					shapeMoved();
+				}
+				break;
+
+			case SOFT_DROP:
+				// move the current shape down
+				if (shape.canMoveDown())
+				{
+					shape.moveDown();
+					shapeFell();
+				}
+				break;
+
+			case HARD_DROP:
+				// move the current shape down as far as it goes
+				while (shape.canMoveDown())
+				{
+					shape.moveDown();
+				}
+
+				// it is game over when the current Shape is stuck on the first row
+				if (shape.onFirstRow())
+				{
+					result = TICK_GAME_OVER;
+				}
+				else
+				{
+					// the current Shape lands straight away
+					runLogic();
+					result = TICK_LOCKED;
+				}
+				break;
+
+			case ROTATE_CW:
+			case ROTATE_CCW:
+				// get the direction of the turn
+				int turns = (command == InputCommand.ROTATE_CW) ? 1 : -1;
+
+				// make sure the current shape can be rotated
+				if (shape.canRotate(turns))
+				{
+					// rotate the current shape
+					shape.rotate(turns, true, true);
+					shapeMoved();
+				}
+				break;
+
+			case HOLD:
+				// only one hold is allowed per Shape
+				if (m_canHold)
+				{
+					hold();
+				}
+				break;
+		}
+
+		return result;
+	}
+
+	//**************************************************************************************************
+	private void cellsChecked()
+	{
+		// the hash of the game board changes along with its cells (the current Shape included)
+		long hash = m_gameBoard.getHash();
+		if (hash != m_lastHash)
+		{
+			m_lastHash = hash;
+			m_events.publish(GameEvent.CELLS_CHANGED, 0, 0);
+		}
+	}
+
+	//**************************************************************************************************
+	private void gameEnded()
+	{
+		// tell Java Flight Recorder about the end of the game (when it's recording)
+		GameEvents.GameOver event = new GameEvents.GameOver();
+		if (event.shouldCommit())
+		{
+			event.tick  = m_ticks;
+			event.score = m_score;
+			event.level = m_level;
+			event.lines = m_lines;
+			event.commit();
+		}
+
+		// tell the listeners
+		m_events.publish(GameEvent.GAME_OVER, 0, 0);
+	}
+
+	//**************************************************************************************************
+	/** Returns true if it is game over. This happens when the current shape is on the first row and
+	  * it can no longer move down.
+	  * @return true if it is game over (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean gameOver()
+	{
+		// get the current Shape of the game BoardModel
+		Shape shape = m_gameBoard.getShape();
+
+		// it is game over when the current Shape is stuck on the first row
+		return shape.onFirstRow() && !shape.canMoveDown();
+	}
+
+	//**************************************************************************************************
+	private int findColor(int color, int numOfColors)
+	{
+		// look the color up among the ones gathered by writeState() (numOfColors if it isn't there)
+		int retVal = 0;
+		while (retVal < numOfColors && m_stateColors[retVal] != color)
+		{
+			retVal++;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the GameEventBus that tells the listeners of this GameEngine what happens in the game.
+	  * @return the GameEventBus
+	  */
+	//**************************************************************************************************
+	public GameEventBus getEvents()
+	{
+		// get the GameEventBus
+		return m_events;
+	}
+
+	//**************************************************************************************************
+	/** Returns the game BoardModel.
+	  * @return the game BoardModel
+	  */
+	//**************************************************************************************************
+	public BoardModel getGameBoard()
+	{
+		// get the game BoardModel
+		return m_gameBoard;
+	}
+
+	//**************************************************************************************************
+	/** Returns the AutoRepeat that works out when held down commands are given again. Note that its
+	  * DAS and ARR can be changed through it.
+	  * @return the AutoRepeat of the game
+	  */
+	//**************************************************************************************************
+	public AutoRepeat getAutoRepeat()
+	{
+		// get the AutoRepeat
+		return m_autoRepeat;
+	}
+
+	//**************************************************************************************************
+	/** Returns the ShapeGenerator that hands out the Shapes of the game.
+	  * @return the ShapeGenerator of the game
+	  */
+	//**************************************************************************************************
+	public ShapeGenerator getGenerator()
+	{
+		// get the ShapeGenerator
+		return m_generator;
+	}
+
+	//**************************************************************************************************
+	/** Returns the gravity of the game. That is, the number of rows (usually a fraction of one) that
+	  * the current Shape falls on every tick.
+	  * @return the gravity (in rows per tick)
+	  */
+	//**************************************************************************************************
+	public double getGravity()
+	{
+		// get the gravity
+		return m_gravity;
+	}
+
+	//**************************************************************************************************
+	/** Returns the gravity at the indicated level. Note that a Shape falls a row per second at level 1
+	  * and speeds up on each level after that, up to MAX_GRAVITY at MAX_GRAVITY_LEVEL.
+	  * @param level the level of the game
+	  * @return the gravity (in rows per tick)
+	  */
+	//**************************************************************************************************
+	public static double getGravity(int level)
+	{
+		// the gravity stops changing past MAX_GRAVITY_LEVEL
+		int n = Math.max(0, Math.min(level, MAX_GRAVITY_LEVEL) - 1);
+
+		// get the number of seconds that it takes to fall a single row
+		double seconds = Math.pow(0.8 - n * 0.007, n);
+
+		// turn that into rows per tick
+		return Math.min(MAX_GRAVITY, 1.0 / (seconds * TICKS_PER_SECOND));
+	}
+
+	//**************************************************************************************************
+	/** Returns how far (as a fraction of a row) the current Shape has fallen towards the next row,
+	  * including the part of a tick that has passed since the last one. Note that this is only meant
+	  * for drawing the Shape smoothly in between ticks. It is 0 when the Shape is resting on something
+	  * or falls a row (or more) on every tick.
+	  * @param alpha the fraction of a tick that has passed since the last one
+	  * @return the fraction of a row that the current Shape has fallen
+	  */
+	//**************************************************************************************************
+	public double getFallProgress(double alpha)
+	{
+		// will hold the fraction of a row
+		double retVal = 0.0;
+
+		// get the current Shape of the game BoardModel
+		Shape shape = m_gameBoard.getShape();
+
+		if (m_gravity < 1.0 && shape != null && shape.canMoveDown())
+		{
+			// add the part of a tick that has passed (never quite reaching the next row)
+			retVal = Math.min(0.999, m_gravityProgress + alpha * m_gravity);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the Shape that has been put aside by holding, if any.
+	  * @return the held Shape (null if no Shape is held)
+	  */
+	//**************************************************************************************************
+	public Shape getHeldShape()
+	{
+		// get the held Shape
+		return m_heldShape;
+	}
+
+	//**************************************************************************************************
+	/** Returns the InputQueue through which the commands of the player reach this GameEngine. Note
+	  * that the events waiting in it are only applied by processInput().
+	  * @return the InputQueue of the game
+	  */
+	//**************************************************************************************************
+	public InputQueue getInput()
+	{
+		// get the InputQueue
+		return m_input;
+	}
+
+	//**************************************************************************************************
+	private long getLandedBits(int row)
+	{
+		// get the filled cells of the row
+		long retVal = m_gameBoard.getRowBits(row);
+
+		// leave out the Blocks of the current Shape
+		List<Block> blocks = m_gameBoard.getShape().getBlocks();
+		for (int i = 0; i < blocks.size(); i++)
+		{
+			// get the next Block of the current Shape
+			Block block = blocks.get(i);
+			if (block.getYPos() == row && m_gameBoard.validXPos(block.getXPos()))
+			{
+				retVal &= ~(1L << block.getXPos());
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the level of the game.
+	  * @return the level of the game
+	  */
+	//**************************************************************************************************
+	public int getLevel()
+	{
+		// get the level of the game
+		return m_level;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows cleared during this game.
+	  * @return the number of rows cleared during this game
+	  */
+	//**************************************************************************************************
+	public int getLines()
+	{
+		// get the number of rows cleared
+		return m_lines;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows cleared when the last Shape landed. Note that the rows themselves
+	  * can be found with getClearedRow() of the game BoardModel.
+	  * @return the number of rows cleared when the last Shape landed
+	  */
+	//**************************************************************************************************
+	public int getLinesCleared()
+	{
+		// get the number of rows cleared by the last Shape
+		return m_linesCleared;
+	}
+
+	//**************************************************************************************************
+	/** Returns the most bytes that writeState() can take for the game of this GameEngine.
+	  * @return the most bytes taken by the state of the game
+	  */
+	//**************************************************************************************************
+	public int getMaxStateSize()
+	{
+		// get the size of the game BoardModel
+		int rows = m_gameBoard.getNumOfRows();
+		int cols = m_gameBoard.getNumOfCols();
+
+		//****************************************************************************************//
+		// NOTE: The numbers, the Shapes and the held commands take well under 256 bytes. Then    //
+		//       every row takes a bit per column, and every landed Block may need a color of its //
+		//       own (3 bytes) as well as an index into the colors (at most 2 bytes).             //
+		//****************************************************************************************//
+		return 256 + rows * ((cols + 7) / 8) + rows * cols * 5;
+	}
+
+	//**************************************************************************************************
+	/** Returns the BoardModel holding the next Shape.
+	  * @return the BoardModel holding the next Shape
+	  */
+	//**************************************************************************************************
+	public BoardModel getNextShapeBoard()
+	{
+		// get the BoardModel holding the next Shape
+		return m_nextShapeBoard;
+	}
+
+	//**************************************************************************************************
+	/** Returns the InputRecorder that follows the events applied by this GameEngine.
+	  * @return the InputRecorder of the game (null if none)
+	  */
+	//**************************************************************************************************
+	public InputRecorder getRecorder()
+	{
+		// get the InputRecorder
+		return m_recorder;
+	}
+
+	//**************************************************************************************************
+	/** Returns the score of the game.
+	  * @return the score of the game
+	  */
+	//**************************************************************************************************
+	public int getScore()
+	{
+		// get the score of the game
+		return m_score;
+	}
+
+	//**************************************************************************************************
+	private void hold()
+	{
+		// get the current Shape of the game BoardModel
+		Shape shape = m_gameBoard.getShape();
+
+		// take the current Shape off the game BoardModel
+		shape.removeFromBoard(true);
+
+		if (m_heldShape == null)
+		{
+			// the next Shape starts falling
+			m_gameBoard.setShape(m_nextShapeBoard.getShape());
+
+			// generate a new next Shape
+			m_nextShapeBoard.setShape(m_generator.generateShape(m_nextShapeBoard));
+		}
+		else
+		{
+			// the held Shape starts falling from the top
+			m_gameBoard.setShape(m_heldShape);
+		}
+
+		// either way, a Shape starts falling from the top (with none of the fall or lock delay of the
+		// Shape that was put aside)
+		shapeSpawned();
+		resetFall();
+
+		// the current Shape is now put aside
+		m_heldShape = shape;
+
+		// the Shape that took its place can't be held
+		m_canHold = false;
+	}
+
+	//**************************************************************************************************
+	private void levelChanged(int previousLevel)
+	{
+		// tell Java Flight Recorder about the new level (when it's recording)
+		GameEvents.LevelChange event = new GameEvents.LevelChange();
+		if (event.shouldCommit())
+		{
+			event.tick          = m_ticks;
+			event.previousLevel = previousLevel;
+			event.level         = m_level;
+			event.commit();
+		}
+
+		// tell the listeners
+		m_events.publish(GameEvent.LEVEL_CHANGED, 0, previousLevel);
+	}
+
+	//**************************************************************************************************
+	/** Processes the commands of the player that are waiting in the InputQueue, followed by the
+	  * repeats of the commands that are held down. Note that this is meant to be called by the game
+	  * tick, so the commands are applied at a rate that only depends on the game.
+	  * @param now the current time (in milliseconds)
+	  * @return TICK_MOVED if the current Shape is still falling, TICK_LOCKED if a Shape landed, or
+	  * TICK_GAME_OVER if the game is over
+	  */
+	//**************************************************************************************************
+	public int processInput(long now)
+	{
+		// holds the result of the commands
+		int result = TICK_MOVED;
+
+		// apply every waiting event (stopping if the game ends)
+		int event = m_input.poll();
+		while (event != InputQueue.NO_EVENT && result != TICK_GAME_OVER)
+		{
+			// the event is recorded along with the tick it's applied in
+			if (m_recorder != null)
+			{
+				m_recorder.inputApplied(m_ticks, event);
+			}
+
+			// get the command of the event
+			InputCommand command = InputQueue.getCommand(event);
+
+			if (InputQueue.isPress(event))
+			{
+				// the command is held down from now on
+				m_autoRepeat.press(command, now);
+
+				// a press applies the command once straight away
+				result = Math.max(result, applyCommand(command));
+			}
+			else
+			{
+				// the command is no longer held down
+				m_autoRepeat.release(command);
+			}
+
+			// get the next event
+			event = m_input.poll();
+		}
+
+		// apply the repeats of the commands that are held down (none of them can land a Shape)
+		if (result != TICK_GAME_OVER)
+		{
+			applyRepeats(InputCommand.MOVE_LEFT, now);
+			applyRepeats(InputCommand.MOVE_RIGHT, now);
+			applyRepeats(InputCommand.SOFT_DROP, now);
+		}
+
+		return result;
+	}
+
+	//**************************************************************************************************
+	private void applyRepeats(InputCommand command, long now)
+	{
+		// get the number of repeats that are due
+		int repeats = m_autoRepeat.getRepeats(command, now);
+
+		for (int i = 0; i < repeats; i++)
+		{
+			// apply the command again
+			applyCommand(command);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Puts the game back into the state written by writeState(). The game goes on from there exactly
+	  * as it did from the moment the state was written. Note that the BoardModels must have the size
+	  * they had back then, and that any waiting events are thrown away.
+	  * @param buffer the ByteBuffer to read the state from
+	  * @throws java.nio.BufferUnderflowException if the state is cut short
+	  */
+	//**************************************************************************************************
+	public void readState(ByteBuffer buffer)
+	{
+		// the Shapes of the game can be reused
+		releaseShapes();
+
+		// no command is waiting
+		m_input.clear();
+
+		// read the clock, the seed and the number of Shapes handed out
+		m_ticks             = Varint.read(buffer);
+		long seed           = buffer.getLong();
+		int  numOfGenerated = (int)Varint.read(buffer);
+
+		// read the score, the level and the cleared rows (the gravity goes with the level)
+		m_score        = (int)Varint.read(buffer);
+		m_level        = (int)Varint.read(buffer);
+		m_lines        = (int)Varint.read(buffer);
+		m_linesCleared = (int)Varint.read(buffer);
+		m_gravity      = getGravity(m_level);
+
+		// read how far the current Shape has fallen and how long it has been resting
+		m_gravityProgress = buffer.getDouble();
+		m_lockTicks       = (int)Varint.read(buffer);
+		m_lockResets      = (int)Varint.read(buffer);
+		m_canHold         = buffer.get() != 0;
+
+		// the ShapeGenerator goes on from the same Shape of the same game
+		m_generator.reset(seed);
+		m_generator.skip(numOfGenerated);
+
+		// both boards start out empty
+		m_gameBoard.clearBoard();
+		m_nextShapeBoard.clearBoard();
+
+		// put the current Shape back where it was (before the landed Blocks, which it never covers)
+		int   type     = buffer.get();
+		int   rotation = buffer.get();
+		int   x        = (int)Varint.read(buffer);
+		int   y        = (int)Varint.read(buffer);
+		Shape shape    = m_generator.restoreShape(m_gameBoard, type, buffer.getInt());
+		m_gameBoard.setShape(shape);
+		shape.setPosition(x, y, rotation);
+
+		// put the next Shape back
+		type = buffer.get();
+		m_nextShapeBoard.setShape(m_generator.restoreShape(m_nextShapeBoard, type, buffer.getInt()));
+
+		// put the held Shape (if any) back
+		type        = buffer.get() - 1;
+		m_heldShape = (type < 0) ? null : m_generator.restoreShape(m_gameBoard, type, buffer.getInt());
+
+		// read the commands that are held down
+		m_autoRepeat.readState(buffer);
+
+		// read the landed Blocks (a bit per column for each row), and then their colors
+		int  rows      = m_gameBoard.getNumOfRows();
+		int  cols      = m_gameBoard.getNumOfCols();
+		long rowBits[] = new long[rows];
+		for (int row = 0; row < rows; row++)
+		{
+			for (int i = 0; i < cols; i += 8)
+			{
+				rowBits[row] |= (buffer.get() & 0xFFL) << i;
+			}
+		}
+		int colors[] = new int[(int)Varint.read(buffer)];
+		for (int i = 0; i < colors.length; i++)
+		{
+			colors[i] = 0xFF000000 | (buffer.get() & 0xFF) << 16 | (buffer.get() & 0xFF) << 8 |
+			            (buffer.get() & 0xFF);
+		}
+
+		// fill the landed Blocks in with their colors
+		for (int row = 0; row < rows; row++)
+		{
+			for (long bits = rowBits[row]; bits != 0; bits &= bits - 1)
+			{
+				m_gameBoard.fillCell(Long.numberOfTrailingZeros(bits), row,
+				                     colors[(int)Varint.read(buffer)]);
+			}
+		}
+
+		// tell the listeners that the game goes on from here
+		m_lastHash = m_gameBoard.getHash();
+		m_events.publish(GameEvent.GAME_STARTED, 0, 0);
+	}
+
+	//**************************************************************************************************
+	/** Runs the logic of the Tetris game. This includes things like cascading full blocks when the
+	  * current Shape can no longer move downward. Note that a point is scored for every Shape that
+	  * lands, and the level goes up every POINTS_PER_LEVEL points.
+	  */
+	//**************************************************************************************************
+	public void runLogic()
+	{
+		// time the logic (when the GameMetrics are enabled, and Java Flight Recorder is recording)
+		long            start = m_metrics.start();
+		GameEvents.Lock lock  = new GameEvents.Lock();
+		lock.begin();
+
+		// get the Shape that just landed
+		Shape landed = m_gameBoard.getShape();
+
+		//************************************************************************************//
+		// NOTE: Set the current Shape of the game BoardModel to be that which is contained   //
+		//       in the nextShapeBoard.                                                       //
+		//************************************************************************************//
+		m_gameBoard.setShape(m_nextShapeBoard.getShape());
+		shapeSpawned();
+
+		// generate a new next Shape
+		m_nextShapeBoard.setShape(m_generator.generateShape(m_nextShapeBoard));
+
+		// the Shape that landed is recorded before it's reused
+		if (lock.shouldCommit())
+		{
+			lock.tick  = m_ticks;
+			lock.shape = landed.getClass().getSimpleName();
+		}
+
+		// the landed Shape now only lives on as filled cells, so it can be reused
+		m_generator.releaseShape(landed);
+
+		// the new Shape can be held
+		m_canHold = true;
+
+		// the new Shape starts falling from the top of its row
+		resetFall();
+
+		// no rows have been cleared by this Shape yet
+		m_linesCleared = 0;
+
+		// cascade rows if there exists at least one full row (this is known without a scan)
+		if (m_gameBoard.fullRowExists())
+		{
+			// cascade the full rows
+			long cascadeStart = m_metrics.start();
+			m_linesCleared    = m_gameBoard.cascadeRows();
+			m_metrics.stop(GameMetrics.CASCADE, cascadeStart);
+
+			// add them to the number of rows cleared during this game
+			m_lines += m_linesCleared;
+
+			// tell Java Flight Recorder about the cleared rows (when it's recording)
+			GameEvents.LineClear event = new GameEvents.LineClear();
+			if (event.shouldCommit())
+			{
+				event.tick  = m_ticks;
+				event.rows  = m_linesCleared;
+				event.lines = m_lines;
+				event.commit();
+			}
+		}
+
+		// score a point for the Shape that just landed
+		m_score++;
+		int previousLevel = m_level;
+
+		//****************************************************************************************//
+		// NOTE: Increase the level every POINTS_PER_LEVEL points. Note that the gravity keeps    //
+		//       getting faster until it reaches MAX_GRAVITY, after which only the level goes up. //
+		//****************************************************************************************//
+		if (m_score % POINTS_PER_LEVEL == 0)
+		{
+			// increase the level by 1
+			m_level++;
+
+			// the game now runs faster
+			m_gravity = getGravity(m_level);
+		}
+
+		// the logic is done
+		m_metrics.stop(GameMetrics.LOGIC, start);
+		if (lock.shouldCommit())
+		{
+			lock.score = m_score;
+			lock.commit();
+		}
+
+		// tell the listeners about the Shape that landed, the cleared rows and the new level
+		m_events.publish(GameEvent.PIECE_LOCKED, 0, 0);
+		if (m_linesCleared > 0)
+		{
+			m_events.publish(GameEvent.LINES_CLEARED, m_linesCleared, 0);
+		}
+		if (m_level != previousLevel)
+		{
+			levelChanged(previousLevel);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Sets the level of the game.
+	  * @param level the level to set
+	  */
+	//**************************************************************************************************
+	public void setLevel(int level)
+	{
+		// set the level of the game
+		int previousLevel = m_level;
+		m_level           = level;
+
+		// the gravity goes with the level
+		m_gravity = getGravity(level);
+
+		// tell the listeners
+		levelChanged(previousLevel);
+	}
+
+	//**************************************************************************************************
+	/** Sets the InputRecorder that follows the events applied by this GameEngine. Note that only the
+	  * events applied from then on are passed to it.
+	  * @param recorder the InputRecorder of the game (null for none)
+	  */
+	//**************************************************************************************************
+	public void setRecorder(InputRecorder recorder)
+	{
+		// store the InputRecorder
+		m_recorder = recorder;
+	}
+
+	//**************************************************************************************************
+	/** Sets the score of the game.
+	  * @param score the score to set
+	  */
+	//**************************************************************************************************
+	public void setScore(int score)
+	{
+		// set the score of the game
+		m_score = score;
+	}
+
+	//**************************************************************************************************
+	/** Starts a new game from a seed taken from the clock.
+	  */
+	//**************************************************************************************************
+	public void startGame()
+	{
+		// start the game from the current time
+		startGame(System.nanoTime());
+	}
+
+	//**************************************************************************************************
+	/** Starts a new game from the indicated seed. Note that both BoardModels are cleared, the score,
+	  * level and gravity are reset, and new Shapes are generated. Two games started from the same
+	  * seed are handed the same Shapes.
+	  * @param seed the seed of the random numbers of the game
+	  */
+	//**************************************************************************************************
+	public void startGame(long seed)
+	{
+		// the Shapes of the last game (if any) can be reused
+		releaseShapes();
+
+		// nothing is held and no command is waiting or held down
+		m_heldShape = null;
+		m_canHold   = true;
+		m_input.clear();
+		m_autoRepeat.releaseAll();
+
+		// clear both boards
+		m_gameBoard.clearBoard();
+		m_nextShapeBoard.clearBoard();
+
+		// start handing out the Shapes of the new game
+		m_generator.reset(seed);
+
+		// reset the score, the level, the cleared rows, the gravity and the clock
+		m_score        = 0;
+		m_level        = 1;
+		m_lines        = 0;
+		m_linesCleared = 0;
+		m_gravity      = getGravity(m_level);
+		m_ticks        = 0;
+		resetFall();
+
+		// generate a new shape for the game board
+		m_gameBoard.setShape(m_generator.generateShape(m_gameBoard));
+		shapeSpawned();
+
+		// generate a new shape for the nextShapeBoard
+		m_nextShapeBoard.setShape(m_generator.generateShape(m_nextShapeBoard));
+
+		// tell the listeners about the new game (whose cells are only changed from here on)
+		m_lastHash = m_gameBoard.getHash();
+		m_events.publish(GameEvent.GAME_STARTED, 0, 0);
+	}
+
+	//**************************************************************************************************
+	private void releaseShapes()
+	{
+		// hand the Shapes of the game (if any) back to the ShapeGenerator
+		if (m_gameBoard.getShape() != null)
+		{
+			m_generator.releaseShape(m_gameBoard.getShape());
+		}
+		if (m_nextShapeBoard.getShape() != null)
+		{
+			m_generator.releaseShape(m_nextShapeBoard.getShape());
+		}
+		if (m_heldShape != null)
+		{
+			m_generator.releaseShape(m_heldShape);
+		}
+	}
+
+	//**************************************************************************************************
+	private void resetFall()
+	{
+		// the current Shape hasn't fallen any part of a row and isn't resting on anything
+		m_gravityProgress = 0.0;
+		m_lockTicks       = 0;
+		m_lockResets      = 0;
+	}
+
+	//**************************************************************************************************
+	private void shapeFell()
+	{
+		// a Shape that reaches a new row gets its full lock delay (and all of its resets) back
+		m_lockTicks  = 0;
+		m_lockResets = 0;
+	}
+
+	//**************************************************************************************************
+	private void shapeMoved()
+	{
+		// moving a resting Shape restarts its lock delay (only so many times, so it can't stall forever)
+		if (m_lockTicks > 0 && m_lockResets < MAX_LOCK_RESETS)
+		{
+			m_lockTicks = 0;
+			m_lockResets++;
+		}
+	}
+
+	//**************************************************************************************************
+	private void shapeSpawned()
+	{
+		// tell Java Flight Recorder about the Shape that starts falling (when it's recording)
+		GameEvents.Spawn event = new GameEvents.Spawn();
+		if (event.shouldCommit())
+		{
+			event.tick  = m_ticks;
+			event.shape = m_gameBoard.getShape().getClass().getSimpleName();
+			event.commit();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Runs a single logical tick of the game, which lasts 1 / TICKS_PER_SECOND of a second. The
+	  * commands of the player are applied first. The current Shape then falls by the gravity, which is
+	  * usually a fraction of a row, so the fractions are added up from tick to tick. Once the Shape is
+	  * resting on something, it only lands after LOCK_DELAY ticks. Note that the time seen by the
+	  * commands is counted in ticks, so a game runs the same way however late the ticks are run.
+	  * @return TICK_MOVED if the current Shape is still falling, TICK_LOCKED if a Shape landed, or
+	  * TICK_GAME_OVER if the game is over
+	  */
+	//**************************************************************************************************
+	public int step()
+	{
+		// time the tick (when Java Flight Recorder is recording)
+		GameEvents.Tick event = new GameEvents.Tick();
+		event.begin();
+
+		// the tick is about to start
+		if (m_recorder != null)
+		{
+			m_recorder.tickStarted(this);
+		}
+
+		// apply the commands of the player at the time of this tick
+		int result = processInput(m_ticks * 1000L / TICKS_PER_SECOND);
+
+		// one more tick has passed
+		m_ticks++;
+
+		// a hard drop (or the end of the game) ends the tick
+		if (result == TICK_MOVED)
+		{
+			// get the current Shape of the game BoardModel
+			Shape shape = m_gameBoard.getShape();
+
+			// add the gravity of this tick
+			m_gravityProgress += m_gravity;
+
+			// fall a row for every whole row of gravity
+			while (m_gravityProgress >= 1.0 && shape.canMoveDown())
+			{
+				shape.moveDown();
+				shapeFell();
+				m_gravityProgress -= 1.0;
+			}
+
+			if (shape.canMoveDown())
+			{
+				// the Shape is falling freely
+				m_lockTicks = 0;
+			}
+			else
+			{
+				// gravity doesn't build up while the Shape is resting on something
+				m_gravityProgress = 0.0;
+
+				// the Shape lands once it has been resting for the whole lock delay
+				if (++m_lockTicks >= LOCK_DELAY)
+				{
+					if (shape.onFirstRow())
+					{
+						// it is game over when the current Shape is stuck on the first row
+						result = TICK_GAME_OVER;
+					}
+					else
+					{
+						// run the logic of the game
+						runLogic();
+
+						// the current Shape has landed
+						result = TICK_LOCKED;
+					}
+				}
+			}
+		}
+
+		// tell the listeners when the cells of the game board have changed during the tick
+		cellsChecked();
+
+		// the game is over (whether by gravity or by a hard drop)
+		if (result == TICK_GAME_OVER)
+		{
+			gameEnded();
+		}
+
+		// the tick is done
+		if (event.shouldCommit())
+		{
+			event.tick   = m_ticks;
+			event.result = result;
+			event.commit();
+		}
+
+		return result;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of logical ticks run by step() since the start of the game.
+	  * @return the number of ticks since the start of the game
+	  */
+	//**************************************************************************************************
+	public long getTicks()
+	{
+		// get the number of ticks
+		return m_ticks;
+	}
+
+	//**************************************************************************************************
+	/** Runs a single gravity step of the game. That is, the current Shape is moved down one row if it
+	  * can be. If it can't, the logic of the game is run and a new Shape starts falling. Note that
+	  * there is no lock delay here, which makes this handy for driving a game a row at a time without
+	  * a clock (step() is the one that runs in real time).
+	  * @return TICK_MOVED if the current Shape moved down, TICK_LOCKED if it landed, or TICK_GAME_OVER
+	  * if the game is over
+	  */
+	//**************************************************************************************************
+	public int tick()
+	{
+		// holds the result of this tick
+		int result = TICK_MOVED;
+
+		// get the current Shape of the game BoardModel
+		Shape shape = m_gameBoard.getShape();
+
+		// find out once whether or not the current Shape is blocked from below
+		boolean canMoveDown = shape.canMoveDown();
+
+		// it is game over when the current Shape is stuck on the first row
+		if (!canMoveDown && shape.onFirstRow())
+		{
+			// the game is over, so nothing else happens
+			result = TICK_GAME_OVER;
+			gameEnded();
+		}
+		// only run the logic if the current Shape of the game BoardModel can no longer move down
+		else if (!canMoveDown)
+		{
+			// run the logic of the game
+			runLogic();
+
+			// the current Shape has landed
+			result = TICK_LOCKED;
+		}
+		else
+		{
+			// move the current shape of the game BoardModel down one position
+			shape.moveDown();
+		}
+
+		// tell the listeners that the cells of the game board have changed
+		cellsChecked();
+
+		return result;
+	}
+
+	//**************************************************************************************************
+	/** Writes the state of the game to the passed in ByteBuffer, so that the game can be put back into
+	  * it by readState(). That is, the clock, the score, the level, the falling and the resting of the
+	  * current Shape, the Shapes themselves, the commands that are held down and the landed Blocks. The
+	  * ShapeGenerator is written as the seed and the number of Shapes handed out, since it can get back
+	  * to any point of its game from those two. Note that at most getMaxStateSize() bytes are written.
+	  * @param buffer the ByteBuffer to write the state to
+	  */
+	//**************************************************************************************************
+	public void writeState(ByteBuffer buffer)
+	{
+		// write the clock, the seed and the number of Shapes handed out
+		Varint.write(buffer, m_ticks);
+		buffer.putLong(m_generator.getSeed());
+		Varint.write(buffer, m_generator.getNumOfGenerated());
+
+		// write the score, the level and the cleared rows
+		Varint.write(buffer, m_score);
+		Varint.write(buffer, m_level);
+		Varint.write(buffer, m_lines);
+		Varint.write(buffer, m_linesCleared);
+
+		// write how far the current Shape has fallen and how long it has been resting
+		buffer.putDouble(m_gravityProgress);
+		Varint.write(buffer, m_lockTicks);
+		Varint.write(buffer, m_lockResets);
+		buffer.put((byte)(m_canHold ? 1 : 0));
+
+		// write the current Shape along with where it is
+		Shape shape = m_gameBoard.getShape();
+		buffer.put((byte)shape.getType());
+		buffer.put((byte)shape.getRotation());
+		Varint.write(buffer, shape.getFocalBlock().getXPos());
+		Varint.write(buffer, shape.getFocalBlock().getYPos());
+		buffer.putInt(shape.getRGB());
+
+		// write the next Shape (which is always at the top of its board)
+		buffer.put((byte)m_nextShapeBoard.getShape().getType());
+		buffer.putInt(m_nextShapeBoard.getShape().getRGB());
+
+		// write the held Shape (0 when there is none)
+		if (m_heldShape == null)
+		{
+			buffer.put((byte)0);
+		}
+		else
+		{
+			buffer.put((byte)(m_heldShape.getType() + 1));
+			buffer.putInt(m_heldShape.getRGB());
+		}
+
+		// write the commands that are held down
+		m_autoRepeat.writeState(buffer);
+
+		// write the landed Blocks (the current Shape is left out) a bit per column for each row
+		int rows = m_gameBoard.getNumOfRows();
+		int cols = m_gameBoard.getNumOfCols();
+		for (int row = 0; row < rows; row++)
+		{
+			long bits = getLandedBits(row);
+			for (int i = 0; i < cols; i += 8)
+			{
+				buffer.put((byte)(bits >>> i));
+			}
+		}
+
+		//****************************************************************************************//
+		// NOTE: The Blocks of a Shape all share its color, so each color is written once and     //
+		//       every landed Block only gets the index of its color (in the order the colors are //
+		//       found). The colors are gathered into an array that is kept from one call to the  //
+		//       next, so writing the state creates no objects.                                   //
+		//****************************************************************************************//
+		if (m_stateColors == null || m_stateColors.length < rows * cols)
+		{
+			m_stateColors = new int[rows * cols];
+		}
+		int numOfColors = 0;
+		for (int row = 0; row < rows; row++)
+		{
+			for (long bits = getLandedBits(row); bits != 0; bits &= bits - 1)
+			{
+				// add the color of the Block if it's new
+				int color = m_gameBoard.getCellColor(Long.numberOfTrailingZeros(bits), row);
+				if (findColor(color, numOfColors) == numOfColors)
+				{
+					m_stateColors[numOfColors++] = color;
+				}
+			}
+		}
+		Varint.write(buffer, numOfColors);
+		for (int i = 0; i < numOfColors; i++)
+		{
+			buffer.put((byte)(m_stateColors[i] >>> 16));
+			buffer.put((byte)(m_stateColors[i] >>> 8));
+			buffer.put((byte)m_stateColors[i]);
+		}
+		for (int row = 0; row < rows; row++)
+		{
+			for (long bits = getLandedBits(row); bits != 0; bits &= bits - 1)
+			{
+				// write the index of the color of the Block
+				int color = m_gameBoard.getCellColor(Long.numberOfTrailingZeros(bits), row);
+				Varint.write(buffer, findColor(color, numOfColors));
+			}
+		}
+	}
+}
@@ -0,0 +1,221 @@
+// Author:   Jose Santos
+// FileName: GameEvent.java
+
+//******************************************************************************************************
+/** This class creates a GameEvent object which tells a GameEventListener about something that happened
+  * in a game: a game starting, a Shape landing, full rows being cleared, the level going up, the cells
+  * of the game board changing, or the game coming to an end. Along with its type, every GameEvent holds
+  * the tick, the score, the level and the rows cleared by the game once it happened.
+  *
+  * Note that the GameEvents are created once by their GameEventBus and reused, so a GameEventListener
+  * must not keep hold of one after it returns. A GameEvent handed to a deferred GameEventListener may
+  * stand for several of its type that happened since the last frame (see getCount()), in which case it
+  * holds the state of the game after the last of them.
+  */
+//******************************************************************************************************
+public class GameEvent
+{
+	// the types of GameEvents (in the order in which the events of a single frame are delivered)
+	public static final int GAME_STARTED  = 0;
+	public static final int PIECE_LOCKED  = 1;
+	public static final int LINES_CLEARED = 2;
+	public static final int LEVEL_CHANGED = 3;
+	public static final int CELLS_CHANGED = 4;
+	public static final int GAME_OVER     = 5;
+
+	// the number of types of GameEvents, and the mask of all of them
+	public static final int NUM_OF_TYPES = 6;
+	public static final int ALL_TYPES    = (1 << NUM_OF_TYPES) - 1;
+
+	// data members
+	private int        m_count;
+	private GameEngine m_engine;
+	private int        m_level;
+	private int        m_lines;
+	private int        m_previousLevel;
+	private int        m_rows;
+	private int        m_score;
+	private long       m_tick;
+	private final int  m_type;
+
+	//**************************************************************************************************
+	/** Creates a GameEvent object of the indicated type that hasn't happened yet.
+	  * @param type the type of the GameEvent
+	  */
+	//**************************************************************************************************
+	GameEvent(int type)
+	{
+		// store the type
+		m_type = type;
+	}
+
+	//**************************************************************************************************
+	/** Forgets that this GameEvent happened.
+	  */
+	//**************************************************************************************************
+	void clear()
+	{
+		// nothing has happened
+		m_count = 0;
+		m_rows  = 0;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of times this GameEvent happened. This is 1, unless it stands for several
+	  * GameEvents that were delivered together.
+	  * @return the number of times this GameEvent happened
+	  */
+	//**************************************************************************************************
+	public int getCount()
+	{
+		// get the count
+		return m_count;
+	}
+
+	//**************************************************************************************************
+	/** Returns the GameEngine that runs the game in which this GameEvent happened.
+	  * @return the GameEngine of the game
+	  */
+	//**************************************************************************************************
+	public GameEngine getEngine()
+	{
+		// get the GameEngine
+		return m_engine;
+	}
+
+	//**************************************************************************************************
+	/** Returns the level of the game once this GameEvent happened.
+	  * @return the level
+	  */
+	//**************************************************************************************************
+	public int getLevel()
+	{
+		// get the level
+		return m_level;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows cleared during the game once this GameEvent happened.
+	  * @return the number of rows cleared
+	  */
+	//**************************************************************************************************
+	public int getLines()
+	{
+		// get the number of rows cleared
+		return m_lines;
+	}
+
+	//**************************************************************************************************
+	/** Returns the level of the game before a LEVEL_CHANGED GameEvent (before the first of them, when
+	  * several are delivered together).
+	  * @return the level before the change
+	  */
+	//**************************************************************************************************
+	public int getPreviousLevel()
+	{
+		// get the previous level
+		return m_previousLevel;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows cleared by a LINES_CLEARED GameEvent (by all of them, when several
+	  * are delivered together).
+	  * @return the number of rows cleared
+	  */
+	//**************************************************************************************************
+	public int getRows()
+	{
+		// get the number of rows
+		return m_rows;
+	}
+
+	//**************************************************************************************************
+	/** Returns the score of the game once this GameEvent happened.
+	  * @return the score
+	  */
+	//**************************************************************************************************
+	public int getScore()
+	{
+		// get the score
+		return m_score;
+	}
+
+	//**************************************************************************************************
+	/** Returns the tick of the game in which this GameEvent happened (see GameEngine.getTicks()).
+	  * @return the tick
+	  */
+	//**************************************************************************************************
+	public long getTick()
+	{
+		// get the tick
+		return m_tick;
+	}
+
+	//**************************************************************************************************
+	/** Returns the type of this GameEvent.
+	  * @return GAME_STARTED, PIECE_LOCKED, LINES_CLEARED, LEVEL_CHANGED, CELLS_CHANGED or GAME_OVER
+	  */
+	//**************************************************************************************************
+	public int getType()
+	{
+		// get the type
+		return m_type;
+	}
+
+	//**************************************************************************************************
+	/** Returns the mask of the indicated type, which can be or'ed together with others to pick the
+	  * GameEvents a GameEventListener is handed.
+	  * @param type the type of GameEvent
+	  * @return the mask of the type
+	  */
+	//**************************************************************************************************
+	public static int maskOf(int type)
+	{
+		// each type has a bit of its own
+		return 1 << type;
+	}
+
+	//**************************************************************************************************
+	/** Adds the passed in GameEvent (of the same type) to this one. This GameEvent then holds the state
+	  * of the game after both of them.
+	  * @param event the GameEvent that happened after this one
+	  */
+	//**************************************************************************************************
+	void merge(GameEvent event)
+	{
+		// the first GameEvent keeps the level before it, and the rows of all of them add up
+		if (m_count == 0)
+		{
+			m_previousLevel = event.m_previousLevel;
+		}
+		m_count += event.m_count;
+		m_rows  += event.m_rows;
+
+		// the state of the game is the one after the last GameEvent
+		m_engine = event.m_engine;
+		m_tick   = event.m_tick;
+		m_score  = event.m_score;
+		m_level  = event.m_level;
+		m_lines  = event.m_lines;
+	}
+
+	//**************************************************************************************************
+	/** Makes this GameEvent one that just happened in the passed in GameEngine.
+	  * @param engine the GameEngine of the game
+	  * @param rows the number of rows cleared (for LINES_CLEARED)
+	  * @param previousLevel the level before the change (for LEVEL_CHANGED)
+	  */
+	//**************************************************************************************************
+	void set(GameEngine engine, int rows, int previousLevel)
+	{
+		// the GameEvent happened once, in the current state of the game
+		m_count         = 1;
+		m_engine        = engine;
+		m_tick          = engine.getTicks();
+		m_score         = engine.getScore();
+		m_level         = engine.getLevel();
+		m_lines         = engine.getLines();
+		m_rows          = rows;
+		m_previousLevel = previousLevel;
+	}
+}
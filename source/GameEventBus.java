@@ -0,0 +1,287 @@
+// Author:   Jose Santos
+// FileName: GameEventBus.java
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//******************************************************************************************************
+/** This class creates a GameEventBus object which hands the GameEvents of a GameEngine to the
+  * GameEventListeners that were added for them. A GameEventListener is added either:
+  *
+  *   directly  in which case it's called on the thread that runs the game (while it holds the lock of
+  *             the GameEngine) the moment the GameEvent happens, so it must be quick
+  *   deferred  in which case the GameEvents are gathered up and handed over once per frame (see
+  *             flush()) on the thread of the Executor, such as the event dispatch thread. The
+  *             GameEvents of a type that happen more than once in a frame are delivered as one
+  *
+  * Every GameEvent is created up front and reused, so nothing is created while the game is running,
+  * and the game never waits for a deferred GameEventListener. Note that the GameEventListeners may be
+  * added and removed from any thread.
+  */
+//******************************************************************************************************
+public class GameEventBus
+{
+	// the Executor that runs the deferred deliveries on the thread that flushes them
+	private static final Executor DIRECT = new Executor()
+	{
+		public void execute(Runnable runnable)
+		{
+			runnable.run();
+		}
+	};
+
+	// data members
+	private volatile int          m_deferredTypes;
+	private Runnable              m_deliver;
+	private GameEvent             m_delivered[];
+	private int                   m_deliveredTypes;
+	private AtomicBoolean         m_delivering;
+	private GameEngine            m_engine;
+	private GameEvent             m_events[];
+	private volatile Executor     m_executor;
+	private volatile Registration m_registrations[];
+	private GameEvent             m_pending[];
+	private int                   m_pendingTypes;
+
+	//**************************************************************************************************
+	/** Creates a GameEventBus object that hands out the GameEvents of the passed in GameEngine. Note
+	  * that the deferred GameEvents are delivered on the thread that flushes them until an Executor is
+	  * set.
+	  * @param engine the GameEngine whose GameEvents are handed out
+	  */
+	//**************************************************************************************************
+	public GameEventBus(GameEngine engine)
+	{
+		// store the GameEngine
+		m_engine = engine;
+
+		// no GameEventListener is added yet
+		m_registrations = new Registration[0];
+		m_executor      = DIRECT;
+
+		// create the GameEvents (of every type) that are handed out directly, gathered up and delivered
+		m_events    = new GameEvent[GameEvent.NUM_OF_TYPES];
+		m_pending   = new GameEvent[GameEvent.NUM_OF_TYPES];
+		m_delivered = new GameEvent[GameEvent.NUM_OF_TYPES];
+		for (int type = 0; type < GameEvent.NUM_OF_TYPES; type++)
+		{
+			m_events[type]    = new GameEvent(type);
+			m_pending[type]   = new GameEvent(type);
+			m_delivered[type] = new GameEvent(type);
+		}
+
+		// nothing is being delivered yet
+		m_delivering = new AtomicBoolean(false);
+
+		// this delivers the gathered GameEvents to the deferred GameEventListeners
+		m_deliver = new Runnable()
+		{
+			public void run()
+			{
+				deliver();
+			}
+		};
+	}
+
+	//**************************************************************************************************
+	/** Adds a GameEventListener that is called once per frame, on the thread of the Executor.
+	  * @param listener the GameEventListener to add
+	  * @param types the mask of the types of GameEvents it's called for (see GameEvent.maskOf())
+	  */
+	//**************************************************************************************************
+	public void addDeferredListener(GameEventListener listener, int types)
+	{
+		// the GameEventListener is called with the GameEvents gathered up during a frame
+		addRegistration(new Registration(listener, types, true));
+	}
+
+	//**************************************************************************************************
+	/** Adds a GameEventListener that is called directly, on the thread that runs the game.
+	  * @param listener the GameEventListener to add
+	  * @param types the mask of the types of GameEvents it's called for (see GameEvent.maskOf())
+	  */
+	//**************************************************************************************************
+	public void addListener(GameEventListener listener, int types)
+	{
+		// the GameEventListener is called the moment a GameEvent happens
+		addRegistration(new Registration(listener, types, false));
+	}
+
+	//**************************************************************************************************
+	private synchronized void addRegistration(Registration registration)
+	{
+		// copy the registrations along with the new one (a GameEvent handed out keeps the old copy)
+		Registration registrations[] = new Registration[m_registrations.length + 1];
+		System.arraycopy(m_registrations, 0, registrations, 0, m_registrations.length);
+		registrations[m_registrations.length] = registration;
+		setRegistrations(registrations);
+	}
+
+	//**************************************************************************************************
+	private void deliver()
+	{
+		// the GameEvents are delivered in the order of their types (see GameEvent)
+		Registration registrations[] = m_registrations;
+		for (int type = 0; type < GameEvent.NUM_OF_TYPES; type++)
+		{
+			if ((m_deliveredTypes & GameEvent.maskOf(type)) != 0)
+			{
+				for (int i = 0; i < registrations.length; i++)
+				{
+					// only the deferred GameEventListeners that were added for the type are called
+					Registration registration = registrations[i];
+					if (registration.m_deferred && (registration.m_types & GameEvent.maskOf(type)) != 0)
+					{
+						registration.m_listener.gameEvent(m_delivered[type]);
+					}
+				}
+			}
+		}
+
+		// the next GameEvents can be handed over (including any that came in during this delivery)
+		m_delivering.set(false);
+		flush();
+	}
+
+	//**************************************************************************************************
+	/** Hands the GameEvents gathered up since the last flush over to the deferred GameEventListeners.
+	  * This is called once per frame (by the GameLoop, once its ticks are done). Note that nothing is
+	  * handed over while the last GameEvents are still being delivered, in which case they keep being
+	  * gathered up until the delivery is done.
+	  */
+	//**************************************************************************************************
+	public void flush()
+	{
+		synchronized (this)
+		{
+			// nothing to hand over, or the last GameEvents are still being delivered
+			if (m_pendingTypes == 0 || !m_delivering.compareAndSet(false, true))
+			{
+				return;
+			}
+
+			// copy the gathered GameEvents aside, so more can be gathered while they're delivered
+			for (int type = 0; type < GameEvent.NUM_OF_TYPES; type++)
+			{
+				m_delivered[type].clear();
+				if ((m_pendingTypes & GameEvent.maskOf(type)) != 0)
+				{
+					m_delivered[type].merge(m_pending[type]);
+					m_pending[type].clear();
+				}
+			}
+			m_deliveredTypes = m_pendingTypes;
+			m_pendingTypes   = 0;
+		}
+
+		// deliver them on the thread of the Executor
+		m_executor.execute(m_deliver);
+	}
+
+	//**************************************************************************************************
+	/** Hands a GameEvent that just happened in the GameEngine to the GameEventListeners added for its
+	  * type. This is called by the GameEngine while it holds its own lock.
+	  * @param type the type of the GameEvent
+	  * @param rows the number of rows cleared (for LINES_CLEARED)
+	  * @param previousLevel the level before the change (for LEVEL_CHANGED)
+	  */
+	//**************************************************************************************************
+	public void publish(int type, int rows, int previousLevel)
+	{
+		// fill in the GameEvent of the type
+		GameEvent event = m_events[type];
+		event.set(m_engine, rows, previousLevel);
+
+		// call the direct GameEventListeners that were added for the type
+		Registration registrations[] = m_registrations;
+		for (int i = 0; i < registrations.length; i++)
+		{
+			Registration registration = registrations[i];
+			if (!registration.m_deferred && (registration.m_types & GameEvent.maskOf(type)) != 0)
+			{
+				registration.m_listener.gameEvent(event);
+			}
+		}
+
+		// gather the GameEvent up for the deferred GameEventListeners (if any of them wants it)
+		if ((m_deferredTypes & GameEvent.maskOf(type)) != 0)
+		{
+			synchronized (this)
+			{
+				m_pending[type].merge(event);
+				m_pendingTypes |= GameEvent.maskOf(type);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Takes the passed in GameEventListener out of the ones called by this GameEventBus.
+	  * @param listener the GameEventListener to remove
+	  */
+	//**************************************************************************************************
+	public synchronized void removeListener(GameEventListener listener)
+	{
+		for (int i = 0; i < m_registrations.length; i++)
+		{
+			if (m_registrations[i].m_listener == listener)
+			{
+				// copy the registrations without the one being taken out
+				Registration registrations[] = new Registration[m_registrations.length - 1];
+				System.arraycopy(m_registrations, 0, registrations, 0, i);
+				System.arraycopy(m_registrations, i + 1, registrations, i, registrations.length - i);
+				setRegistrations(registrations);
+				break;
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Sets the Executor that the GameEvents are delivered by to the deferred GameEventListeners, such
+	  * as one that runs them on the event dispatch thread.
+	  * @param executor the Executor (null to deliver them on the thread that flushes them)
+	  */
+	//**************************************************************************************************
+	public void setExecutor(Executor executor)
+	{
+		// store the Executor
+		m_executor = (executor != null) ? executor : DIRECT;
+	}
+
+	//**************************************************************************************************
+	private void setRegistrations(Registration registrations[])
+	{
+		// work out the types that are gathered up for the deferred GameEventListeners
+		int deferredTypes = 0;
+		for (int i = 0; i < registrations.length; i++)
+		{
+			if (registrations[i].m_deferred)
+			{
+				deferredTypes |= registrations[i].m_types;
+			}
+		}
+
+		// store the registrations
+		m_registrations = registrations;
+		m_deferredTypes = deferredTypes;
+	}
+
+	//**************************************************************************************************
+	/** This class holds a GameEventListener along with the types of GameEvents it was added for, and
+	  * whether or not it's deferred.
+	  */
+	//**************************************************************************************************
+	private static class Registration
+	{
+		// data members
+		private final boolean           m_deferred;
+		private final GameEventListener m_listener;
+		private final int               m_types;
+
+		Registration(GameEventListener listener, int types, boolean deferred)
+		{
+			m_listener = listener;
+			m_types    = types;
+			m_deferred = deferred;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+// Author:   Jose Santos
+// FileName: GameEventListener.java
+
+//******************************************************************************************************
+/** This is a GameEventListener interface that allows for an object to follow the GameEvents of a game
+  * (see GameEventBus). Note that the GameEvent is reused once this returns, so it must not be kept.
+  */
+//******************************************************************************************************
+public interface GameEventListener
+{
+	//**************************************************************************************************
+	/** Called when a GameEvent that this GameEventListener was added for happens. A listener that was
+	  * added as deferred is called once per frame instead, on the thread of the Executor of the
+	  * GameEventBus.
+	  * @param event the GameEvent
+	  */
+	//**************************************************************************************************
+	public void gameEvent(GameEvent event);
+}
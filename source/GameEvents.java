@@ -0,0 +1,213 @@
+// Author:   Jose Santos
+// FileName: GameEvents.java
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+//******************************************************************************************************
+/** This class holds the events that the game hands to Java Flight Recorder, so that a recording shows
+  * the spawning and landing of the Shapes, the cleared rows, the levels, the ends of the games and the
+  * length of every tick right along with the pauses of the garbage collector and the stalls of the
+  * event dispatch thread. The events are created by the code that runs the game, as in:
+  *
+  *   GameEvents.Tick event = new GameEvents.Tick();
+  *   event.begin();
+  *   ...
+  *   if (event.shouldCommit())
+  *   {
+  *       ...
+  *       event.commit();
+  *   }
+  *
+  * Note that the events are only recorded while a recording that enables them is running (they're
+  * enabled by default, and can be turned on and off by the settings of the recording, such as with
+  * jcmd JFR.start and JFR.stop). Otherwise an event is never filled in, and the JIT compiler takes
+  * out its creation altogether, so it costs next to nothing.
+  */
+//******************************************************************************************************
+public final class GameEvents
+{
+	//**************************************************************************************************
+	private GameEvents()
+	{
+	}
+
+	//**************************************************************************************************
+	/** Starts a recording of the game events (along with the events of the default settings of the
+	  * JVM) that is written to the indicated file when the JVM exits.
+	  * @param file the path of the recording file
+	  * @return the Recording (which may be stopped earlier, or dumped while it's running)
+	  * @throws IOException if the file can't be written
+	  */
+	//**************************************************************************************************
+	public static Recording startRecording(Path file) throws IOException
+	{
+		// will hold the recording
+		Recording retVal;
+
+		try
+		{
+			// record what the JVM records by default
+			retVal = new Recording(Configuration.getConfiguration("default"));
+		}
+		catch (ParseException e)
+		{
+			// the default settings come with the JVM, so this only happens to a broken JVM
+			throw new IOException("The default recording settings can't be read", e);
+		}
+
+		// along with every game event
+		retVal.enable(Spawn.class);
+		retVal.enable(Lock.class);
+		retVal.enable(LineClear.class);
+		retVal.enable(LevelChange.class);
+		retVal.enable(GameOver.class);
+		retVal.enable(Tick.class);
+
+		// write the recording to the file when the JVM exits
+		retVal.setName("Tetris");
+		retVal.setDestination(file);
+		retVal.setDumpOnExit(true);
+		retVal.start();
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** This class is the event of a game coming to an end.
+	  */
+	//**************************************************************************************************
+	@Name("tetris.GameOver")
+	@Label("Game Over")
+	@Category("Tetris")
+	@Description("A game came to an end")
+	static final class GameOver extends Event
+	{
+		// the fields of the event
+		@Label("Tick")
+		long tick;
+
+		@Label("Score")
+		int score;
+
+		@Label("Level")
+		int level;
+
+		@Label("Lines")
+		int lines;
+	}
+
+	//**************************************************************************************************
+	/** This class is the event of a level being reached by a game.
+	  */
+	//**************************************************************************************************
+	@Name("tetris.LevelChange")
+	@Label("Level Change")
+	@Category("Tetris")
+	@Description("The level of the game changed")
+	static final class LevelChange extends Event
+	{
+		// the fields of the event
+		@Label("Tick")
+		long tick;
+
+		@Label("Previous Level")
+		int previousLevel;
+
+		@Label("Level")
+		int level;
+	}
+
+	//**************************************************************************************************
+	/** This class is the event of full rows being cleared.
+	  */
+	//**************************************************************************************************
+	@Name("tetris.LineClear")
+	@Label("Line Clear")
+	@Category("Tetris")
+	@Description("Full rows were cleared")
+	static final class LineClear extends Event
+	{
+		// the fields of the event
+		@Label("Tick")
+		long tick;
+
+		@Label("Rows")
+		int rows;
+
+		@Label("Lines")
+		@Description("The rows cleared since the start of the game")
+		int lines;
+	}
+
+	//**************************************************************************************************
+	/** This class is the event of a Shape landing (its length is the time taken by the logic that
+	  * follows, including the cascading of the full rows).
+	  */
+	//**************************************************************************************************
+	@Name("tetris.Lock")
+	@Label("Lock")
+	@Category("Tetris")
+	@Description("A Shape landed and the logic of the game was run")
+	static final class Lock extends Event
+	{
+		// the fields of the event
+		@Label("Tick")
+		long tick;
+
+		@Label("Shape")
+		String shape;
+
+		@Label("Score")
+		int score;
+	}
+
+	//**************************************************************************************************
+	/** This class is the event of a Shape starting to fall from the top.
+	  */
+	//**************************************************************************************************
+	@Name("tetris.Spawn")
+	@Label("Spawn")
+	@Category("Tetris")
+	@Description("A Shape started falling from the top")
+	static final class Spawn extends Event
+	{
+		// the fields of the event
+		@Label("Tick")
+		long tick;
+
+		@Label("Shape")
+		String shape;
+	}
+
+	//**************************************************************************************************
+	/** This class is the event of a tick of a GameEngine (its length is the time taken by the tick).
+	  * Note that there are TICKS_PER_SECOND of them per second of every game, so their stacks aren't
+	  * recorded.
+	  */
+	//**************************************************************************************************
+	@Name("tetris.Tick")
+	@Label("Tick")
+	@Category("Tetris")
+	@Description("A GameEngine ran a tick")
+	@StackTrace(false)
+	static final class Tick extends Event
+	{
+		// the fields of the event
+		@Label("Tick")
+		long tick;
+
+		@Label("Result")
+		@Description("0 if the Shape is still falling, 1 if it landed, 2 if the game is over")
+		int result;
+	}
+}
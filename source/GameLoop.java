@@ -0,0 +1,451 @@
+// Author:   Jose Santos
+// FileName: GameLoop.java
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+//******************************************************************************************************
+/** This class creates a GameLoop object which ticks any number of GameEngines on a single thread of
+  * its own. The ticks are run at exactly GameEngine.TICKS_PER_SECOND per second of System.nanoTime(),
+  * no matter how busy the event dispatch thread is, and every GameEngine that is added is ticked once
+  * per tick in the same pass. When the GameLoop falls behind, it catches up by running the missed ticks
+  * back to back (up to MAX_TICKS_PER_FRAME at once, after which the backlog is dropped rather than
+  * letting it snowball). Note that each GameEngine keeps its own gravity, so GameEngines at different
+  * levels (or started at different times) fall at their own pace on the same clock. Once the ticks
+  * that were due have been run, the GameEvents of every GameEngine are handed over to its deferred
+  * listeners, once per frame (see GameEventBus).
+  *
+  * A GameLoop can be given a pool of workers. Once at least PARALLEL_THRESHOLD GameEngines are added,
+  * each tick is then split among the workers, with the GameLoop thread waiting for all of them before
+  * moving on. Every GameEngine is ticked while holding its lock, so anything reading its BoardModels
+  * from another thread must hold it as well (the painting reads BoardSnapshots instead, which are
+  * handed over without a lock by a SnapshotBuffer).
+  */
+//******************************************************************************************************
+public class GameLoop implements Runnable
+{
+	// the length of a tick (in nanoseconds)
+	public static final long TICK_NANOS = 1000000000L / GameEngine.TICKS_PER_SECOND;
+
+	// the most ticks that are run back to back when catching up
+	public static final int MAX_TICKS_PER_FRAME = 5;
+
+	// the fewest GameEngines for which a tick is split among the workers
+	public static final int PARALLEL_THRESHOLD = 8;
+
+	// data members
+	private GameMetrics           m_metrics;
+	private Registration          m_pass[];
+	private volatile Registration m_registrations[];
+	private volatile boolean      m_running;
+	private List<Callable<Void>>  m_tasks;
+	private Thread                m_thread;
+	private ExecutorService       m_workers;
+
+	//**************************************************************************************************
+	/** Creates a GameLoop object that ticks its GameEngines on its own thread alone.
+	  */
+	//**************************************************************************************************
+	public GameLoop()
+	{
+		this(1);
+	}
+
+	//**************************************************************************************************
+	/** Creates a GameLoop object that splits its ticks among the indicated number of workers once
+	  * enough GameEngines are added. Note that a single worker means that the GameLoop thread does all
+	  * the ticking itself.
+	  * @param numOfWorkers the number of workers to split a tick among
+	  */
+	//**************************************************************************************************
+	public GameLoop(int numOfWorkers)
+	{
+		// no GameEngine is added yet
+		m_registrations = new Registration[0];
+
+		// the ticks are timed when the GameMetrics are enabled
+		m_metrics = GameMetrics.getInstance();
+
+		if (numOfWorkers > 1)
+		{
+			// each worker ticks every numOfWorkers-th GameEngine (the tasks are reused on every tick,
+			// while the workers themselves only run while the GameLoop does, see start())
+			m_tasks = new ArrayList<Callable<Void>>();
+			for (int i = 0; i < numOfWorkers; i++)
+			{
+				m_tasks.add(new Stride(i, numOfWorkers));
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Creates a GameLoop object that ticks the passed in GameEngine on its own thread. Note that the
+	  * GameLoop only starts ticking once it's started.
+	  * @param engine the GameEngine to tick
+	  * @param listener the GameLoopListener that follows the ticks (may be null)
+	  */
+	//**************************************************************************************************
+	public GameLoop(GameEngine engine, GameLoopListener listener)
+	{
+		this(1);
+
+		// the GameEngine is the only one ticked by this GameLoop
+		m_registrations = new Registration[] {new Registration(engine, listener)};
+	}
+
+	//**************************************************************************************************
+	/** Adds the passed in GameEngine to the ones ticked by this GameLoop, and starts the GameLoop if it
+	  * isn't running yet. Note that a GameEngine that is already added is only given the new listener.
+	  * @param engine the GameEngine to tick
+	  * @param listener the GameLoopListener that follows the ticks (may be null)
+	  */
+	//**************************************************************************************************
+	public synchronized void add(GameEngine engine, GameLoopListener listener)
+	{
+		// take out the GameEngine if it's already there
+		removeRegistration(engine);
+
+		// copy the registrations along with the new one (the GameLoop thread keeps the old copy)
+		Registration registrations[] = new Registration[m_registrations.length + 1];
+		System.arraycopy(m_registrations, 0, registrations, 0, m_registrations.length);
+		registrations[m_registrations.length] = new Registration(engine, listener);
+		m_registrations = registrations;
+
+		// start ticking if it isn't done already
+		start();
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of GameEngines ticked by this GameLoop.
+	  * @return the number of GameEngines ticked by this GameLoop
+	  */
+	//**************************************************************************************************
+	public int getNumOfEngines()
+	{
+		// get the number of registrations
+		return m_registrations.length;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if this GameLoop is running.
+	  * @return true if this GameLoop is running (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean isRunning()
+	{
+		// get whether or not the GameLoop is running
+		return m_running;
+	}
+
+	//**************************************************************************************************
+	/** Takes the passed in GameEngine out of the ones ticked by this GameLoop. Note that when this is
+	  * called from another thread, it waits for the tick of the GameEngine that is being run (if any) to
+	  * finish, so the GameEngine is never ticked once this returns.
+	  * @param engine the GameEngine to stop ticking
+	  */
+	//**************************************************************************************************
+	public void remove(GameEngine engine)
+	{
+		synchronized (this)
+		{
+			// take out the GameEngine
+			removeRegistration(engine);
+		}
+
+		// wait for a tick that may have started before the GameEngine was taken out
+		synchronized (engine)
+		{
+		}
+	}
+
+	//**************************************************************************************************
+	private void removeRegistration(GameEngine engine)
+	{
+		for (int i = 0; i < m_registrations.length; i++)
+		{
+			if (m_registrations[i].m_engine == engine)
+			{
+				// the registration can no longer be ticked by a pass that is already going on
+				m_registrations[i].m_active = false;
+
+				// copy the registrations without the one being taken out
+				Registration registrations[] = new Registration[m_registrations.length - 1];
+				System.arraycopy(m_registrations, 0, registrations, 0, i);
+				System.arraycopy(m_registrations, i + 1, registrations, i, registrations.length - i);
+				m_registrations = registrations;
+				break;
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Runs the ticks until this GameLoop is stopped. Note that this is run on the thread of the
+	  * GameLoop.
+	  */
+	//**************************************************************************************************
+	public void run()
+	{
+		// the time of the last pass through the loop
+		long previous = System.nanoTime();
+
+		// the time that has passed but hasn't been ticked yet
+		long lag = 0;
+
+		// the time the GameLoop is due to wake up for the next tick (0 until it waits for one)
+		long due = 0;
+
+		while (m_running)
+		{
+			// add the time that has passed since the last pass
+			long now = System.nanoTime();
+			lag     += now - previous;
+			previous = now;
+
+			// time how late the GameLoop woke up (waking up early isn't late at all)
+			if (due != 0 && m_metrics.isEnabled())
+			{
+				m_metrics.getHistogram(GameMetrics.TIMER_LATENESS).record(now - due);
+			}
+
+			// run every tick that is due (up to MAX_TICKS_PER_FRAME of them)
+			int ticks = 0;
+			while (m_running && lag >= TICK_NANOS && ticks < MAX_TICKS_PER_FRAME)
+			{
+				// tick every GameEngine once
+				long start = m_metrics.start();
+				tickAll();
+				m_metrics.tickFinished(start);
+				lag -= TICK_NANOS;
+				ticks++;
+			}
+
+			// a GameLoop that is too far behind drops its backlog instead of trying to catch up
+			if (lag >= TICK_NANOS)
+			{
+				m_metrics.ticksDropped(lag / TICK_NANOS);
+				lag = TICK_NANOS - 1;
+			}
+
+			// let the listeners draw the state in between the last tick and the next one
+			Registration registrations[] = m_registrations;
+			for (int i = 0; i < registrations.length; i++)
+			{
+				frameReady(registrations[i], (double)lag / TICK_NANOS);
+			}
+
+			// wait for the next tick to be due
+			if (m_running)
+			{
+				due = System.nanoTime() + TICK_NANOS - lag;
+				LockSupport.parkNanos(TICK_NANOS - lag);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private void frameReady(Registration registration, double alpha)
+	{
+		synchronized (registration.m_engine)
+		{
+			// only a GameEngine that is still being ticked is drawn
+			if (registration.m_active)
+			{
+				// hand the GameEvents of the frame over to the deferred listeners
+				registration.m_engine.getEvents().flush();
+
+				if (registration.m_listener != null)
+				{
+					registration.m_listener.frameReady(registration.m_engine, alpha);
+				}
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Starts this GameLoop on a thread of its own, along with its workers (if any). Note that nothing
+	  * is done if it's already running.
+	  */
+	//**************************************************************************************************
+	public synchronized void start()
+	{
+		if (!m_running)
+		{
+			// the GameLoop is running from now on
+			m_running = true;
+
+			if (m_tasks != null)
+			{
+				// the workers don't keep the application alive on their own
+				m_workers = Executors.newFixedThreadPool(m_tasks.size(), new ThreadFactory()
+				{
+					public Thread newThread(Runnable runnable)
+					{
+						Thread thread = new Thread(runnable, "Tetris game worker");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+
+			// the thread doesn't keep the application alive on its own
+			m_thread = new Thread(this, "Tetris game loop");
+			m_thread.setDaemon(true);
+			m_thread.start();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Stops this GameLoop and shuts its workers (if any) down. Note that the GameEngines stay added,
+	  * so they're ticked again once the GameLoop is started again. When this is called from another
+	  * thread, it waits for the tick that is being run (if any) to finish.
+	  */
+	//**************************************************************************************************
+	public synchronized void stop()
+	{
+		// no more ticks are run
+		m_running = false;
+
+		// wait for the thread to finish (unless this is the thread itself)
+		if (m_thread != null && m_thread != Thread.currentThread())
+		{
+			// wake the thread up if it's waiting for the next tick
+			LockSupport.unpark(m_thread);
+
+			try
+			{
+				m_thread.join();
+			}
+			catch (InterruptedException e)
+			{
+				// keep the interrupt for the caller
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// the thread is gone
+		m_thread = null;
+
+		// so are the workers (a tick being run by this very thread has no more use for them)
+		if (m_workers != null)
+		{
+			m_workers.shutdown();
+			m_workers = null;
+		}
+	}
+
+	//**************************************************************************************************
+	private void tick(Registration registration)
+	{
+		synchronized (registration.m_engine)
+		{
+			// a GameEngine that was taken out (or whose game is over) is no longer ticked
+			if (registration.m_active)
+			{
+				// run a single tick
+				int result = registration.m_engine.step();
+
+				// the game is over, so the GameEngine is no longer ticked (and its last frame is over)
+				if (result == GameEngine.TICK_GAME_OVER)
+				{
+					registration.m_active = false;
+					registration.m_engine.getEvents().flush();
+				}
+
+				// tell the listener when a Shape lands or the game ends
+				if (result != GameEngine.TICK_MOVED && registration.m_listener != null)
+				{
+					registration.m_listener.gameTicked(registration.m_engine, result);
+				}
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private void tickAll()
+	{
+		// get the GameEngines being ticked (this copy doesn't change while they're ticked)
+		Registration registrations[] = m_registrations;
+		ExecutorService workers      = m_workers;
+
+		if (workers != null && registrations.length >= PARALLEL_THRESHOLD)
+		{
+			// the workers tick the same GameEngines as this thread sees
+			m_pass = registrations;
+
+			try
+			{
+				// split the tick among the workers and wait for all of them (which publishes m_pass)
+				workers.invokeAll(m_tasks);
+			}
+			catch (InterruptedException e)
+			{
+				// the GameLoop is being stopped
+				Thread.currentThread().interrupt();
+			}
+		}
+		else
+		{
+			for (int i = 0; i < registrations.length; i++)
+			{
+				// tick the next GameEngine
+				tick(registrations[i]);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** This class holds a GameEngine that is ticked by the GameLoop along with its listener.
+	  */
+	//**************************************************************************************************
+	private static class Registration
+	{
+		// data members
+		private volatile boolean       m_active;
+		private final GameEngine       m_engine;
+		private final GameLoopListener m_listener;
+
+		Registration(GameEngine engine, GameLoopListener listener)
+		{
+			m_engine   = engine;
+			m_listener = listener;
+			m_active   = true;
+		}
+	}
+
+	//**************************************************************************************************
+	/** This class ticks every n-th GameEngine of the GameLoop, starting from a given one. Note that
+	  * the workers are handed the same Strides on every tick.
+	  */
+	//**************************************************************************************************
+	private class Stride implements Callable<Void>
+	{
+		// data members
+		private final int m_first;
+		private final int m_step;
+
+		Stride(int first, int step)
+		{
+			m_first = first;
+			m_step  = step;
+		}
+
+		public Void call()
+		{
+			// get the GameEngines being ticked on this pass
+			Registration registrations[] = m_pass;
+
+			for (int i = m_first; i < registrations.length; i += m_step)
+			{
+				// tick the next GameEngine
+				tick(registrations[i]);
+			}
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+// Author:   Jose Santos
+// FileName: GameLoopListener.java
+
+//******************************************************************************************************
+/** This is a GameLoopListener interface that allows for an object to follow the ticks run by a
+  * GameLoop. Note that both methods are called on a thread of the GameLoop (one of its workers, when
+  * it has some) while it holds the lock of the GameEngine, so they must be quick and must hand anything
+  * to do with Swing over to the event dispatch thread.
+  */
+//******************************************************************************************************
+public interface GameLoopListener
+{
+	//**************************************************************************************************
+	/** Called after a tick in which a Shape landed or the game ended.
+	  * @param engine the GameEngine that was ticked
+	  * @param result TICK_LOCKED if a Shape landed, or TICK_GAME_OVER if the game is over
+	  */
+	//**************************************************************************************************
+	public void gameTicked(GameEngine engine, int result);
+
+	//**************************************************************************************************
+	/** Called once the ticks that were due have been run, right before the GameLoop waits for the
+	  * next tick.
+	  * @param engine the GameEngine that was ticked
+	  * @param alpha the fraction of a tick that has passed since the last tick (for drawing in between)
+	  */
+	//**************************************************************************************************
+	public void frameReady(GameEngine engine, double alpha);
+}
@@ -0,0 +1,297 @@
+// Author:   Jose Santos
+// FileName: GameMetrics.java
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+//******************************************************************************************************
+/** This class creates the GameMetrics object which times the phases of the game into
+  * LatencyHistograms. The phases are timed by the code that runs them, as in:
+  *
+  *   long start = metrics.start();
+  *   ...
+  *   metrics.stop(GameMetrics.LOGIC, start);
+  *
+  * Along with the phases, it counts the ticks dropped by the GameLoop when it falls too far behind and
+  * the frames dropped because the last one wasn't drawn yet, and it times how long a key press takes
+  * to be drawn. Note that it's off until it's enabled, in which case timing a phase costs no more than
+  * reading a volatile field. There is a single GameMetrics object, shared by every game.
+  */
+//******************************************************************************************************
+public class GameMetrics
+{
+	// the phases that are timed: a tick of the GameLoop (of every GameEngine), the logic run when a
+	// Shape lands, the cascading of the full rows, the painting of a BoardCanvas, how late the GameLoop
+	// wakes up for a tick, the time from a key press until it's drawn, the rendering of a frame by the
+	// RenderLoop (of every RenderCanvas), and the time from one frame of the RenderLoop to the next
+	public static final int TICK             = 0;
+	public static final int LOGIC            = 1;
+	public static final int CASCADE          = 2;
+	public static final int PAINT            = 3;
+	public static final int TIMER_LATENESS   = 4;
+	public static final int INPUT_TO_DISPLAY = 5;
+	public static final int RENDER           = 6;
+	public static final int FRAME            = 7;
+
+	// the names of the phases
+	public static final String PHASE_NAMES[] = {"tick", "logic", "cascade", "paint", "timer lateness",
+	                                            "input to display", "render", "frame"};
+
+	// the GameMetrics object
+	private static final GameMetrics INSTANCE = new GameMetrics();
+
+	// data members
+	private AtomicLong       m_droppedFrames;
+	private AtomicLong       m_droppedTicks;
+	private volatile boolean m_enabled;
+	private LatencyHistogram m_histograms[];
+	private AtomicLong       m_inputApplied;
+	private AtomicLong       m_inputPressed;
+	private volatile long    m_lastTickStart;
+
+	//**************************************************************************************************
+	private GameMetrics()
+	{
+		// create a LatencyHistogram for every phase
+		m_histograms = new LatencyHistogram[PHASE_NAMES.length];
+		for (int i = 0; i < m_histograms.length; i++)
+		{
+			m_histograms[i] = new LatencyHistogram();
+		}
+
+		// nothing has been dropped or pressed yet
+		m_droppedFrames = new AtomicLong();
+		m_droppedTicks  = new AtomicLong();
+		m_inputApplied  = new AtomicLong();
+		m_inputPressed  = new AtomicLong();
+	}
+
+	//**************************************************************************************************
+	/** Counts a frame that was dropped because the last one hadn't been drawn yet.
+	  */
+	//**************************************************************************************************
+	public void frameDropped()
+	{
+		// nothing is counted while the GameMetrics are disabled
+		if (m_enabled)
+		{
+			m_droppedFrames.incrementAndGet();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Times a key press from the moment it was pressed, if it has been applied by a tick. This is
+	  * called once a BoardCanvas has been painted, on the event dispatch thread (or once a frame has
+	  * been shown, on the thread of the RenderLoop).
+	  */
+	//**************************************************************************************************
+	public void framePainted()
+	{
+		// only the first painting after the key press was applied draws it
+		long applied = m_inputApplied.get();
+		if (applied != 0 && m_inputApplied.compareAndSet(applied, 0))
+		{
+			m_histograms[INPUT_TO_DISPLAY].record(System.nanoTime() - applied);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of frames dropped because the last one hadn't been drawn yet.
+	  * @return the number of frames dropped
+	  */
+	//**************************************************************************************************
+	public long getDroppedFrames()
+	{
+		// get the number of frames dropped
+		return m_droppedFrames.get();
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of ticks dropped by the GameLoop when it fell too far behind.
+	  * @return the number of ticks dropped
+	  */
+	//**************************************************************************************************
+	public long getDroppedTicks()
+	{
+		// get the number of ticks dropped
+		return m_droppedTicks.get();
+	}
+
+	//**************************************************************************************************
+	/** Returns the LatencyHistogram of the indicated phase. It may be read while the game is running.
+	  * @param phase the phase (TICK, LOGIC, CASCADE, PAINT, TIMER_LATENESS, INPUT_TO_DISPLAY, RENDER or
+	  *              FRAME)
+	  * @return the LatencyHistogram of the phase
+	  */
+	//**************************************************************************************************
+	public LatencyHistogram getHistogram(int phase)
+	{
+		// get the LatencyHistogram
+		return m_histograms[phase];
+	}
+
+	//**************************************************************************************************
+	/** Returns the GameMetrics object.
+	  * @return the GameMetrics object
+	  */
+	//**************************************************************************************************
+	public static GameMetrics getInstance()
+	{
+		// get the GameMetrics object
+		return INSTANCE;
+	}
+
+	//**************************************************************************************************
+	/** Hands the last key press over to be drawn, if a tick has started since it was pressed (and so
+	  * has applied it). This is called on the thread of the GameLoop once the ticks of a pass are done.
+	  */
+	//**************************************************************************************************
+	public void inputApplied()
+	{
+		//****************************************************************************************//
+		// NOTE: Only one key press is timed at a time. Presses that come in while it's on its    //
+		//       way to the screen are simply not timed, which keeps this down to a few fields.   //
+		//****************************************************************************************//
+		long pressed = m_inputPressed.get();
+		if (pressed != 0 && pressed - m_lastTickStart <= 0 && m_inputApplied.get() == 0 &&
+		    m_inputPressed.compareAndSet(pressed, 0))
+		{
+			m_inputApplied.set(pressed);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Marks the time a key was pressed, unless another key press is already being timed. This is
+	  * called on the event dispatch thread.
+	  */
+	//**************************************************************************************************
+	public void inputPressed()
+	{
+		// the press is only marked if no other one is on its way to the screen
+		if (m_enabled && m_inputApplied.get() == 0)
+		{
+			m_inputPressed.compareAndSet(0, System.nanoTime());
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the phases are being timed.
+	  * @return true if the GameMetrics are enabled (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean isEnabled()
+	{
+		// get whether or not the GameMetrics are enabled
+		return m_enabled;
+	}
+
+	//**************************************************************************************************
+	/** Prints the 50th, 99th and 99.9th percentiles and the longest latency of every phase (in
+	  * microseconds), along with the dropped ticks and frames.
+	  * @param out the PrintStream to print to
+	  */
+	//**************************************************************************************************
+	public void print(PrintStream out)
+	{
+		// print a line for every phase
+		out.printf("%-18s %10s %10s %10s %10s %10s%n", "phase (us)", "count", "p50", "p99", "p99.9",
+		           "max");
+		for (int i = 0; i < m_histograms.length; i++)
+		{
+			LatencyHistogram histogram = m_histograms[i];
+			out.printf("%-18s %10d %10.1f %10.1f %10.1f %10.1f%n", PHASE_NAMES[i], histogram.getCount(),
+			           histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0,
+			           histogram.getPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0);
+		}
+
+		// print the dropped ticks and frames
+		out.println("dropped ticks: " + getDroppedTicks() + ", dropped frames: " + getDroppedFrames());
+	}
+
+	//**************************************************************************************************
+	/** Throws away everything recorded so far.
+	  */
+	//**************************************************************************************************
+	public void reset()
+	{
+		// empty every LatencyHistogram
+		for (int i = 0; i < m_histograms.length; i++)
+		{
+			m_histograms[i].reset();
+		}
+
+		// nothing has been dropped or pressed
+		m_droppedFrames.set(0);
+		m_droppedTicks.set(0);
+		m_inputApplied.set(0);
+		m_inputPressed.set(0);
+	}
+
+	//**************************************************************************************************
+	/** Turns the timing of the phases on or off. It may be done while the game is running.
+	  * @param enabled true to time the phases
+	  */
+	//**************************************************************************************************
+	public void setEnabled(boolean enabled)
+	{
+		// store whether or not the GameMetrics are enabled
+		m_enabled = enabled;
+	}
+
+	//**************************************************************************************************
+	/** Returns the time a phase starts at, or 0 if the GameMetrics are disabled (in which case the
+	  * phase isn't timed by stop()).
+	  * @return the start of the phase (from System.nanoTime())
+	  */
+	//**************************************************************************************************
+	public long start()
+	{
+		// the clock is only read when the phases are timed
+		return m_enabled ? System.nanoTime() : 0;
+	}
+
+	//**************************************************************************************************
+	/** Records the time since the indicated start into the LatencyHistogram of the indicated phase.
+	  * @param phase the phase that was timed
+	  * @param start the start of the phase (as returned by start())
+	  */
+	//**************************************************************************************************
+	public void stop(int phase, long start)
+	{
+		// a phase started while the GameMetrics were disabled isn't timed
+		if (start != 0)
+		{
+			m_histograms[phase].record(System.nanoTime() - start);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Records a tick of the GameLoop (see stop()), and remembers when it started, since any key
+	  * pressed before then has now been applied.
+	  * @param start the start of the tick (as returned by start())
+	  */
+	//**************************************************************************************************
+	public void tickFinished(long start)
+	{
+		// a tick started while the GameMetrics were disabled isn't timed
+		if (start != 0)
+		{
+			m_lastTickStart = start;
+			stop(TICK, start);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Counts ticks that were dropped by the GameLoop when it fell too far behind.
+	  * @param ticks the number of ticks dropped
+	  */
+	//**************************************************************************************************
+	public void ticksDropped(long ticks)
+	{
+		// nothing is counted while the GameMetrics are disabled
+		if (m_enabled)
+		{
+			m_droppedTicks.addAndGet(ticks);
+		}
+	}
+}
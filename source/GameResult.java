@@ -0,0 +1,92 @@
+// Author:   Jose Santos
+// FileName: GameResult.java
+
+//******************************************************************************************************
+/** This class creates a GameResult object which holds how a game that was played to the end turned
+  * out, along with how long it took to decide where each Shape should go. Note that the times are only
+  * kept for the Shapes that were played by a bot.
+  */
+//******************************************************************************************************
+public class GameResult
+{
+	// data members
+	private long m_latencies[];
+	private int  m_lines;
+	private int  m_numOfPieces;
+	private int  m_score;
+	private long m_seed;
+
+	//**************************************************************************************************
+	/** Creates a GameResult object.
+	  * @param seed the seed the game was started from
+	  * @param score the score of the game
+	  * @param lines the number of rows cleared during the game
+	  * @param numOfPieces the number of Shapes that were played
+	  * @param latencies the time it took to decide on each Shape (in nanoseconds)
+	  */
+	//**************************************************************************************************
+	public GameResult(long seed, int score, int lines, int numOfPieces, long latencies[])
+	{
+		// store the outcome of the game
+		m_seed        = seed;
+		m_score       = score;
+		m_lines       = lines;
+		m_numOfPieces = numOfPieces;
+		m_latencies   = latencies;
+	}
+
+	//**************************************************************************************************
+	/** Returns the time it took to decide on each Shape.
+	  * @return the time it took to decide on each Shape (in nanoseconds)
+	  */
+	//**************************************************************************************************
+	public long[] getLatencies()
+	{
+		// get the latencies
+		return m_latencies;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows cleared during the game.
+	  * @return the number of rows cleared during the game
+	  */
+	//**************************************************************************************************
+	public int getLines()
+	{
+		// get the number of rows cleared
+		return m_lines;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of Shapes that were played.
+	  * @return the number of Shapes that were played
+	  */
+	//**************************************************************************************************
+	public int getNumOfPieces()
+	{
+		// get the number of Shapes
+		return m_numOfPieces;
+	}
+
+	//**************************************************************************************************
+	/** Returns the score of the game.
+	  * @return the score of the game
+	  */
+	//**************************************************************************************************
+	public int getScore()
+	{
+		// get the score
+		return m_score;
+	}
+
+	//**************************************************************************************************
+	/** Returns the seed the game was started from.
+	  * @return the seed of the game
+	  */
+	//**************************************************************************************************
+	public long getSeed()
+	{
+		// get the seed
+		return m_seed;
+	}
+}
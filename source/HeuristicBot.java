@@ -0,0 +1,394 @@
+// Author:   Jose Santos
+// FileName: HeuristicBot.java
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+//******************************************************************************************************
+/** This class creates a HeuristicBot object which plays a game by trying every rotation and column of
+  * each new Shape, dropping it straight down, and keeping the Placement whose BoardState scores best
+  * by its BotWeights. The next Shape is looked at as well (by a PlacementSearch), so a Placement is
+  * judged by where the next Shape can go after it. The thinking is done on a thread of its own and is
+  * cut short once the time budget of the Shape runs out (the best Placement found so far is then
+  * used). Note that the Placement is carried out by queueing the rotations, the moves and a hard
+  * drop, just like a person pressing the keys would.
+  */
+//******************************************************************************************************
+public class HeuristicBot implements BotController
+{
+	// the default time budget of each Shape (in milliseconds)
+	public static final long DEFAULT_TIME_BUDGET = 50;
+
+	// data members
+	private AtomicReference<Runnable> m_next;
+	private PlacementSearch           m_search;
+	private Runnable                  m_thinkNext;
+	private volatile long             m_timeBudget;
+	private BotWeights                m_weights;
+	private ExecutorService           m_thinker;
+
+	//**************************************************************************************************
+	/** Creates a HeuristicBot object that uses the default BotWeights.
+	  */
+	//**************************************************************************************************
+	public HeuristicBot()
+	{
+		this(new BotWeights());
+	}
+
+	//**************************************************************************************************
+	/** Creates a HeuristicBot object that uses the passed in BotWeights.
+	  * @param weights the BotWeights used to judge each Placement
+	  */
+	//**************************************************************************************************
+	public HeuristicBot(BotWeights weights)
+	{
+		this(weights, new PlacementSearch(weights));
+	}
+
+	//**************************************************************************************************
+	/** Creates a HeuristicBot object that uses the passed in BotWeights and PlacementSearch.
+	  * @param weights the BotWeights of this HeuristicBot
+	  * @param search the PlacementSearch used to find each Placement
+	  */
+	//**************************************************************************************************
+	public HeuristicBot(BotWeights weights, PlacementSearch search)
+	{
+		// store the weights and the search
+		m_weights = weights;
+		m_search  = search;
+
+		// set the time budget of each Shape
+		m_timeBudget = DEFAULT_TIME_BUDGET;
+
+		// the thinking is done on a single thread that doesn't keep the application alive on its own
+		m_thinker = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "Tetris bot");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		//****************************************************************************************//
+		// NOTE: Only the thinking about the latest Shape is waiting at any time. Thinking that   //
+		//       hasn't started by the time the next Shape spawns (which happens when games are   //
+		//       restarted quickly) is simply replaced, so the thinking never piles up.           //
+		//****************************************************************************************//
+		m_next      = new AtomicReference<Runnable>();
+		m_thinkNext = new Runnable()
+		{
+			public void run()
+			{
+				// think about the latest Shape (unless it has already been thought about)
+				Runnable thinking = m_next.getAndSet(null);
+				if (thinking != null)
+				{
+					thinking.run();
+				}
+			}
+		};
+	}
+
+	//**************************************************************************************************
+	/** Returns a new PlacementSearch of the indicated name. The names are "greedy", which only looks at
+	  * the current Shape, and "lookahead", which looks at the next Shape as well.
+	  * @param name the name of the PlacementSearch
+	  * @param weights the BotWeights used to judge each BoardState
+	  * @param pool the ForkJoinPool that the search runs on
+	  * @return the PlacementSearch of the indicated name
+	  * @throws IllegalArgumentException if no PlacementSearch has the indicated name
+	  */
+	//**************************************************************************************************
+	public static PlacementSearch createSearch(String name, BotWeights weights, ForkJoinPool pool)
+	{
+		// will hold the PlacementSearch
+		PlacementSearch retVal = null;
+
+		if (name.equalsIgnoreCase("greedy"))
+		{
+			retVal = new PlacementSearch(weights, 1, PlacementSearch.DEFAULT_BEAM_WIDTH, pool);
+		}
+		else if (name.equalsIgnoreCase("lookahead"))
+		{
+			retVal = new PlacementSearch(weights, PlacementSearch.DEFAULT_DEPTH,
+			                             PlacementSearch.DEFAULT_BEAM_WIDTH, pool);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown bot: " + name);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the best Placement of the indicated Shape on the passed in BoardState. Every rotation
+	  * and column is tried, with the Shape dropped straight down from the indicated row. Note that the
+	  * search is cut short once the deadline passes (after at least one Placement has been tried).
+	  * @param state the BoardState to place the Shape on
+	  * @param type the kind of Shape
+	  * @param startY the y position of the focal Block to drop the Shape from
+	  * @param weights the BotWeights used to judge each Placement
+	  * @param deadline the System.nanoTime() by which the search must end
+	  * @return the best Placement found, or null if the Shape fits nowhere
+	  */
+	//**************************************************************************************************
+	public static Placement findPlacement(BoardState state, int type, int startY, BotWeights weights,
+	                                      long deadline)
+	{
+		// will hold the best Placement found so far
+		Placement retVal = null;
+
+		// the BoardState on which each Placement is tried
+		BoardState scratch = new BoardState(state.getNumOfRows(), state.getNumOfCols());
+
+		for (int rotation = 0; rotation < ShapeTable.getNumOfRotations(type); rotation++)
+		{
+			for (int x = 0; x < state.getNumOfCols(); x++)
+			{
+				// drop the Shape straight down (skipping the columns where it doesn't fit)
+				int y = state.dropY(type, rotation, x, startY);
+				if (y >= 0)
+				{
+					// place the Shape on a copy of the BoardState
+					scratch.copyFrom(state);
+					int lines = scratch.place(type, rotation, x, y);
+
+					// keep the Placement if it's the best one so far
+					double score = weights.evaluate(scratch, lines);
+					if (retVal == null || score > retVal.getScore())
+					{
+						retVal = new Placement(type, rotation, x, y, score);
+					}
+				}
+			}
+
+			// stop once the time is up
+			if (retVal != null && System.nanoTime() - deadline >= 0)
+			{
+				break;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the PlacementSearch used to find each Placement.
+	  * @return the PlacementSearch of this HeuristicBot
+	  */
+	//**************************************************************************************************
+	public PlacementSearch getSearch()
+	{
+		// get the search
+		return m_search;
+	}
+
+	//**************************************************************************************************
+	/** Returns the time budget of each Shape.
+	  * @return the time budget of each Shape (in milliseconds)
+	  */
+	//**************************************************************************************************
+	public long getTimeBudget()
+	{
+		// get the time budget
+		return m_timeBudget;
+	}
+
+	//**************************************************************************************************
+	/** Returns the BotWeights used to judge each Placement.
+	  * @return the BotWeights of this HeuristicBot
+	  */
+	//**************************************************************************************************
+	public BotWeights getWeights()
+	{
+		// get the weights
+		return m_weights;
+	}
+
+	//**************************************************************************************************
+	/** Plays the current Shape of the passed in GameEngine right away, on the calling thread. That is,
+	  * the best Placement is found, and the commands that carry it out are queued and applied. This is
+	  * how a game is played without a GameLoop (such as in a batch of headless games).
+	  * @param engine the GameEngine whose game is played
+	  * @param search the PlacementSearch used to find the Placement
+	  * @param deadline the System.nanoTime() by which the search must end
+	  * @return TICK_LOCKED if the Shape landed, or TICK_GAME_OVER if the game is over
+	  */
+	//**************************************************************************************************
+	public static int playShape(GameEngine engine, PlacementSearch search, long deadline)
+	{
+		// get the current Shape
+		Shape shape = engine.getGameBoard().getShape();
+
+		// find the best Placement (looking ahead at the next Shape)
+		int shapes[]        = {shape.getType(), engine.getNextShapeBoard().getShape().getType()};
+		Placement placement = search.search(new BoardState(engine.getGameBoard()), shapes,
+		                                    shape.getFocalBlock().getYPos(), deadline);
+
+		// will hold the result
+		int retVal = GameEngine.TICK_GAME_OVER;
+
+		// a Shape that fits nowhere ends the game
+		if (placement != null)
+		{
+			// carry out the Placement
+			queueCommands(engine.getInput(), shape, placement);
+			retVal = engine.processInput(0);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Queues the commands that take a Shape from where it is to the passed in Placement. That is, the
+	  * soft drops that make room to turn, the rotations, the moves and a hard drop (each one pressed and
+	  * released). Note that the InputQueue of a GameEngine is sized so that all of them fit.
+	  * @param input the InputQueue to queue the commands in
+	  * @param shape the Shape to move
+	  * @param placement the Placement to move the Shape to
+	  */
+	//**************************************************************************************************
+	public static void queueCommands(InputQueue input, Shape shape, Placement placement)
+	{
+		// get the number of clockwise quarter turns needed
+		int turns = Math.floorMod(placement.getRotation() - shape.getRotation(),
+		                          ShapeTable.getNumOfRotations(shape.getType()));
+
+		//*************************************************************************************//
+		// NOTE: A Shape can't be turned so that a Block ends up above the top row, so a Shape //
+		//       that has just appeared may first have to come down a row or two. Note that    //
+		//       every rotation passed through on the way is checked.                          //
+		//*************************************************************************************//
+		int drops = 0;
+		for (int i = 1; i <= turns; i++)
+		{
+			// get the rotation passed through (going counterclockwise for three turns)
+			int rotation = ShapeTable.getRotation(shape.getType(), shape.getRotation(), (turns == 3) ? -1 : i);
+
+			for (int block = 0; block < ShapeTable.NUM_OF_BLOCKS; block++)
+			{
+				// find how far the Block would end up above the top row
+				int yPos = shape.getFocalBlock().getYPos() + ShapeTable.getYOffset(shape.getType(), rotation, block);
+				drops    = Math.max(drops, -yPos);
+			}
+
+			// a counterclockwise turn passes through a single rotation
+			if (turns == 3)
+			{
+				break;
+			}
+		}
+
+		// come down far enough to be turned
+		for (int i = 0; i < drops; i++)
+		{
+			tap(input, InputCommand.SOFT_DROP);
+		}
+
+		if (turns == 3)
+		{
+			// three clockwise turns are one counterclockwise turn
+			tap(input, InputCommand.ROTATE_CCW);
+		}
+		else
+		{
+			for (int i = 0; i < turns; i++)
+			{
+				tap(input, InputCommand.ROTATE_CW);
+			}
+		}
+
+		// get the number of columns to move by
+		int dx = placement.getXPos() - shape.getFocalBlock().getXPos();
+
+		// move to the column of the Placement
+		for (int i = 0; i < Math.abs(dx); i++)
+		{
+			tap(input, (dx < 0) ? InputCommand.MOVE_LEFT : InputCommand.MOVE_RIGHT);
+		}
+
+		// drop the Shape into place
+		tap(input, InputCommand.HARD_DROP);
+	}
+
+	//**************************************************************************************************
+	/** Sets the time budget of each Shape.
+	  * @param timeBudget the time budget of each Shape (in milliseconds)
+	  */
+	//**************************************************************************************************
+	public void setTimeBudget(long timeBudget)
+	{
+		// set the time budget
+		m_timeBudget = timeBudget;
+	}
+
+	//**************************************************************************************************
+	/** Starts thinking about where to put the new Shape of the passed in GameEngine. Note that the
+	  * landed cells are copied right away (this is called while the lock of the GameEngine is held), and
+	  * the commands are only queued if the Shape is still falling once the thinking is done.
+	  * @param engine the GameEngine whose game the bot is playing
+	  */
+	//**************************************************************************************************
+	public void shapeSpawned(final GameEngine engine)
+	{
+		// get the new Shape
+		final Shape shape = engine.getGameBoard().getShape();
+
+		// copy what the thinking needs
+		final BoardState state    = new BoardState(engine.getGameBoard());
+		final int        shapes[] = {shape.getType(), engine.getNextShapeBoard().getShape().getType()};
+		final int        startY   = shape.getFocalBlock().getYPos();
+		final long       deadline = System.nanoTime() + m_timeBudget * 1000000L;
+		final int        spawned  = engine.getGenerator().getNumOfGenerated();
+
+		Runnable thinking = new Runnable()
+		{
+			public void run()
+			{
+				// find the best Placement (looking ahead at the next Shape)
+				Placement placement = m_search.search(state, shapes, startY, deadline);
+
+				synchronized (engine)
+				{
+					// only move the Shape if it's still the one that was thought about
+					if (placement != null && engine.getGameBoard().getShape() == shape &&
+					    engine.getGenerator().getNumOfGenerated() == spawned)
+					{
+						queueCommands(engine.getInput(), shape, placement);
+					}
+				}
+			}
+		};
+
+		// the thinking takes the place of any that is still waiting (which is then only started once)
+		if (m_next.getAndSet(thinking) == null)
+		{
+			m_thinker.execute(m_thinkNext);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Stops this HeuristicBot for good. Note that any thinking that is going on is abandoned.
+	  */
+	//**************************************************************************************************
+	public void shutdown()
+	{
+		// stop the thinking thread
+		m_thinker.shutdownNow();
+	}
+
+	//**************************************************************************************************
+	private static void tap(InputQueue input, InputCommand command)
+	{
+		// press and release the key of the command
+		input.press(command);
+		input.release(command);
+	}
+}
@@ -0,0 +1,107 @@
+// Author:   Jose Santos
+// FileName: HistoryRandomizer.java
+
+import java.util.SplittableRandom;
+
+//******************************************************************************************************
+/** This class creates a HistoryRandomizer object which remembers the last few Shapes that were picked
+  * and re-rolls (a limited number of times) whenever it picks one of them again. Note that this makes
+  * long droughts and repeats unlikely without making the order of the Shapes predictable. The history
+  * starts out holding ZShapes and SShapes so that the first Shape is never one of them.
+  */
+//******************************************************************************************************
+public class HistoryRandomizer implements Randomizer
+{
+	// the number of Shapes that are remembered
+	public static final int HISTORY_SIZE = 4;
+
+	// the number of times a Shape found in the history is re-rolled
+	public static final int NUM_OF_ROLLS = 6;
+
+	// data members
+	private int m_history[];
+	private int m_oldest;
+
+	//**************************************************************************************************
+	/** Creates a HistoryRandomizer object.
+	  */
+	//**************************************************************************************************
+	public HistoryRandomizer()
+	{
+		// create the history
+		m_history = new int[HISTORY_SIZE];
+
+		// fill the history with its starting Shapes
+		reset();
+	}
+
+	//**************************************************************************************************
+	private boolean inHistory(int shape)
+	{
+		// we'll assume that the Shape hasn't been picked lately
+		boolean retVal = false;
+
+		for (int i = 0; i < m_history.length; i++)
+		{
+			if (m_history[i] == shape)
+			{
+				retVal = true;
+				break;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the name of this HistoryRandomizer.
+	  * @return "history"
+	  */
+	//**************************************************************************************************
+	public String getName()
+	{
+		// get the name
+		return "history";
+	}
+
+	//**************************************************************************************************
+	/** Returns the kind of the next Shape. Note that a Shape found in the history is re-rolled up to
+	  * NUM_OF_ROLLS times, after which the last roll is kept.
+	  * @param random the source of random numbers of the game
+	  * @return the kind of the next Shape
+	  */
+	//**************************************************************************************************
+	public int nextShape(SplittableRandom random)
+	{
+		// roll the first Shape
+		int shape = random.nextInt(ShapeTable.NUM_OF_SHAPES);
+
+		// re-roll as long as the Shape has been picked lately
+		for (int roll = 1; roll < NUM_OF_ROLLS && inHistory(shape); roll++)
+		{
+			shape = random.nextInt(ShapeTable.NUM_OF_SHAPES);
+		}
+
+		// the Shape replaces the oldest one in the history
+		m_history[m_oldest] = shape;
+		m_oldest = (m_oldest + 1) % m_history.length;
+
+		return shape;
+	}
+
+	//**************************************************************************************************
+	/** Resets this HistoryRandomizer so that the history holds its starting Shapes.
+	  */
+	//**************************************************************************************************
+	public void reset()
+	{
+		// the history starts out as Z, Z, S, S
+		for (int i = 0; i < m_history.length; i++)
+		{
+			m_history[i] = (i < m_history.length / 2) ? ShapeTable.Z_SHAPE : ShapeTable.S_SHAPE;
+		}
+
+		// the first entry is the oldest
+		m_oldest = 0;
+	}
+}
@@ -0,0 +1,40 @@
+// Author:   Jose Santos
+// FileName: InputCommand.java
+
+//******************************************************************************************************
+/** This enum holds the commands that a player can give to the current Shape. Note that the commands
+  * that keep being given for as long as their key is held down (such as moving left) are marked as
+  * auto repeating. The rest are only given once per press of their key.
+  */
+//******************************************************************************************************
+public enum InputCommand
+{
+	MOVE_LEFT(true),
+	MOVE_RIGHT(true),
+	SOFT_DROP(true),
+	HARD_DROP(false),
+	ROTATE_CW(false),
+	ROTATE_CCW(false),
+	HOLD(false);
+
+	// data members
+	private final boolean m_autoRepeat;
+
+	//**************************************************************************************************
+	private InputCommand(boolean autoRepeat)
+	{
+		// store whether or not the command repeats while its key is held down
+		m_autoRepeat = autoRepeat;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if this command keeps being given for as long as its key is held down.
+	  * @return true if this command auto repeats (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean isAutoRepeat()
+	{
+		// get whether or not this command auto repeats
+		return m_autoRepeat;
+	}
+}
@@ -0,0 +1,164 @@
+// Author:   Jose Santos
+// FileName: InputQueue.java
+
+//******************************************************************************************************
+/** This class creates an InputQueue object which carries the presses and releases of InputCommands
+  * from the thread that reads the keyboard to the thread that ticks the game. The events are packed
+  * into ints and kept in a fixed ring buffer, so nothing is allocated once the InputQueue exists. Note
+  * that only one thread may add events and only one thread may take them out. When the ring buffer is
+  * full, new events are dropped rather than blocking the keyboard.
+  */
+//******************************************************************************************************
+public class InputQueue
+{
+	// the default number of events that can be waiting at once
+	public static final int DEFAULT_CAPACITY = 64;
+
+	// the value returned by poll() when no event is waiting
+	public static final int NO_EVENT = -1;
+
+	// the commands, indexed by their ordinal (values() creates a new array on every call)
+	private static final InputCommand COMMANDS[] = InputCommand.values();
+
+	// data members
+	private int          m_events[];
+	private int          m_mask;
+	private volatile int m_head;
+	private volatile int m_tail;
+
+	//**************************************************************************************************
+	/** Creates an InputQueue object that holds up to DEFAULT_CAPACITY events.
+	  */
+	//**************************************************************************************************
+	public InputQueue()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	//**************************************************************************************************
+	/** Creates an InputQueue object that holds up to the indicated number of events. Note that the
+	  * capacity is rounded up to a power of 2.
+	  * @param capacity the number of events that can be waiting at once
+	  */
+	//**************************************************************************************************
+	public InputQueue(int capacity)
+	{
+		// round the capacity up to a power of 2 so that an index wraps around with a mask
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+		// create the ring buffer
+		m_events = new int[size];
+		m_mask   = size - 1;
+	}
+
+	//**************************************************************************************************
+	/** Throws away every waiting event. Note that this may only be called by the thread that takes
+	  * the events out.
+	  */
+	//**************************************************************************************************
+	public void clear()
+	{
+		// everything up to the tail has now been taken out
+		m_head = m_tail;
+	}
+
+	//**************************************************************************************************
+	/** Returns the command of the passed in event.
+	  * @param event an event returned by poll()
+	  * @return the command of the event
+	  */
+	//**************************************************************************************************
+	public static InputCommand getCommand(int event)
+	{
+		// the command is held above the lowest bit
+		return COMMANDS[event >> 1];
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the passed in event is the press of its command. False is returned if it is the
+	  * release.
+	  * @param event an event returned by poll()
+	  * @return true if the event is a press (false if it is a release)
+	  */
+	//**************************************************************************************************
+	public static boolean isPress(int event)
+	{
+		// the lowest bit is set for a press
+		return (event & 1) != 0;
+	}
+
+	//**************************************************************************************************
+	/** Adds the passed in event (a command packed along with its press bit) to this InputQueue. This is
+	  * how a recorded event is played back.
+	  * @param event the event to add
+	  * @return true if the event was added (false if the InputQueue is full)
+	  */
+	//**************************************************************************************************
+	public boolean offer(int event)
+	{
+		// holds whether or not the event was added
+		boolean retVal = false;
+
+		// get the tail (only this thread ever changes it)
+		int tail = m_tail;
+
+		// the event is dropped if the ring buffer is full
+		if (tail - m_head < m_events.length)
+		{
+			// store the event before publishing the new tail
+			m_events[tail & m_mask] = event;
+			m_tail = tail + 1;
+
+			retVal = true;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Takes the oldest event out of this InputQueue.
+	  * @return the oldest event, or NO_EVENT if no event is waiting
+	  */
+	//**************************************************************************************************
+	public int poll()
+	{
+		// will hold the event
+		int retVal = NO_EVENT;
+
+		// get the head (only this thread ever changes it)
+		int head = m_head;
+
+		if (head != m_tail)
+		{
+			// read the event before handing its slot back to the other thread
+			retVal = m_events[head & m_mask];
+			m_head = head + 1;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Adds the press of the indicated command to this InputQueue.
+	  * @param command the command whose key was pressed
+	  * @return true if the event was added (false if the InputQueue is full)
+	  */
+	//**************************************************************************************************
+	public boolean press(InputCommand command)
+	{
+		// pack the command along with the press bit
+		return offer((command.ordinal() << 1) | 1);
+	}
+
+	//**************************************************************************************************
+	/** Adds the release of the indicated command to this InputQueue.
+	  * @param command the command whose key was released
+	  * @return true if the event was added (false if the InputQueue is full)
+	  */
+	//**************************************************************************************************
+	public boolean release(InputCommand command)
+	{
+		// pack the command without the press bit
+		return offer(command.ordinal() << 1);
+	}
+}
@@ -0,0 +1,29 @@
+// Author:   Jose Santos
+// FileName: InputRecorder.java
+
+//******************************************************************************************************
+/** This is an InputRecorder interface that allows for an object to follow the events that a
+  * GameEngine takes out of its InputQueue. Since the Shapes of a game only depend on its seed, the seed
+  * along with these events is all it takes to play the game again (see ReplayWriter). Note that the
+  * methods are called on the thread that ticks the game while it holds the lock of the GameEngine, so
+  * they must be quick.
+  */
+//******************************************************************************************************
+public interface InputRecorder
+{
+	//**************************************************************************************************
+	/** Called right before an event is applied.
+	  * @param tick the tick of the game during which the event is applied (see GameEngine.getTicks())
+	  * @param event the event (a command packed along with its press bit, as held by an InputQueue)
+	  */
+	//**************************************************************************************************
+	public void inputApplied(long tick, int event);
+
+	//**************************************************************************************************
+	/** Called at the start of every tick run by GameEngine.step(), before any of its events are
+	  * applied. This is where the state of the game can be saved (see GameEngine.writeState()).
+	  * @param engine the GameEngine that is about to run the tick
+	  */
+	//**************************************************************************************************
+	public void tickStarted(GameEngine engine);
+}
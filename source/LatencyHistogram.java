@@ -0,0 +1,173 @@
+// Author:   Jose Santos
+// FileName: LatencyHistogram.java
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//******************************************************************************************************
+/** This class creates a LatencyHistogram object which counts latencies (in nanoseconds) into buckets
+  * that grow with the latency. Every power of 2 is split into SUB_BUCKETS buckets of the same width,
+  * so a latency is always known to within 1 part in SUB_BUCKETS (about 3%), from a nanosecond up to
+  * the longest latency there is, in a fixed number of buckets. Recording a latency is a couple of
+  * shifts and an atomic add, creates no objects, and may be done by any number of threads while
+  * others read the percentiles. Note that a percentile read while latencies are being recorded may
+  * be off by the latencies recorded during the read.
+  */
+//******************************************************************************************************
+public class LatencyHistogram
+{
+	// the number of bits below the highest one that pick the bucket of a latency, and the number of
+	// buckets each power of 2 is split into
+	public static final int SUB_BITS    = 5;
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	// the number of buckets (enough for every latency up to Long.MAX_VALUE)
+	private static final int NUM_OF_BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+	// data members
+	private AtomicLongArray m_buckets;
+	private AtomicLong      m_count;
+	private AtomicLong      m_max;
+
+	//**************************************************************************************************
+	/** Creates an empty LatencyHistogram object.
+	  */
+	//**************************************************************************************************
+	public LatencyHistogram()
+	{
+		// nothing is counted yet
+		m_buckets = new AtomicLongArray(NUM_OF_BUCKETS);
+		m_count   = new AtomicLong();
+		m_max     = new AtomicLong();
+	}
+
+	//**************************************************************************************************
+	private static int getBucket(long value)
+	{
+		// the smallest latencies have a bucket each
+		if (value < SUB_BUCKETS)
+		{
+			return (int)value;
+		}
+
+		// otherwise, the highest bit picks the power of 2, and the bits below it pick the bucket
+		int highest = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift   = highest - SUB_BITS;
+
+		return (shift + 1) * SUB_BUCKETS + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of latencies recorded.
+	  * @return the number of latencies recorded
+	  */
+	//**************************************************************************************************
+	public long getCount()
+	{
+		// get the count
+		return m_count.get();
+	}
+
+	//**************************************************************************************************
+	private static long getHighestValue(int bucket)
+	{
+		// the smallest latencies have a bucket each
+		if (bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+
+		// otherwise, the bucket spans 2^shift latencies starting from its bits shifted into place
+		int shift = bucket / SUB_BUCKETS - 1;
+		long low  = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+		return low + (1L << shift) - 1;
+	}
+
+	//**************************************************************************************************
+	/** Returns the longest latency recorded.
+	  * @return the longest latency recorded (0 if there are none)
+	  */
+	//**************************************************************************************************
+	public long getMax()
+	{
+		// get the longest latency
+		return m_max.get();
+	}
+
+	//**************************************************************************************************
+	/** Returns the latency that the indicated percentage of the recorded latencies doesn't exceed. The
+	  * latency returned is the highest one of its bucket (though never more than the longest latency
+	  * recorded), so it's never less than the actual percentile.
+	  * @param percentile the percentage (from 0 to 100)
+	  * @return the latency at the percentile (0 if nothing is recorded)
+	  */
+	//**************************************************************************************************
+	public long getPercentile(double percentile)
+	{
+		// will hold the latency at the percentile
+		long retVal = 0;
+
+		// count the buckets first, so the total matches the buckets even while latencies are recorded
+		long total = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++)
+		{
+			total += m_buckets.get(i);
+		}
+
+		if (total > 0)
+		{
+			// the number of latencies that have to be at or below the percentile (at least one)
+			long wanted = Math.max(1, (long)Math.ceil(percentile / 100 * total));
+
+			// find the bucket that holds the wanted latency
+			long count = 0;
+			int  i     = 0;
+			while (i < NUM_OF_BUCKETS - 1 && (count += m_buckets.get(i)) < wanted)
+			{
+				i++;
+			}
+			retVal = Math.min(getHighestValue(i), m_max.get());
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Records a latency. Note that negative latencies (which happen when the clock is read on
+	  * different processors) are recorded as 0.
+	  * @param nanos the latency (in nanoseconds)
+	  */
+	//**************************************************************************************************
+	public void record(long nanos)
+	{
+		// a latency is never negative
+		long value = Math.max(0, nanos);
+
+		// count the latency in its bucket
+		m_buckets.incrementAndGet(getBucket(value));
+		m_count.incrementAndGet();
+
+		// keep the longest latency (the comparison keeps this from writing at all most of the time)
+		long max = m_max.get();
+		while (value > max && !m_max.compareAndSet(max, value))
+		{
+			max = m_max.get();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Throws away every latency recorded.
+	  */
+	//**************************************************************************************************
+	public void reset()
+	{
+		// empty every bucket
+		for (int i = 0; i < NUM_OF_BUCKETS; i++)
+		{
+			m_buckets.set(i, 0);
+		}
+		m_count.set(0);
+		m_max.set(0);
+	}
+}
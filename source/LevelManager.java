@@ -4,14 +4,15 @@
 import javax.swing.*;
 
 //******************************************************************************************************
-/** This class creates a LevelManager object which is an Observer of the BoardManager. Note that the
-  * BoardManager, being a Subject, will call the LevelManager whenever a point is scored. If the score
-  * is high enough, the level is increased. That is, the animation delay of the BoardManager's
-  * animation timer will be decreased.
+/** This class creates a LevelManager object which is a deferred GameEventListener of the GameEngine
+  * of a BoardManager. Note that the GameEventBus of the GameEngine calls the LevelManager on the event
+  * dispatch thread whenever a game starts or the level changes (at most once per frame). Note that the
+  * level itself (along with the gravity that goes with it) is kept by the GameEngine of the
+  * BoardManager.
   */
 //******************************************************************************************************
 @SuppressWarnings("serial")
-public class LevelManager extends JLabel implements Observer
+public class LevelManager extends JLabel implements GameEventListener
 {
 	// data members
 	private BoardManager m_boardManager;
@@ -32,35 +33,9 @@ public class LevelManager extends JLabel implements Observer
 	}
 
 	//**************************************************************************************************
-	public void update()
+	public void gameEvent(GameEvent event)
 	{
-		// get the score of the BoardManager
-		int score = m_boardManager.getScore();
-
-		// get the animation delay of the animation timer in the BoardManager
-		int animationDelay = m_boardManager.getAnimationTimer().getDelay();
-
-		// decrease the current animation delay by 200
-		animationDelay -= 200;
-
-		// only increase the level when the score is greater than 0
-		if (score > 0)
-		{
-			//*****************************************************************************************//
-			// NOTE: Increase the level every 10 points. Note that we don't want to increase the level //
-			//       if the animation delay is less than 200. This will make the game too difficult.   //
-			//*****************************************************************************************//
-			if (score % 10 == 0 && animationDelay >= 200)
-			{
-				// increase the level by 1
-				m_boardManager.setLevel(m_boardManager.getLevel() + 1);
-
-				// set the new animation delay so that the game runs faster
-				m_boardManager.getAnimationTimer().setDelay(animationDelay);
-			}
-		}
-
 		// update the level on the display
-		setText("Level: " + m_boardManager.getLevel());
+		setText("Level: " + event.getLevel());
 	}
 }
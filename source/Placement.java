@@ -0,0 +1,92 @@
+// Author:   Jose Santos
+// FileName: Placement.java
+
+//******************************************************************************************************
+/** This class creates a Placement object which describes where a Shape is to be put. That is, the
+  * rotation of the Shape and the x and y position of its focal Block once it has landed, along with
+  * the score that a bot gave to putting it there.
+  */
+//******************************************************************************************************
+public class Placement
+{
+	// data members
+	private int    m_rotation;
+	private double m_score;
+	private int    m_type;
+	private int    m_xPos;
+	private int    m_yPos;
+
+	//**************************************************************************************************
+	/** Creates a Placement object.
+	  * @param type the kind of Shape
+	  * @param rotation the rotation of the Shape
+	  * @param xPos the x position of the focal Block
+	  * @param yPos the y position of the focal Block once the Shape has landed
+	  * @param score the score given to the Placement
+	  */
+	//**************************************************************************************************
+	public Placement(int type, int rotation, int xPos, int yPos, double score)
+	{
+		// store the Placement
+		m_type     = type;
+		m_rotation = rotation;
+		m_xPos     = xPos;
+		m_yPos     = yPos;
+		m_score    = score;
+	}
+
+	//**************************************************************************************************
+	/** Returns the rotation of the Shape.
+	  * @return the rotation of the Shape
+	  */
+	//**************************************************************************************************
+	public int getRotation()
+	{
+		// get the rotation
+		return m_rotation;
+	}
+
+	//**************************************************************************************************
+	/** Returns the score given to this Placement.
+	  * @return the score given to this Placement
+	  */
+	//**************************************************************************************************
+	public double getScore()
+	{
+		// get the score
+		return m_score;
+	}
+
+	//**************************************************************************************************
+	/** Returns the kind of the Shape.
+	  * @return the kind of the Shape
+	  */
+	//**************************************************************************************************
+	public int getType()
+	{
+		// get the kind of Shape
+		return m_type;
+	}
+
+	//**************************************************************************************************
+	/** Returns the x position of the focal Block.
+	  * @return the x position of the focal Block
+	  */
+	//**************************************************************************************************
+	public int getXPos()
+	{
+		// get the x position
+		return m_xPos;
+	}
+
+	//**************************************************************************************************
+	/** Returns the y position of the focal Block once the Shape has landed.
+	  * @return the y position of the focal Block
+	  */
+	//**************************************************************************************************
+	public int getYPos()
+	{
+		// get the y position
+		return m_yPos;
+	}
+}
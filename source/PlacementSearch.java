@@ -0,0 +1,358 @@
+// Author:   Jose Santos
+// FileName: PlacementSearch.java
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+//******************************************************************************************************
+/** This class creates a PlacementSearch object which looks ahead over the current Shape and the Shapes
+  * that are shown coming after it. Every Placement of the first Shape is tried, then every Placement of
+  * the second Shape on each of the resulting BoardStates, and so on, with a Placement judged by the best
+  * score that can be reached at the end of the line. Note that the number of BoardStates grows about 40
+  * times with each Shape, so the search is kept in check in two ways:
+  *
+  *   - only the beamWidth best Placements of each Shape (by their own score) are looked into further
+  *   - once the deadline passes, nothing is looked into further and the scores found so far are used
+  *
+  * The Placements of each Shape are looked into in parallel on a ForkJoinPool, so the depth that can
+  * be searched in time grows with the number of cores. The scores of the BoardStates are kept in a
+  * TranspositionTable, so a BoardState that is reached again (in the same search, on another thread,
+  * or while thinking about the next Shape) isn't judged twice.
+  */
+//******************************************************************************************************
+public class PlacementSearch
+{
+	// the default number of Shapes looked at (the current Shape and the next Shape)
+	public static final int DEFAULT_DEPTH = 2;
+
+	// the default number of Placements of each Shape that are looked into further
+	public static final int DEFAULT_BEAM_WIDTH = 8;
+
+	// the most Placements of a single Shape (every rotation in every column)
+	private static final int MAX_PLACEMENTS = 4 * BoardModel.MAX_COLS;
+
+	// data members
+	private int                m_beamWidth;
+	private int                m_depth;
+	private ForkJoinPool       m_pool;
+	private TranspositionTable m_table;
+	private BotWeights         m_weights;
+
+	//**************************************************************************************************
+	/** Creates a PlacementSearch object that uses the default depth and beam width, and runs on the
+	  * common ForkJoinPool.
+	  * @param weights the BotWeights used to judge each BoardState
+	  */
+	//**************************************************************************************************
+	public PlacementSearch(BotWeights weights)
+	{
+		this(weights, DEFAULT_DEPTH, DEFAULT_BEAM_WIDTH, ForkJoinPool.commonPool());
+	}
+
+	//**************************************************************************************************
+	/** Creates a PlacementSearch object that keeps the scores in a TranspositionTable of its own.
+	  * @param weights the BotWeights used to judge each BoardState
+	  * @param depth the most Shapes looked at (at least 1)
+	  * @param beamWidth the number of Placements of each Shape that are looked into further (at least 1)
+	  * @param pool the ForkJoinPool that the search runs on
+	  */
+	//**************************************************************************************************
+	public PlacementSearch(BotWeights weights, int depth, int beamWidth, ForkJoinPool pool)
+	{
+		this(weights, depth, beamWidth, pool, new TranspositionTable());
+	}
+
+	//**************************************************************************************************
+	/** Creates a PlacementSearch object. Note that the TranspositionTable must only be shared with
+	  * searches that use the same BotWeights, since the scores it holds were worked out with them.
+	  * @param weights the BotWeights used to judge each BoardState
+	  * @param depth the most Shapes looked at (at least 1)
+	  * @param beamWidth the number of Placements of each Shape that are looked into further (at least 1)
+	  * @param pool the ForkJoinPool that the search runs on
+	  * @param table the TranspositionTable that keeps the scores of the BoardStates (may be null)
+	  */
+	//**************************************************************************************************
+	public PlacementSearch(BotWeights weights, int depth, int beamWidth, ForkJoinPool pool,
+	                       TranspositionTable table)
+	{
+		// store the settings
+		m_weights   = weights;
+		m_depth     = Math.max(1, depth);
+		m_beamWidth = Math.max(1, beamWidth);
+		m_pool      = pool;
+		m_table     = table;
+	}
+
+	//**************************************************************************************************
+	private double evaluate(BoardState state, int linesCleared)
+	{
+		// will hold the score
+		double retVal;
+
+		if (state.isToppedOut() || m_table == null)
+		{
+			// a BoardState that has topped out (or a search without a table) is judged as is
+			retVal = m_weights.evaluate(state, linesCleared);
+		}
+		else
+		{
+			//*********************************************************************************//
+			// NOTE: The score is the sum of each feature times its weight, and only the       //
+			//       number of rows cleared depends on how the BoardState was reached. So the  //
+			//       table keeps the score of the BoardState without it, and it's added back   //
+			//       in afterwards.                                                            //
+			//*********************************************************************************//
+			double score = m_table.probe(state.getHash());
+			if (Double.isNaN(score))
+			{
+				// judge the BoardState and remember its score
+				score = m_weights.evaluate(state, 0);
+				m_table.store(state.getHash(), score);
+			}
+
+			// add back the rows cleared on the way to the BoardState
+			retVal = score + m_weights.getWeight(BotWeights.LINES_CLEARED) * linesCleared;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of Placements of each Shape that are looked into further.
+	  * @return the beam width
+	  */
+	//**************************************************************************************************
+	public int getBeamWidth()
+	{
+		// get the beam width
+		return m_beamWidth;
+	}
+
+	//**************************************************************************************************
+	/** Returns the most Shapes looked at.
+	  * @return the depth of the search
+	  */
+	//**************************************************************************************************
+	public int getDepth()
+	{
+		// get the depth
+		return m_depth;
+	}
+
+	//**************************************************************************************************
+	/** Returns the TranspositionTable that keeps the scores of the BoardStates.
+	  * @return the TranspositionTable of this PlacementSearch (may be null)
+	  */
+	//**************************************************************************************************
+	public TranspositionTable getTable()
+	{
+		// get the table
+		return m_table;
+	}
+
+	//**************************************************************************************************
+	/** Returns the best Placement of the first of the passed in Shapes, looking ahead over the rest of
+	  * them (up to the depth of this PlacementSearch).
+	  * @param state the BoardState to place the Shapes on
+	  * @param shapes the kinds of the current Shape followed by the Shapes shown coming after it
+	  * @param startY the y position of the focal Block to drop the current Shape from
+	  * @param deadline the System.nanoTime() by which the search must end
+	  * @return the best Placement of the current Shape, or null if it fits nowhere
+	  */
+	//**************************************************************************************************
+	public Placement search(BoardState state, int shapes[], int startY, long deadline)
+	{
+		// only look as far ahead as both the depth and the Shapes shown allow
+		int depth = Math.min(m_depth, shapes.length);
+
+		// the BoardStates of older searches are the first to go once the table fills up
+		if (m_table != null)
+		{
+			m_table.newGeneration();
+		}
+
+		// look into the Placements of the current Shape
+		Node root = new Node(state, shapes, depth, 0, startY, 0, deadline);
+
+		if (ForkJoinTask.getPool() == m_pool)
+		{
+			// a search run by a task of the same pool (such as a game of a batch) joins in right here
+			root.invoke();
+		}
+		else
+		{
+			// hand the search to the pool and wait for it
+			m_pool.invoke(root);
+		}
+
+		return root.m_best;
+	}
+
+	//**************************************************************************************************
+	/** This class looks into every Placement of a single Shape on a single BoardState. Note that each
+	  * Placement kept by the beam is looked into by a Node of its own, forked onto the ForkJoinPool.
+	  */
+	//**************************************************************************************************
+	@SuppressWarnings("serial")
+	private class Node extends RecursiveTask<Double>
+	{
+		// data members
+		private Placement  m_best;
+		private long       m_deadline;
+		private int        m_depth;
+		private int        m_index;
+		private int        m_lines;
+		private int        m_shapes[];
+		private int        m_startY;
+		private BoardState m_state;
+
+		Node(BoardState state, int shapes[], int depth, int index, int startY, int lines, long deadline)
+		{
+			m_state    = state;
+			m_shapes   = shapes;
+			m_depth    = depth;
+			m_index    = index;
+			m_startY   = startY;
+			m_lines    = lines;
+			m_deadline = deadline;
+		}
+
+		//**********************************************************************************************
+		/** Returns the best score that can be reached from the BoardState of this Node (and stores the
+		  * Placement that leads to it).
+		  * @return the best score that can be reached
+		  */
+		//**********************************************************************************************
+		protected Double compute()
+		{
+			// get the kind of Shape placed by this Node
+			int type = m_shapes[m_index];
+
+			// this is the last Shape looked at, or time is up
+			boolean last = (m_index + 1 >= m_depth) || System.nanoTime() - m_deadline >= 0;
+
+			// will hold every Placement along with its own score and the BoardState it leads to
+			Placement   placements[] = new Placement[MAX_PLACEMENTS];
+			BoardState  states[]     = new BoardState[MAX_PLACEMENTS];
+			int         lines[]      = new int[MAX_PLACEMENTS];
+			int         count        = 0;
+
+			for (int rotation = 0; rotation < ShapeTable.getNumOfRotations(type); rotation++)
+			{
+				for (int x = 0; x < m_state.getNumOfCols(); x++)
+				{
+					// drop the Shape straight down (skipping the columns where it doesn't fit)
+					int y = m_state.dropY(type, rotation, x, m_startY);
+					if (y >= 0)
+					{
+						// place the Shape on a copy of the BoardState
+						BoardState next = new BoardState(m_state);
+						int cleared     = next.place(type, rotation, x, y);
+
+						// store the Placement along with its own score
+						placements[count] = new Placement(type, rotation, x, y,
+						                                  evaluate(next, m_lines + cleared));
+						states[count]     = next;
+						lines[count]      = m_lines + cleared;
+						count++;
+					}
+				}
+			}
+
+			// will hold the best score that can be reached
+			double retVal = BotWeights.TOPPED_OUT_SCORE;
+
+			if (last || count == 0)
+			{
+				// the own score of each Placement is as far as this Node looks
+				for (int i = 0; i < count; i++)
+				{
+					keep(placements[i], placements[i].getScore());
+				}
+			}
+			else
+			{
+				// only the best Placements (by their own score) are looked into further
+				int width   = Math.min(m_beamWidth, count);
+				int order[] = selectBest(placements, count, width);
+
+				// look into each of them in parallel (a BoardState that has topped out goes no further)
+				Node children[] = new Node[width];
+				for (int i = 0; i < width; i++)
+				{
+					int j = order[i];
+					if (!states[j].isToppedOut())
+					{
+						children[i] = new Node(states[j], m_shapes, m_depth, m_index + 1, 0, lines[j],
+						                       m_deadline);
+						children[i].fork();
+					}
+				}
+
+				for (int i = 0; i < width; i++)
+				{
+					// a Placement is as good as the best score that can be reached after it
+					Placement placement = placements[order[i]];
+					keep(placement, (children[i] != null) ? children[i].join() : placement.getScore());
+				}
+			}
+
+			// the best score belongs to the best Placement (if any)
+			if (m_best != null)
+			{
+				retVal = m_best.getScore();
+			}
+
+			return retVal;
+		}
+
+		//**********************************************************************************************
+		private void keep(Placement placement, double score)
+		{
+			// keep the Placement (with the score reached after it) if it's the best one so far
+			if (m_best == null || score > m_best.getScore())
+			{
+				m_best = new Placement(placement.getType(), placement.getRotation(), placement.getXPos(),
+				                       placement.getYPos(), score);
+			}
+		}
+
+		//**********************************************************************************************
+		private int[] selectBest(Placement placements[], int count, int width)
+		{
+			// will hold the indices of the Placements, the best ones first
+			int retVal[] = new int[count];
+			for (int i = 0; i < count; i++)
+			{
+				retVal[i] = i;
+			}
+
+			//************************************************************************************//
+			// NOTE: Only the first width indices are needed, so they're selected one at a time   //
+			//       rather than sorting them all. A tie goes to the Placement found first.       //
+			//************************************************************************************//
+			for (int i = 0; i < width; i++)
+			{
+				// find the best Placement among the ones left
+				int best = i;
+				for (int j = i + 1; j < count; j++)
+				{
+					double score     = placements[retVal[j]].getScore();
+					double bestScore = placements[retVal[best]].getScore();
+					if (score > bestScore || (score == bestScore && retVal[j] < retVal[best]))
+					{
+						best = j;
+					}
+				}
+
+				// move it into place
+				int index    = retVal[i];
+				retVal[i]    = retVal[best];
+				retVal[best] = index;
+			}
+
+			return retVal;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+// Author:   Jose Santos
+// FileName: Randomizer.java
+
+import java.util.SplittableRandom;
+
+//******************************************************************************************************
+/** This is a Randomizer interface that allows for different strategies of choosing the kind of the
+  * next Shape. Note that a Randomizer never creates its own source of random numbers. It is always
+  * handed the SplittableRandom of the game it belongs to, so that a whole game can be reproduced from
+  * its seed, and so that games running in parallel never share a generator.
+  */
+//******************************************************************************************************
+public interface Randomizer
+{
+	//**************************************************************************************************
+	/** Returns the name of this Randomizer (as passed to ShapeGenerator.createRandomizer()).
+	  * @return the name of this Randomizer
+	  */
+	//**************************************************************************************************
+	public String getName();
+
+	//**************************************************************************************************
+	/** Returns the kind of the next Shape (one of the kinds found in the ShapeTable).
+	  * @param random the source of random numbers of the game
+	  * @return the kind of the next Shape
+	  */
+	//**************************************************************************************************
+	public int nextShape(SplittableRandom random);
+
+	//**************************************************************************************************
+	/** Resets this Randomizer so that it behaves as it did at the start of a game.
+	  */
+	//**************************************************************************************************
+	public void reset();
+}
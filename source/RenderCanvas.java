@@ -0,0 +1,123 @@
+// Author:   Jose Santos
+// FileName: RenderCanvas.java
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+//******************************************************************************************************
+/** This class creates a RenderCanvas object which paints the cells of a BoardModel by active rendering,
+  * in place of a BoardCanvas. Rather than waiting for Swing to repaint it, the RenderCanvas is rendered
+  * by a RenderLoop on a thread of its own: each frame is drawn into the back buffer of a BufferStrategy
+  * (which flips pages when the video card can) and then shown. Each frame draws the last BoardSnapshot
+  * published to the BoardCanvas that the RenderCanvas takes the place of (see BoardCanvas.publish()),
+  * so no lock is ever held while rendering, and the game never waits for a frame.
+  */
+//******************************************************************************************************
+@SuppressWarnings("serial")
+public class RenderCanvas extends Canvas
+{
+	// the number of buffers of the BufferStrategy (one on the screen and one to render into)
+	public static final int NUM_OF_BUFFERS = 2;
+
+	// data members
+	private BoardCanvas    m_canvas;
+	private Rectangle      m_clip;
+	private SnapshotBuffer m_snapshots;
+	private TileCache      m_tiles;
+
+	//**************************************************************************************************
+	/** Creates a RenderCanvas object that renders the BoardModel followed by the passed in BoardCanvas,
+	  * at the same preferred size.
+	  * @param canvas the BoardCanvas whose BoardModel is rendered
+	  */
+	//**************************************************************************************************
+	public RenderCanvas(BoardCanvas canvas)
+	{
+		// store the BoardCanvas
+		m_canvas = canvas;
+
+		// the BoardSnapshots are acquired from the SnapshotBuffer of the BoardCanvas (which no longer
+		// acquires them itself)
+		m_snapshots = canvas.getSnapshots();
+		m_tiles     = TileCache.getInstance();
+		m_clip      = new Rectangle();
+
+		// the whole RenderCanvas is drawn on every frame, so AWT never has to clear it first
+		setIgnoreRepaint(true);
+
+		// take up the room of the BoardCanvas
+		setPreferredSize(canvas.getPreferredSize());
+	}
+
+	//**************************************************************************************************
+	/** Creates the BufferStrategy of this RenderCanvas once it's been put on the screen.
+	  */
+	//**************************************************************************************************
+	public void addNotify()
+	{
+		super.addNotify();
+
+		// the buffers can only be created once the RenderCanvas is displayable
+		createBufferStrategy(NUM_OF_BUFFERS);
+	}
+
+	//**************************************************************************************************
+	/** Renders a frame into the back buffer and shows it. Nothing is done until the RenderCanvas is on
+	  * the screen. Note that this is called on the thread of the RenderLoop.
+	  * @return true if a frame was shown (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean render()
+	{
+		// get the size of the RenderCanvas
+		int width  = getWidth();
+		int height = getHeight();
+
+		// nothing is rendered before the RenderCanvas is on the screen (or once it's taken off of it),
+		// or before the BoardCanvas is displayed
+		BufferStrategy strategy = getBufferStrategy();
+		if (strategy == null || !isDisplayable() || !m_canvas.isDisplayed() || width <= 0 ||
+		    height <= 0)
+		{
+			return false;
+		}
+
+		// acquire the last BoardSnapshot (without a lock, or waiting for the game)
+		BoardSnapshot snapshot = m_snapshots.acquire();
+		m_clip.setBounds(0, 0, width, height);
+
+		try
+		{
+			do
+			{
+				do
+				{
+					// render the snapshot into the back buffer
+					Graphics g = strategy.getDrawGraphics();
+					try
+					{
+						snapshot.paint(g, m_clip, width, height, m_tiles);
+					}
+					finally
+					{
+						g.dispose();
+					}
+				}
+				// render it again if the back buffer was lost and restored while it was rendered
+				while (strategy.contentsRestored());
+
+				// flip the back buffer onto the screen
+				strategy.show();
+			}
+			// render it all over again if the back buffer was lost before it was shown
+			while (strategy.contentsLost());
+		}
+		catch (IllegalStateException e)
+		{
+			// the buffers were taken away while the RenderCanvas was being taken off the screen
+			return false;
+		}
+
+		return true;
+	}
+}
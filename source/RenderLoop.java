@@ -0,0 +1,291 @@
+// Author:   Jose Santos
+// FileName: RenderLoop.java
+
+import java.awt.Toolkit;
+import java.util.concurrent.locks.LockSupport;
+
+//******************************************************************************************************
+/** This class creates a RenderLoop object which renders any number of RenderCanvases on a single thread
+  * of its own, at a steady number of frames per second. Each frame renders every RenderCanvas that was
+  * added, and then syncs the display (see Toolkit.sync()), so the frame reaches the screen right away
+  * rather than whenever the windowing system gets to it. The frames are paced by System.nanoTime(): the
+  * RenderLoop sleeps until shortly before the next frame is due and then spins for the rest, so the
+  * frames are evenly spaced however coarse the sleeps of the system are. When a frame takes longer than
+  * its share, the frames it ran into are dropped rather than rendered back to back.
+  *
+  * Note that the RenderLoop never waits for the event dispatch thread, nor holds the lock of a game
+  * (the BoardSnapshots are handed over by a SnapshotBuffer). When the GameMetrics are enabled, the
+  * rendering of every frame and the time from one frame to the next are timed (see GameMetrics.RENDER
+  * and GameMetrics.FRAME).
+  */
+//******************************************************************************************************
+public class RenderLoop implements Runnable
+{
+	// the default number of frames per second
+	public static final int DEFAULT_FPS = 60;
+
+	// the time (in nanoseconds) before a frame is due that the RenderLoop stops sleeping and spins
+	private static final long SPIN_NANOS = 1000000;
+
+	// data members
+	private volatile RenderCanvas m_canvases[];
+	private final long            m_frameNanos;
+	private volatile long         m_frames;
+	private GameMetrics           m_metrics;
+	private volatile boolean      m_running;
+	private Thread                m_thread;
+
+	//**************************************************************************************************
+	/** Creates a RenderLoop object that renders DEFAULT_FPS frames per second.
+	  */
+	//**************************************************************************************************
+	public RenderLoop()
+	{
+		this(DEFAULT_FPS);
+	}
+
+	//**************************************************************************************************
+	/** Creates a RenderLoop object that renders the indicated number of frames per second. Note that
+	  * the RenderLoop only starts rendering once it's started.
+	  * @param fps the number of frames per second
+	  * @throws IllegalArgumentException if the number of frames per second isn't positive
+	  */
+	//**************************************************************************************************
+	public RenderLoop(int fps)
+	{
+		// a RenderLoop renders at least one frame per second
+		if (fps <= 0)
+		{
+			throw new IllegalArgumentException("The number of frames per second must be positive");
+		}
+
+		// store the length of a frame
+		m_frameNanos = 1000000000L / fps;
+
+		// no RenderCanvas is added yet
+		m_canvases = new RenderCanvas[0];
+
+		// the frames are timed when the GameMetrics are enabled
+		m_metrics = GameMetrics.getInstance();
+	}
+
+	//**************************************************************************************************
+	/** Adds the passed in RenderCanvas to the ones rendered by this RenderLoop. Note that nothing is
+	  * done if it's already added.
+	  * @param canvas the RenderCanvas to render
+	  */
+	//**************************************************************************************************
+	public synchronized void add(RenderCanvas canvas)
+	{
+		// a RenderCanvas is only rendered once per frame
+		for (int i = 0; i < m_canvases.length; i++)
+		{
+			if (m_canvases[i] == canvas)
+			{
+				return;
+			}
+		}
+
+		// copy the RenderCanvases along with the new one (the RenderLoop thread keeps the old copy)
+		RenderCanvas canvases[] = new RenderCanvas[m_canvases.length + 1];
+		System.arraycopy(m_canvases, 0, canvases, 0, m_canvases.length);
+		canvases[m_canvases.length] = canvas;
+		m_canvases = canvases;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of frames that were shown since this RenderLoop was created.
+	  * @return the number of frames shown
+	  */
+	//**************************************************************************************************
+	public long getFrames()
+	{
+		// get the number of frames
+		return m_frames;
+	}
+
+	//**************************************************************************************************
+	/** Returns the length of a frame of this RenderLoop.
+	  * @return the length of a frame (in nanoseconds)
+	  */
+	//**************************************************************************************************
+	public long getFrameNanos()
+	{
+		// get the length of a frame
+		return m_frameNanos;
+	}
+
+	//**************************************************************************************************
+	/** Returns true if this RenderLoop is running.
+	  * @return true if this RenderLoop is running (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean isRunning()
+	{
+		// get whether or not the RenderLoop is running
+		return m_running;
+	}
+
+	//**************************************************************************************************
+	/** Takes the passed in RenderCanvas out of the ones rendered by this RenderLoop. Note that it may
+	  * still be rendered by the frame that is being rendered.
+	  * @param canvas the RenderCanvas to stop rendering
+	  */
+	//**************************************************************************************************
+	public synchronized void remove(RenderCanvas canvas)
+	{
+		for (int i = 0; i < m_canvases.length; i++)
+		{
+			if (m_canvases[i] == canvas)
+			{
+				// copy the RenderCanvases without the one being taken out
+				RenderCanvas canvases[] = new RenderCanvas[m_canvases.length - 1];
+				System.arraycopy(m_canvases, 0, canvases, 0, i);
+				System.arraycopy(m_canvases, i + 1, canvases, i, canvases.length - i);
+				m_canvases = canvases;
+				break;
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private boolean renderAll()
+	{
+		// will hold whether or not any RenderCanvas was shown
+		boolean retVal = false;
+
+		// get the RenderCanvases (this copy doesn't change while they're rendered)
+		RenderCanvas canvases[] = m_canvases;
+		for (int i = 0; i < canvases.length; i++)
+		{
+			// render the next RenderCanvas
+			retVal = canvases[i].render() || retVal;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Renders the frames until this RenderLoop is stopped. Note that this is run on the thread of the
+	  * RenderLoop.
+	  */
+	//**************************************************************************************************
+	public void run()
+	{
+		// the time the next frame is due
+		long due = System.nanoTime();
+
+		// the time the last frame started (0 until a frame has been rendered)
+		long previous = 0;
+
+		while (m_running)
+		{
+			// time the frame since the last one
+			long now = System.nanoTime();
+			if (previous != 0 && m_metrics.isEnabled())
+			{
+				m_metrics.getHistogram(GameMetrics.FRAME).record(now - previous);
+			}
+			previous = now;
+
+			// render every RenderCanvas
+			long start = m_metrics.start();
+			if (renderAll())
+			{
+				// have the frame reach the screen now (a key press drawn by it is now on the screen)
+				Toolkit.getDefaultToolkit().sync();
+				m_metrics.framePainted();
+				m_frames++;
+			}
+			m_metrics.stop(GameMetrics.RENDER, start);
+
+			// the next frame is due one frame later, unless the frames in between were run into
+			due += m_frameNanos;
+			long late = System.nanoTime() - due;
+			if (late >= 0)
+			{
+				for (long i = late / m_frameNanos; i >= 0; i--)
+				{
+					m_metrics.frameDropped();
+				}
+				due += (late / m_frameNanos + 1) * m_frameNanos;
+			}
+
+			// wait for the next frame to be due
+			waitUntil(due);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Starts this RenderLoop on a thread of its own. Note that nothing is done if it's already
+	  * running.
+	  */
+	//**************************************************************************************************
+	public synchronized void start()
+	{
+		if (!m_running)
+		{
+			// the RenderLoop is running from now on
+			m_running = true;
+
+			// the thread doesn't keep the application alive on its own
+			m_thread = new Thread(this, "Tetris render loop");
+			m_thread.setDaemon(true);
+			m_thread.start();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Stops this RenderLoop. Note that the RenderCanvases stay added, so they're rendered again once
+	  * the RenderLoop is started again. When this is called from another thread, it waits for the frame
+	  * that is being rendered (if any) to finish.
+	  */
+	//**************************************************************************************************
+	public synchronized void stop()
+	{
+		// no more frames are rendered
+		m_running = false;
+
+		// wait for the thread to finish (unless this is the thread itself)
+		if (m_thread != null && m_thread != Thread.currentThread())
+		{
+			// wake the thread up if it's waiting for the next frame
+			LockSupport.unpark(m_thread);
+
+			try
+			{
+				m_thread.join();
+			}
+			catch (InterruptedException e)
+			{
+				// keep the interrupt for the caller
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// the thread is gone
+		m_thread = null;
+	}
+
+	//**************************************************************************************************
+	private void waitUntil(long due)
+	{
+		//****************************************************************************************//
+		// NOTE: A sleep can overshoot by a millisecond or more, so the RenderLoop only sleeps    //
+		//       until SPIN_NANOS before the frame is due, and spins for the rest of the time.    //
+		//****************************************************************************************//
+		long remaining = due - System.nanoTime();
+		while (m_running && remaining > 0)
+		{
+			if (remaining > SPIN_NANOS)
+			{
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+			}
+			else
+			{
+				Thread.onSpinWait();
+			}
+			remaining = due - System.nanoTime();
+		}
+	}
+}
@@ -0,0 +1,559 @@
+// Author:   Jose Santos
+// FileName: Replay.java
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+//******************************************************************************************************
+/** This class creates a Replay object which holds a recorded game: what it takes to start the game
+  * again (the seed, the size of the board and the Randomizer) along with every event that was applied,
+  * the tick it was applied in, and the keyframes that let a player jump into the game. A replay file
+  * is laid out as:
+  *
+  *   header   "TRPL", the version (a byte), the seed (8 bytes), the rows, the columns and the name of
+  *            the Randomizer (its length followed by its UTF-8 bytes)
+  *   records  the ticks since the last record followed by:
+  *              - the event plus FIRST_EVENT, for an event
+  *              - KEYFRAME, the length of the state and the state (see GameEngine.writeState()), for
+  *                a keyframe. The state is that of the game right before the events of its tick
+  *              - END, once the game is over
+  *   index    the number of keyframes, then the tick and the file position of each keyframe (both
+  *            as the difference from the keyframe before)
+  *   trailer  the file position of the index (8 bytes) followed by "TIDX"
+  *
+  * Every number but the seed and the file position of the index is a varint (see Varint). The ticks
+  * are stored as the difference from the last record, so nearly every event takes two bytes. Note
+  * that a file whose end is missing (because the game never finished) is read up to its last whole
+  * record, and its keyframes are found along the way. Version 1 files have neither keyframes nor an
+  * index, and store their events one higher than END.
+  */
+//******************************************************************************************************
+public class Replay
+{
+	// the first bytes of a replay file, and the version of the layout that follows them
+	public static final byte MAGIC[] = {'T', 'R', 'P', 'L'};
+	public static final int  VERSION = 2;
+
+	// the values that mark the kind of a record
+	public static final int END         = 0;
+	public static final int KEYFRAME    = 1;
+	public static final int FIRST_EVENT = 2;
+
+	// the last bytes of a replay file that has an index, and the size of the trailer they end
+	public static final byte INDEX_MAGIC[] = {'T', 'I', 'D', 'X'};
+	public static final int  TRAILER_SIZE  = 8 + INDEX_MAGIC.length;
+
+	// data members
+	private int        m_cols;
+	private boolean    m_complete;
+	private ByteBuffer m_data;
+	private long       m_endTick;
+	private int        m_events[];
+	private long       m_firstTick;
+	private long       m_keyframeOffsets[];
+	private long       m_keyframeTicks[];
+	private int        m_numOfEvents;
+	private int        m_numOfKeyframes;
+	private String     m_randomizer;
+	private int        m_rows;
+	private long       m_seed;
+	private long       m_ticks[];
+
+	//**************************************************************************************************
+	/** Creates a Replay object holding no events yet.
+	  * @param seed the seed the game was started from
+	  * @param rows the number of rows of the game board
+	  * @param cols the number of columns of the game board
+	  * @param randomizer the name of the Randomizer that picked the Shapes
+	  */
+	//**************************************************************************************************
+	public Replay(long seed, int rows, int cols, String randomizer)
+	{
+		// store what it takes to start the game again
+		m_seed       = seed;
+		m_rows       = rows;
+		m_cols       = cols;
+		m_randomizer = randomizer;
+
+		// no events or keyframes yet
+		m_ticks           = new long[256];
+		m_events          = new int[256];
+		m_keyframeTicks   = new long[16];
+		m_keyframeOffsets = new long[16];
+	}
+
+	//**************************************************************************************************
+	/** Adds an event to the end of this Replay.
+	  * @param tick the tick the event was applied in (no earlier than the last event)
+	  * @param event the event
+	  */
+	//**************************************************************************************************
+	public void addEvent(long tick, int event)
+	{
+		// make room for the event
+		if (m_numOfEvents == m_events.length)
+		{
+			m_ticks  = Arrays.copyOf(m_ticks, m_numOfEvents * 2);
+			m_events = Arrays.copyOf(m_events, m_numOfEvents * 2);
+		}
+
+		// add the event
+		m_ticks[m_numOfEvents]  = tick;
+		m_events[m_numOfEvents] = event;
+		m_numOfEvents++;
+
+		// the game lasts at least until the event
+		m_endTick = Math.max(m_endTick, tick);
+	}
+
+	//**************************************************************************************************
+	private void addKeyframe(long tick, long offset)
+	{
+		// make room for the keyframe
+		if (m_numOfKeyframes == m_keyframeTicks.length)
+		{
+			m_keyframeTicks   = Arrays.copyOf(m_keyframeTicks, m_numOfKeyframes * 2);
+			m_keyframeOffsets = Arrays.copyOf(m_keyframeOffsets, m_numOfKeyframes * 2);
+		}
+
+		// add the keyframe
+		m_keyframeTicks[m_numOfKeyframes]   = tick;
+		m_keyframeOffsets[m_numOfKeyframes] = offset;
+		m_numOfKeyframes++;
+	}
+
+	//**************************************************************************************************
+	/** Returns the index of the first event applied in or after the indicated tick.
+	  * @param tick the tick
+	  * @return the index of the event (getNumOfEvents() if there is none)
+	  */
+	//**************************************************************************************************
+	public int findEvent(long tick)
+	{
+		// search the sorted ticks for the first one that isn't before the tick
+		int low  = 0;
+		int high = m_numOfEvents;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (m_ticks[middle] < tick)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	//**************************************************************************************************
+	/** Returns the index of the last keyframe taken in or before the indicated tick.
+	  * @param tick the tick
+	  * @return the index of the keyframe (-1 if there is none)
+	  */
+	//**************************************************************************************************
+	public int findKeyframe(long tick)
+	{
+		// search the sorted ticks for the first one after the tick, and take the one before it
+		int low  = 0;
+		int high = m_numOfKeyframes;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (m_keyframeTicks[middle] <= tick)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		return low - 1;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of columns of the game board.
+	  * @return the number of columns
+	  */
+	//**************************************************************************************************
+	public int getCols()
+	{
+		// get the number of columns
+		return m_cols;
+	}
+
+	//**************************************************************************************************
+	/** Returns the tick the recording ended in. For a complete Replay, this is the tick of the end of
+	  * the game. Otherwise, it's the tick of the last event.
+	  * @return the last tick of the Replay
+	  */
+	//**************************************************************************************************
+	public long getEndTick()
+	{
+		// get the last tick
+		return m_endTick;
+	}
+
+	//**************************************************************************************************
+	/** Returns the first tick whose events this Replay holds. That is 0, unless the Replay was read
+	  * from a later tick (see read()), in which case it's the tick of the keyframe it was read from.
+	  * @return the first tick of the events
+	  */
+	//**************************************************************************************************
+	public long getFirstTick()
+	{
+		// get the first tick of the events
+		return m_firstTick;
+	}
+
+	//**************************************************************************************************
+	/** Returns the indicated event.
+	  * @param i the index of the event
+	  * @return the event
+	  */
+	//**************************************************************************************************
+	public int getEvent(int i)
+	{
+		// get the event
+		return m_events[i];
+	}
+
+	//**************************************************************************************************
+	/** Returns the state of the game at the indicated keyframe, to be read by GameEngine.readState().
+	  * @param i the index of the keyframe
+	  * @return a ByteBuffer holding just the state
+	  * @throws IllegalStateException if the keyframe doesn't hold a state
+	  */
+	//**************************************************************************************************
+	public ByteBuffer getKeyframe(int i)
+	{
+		// will hold the state of the keyframe
+		ByteBuffer retVal = m_data.duplicate();
+
+		try
+		{
+			// go to the record of the keyframe (an index may point anywhere)
+			retVal.position((int)m_keyframeOffsets[i]);
+
+			// skip the ticks, and make sure it really is a keyframe
+			Varint.read(retVal);
+			if (Varint.read(retVal) != KEYFRAME)
+			{
+				throw new IllegalStateException("Keyframe " + i + " is not in the file");
+			}
+
+			// the state is all that's left
+			int length = (int)Varint.read(retVal);
+			retVal.limit(retVal.position() + length);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException e)
+		{
+			throw new IllegalStateException("Keyframe " + i + " is cut short", e);
+		}
+
+		return retVal.slice();
+	}
+
+	//**************************************************************************************************
+	/** Returns the tick of the indicated keyframe.
+	  * @param i the index of the keyframe
+	  * @return the tick of the keyframe
+	  */
+	//**************************************************************************************************
+	public long getKeyframeTick(int i)
+	{
+		// get the tick of the keyframe
+		return m_keyframeTicks[i];
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of events in this Replay.
+	  * @return the number of events
+	  */
+	//**************************************************************************************************
+	public int getNumOfEvents()
+	{
+		// get the number of events
+		return m_numOfEvents;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of keyframes in this Replay.
+	  * @return the number of keyframes
+	  */
+	//**************************************************************************************************
+	public int getNumOfKeyframes()
+	{
+		// get the number of keyframes
+		return m_numOfKeyframes;
+	}
+
+	//**************************************************************************************************
+	/** Returns the name of the Randomizer that picked the Shapes.
+	  * @return the name of the Randomizer
+	  */
+	//**************************************************************************************************
+	public String getRandomizer()
+	{
+		// get the name of the Randomizer
+		return m_randomizer;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of rows of the game board.
+	  * @return the number of rows
+	  */
+	//**************************************************************************************************
+	public int getRows()
+	{
+		// get the number of rows
+		return m_rows;
+	}
+
+	//**************************************************************************************************
+	/** Returns the seed the game was started from.
+	  * @return the seed of the game
+	  */
+	//**************************************************************************************************
+	public long getSeed()
+	{
+		// get the seed
+		return m_seed;
+	}
+
+	//**************************************************************************************************
+	/** Returns the tick the indicated event was applied in.
+	  * @param i the index of the event
+	  * @return the tick of the event
+	  */
+	//**************************************************************************************************
+	public long getTick(int i)
+	{
+		// get the tick of the event
+		return m_ticks[i];
+	}
+
+	//**************************************************************************************************
+	/** Returns true if the recording reached the end of the game.
+	  * @return true if the Replay is complete
+	  */
+	//**************************************************************************************************
+	public boolean isComplete()
+	{
+		// get whether or not the end was recorded
+		return m_complete;
+	}
+
+	//**************************************************************************************************
+	/** Reads the replay file at the indicated path, along with all of its events.
+	  * @param file the path of the replay file
+	  * @return the Replay held by the file
+	  * @throws IOException if the file can't be read or isn't a replay file
+	  */
+	//**************************************************************************************************
+	public static Replay read(Path file) throws IOException
+	{
+		// read every event
+		return read(file, 0);
+	}
+
+	//**************************************************************************************************
+	/** Reads the replay file at the indicated path, only decoding the events from the last keyframe in
+	  * or before the indicated tick on when the file has an index (see getFirstTick()). The keyframes
+	  * and the end of the game are read either way, so the Replay can be played from that keyframe to
+	  * its end. Note that a file without an index is read from its start.
+	  * @param file the path of the replay file
+	  * @param fromTick the tick the Replay is going to be played from
+	  * @return the Replay held by the file
+	  * @throws IOException if the file can't be read or isn't a replay file
+	  */
+	//**************************************************************************************************
+	public static Replay read(Path file, long fromTick) throws IOException
+	{
+		// read the whole file (a replay takes a few bytes a second of play, and its keyframes are kept)
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer();
+
+		// will hold the Replay
+		Replay retVal = null;
+
+		// the version of the file
+		int version = 0;
+
+		try
+		{
+			// check the header
+			byte magic[] = new byte[MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(magic, MAGIC))
+			{
+				throw new IOException(file + " is not a replay file");
+			}
+			version = buffer.get();
+			if (version < 1 || version > VERSION)
+			{
+				throw new IOException(file + " has an unknown version: " + version);
+			}
+
+			// read what it takes to start the game again
+			long seed     = buffer.getLong();
+			int  rows     = (int)Varint.read(buffer);
+			int  cols     = (int)Varint.read(buffer);
+			byte name[]   = new byte[(int)Varint.read(buffer)];
+			buffer.get(name);
+			retVal        = new Replay(seed, rows, cols, new String(name, StandardCharsets.UTF_8));
+			retVal.m_data = buffer.duplicate().clear();
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException(file + " has no header", e);
+		}
+
+		// the keyframes are found along the way unless they're in the index
+		boolean indexed = (version > 1) && retVal.readIndex();
+
+		// the events of version 1 are stored right above END
+		int firstEvent = (version > 1) ? FIRST_EVENT : END + 1;
+
+		// the records are read from the keyframe of the tick when they can be, or from the start
+		long tick = 0;
+		if (indexed)
+		{
+			tick = retVal.skipToKeyframe(buffer, fromTick);
+		}
+
+		// read the records (a record cut short ends them)
+		try
+		{
+			while (buffer.hasRemaining() && !retVal.m_complete)
+			{
+				// read the record
+				int offset = buffer.position();
+				tick      += Varint.read(buffer);
+				int value  = (int)Varint.read(buffer);
+
+				if (value == END)
+				{
+					// the end of the game
+					retVal.m_endTick  = tick;
+					retVal.m_complete = true;
+				}
+				else if (value < firstEvent)
+				{
+					// a keyframe (whose state is skipped until it's asked for)
+					int length = (int)Varint.read(buffer);
+					if (length > buffer.remaining())
+					{
+						throw new BufferUnderflowException();
+					}
+					buffer.position(buffer.position() + length);
+					if (!indexed)
+					{
+						retVal.addKeyframe(tick, offset);
+					}
+				}
+				else
+				{
+					// an event
+					retVal.addEvent(tick, value - firstEvent);
+				}
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			// the recording was cut short, so it ends at its last whole record
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private boolean readIndex()
+	{
+		// will hold whether or not the index was read
+		boolean retVal = false;
+
+		// the trailer (if any) is at the end of the file
+		ByteBuffer buffer = m_data.duplicate();
+		int        limit  = buffer.limit();
+		if (limit >= TRAILER_SIZE)
+		{
+			// read the trailer
+			byte magic[]     = new byte[INDEX_MAGIC.length];
+			long indexOffset = buffer.getLong(limit - TRAILER_SIZE);
+			buffer.position(limit - INDEX_MAGIC.length);
+			buffer.get(magic);
+
+			if (Arrays.equals(magic, INDEX_MAGIC) && indexOffset >= 0 &&
+			    indexOffset < limit - TRAILER_SIZE)
+			{
+				try
+				{
+					// read the ticks and positions of the keyframes
+					buffer.position((int)indexOffset);
+					buffer.limit(limit - TRAILER_SIZE);
+					int  numOfKeyframes = (int)Varint.read(buffer);
+					long tick           = 0;
+					long offset         = 0;
+					for (int i = 0; i < numOfKeyframes; i++)
+					{
+						tick   += Varint.read(buffer);
+						offset += Varint.read(buffer);
+						addKeyframe(tick, offset);
+					}
+
+					// the index is whole
+					retVal = true;
+				}
+				catch (BufferUnderflowException e)
+				{
+					// the index is broken, so the keyframes are found along the way instead
+					m_numOfKeyframes = 0;
+				}
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private long skipToKeyframe(ByteBuffer buffer, long fromTick)
+	{
+		// will hold the tick of the record before the keyframe (0 when the records are read from the
+		// start)
+		long retVal = 0;
+
+		// only a keyframe among the records can be jumped to
+		int keyframe = findKeyframe(fromTick);
+		if (keyframe >= 0 && m_keyframeOffsets[keyframe] >= buffer.position())
+		{
+			// the records start where they are unless the keyframe can be jumped to
+			int start = buffer.position();
+
+			try
+			{
+				// the tick of the keyframe is the ticks of its record past the record before it
+				buffer.position((int)m_keyframeOffsets[keyframe]);
+				retVal      = m_keyframeTicks[keyframe] - Varint.read(buffer.duplicate());
+				m_firstTick = m_keyframeTicks[keyframe];
+			}
+			catch (BufferUnderflowException | IllegalArgumentException e)
+			{
+				// the index points nowhere, so every record is read
+				buffer.position(start);
+				retVal = 0;
+			}
+		}
+
+		return retVal;
+	}
+}
@@ -0,0 +1,266 @@
+// Author:   Jose Santos
+// FileName: ReplayPlayer.java
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//******************************************************************************************************
+/** This class creates a ReplayPlayer object which plays a recorded game again on a GameEngine of its
+  * own. The game is started from the seed of the Replay, and every event is offered to the InputQueue
+  * of the GameEngine right before the tick it was applied in, so the GameEngine goes through exactly
+  * the same states as it did while the game was recorded. Note that nothing in here touches Swing, so a
+  * Replay can be fast-forwarded without a window:
+  *
+  *   java -jar tetris.jar --replay game.replay
+  *
+  * which plays the whole game as fast as it can be ticked and prints how it turned out. A player can
+  * also jump to any tick of the game (see seek()), which only has to play the game from the last
+  * keyframe before that tick.
+  */
+//******************************************************************************************************
+public class ReplayPlayer
+{
+	// data members
+	private GameEngine m_engine;
+	private boolean    m_gameOver;
+	private int        m_nextEvent;
+	private Replay     m_replay;
+
+	//**************************************************************************************************
+	/** Creates a ReplayPlayer object that plays the passed in Replay from its start (or from the
+	  * keyframe it was read from, see Replay.getFirstTick()).
+	  * @param replay the Replay to play
+	  * @throws IllegalArgumentException if the Randomizer of the Replay is unknown
+	  */
+	//**************************************************************************************************
+	public ReplayPlayer(Replay replay)
+	{
+		// store the Replay
+		m_replay = replay;
+
+		// create the GameEngine the way the recorded one was set up, and start the game
+		Randomizer randomizer = ShapeGenerator.createRandomizer(replay.getRandomizer());
+		m_engine = new GameEngine(replay.getRows(), replay.getCols(),
+		                          new ShapeGenerator(randomizer, replay.getSeed()));
+		m_engine.startGame(replay.getSeed());
+
+		// a Replay that was read from a keyframe is played from there
+		if (replay.getFirstTick() > 0)
+		{
+			seek(replay.getFirstTick());
+		}
+	}
+
+	//**************************************************************************************************
+	/** Plays the rest of the Replay as fast as it can be ticked.
+	  * @return TICK_GAME_OVER if the game ended, or the result of the last tick otherwise
+	  */
+	//**************************************************************************************************
+	public int fastForward()
+	{
+		// holds the result of the last tick
+		int retVal = m_gameOver ? GameEngine.TICK_GAME_OVER : GameEngine.TICK_MOVED;
+
+		// tick until the end of the Replay
+		while (!isFinished())
+		{
+			retVal = step();
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the GameEngine that the Replay is played on.
+	  * @return the GameEngine of the Replay
+	  */
+	//**************************************************************************************************
+	public GameEngine getEngine()
+	{
+		// get the GameEngine
+		return m_engine;
+	}
+
+	//**************************************************************************************************
+	/** Returns the Replay that is played.
+	  * @return the Replay
+	  */
+	//**************************************************************************************************
+	public Replay getReplay()
+	{
+		// get the Replay
+		return m_replay;
+	}
+
+	//**************************************************************************************************
+	/** Returns true once the whole Replay has been played (or its game is over). Note that a tick has
+	  * to end the game for it to be over, since GameEngine.gameOver() is also true for a Shape that has
+	  * only just appeared on top of the others and has yet to land.
+	  * @return true if there is nothing more to play
+	  */
+	//**************************************************************************************************
+	public boolean isFinished()
+	{
+		// the Replay ends at its last tick, unless the game ends first
+		return m_gameOver || m_engine.getTicks() >= m_replay.getEndTick();
+	}
+
+	//**************************************************************************************************
+	/** Returns true if a tick of the Replay has ended the game.
+	  * @return true if the game is over
+	  */
+	//**************************************************************************************************
+	public boolean isGameOver()
+	{
+		// get whether or not the game is over
+		return m_gameOver;
+	}
+
+	//**************************************************************************************************
+	/** Plays the Replay file named by the option after --replay, as fast as it can be ticked, and
+	  * prints how the game turned out along with how much faster than real time it was played. When
+	  * --seek TICK is among the options, the game is only played up to that tick (jumping in from the
+	  * last keyframe before it).
+	  * @param args the options
+	  */
+	//**************************************************************************************************
+	public static void main(String args[])
+	{
+		// nothing in a Replay needs a display
+		System.setProperty("java.awt.headless", "true");
+
+		// find the replay file and the tick to jump to (if any)
+		Path file = null;
+		long seek = -1;
+		try
+		{
+			for (int i = 0; i < args.length - 1; i++)
+			{
+				if (args[i].equals("--replay"))
+				{
+					file = Paths.get(args[i + 1]);
+				}
+				else if (args[i].equals("--seek"))
+				{
+					seek = Long.parseLong(args[i + 1]);
+				}
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			file = null;
+		}
+		if (file == null)
+		{
+			System.err.println("Usage: java -jar tetris.jar --replay FILE [--seek TICK]");
+			System.exit(1);
+		}
+
+		try
+		{
+			// read the Replay (only decoding the events from the keyframe of the tick to jump to)
+			Replay replay = Replay.read(file, Math.max(0, seek));
+
+			// play it as fast as it can be ticked (or jump to the tick)
+			ReplayPlayer player = new ReplayPlayer(replay);
+			long start          = System.nanoTime();
+			if (seek >= 0)
+			{
+				player.seek(seek);
+			}
+			else
+			{
+				player.fastForward();
+			}
+			long elapsed = Math.max(1, System.nanoTime() - start);
+
+			// print how the game turned out, and how fast it was played
+			GameEngine engine = player.getEngine();
+			double seconds    = engine.getTicks() / (double)GameEngine.TICKS_PER_SECOND;
+			System.out.printf("replay     %s (%s, seed %d, %d events, %d keyframes%s)%n", file,
+			                  replay.getRandomizer(), replay.getSeed(), replay.getNumOfEvents(),
+			                  replay.getNumOfKeyframes(), replay.isComplete() ? "" : ", cut short");
+			System.out.printf("game       score %d  lines %d  level %d  %s%n", engine.getScore(),
+			                  engine.getLines(), engine.getLevel(),
+			                  player.isGameOver() ? "game over" : "");
+			System.out.printf("speed      %d ticks (%.1f s of play) in %.1f ms, %.0fx real time%n",
+			                  engine.getTicks(), seconds, elapsed / 1e6, seconds / (elapsed / 1e9));
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			// tell the user what went wrong
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Jumps to the indicated tick of the Replay. That is, the game is put back into the state of the
+	  * last keyframe in or before the tick (or started over when there is none), and then played up to
+	  * the tick. Note that the game is simply played on when it's already past that keyframe, and that
+	  * a tick past the end of the Replay stops at the end.
+	  * @param tick the tick to jump to
+	  * @throws IllegalArgumentException if the Replay holds no events from before the tick (see
+	  *                                  Replay.getFirstTick())
+	  */
+	//**************************************************************************************************
+	public void seek(long tick)
+	{
+		// the events before the first tick of the Replay were never read
+		if (tick < m_replay.getFirstTick())
+		{
+			throw new IllegalArgumentException("The replay was only read from tick " +
+			                                   m_replay.getFirstTick());
+		}
+
+		// find the last keyframe in or before the tick
+		int  keyframe     = m_replay.findKeyframe(tick);
+		long keyframeTick = (keyframe < 0) ? 0 : m_replay.getKeyframeTick(keyframe);
+
+		// going back, or going past a keyframe, starts from the keyframe (or the start of the game)
+		if (tick < m_engine.getTicks() || keyframeTick > m_engine.getTicks())
+		{
+			if (keyframe < 0)
+			{
+				m_engine.startGame(m_replay.getSeed());
+			}
+			else
+			{
+				m_engine.readState(m_replay.getKeyframe(keyframe));
+			}
+
+			// the events are offered from the first one of that tick
+			m_nextEvent = m_replay.findEvent(keyframeTick);
+			m_gameOver  = false;
+		}
+
+		// play the rest of the way
+		while (m_engine.getTicks() < tick && !isFinished())
+		{
+			step();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Plays a single tick of the Replay. That is, the events that were applied in the next tick are
+	  * offered to the InputQueue, and then the tick is run.
+	  * @return the result of the tick (see GameEngine.step())
+	  */
+	//**************************************************************************************************
+	public int step()
+	{
+		// offer the events of this tick (the InputQueue holds more than a tick ever gets)
+		long tick = m_engine.getTicks();
+		while (m_nextEvent < m_replay.getNumOfEvents() && m_replay.getTick(m_nextEvent) <= tick)
+		{
+			m_engine.getInput().offer(m_replay.getEvent(m_nextEvent++));
+		}
+
+		// run the tick (and remember whether or not it ended the game)
+		int retVal = m_engine.step();
+		m_gameOver = m_gameOver || retVal == GameEngine.TICK_GAME_OVER;
+
+		return retVal;
+	}
+}
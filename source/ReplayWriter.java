@@ -0,0 +1,363 @@
+// Author:   Jose Santos
+// FileName: ReplayWriter.java
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+//******************************************************************************************************
+/** This class creates a ReplayWriter object which records a game into a replay file (see Replay) while
+  * it's being played. The events are encoded into a buffer on the thread that ticks the game. A full
+  * buffer is handed over to a thread of its own, which writes it to the file while the game carries on
+  * with another one, so the game never waits on the disk. Note that the buffers are reused, and that
+  * a game only waits for one to be written if the disk falls behind every one of them. Every so many
+  * ticks, the whole state of the game is written as a keyframe, and the ticks and file positions of
+  * the keyframes are written as an index at the end of the file, so a player can jump into the game.
+  */
+//******************************************************************************************************
+public class ReplayWriter implements InputRecorder
+{
+	// the size of each buffer, and the number of buffers
+	public static final int BUFFER_SIZE    = 4096;
+	public static final int NUM_OF_BUFFERS = 4;
+
+	// the default number of ticks between keyframes (10 seconds of play)
+	public static final long DEFAULT_KEYFRAME_INTERVAL = 10 * GameEngine.TICKS_PER_SECOND;
+
+	// the buffer that tells the writing thread to stop
+	private static final ByteBuffer STOP = ByteBuffer.allocate(0);
+
+	// data members
+	private ByteBuffer                m_buffer;
+	private FileChannel               m_channel;
+	private volatile IOException      m_error;
+	private BlockingQueue<ByteBuffer> m_free;
+	private BlockingQueue<ByteBuffer> m_full;
+	private long                      m_keyframeInterval;
+	private long                      m_keyframeOffsets[];
+	private long                      m_keyframeTicks[];
+	private long                      m_lastTick;
+	private long                      m_nextKeyframe;
+	private int                       m_numOfKeyframes;
+	private ByteBuffer                m_state;
+	private Thread                    m_thread;
+	private long                      m_written;
+
+	//**************************************************************************************************
+	/** Creates a ReplayWriter object that records a game into the file at the indicated path. The
+	  * header of the file is written straight away (an existing file is overwritten).
+	  * @param file the path of the replay file
+	  * @param seed the seed the game was started from
+	  * @param rows the number of rows of the game board
+	  * @param cols the number of columns of the game board
+	  * @param randomizer the name of the Randomizer that picks the Shapes
+	  * @throws IOException if the file can't be written
+	  */
+	//**************************************************************************************************
+	public ReplayWriter(Path file, long seed, int rows, int cols, String randomizer) throws IOException
+	{
+		// open the file
+		m_channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+		                             StandardOpenOption.TRUNCATE_EXISTING);
+
+		//****************************************************************************************//
+		// NOTE: Create the buffers (all of them free). The queue of full buffers isn't bounded,  //
+		//       since a buffer of its own may join them when the game thread is interrupted      //
+		//       (see handOver()).                                                                //
+		//****************************************************************************************//
+		m_free = new ArrayBlockingQueue<ByteBuffer>(NUM_OF_BUFFERS);
+		m_full = new LinkedBlockingQueue<ByteBuffer>();
+		for (int i = 0; i < NUM_OF_BUFFERS; i++)
+		{
+			m_free.add(ByteBuffer.allocate(BUFFER_SIZE));
+		}
+
+		// no keyframes yet (the first one is an interval in, since the start is as good as a keyframe)
+		m_keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+		m_nextKeyframe     = m_keyframeInterval;
+		m_keyframeTicks    = new long[16];
+		m_keyframeOffsets  = new long[16];
+
+		// the header is the first thing in the first buffer
+		m_buffer    = m_free.remove();
+		byte name[] = randomizer.getBytes(StandardCharsets.UTF_8);
+		m_buffer.put(Replay.MAGIC);
+		m_buffer.put((byte)Replay.VERSION);
+		m_buffer.putLong(seed);
+		Varint.write(m_buffer, rows);
+		Varint.write(m_buffer, cols);
+		Varint.write(m_buffer, name.length);
+		m_buffer.put(name);
+
+		// start the thread that writes the full buffers
+		m_thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				writeBuffers();
+			}
+		}, "Tetris replay writer");
+		m_thread.setDaemon(true);
+		m_thread.start();
+	}
+
+	//**************************************************************************************************
+	/** Ends the recording at the indicated tick, writes the index of the keyframes, and waits for
+	  * everything to be written to the file before closing it. Note that no event may be recorded after
+	  * this.
+	  * @param endTick the tick the game ended in
+	  * @throws IOException if anything couldn't be written
+	  */
+	//**************************************************************************************************
+	public void close(long endTick) throws IOException
+	{
+		// write the end of the game
+		putRecord(endTick, Replay.END);
+
+		// write the index (the ticks and positions of the keyframes, each from the one before)
+		makeRoom(Varint.MAX_BYTES);
+		long indexOffset = m_written + m_buffer.position();
+		Varint.write(m_buffer, m_numOfKeyframes);
+		for (int i = 0; i < m_numOfKeyframes; i++)
+		{
+			makeRoom(2 * Varint.MAX_BYTES);
+			Varint.write(m_buffer, m_keyframeTicks[i] - ((i > 0) ? m_keyframeTicks[i - 1] : 0));
+			Varint.write(m_buffer, m_keyframeOffsets[i] - ((i > 0) ? m_keyframeOffsets[i - 1] : 0));
+		}
+
+		// the file ends with where the index starts, so it can be found from the end
+		makeRoom(Replay.TRAILER_SIZE);
+		m_buffer.putLong(indexOffset);
+		m_buffer.put(Replay.INDEX_MAGIC);
+
+		// hand over what's left, and then tell the writing thread to stop
+		handOver();
+		m_full.add(STOP);
+
+		// wait for the writing thread to finish (even when interrupted, so nothing is lost)
+		boolean interrupted = false;
+		while (m_thread.isAlive())
+		{
+			try
+			{
+				m_thread.join();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+
+		// keep the interrupt for the caller
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		// close the file
+		m_channel.close();
+
+		// tell the caller about anything that went wrong while writing
+		if (m_error != null)
+		{
+			throw m_error;
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns the first error hit while writing the file.
+	  * @return the error (null if there has been none)
+	  */
+	//**************************************************************************************************
+	public IOException getError()
+	{
+		// get the error
+		return m_error;
+	}
+
+	//**************************************************************************************************
+	private void handOver()
+	{
+		// nothing to hand over in an empty buffer
+		if (m_buffer.position() > 0)
+		{
+			// the writing thread always has room for every buffer (even one of its own)
+			m_written += m_buffer.position();
+			m_full.add(m_buffer);
+
+			try
+			{
+				// carry on with a free buffer (which only means waiting when the disk falls behind)
+				m_buffer = m_free.take();
+			}
+			catch (InterruptedException e)
+			{
+				// keep the interrupt, and carry on with a buffer of its own
+				Thread.currentThread().interrupt();
+				m_buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	/** Records an event (see InputRecorder). Note that this may only be called by the thread that ticks
+	  * the game.
+	  * @param tick the tick the event is applied in
+	  * @param event the event
+	  */
+	//**************************************************************************************************
+	public void inputApplied(long tick, int event)
+	{
+		// the lowest values mark the end and the keyframes, so the events are stored above them
+		putRecord(tick, event + Replay.FIRST_EVENT);
+	}
+
+	//**************************************************************************************************
+	private void makeRoom(int numOfBytes)
+	{
+		// hand the buffer over if the indicated number of bytes may not fit
+		if (m_buffer.remaining() < numOfBytes)
+		{
+			handOver();
+		}
+	}
+
+	//**************************************************************************************************
+	private void putRecord(long tick, int value)
+	{
+		// make room for the record
+		makeRoom(2 * Varint.MAX_BYTES);
+
+		// write the ticks since the last record, and then the value
+		Varint.write(m_buffer, tick - m_lastTick);
+		Varint.write(m_buffer, value);
+		m_lastTick = tick;
+	}
+
+	//**************************************************************************************************
+	/** Sets the number of ticks between keyframes. More keyframes make jumping into the game quicker,
+	  * at the cost of a bigger file.
+	  * @param ticks the number of ticks between keyframes
+	  * @throws IllegalArgumentException if the number of ticks isn't positive
+	  */
+	//**************************************************************************************************
+	public void setKeyframeInterval(long ticks)
+	{
+		// a keyframe on every tick is as close as they can be
+		if (ticks <= 0)
+		{
+			throw new IllegalArgumentException("The keyframe interval must be positive");
+		}
+
+		// store the interval (starting from the last keyframe)
+		m_nextKeyframe     = m_nextKeyframe - m_keyframeInterval + ticks;
+		m_keyframeInterval = ticks;
+	}
+
+	//**************************************************************************************************
+	/** Writes a keyframe once the interval since the last one has passed (see InputRecorder).
+	  * @param engine the GameEngine that is about to run the tick
+	  */
+	//**************************************************************************************************
+	public void tickStarted(GameEngine engine)
+	{
+		if (engine.getTicks() >= m_nextKeyframe)
+		{
+			// write the state of the game
+			writeKeyframe(engine);
+
+			// the next keyframe is an interval away
+			m_nextKeyframe = engine.getTicks() + m_keyframeInterval;
+		}
+	}
+
+	//**************************************************************************************************
+	private void writeKeyframe(GameEngine engine)
+	{
+		// write the state of the game aside first, in order to know its length
+		if (m_state == null || m_state.capacity() < engine.getMaxStateSize())
+		{
+			m_state = ByteBuffer.allocate(engine.getMaxStateSize());
+		}
+		m_state.clear();
+		engine.writeState(m_state);
+		m_state.flip();
+
+		// remember where the keyframe starts
+		if (m_numOfKeyframes == m_keyframeTicks.length)
+		{
+			m_keyframeTicks   = Arrays.copyOf(m_keyframeTicks, m_numOfKeyframes * 2);
+			m_keyframeOffsets = Arrays.copyOf(m_keyframeOffsets, m_numOfKeyframes * 2);
+		}
+		makeRoom(3 * Varint.MAX_BYTES);
+		m_keyframeTicks[m_numOfKeyframes]   = engine.getTicks();
+		m_keyframeOffsets[m_numOfKeyframes] = m_written + m_buffer.position();
+		m_numOfKeyframes++;
+
+		// write the record, followed by the length of the state
+		putRecord(engine.getTicks(), Replay.KEYFRAME);
+		Varint.write(m_buffer, m_state.remaining());
+
+		// copy the state over (across as many buffers as it takes)
+		while (m_state.hasRemaining())
+		{
+			// copy as much as fits
+			int limit = m_state.limit();
+			m_state.limit(m_state.position() + Math.min(m_state.remaining(), m_buffer.remaining()));
+			m_buffer.put(m_state);
+			m_state.limit(limit);
+
+			// carry on in the next buffer
+			if (!m_buffer.hasRemaining())
+			{
+				handOver();
+			}
+		}
+	}
+
+	//**************************************************************************************************
+	private void writeBuffers()
+	{
+		try
+		{
+			// write every full buffer until told to stop
+			ByteBuffer buffer = m_full.take();
+			while (buffer != STOP)
+			{
+				// a buffer is thrown away once anything has gone wrong
+				buffer.flip();
+				try
+				{
+					while (m_error == null && buffer.hasRemaining())
+					{
+						m_channel.write(buffer);
+					}
+				}
+				catch (IOException e)
+				{
+					m_error = e;
+				}
+
+				// the buffer can be used again (unless it's one of its own and every other one is
+				// free already, in which case it's dropped)
+				buffer.clear();
+				m_free.offer(buffer);
+
+				// get the next full buffer
+				buffer = m_full.take();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// nothing more will be written
+			m_error = new IOException("The replay writer was interrupted", e);
+		}
+	}
+}
@@ -0,0 +1,308 @@
+// Author:   Jose Santos
+// FileName: RestartSoak.java
+
+import java.awt.Color;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+//******************************************************************************************************
+/** This class creates a RestartSoak object which restarts the games of two BoardManagers over and over
+  * again, the way they're restarted when the window runs unattended in attract mode, and makes sure
+  * that nothing builds up while it does so. Both games are played by bots, without a window:
+  *
+  *   java -jar tetris.jar --soak --restarts 100000 --heap-slack 8
+  *
+  * The first game is restarted by force (on the event dispatch thread, as a person would), while the
+  * second one is played on a tiny board, so its games keep coming to an end and restarting on their
+  * own. Once the restarts are done, the heap in use and the number of live threads are checked against
+  * the ones measured after a warmup, and the soak fails if either of them grew.
+  */
+//******************************************************************************************************
+public class RestartSoak
+{
+	// the default settings of a soak
+	public static final int DEFAULT_HEAP_SLACK = 8;
+	public static final int DEFAULT_RESTARTS   = 100000;
+
+	// the number of restarts between two reports, and before the baseline is measured
+	private static final int REPORT_INTERVAL = 10000;
+	private static final int WARMUP          = 1000;
+
+	// the longest time (in milliseconds) that the warmup waits for a game to come to an end
+	private static final long WARMUP_TIMEOUT = 60000;
+
+	// the number of bytes in a megabyte
+	private static final long MEGABYTE = 1024 * 1024;
+
+	// data members
+	private int m_heapSlack;
+	private int m_numOfRestarts;
+
+	//**************************************************************************************************
+	/** Creates a RestartSoak object with the default settings. That is, DEFAULT_RESTARTS restarts,
+	  * after which the heap may have grown by at most DEFAULT_HEAP_SLACK megabytes.
+	  */
+	//**************************************************************************************************
+	public RestartSoak()
+	{
+		// set the default settings
+		m_heapSlack     = DEFAULT_HEAP_SLACK;
+		m_numOfRestarts = DEFAULT_RESTARTS;
+	}
+
+	//**************************************************************************************************
+	private static String getArgument(String args[], int i)
+	{
+		// every option but --soak is followed by its value
+		if (i + 1 >= args.length)
+		{
+			throw new IllegalArgumentException("Missing value for " + args[i]);
+		}
+
+		return args[i + 1];
+	}
+
+	//**************************************************************************************************
+	private static long getHeapUsed()
+	{
+		// collect the garbage a few times, so only what is still reachable is left
+		for (int i = 0; i < 3; i++)
+		{
+			System.gc();
+		}
+
+		// get the heap in use
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	//**************************************************************************************************
+	private static int getNumOfThreads()
+	{
+		// get the number of live threads
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		return threads.getThreadCount();
+	}
+
+	//**************************************************************************************************
+	/** Runs a soak as told by the passed in options, and exits with a status of 1 if it failed.
+	  * @param args the options of the soak
+	  */
+	//**************************************************************************************************
+	public static void main(String args[])
+	{
+		// nothing in a soak needs a display
+		System.setProperty("java.awt.headless", "true");
+
+		// create the RestartSoak
+		RestartSoak soak = new RestartSoak();
+
+		try
+		{
+			// read the options
+			soak.parseArgs(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// tell the user what went wrong, and how it's done right
+			System.err.println(e.getMessage());
+			printUsage(System.err);
+			System.exit(1);
+		}
+
+		// run the soak, and tell the caller how it went
+		System.exit(soak.run(System.out) ? 0 : 1);
+	}
+
+	//**************************************************************************************************
+	/** Reads the options of a soak, which are --restarts and --heap-slack (--soak itself is skipped).
+	  * @param args the options
+	  * @throws IllegalArgumentException if an option is unknown or its value is invalid
+	  */
+	//**************************************************************************************************
+	public void parseArgs(String args[])
+	{
+		try
+		{
+			for (int i = 0; i < args.length; i++)
+			{
+				// get the option
+				String option = args[i];
+
+				if (option.equals("--soak"))
+				{
+					// this is what got us here, so there is nothing more to do
+					continue;
+				}
+
+				// get the value of the option
+				String value = getArgument(args, i++);
+
+				if (option.equals("--restarts"))
+				{
+					m_numOfRestarts = Integer.parseInt(value);
+				}
+				else if (option.equals("--heap-slack"))
+				{
+					m_heapSlack = Integer.parseInt(value);
+				}
+				else
+				{
+					throw new IllegalArgumentException("Unknown option: " + option);
+				}
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+		}
+
+		// a soak needs at least one restart
+		if (m_numOfRestarts <= 0 || m_heapSlack < 0)
+		{
+			throw new IllegalArgumentException("The number of restarts must be positive, and the slack "
+			                                   + "of the heap can't be negative");
+		}
+	}
+
+	//**************************************************************************************************
+	private static void printProgress(PrintStream out, int restarts, int gamesOver, long heapUsed,
+	                                  int numOfThreads)
+	{
+		out.printf("%8d restarts  %6d games over  %8.2f MB of heap  %3d threads%n",
+		           restarts, gamesOver, (double)heapUsed / MEGABYTE, numOfThreads);
+	}
+
+	//**************************************************************************************************
+	/** Prints the options of a soak.
+	  * @param out the PrintStream to print to
+	  */
+	//**************************************************************************************************
+	public static void printUsage(PrintStream out)
+	{
+		out.println("Usage: java -jar tetris.jar --soak [options]");
+		out.println("  --restarts N     the number of restarts (default " + DEFAULT_RESTARTS + ")");
+		out.println("  --heap-slack MB  the heap growth allowed (default " + DEFAULT_HEAP_SLACK + ")");
+	}
+
+	//**************************************************************************************************
+	private void restart(int count, Runnable restart)
+	{
+		try
+		{
+			// restart the game on the event dispatch thread, and wait for it to be done
+			for (int i = 0; i < count; i++)
+			{
+				SwingUtilities.invokeAndWait(restart);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// stop restarting
+			Thread.currentThread().interrupt();
+		}
+		catch (InvocationTargetException e)
+		{
+			// a restart that throws fails the soak straight away
+			throw new IllegalStateException("A restart failed", e.getCause());
+		}
+	}
+
+	//**************************************************************************************************
+	/** Runs the soak, printing its progress every REPORT_INTERVAL restarts.
+	  * @param out the PrintStream to print to
+	  * @return true if neither the heap in use nor the number of threads grew (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean run(PrintStream out)
+	{
+		// both games are ticked by one GameLoop, as they are in the window
+		GameLoop gameLoop = new GameLoop();
+
+		// the game that is restarted by force
+		final BoardManager restarted = new BoardManager(new Board(16, 10, "Restarted", Color.BLACK),
+		                                                null, gameLoop);
+		restarted.setBot(new HeuristicBot());
+
+		// the game that comes to an end on its own, and is restarted straight away
+		final BoardManager cycled = new BoardManager(new Board(6, 6, "Cycled", Color.BLACK),
+		                                             null, gameLoop);
+		cycled.setBot(new HeuristicBot());
+		cycled.setRestartDelay(0);
+
+		// count the games of the tiny board that came to an end
+		final AtomicInteger gamesOver = new AtomicInteger();
+		cycled.getEngine().getEvents().addListener(new GameEventListener()
+		{
+			public void gameEvent(GameEvent event)
+			{
+				gamesOver.incrementAndGet();
+			}
+		}, GameEvent.maskOf(GameEvent.GAME_OVER));
+
+		// this restarts the first game
+		Runnable restart = new Runnable()
+		{
+			public void run()
+			{
+				restarted.restartGame();
+			}
+		};
+
+		// start both games
+		restart(1, new Runnable()
+		{
+			public void run()
+			{
+				restarted.startGame();
+				cycled.startGame();
+			}
+		});
+
+		//****************************************************************************************//
+		// NOTE: Warm up until the tiny board has restarted at least once, so the threads that    //
+		//       are only started on the first restart (such as the one of the Swing timers) are  //
+		//       part of the baseline.                                                            //
+		//****************************************************************************************//
+		long deadline = System.currentTimeMillis() + WARMUP_TIMEOUT;
+		restart(WARMUP, restart);
+		while (gamesOver.get() < 2 && System.currentTimeMillis() < deadline)
+		{
+			restart(1, restart);
+		}
+
+		// measure the baseline
+		long baselineHeap    = getHeapUsed();
+		int  baselineThreads = getNumOfThreads();
+		printProgress(out, 0, gamesOver.get(), baselineHeap, baselineThreads);
+
+		// restart the first game over and over again
+		for (int restarts = 0; restarts < m_numOfRestarts; )
+		{
+			int count = Math.min(REPORT_INTERVAL, m_numOfRestarts - restarts);
+			restart(count, restart);
+			restarts += count;
+
+			printProgress(out, restarts, gamesOver.get(), getHeapUsed(), getNumOfThreads());
+		}
+
+		// measure what was left behind by the restarts (while the games are still going)
+		long heapGrowth   = getHeapUsed() - baselineHeap;
+		int  threadGrowth = getNumOfThreads() - baselineThreads;
+		gameLoop.stop();
+
+		// will hold whether or not the soak passed
+		boolean retVal = heapGrowth <= m_heapSlack * MEGABYTE && threadGrowth <= 0;
+
+		out.printf("%s: the heap grew by %.2f MB (at most %d MB), and the threads by %d%n",
+		           retVal ? "PASSED" : "FAILED", (double)heapGrowth / MEGABYTE, m_heapSlack,
+		           threadGrowth);
+
+		return retVal;
+	}
+}
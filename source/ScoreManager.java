@@ -4,12 +4,14 @@
 import javax.swing.*;
 
 //******************************************************************************************************
-/** This class creates a ScoreManager object which is an Observer of the BoardManager. Note that the
-  * BoardManager, being a Subject, will call the ScoreManager when the score needs to be updated.
+/** This class creates a ScoreManager object which is a deferred GameEventListener of the GameEngine
+  * of a BoardManager. Note that the GameEventBus of the GameEngine calls the ScoreManager on the event
+  * dispatch thread when the score needs to be updated (at most once per frame). The score itself is
+  * kept by the GameEngine of the BoardManager.
   */
 //******************************************************************************************************
 @SuppressWarnings("serial")
-public class ScoreManager extends JLabel implements Observer
+public class ScoreManager extends JLabel implements GameEventListener
 {
 	// data members
 	private BoardManager m_boardManager;
@@ -30,12 +32,9 @@ public class ScoreManager extends JLabel implements Observer
 	}
 
 	//**************************************************************************************************
-	public void update()
+	public void gameEvent(GameEvent event)
 	{
-		// increment the score of the game by 1
-		m_boardManager.setScore(m_boardManager.getScore() + 1);
-
-		// update the score on the display
-		setText("Score: " + m_boardManager.getScore());
+		// update the score on the display (as it was after the last GameEvent of the frame)
+		setText("Score: " + event.getScore());
 	}
 }
@@ -6,24 +6,29 @@ import java.util.*;
 
 //******************************************************************************************************
 /** This class creates an abstract Shape object. Its main functionalities include moving down,
-  * moving left, moving right, and rotating. Note that each Shape is composed of 4 Blocks.
+  * moving left, moving right, and rotating. Note that each Shape is composed of 4 Blocks, and that the
+  * positions of the Blocks in every rotation are looked up in the ShapeTable.
   */
 //******************************************************************************************************
 public abstract class Shape
 {
 	// data members
 	private Block       m_focalBlock;
-	private Board       m_board;
+	private BoardModel  m_board;
 	private Color       m_color;
 	private List<Block> m_blocks;
+	private int         m_rgb;
+	private int         m_rotation;
+	private int         m_type;
 
 	//**************************************************************************************************
-	/** Constructs a Shape object that is set relative to the passed in Board.
-	  * @param b the Board to which this Shape is relative
+	/** Constructs a Shape object that is set relative to the passed in BoardModel.
+	  * @param b the BoardModel to which this Shape is relative
 	  * @param color the color of this Shape
+	  * @param type the kind of Shape (one of the kinds found in the ShapeTable)
 	  */
 	//**************************************************************************************************
-	public Shape(Board b, Color color)
+	public Shape(BoardModel b, Color color, int type)
 	{
 		// set the Board to which this Shape is relative
 		m_board = b;
@@ -33,6 +38,7 @@ public abstract class Shape
 
 		// set the color of this Shape
 		m_color = color;
+		m_rgb   = color.getRGB();
 
 		//***************************************************************************************//
 		// NOTE: Create the focal block. Note that this is the Block that doesn't move when this //
@@ -40,6 +46,21 @@ public abstract class Shape
 		//       column of the associated Board.                                                 //
 		//***************************************************************************************//
 		m_focalBlock = new Block(b.getNumOfCols() / 2, 0, color);
+
+		// set the kind of this Shape
+		m_type = type;
+
+		// set the focal Block as the first Block in the List of Blocks
+		m_blocks.add(m_focalBlock);
+
+		// create the rest of the Blocks (they are only ever moved from now on)
+		for (int i = 1; i < ShapeTable.NUM_OF_BLOCKS; i++)
+		{
+			m_blocks.add(new Block(0, 0, color));
+		}
+
+		// initialize the coordinates of this Shape
+		initCoordinates();
 	}
 
 	//**************************************************************************************************
@@ -58,151 +79,129 @@ public abstract class Shape
 				// get the next Block of this Shape
 				Block block = m_blocks.get(i);
 
-				// only make changes to the Board if the block is on a valid position
-				if (m_board.validPos(block.getXPos(), block.getYPos()))
-				{
-					// get the BoardCell on which the Block will be placed
-					BoardCell boardCell = m_board.getBoardCell(block.getXPos(), block.getYPos());
-
-					// the BoardCell will now be occupied by the Block
-					boardCell.setEmpty(false);
-
-					// the color of the BoardCell will be that of the Block
-					boardCell.setColor(block.getColor());
-
-					// enable the border paint on the BoardCell
-					boardCell.getCellJButton().setBorderPainted(true);
-				}
+				//***************************************************************************//
+				// NOTE: The cell on which the Block is placed will now be occupied by the   //
+				//       Block and take on the color of this Shape. Note that the BoardModel //
+				//       ignores any Block that is not on a valid position.                  //
+				//***************************************************************************//
+				m_board.fillCell(block.getXPos(), block.getYPos(), m_rgb);
 			}
 		}
 	}
 
 	//**************************************************************************************************
-	/** Returns true if this Shape is allowed to move down. Note that it can only do so if the BoardCell
-	  * below each Block is empty.
-	  * @return true if this Shape is allowed to move down (false otherwise)
+	/** Returns true if this Shape is allowed to move by the indicated number of columns and rows. Note
+	  * that it can only do so if the cell that each Block would move onto lies on the BoardModel and is
+	  * either empty or filled by this Shape itself. This Shape is never removed from the BoardModel in
+	  * order to find out, so asking has no side effects.
+	  * @param dx the number of columns to move by (negative values move to the left)
+	  * @param dy the number of rows to move by (negative values move up)
+	  * @return true if this Shape is allowed to move (false otherwise)
 	  */
 	//**************************************************************************************************
-	public boolean canMoveDown()
+	public boolean canMove(int dx, int dy)
 	{
-		// holds whether or not this Shape can move down
+		// holds whether or not this Shape can move
 		boolean retVal = true;
 
-		// momentarily remove this Shape from the Board
-		removeFromBoard(true);
-
-		// check each Block to make sure it's not blocked below
+		// check each Block to make sure it's not blocked
 		for (int i = 0; i < m_blocks.size(); i++)
 		{
 			// get the next Block
 			Block block = m_blocks.get(i);
 
-			// get the BoardCell that's below this Block
-			BoardCell boardCell = m_board.getBoardCell(block.getXPos(), block.getYPos() + 1);
-
-			//***************************************************************************************//
-			// NOTE: If either no BoardCell exists below the Block OR the BoardCell is filled, then  //
-			//       we know that this Shape can't be moved down.                                    //
-			//***************************************************************************************//
-			if (boardCell == null || !boardCell.isEmpty())
+			// if the cell that this Block would move onto isn't free, this Shape can't be moved
+			if (!m_board.cellIsFree(block.getXPos() + dx, block.getYPos() + dy, this))
 			{
 				retVal = false;
 				break;
 			}
 		}
 
-		// add this Shape back to the Board
-		addToBoard(true);
-
 		return retVal;
 	}
 
 	//**************************************************************************************************
-	/** Returns true if this Shape is allowed to move left. Note that it can only do so if the left of
-	  * each Block is not occupied by a filled BoardCell.
+	/** Returns true if this Shape is allowed to move down. Note that it can only do so if the cell
+	  * below each Block is free.
+	  * @return true if this Shape is allowed to move down (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean canMoveDown()
+	{
+		// check the row below this Shape
+		return canMove(0, 1);
+	}
+
+	//**************************************************************************************************
+	/** Returns true if this Shape is allowed to move left. Note that it can only do so if the cell to
+	  * the left of each Block is free.
 	  * @return true if this Shape is allowed to move left (false otherwise)
 	  */
 	//**************************************************************************************************
 	public boolean canMoveLeft()
 	{
-		// holds whether or not this Shape can move left
-		boolean retVal = true;
-
-		// momentarily remove this Shape from the Board
-		removeFromBoard(true);
-
-		// check each Block to make sure it's not blocked on the left side
-		for (int i = 0; i < m_blocks.size(); i++)
-		{
-			// get the next Block
-			Block block = m_blocks.get(i);
-
-			// get the BoardCell to the left of this Block
-			BoardCell boardCell = m_board.getBoardCell(block.getXPos() - 1, block.getYPos());
-
-			//****************************************************************************************//
-			// NOTE: If either no BoardCell exists on the left OR it's filled, then we know that this //
-			//       Shape can't be moved to the left.                                                //
-			//****************************************************************************************//
-			if (boardCell == null || !boardCell.isEmpty())
-			{
-				retVal = false;
-				break;
-			}
-		}
-
-		// add this Shape back to the Board
-		addToBoard(true);
-
-		return retVal;
+		// check the column to the left of this Shape
+		return canMove(-1, 0);
 	}
 
 	//**************************************************************************************************
-	/** Returns true if this Shape is allowed to move right. Note that it can only do so if the right of
-	  * each Block is not occupied by a filled BoardCell.
+	/** Returns true if this Shape is allowed to move right. Note that it can only do so if the cell to
+	  * the right of each Block is free.
 	  * @return true if this Shape is allowed to move right (false otherwise)
 	  */
 	//**************************************************************************************************
 	public boolean canMoveRight()
 	{
-		// holds whether or not this Shape can move right
+		// check the column to the right of this Shape
+		return canMove(1, 0);
+	}
+
+	//**************************************************************************************************
+	/** Returns true if this Shape can be rotated clockwise. False is returned otherwise.
+	  * @return true if this Shape can be rotated (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean canRotate()
+	{
+		// check a single clockwise turn
+		return canRotate(1);
+	}
+
+	//**************************************************************************************************
+	/** Returns true if this Shape can be turned by the indicated number of quarter turns. Note that
+	  * the positions of the Blocks after the turn are looked up in the ShapeTable, so none of the Blocks
+	  * actually has to move, and this Shape never leaves the BoardModel in order to find out.
+	  * @param turns the number of quarter turns (positive is clockwise, negative is counterclockwise)
+	  * @return true if this Shape can be rotated (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean canRotate(int turns)
+	{
+		// holds whether or not this Shape can be rotated
 		boolean retVal = true;
 
-		// momentarily remove this Shape from the Board
-		removeFromBoard(true);
+		// get the rotation that this Shape would be turned to
+		int rotation = ShapeTable.getRotation(m_type, m_rotation, turns);
 
-		// check each Block to make sure it's not blocked on the right side
-		for (int i = 0; i < m_blocks.size(); i++)
+		// check whether or not the cell at which each Block would end up is free
+		for (int i = 0; i < ShapeTable.NUM_OF_BLOCKS; i++)
 		{
-			// get the next Block
-			Block block = m_blocks.get(i);
-
-			// get the BoardCell to the right of this Block
-			BoardCell boardCell = m_board.getBoardCell(block.getXPos() + 1, block.getYPos());
+			// get the position of the Block once this Shape is rotated
+			int xPos = m_focalBlock.getXPos() + ShapeTable.getXOffset(m_type, rotation, i);
+			int yPos = m_focalBlock.getYPos() + ShapeTable.getYOffset(m_type, rotation, i);
 
-			//*****************************************************************************************//
-			// NOTE: If either no BoardCell exists on the right OR it's filled, then we know that this //
-			//       Shape can't be moved to the right.                                                //
-			//*****************************************************************************************//
-			if (boardCell == null || !boardCell.isEmpty())
+			// if the Block can't go where the rotation would take it, this Shape can't be rotated
+			if (!m_board.cellIsFree(xPos, yPos, this))
 			{
 				retVal = false;
 				break;
 			}
 		}
 
-		// add this Shape back to the Board
-		addToBoard(true);
-
 		return retVal;
 	}
 
-	//**************************************************************************************************
-	/** Returns true if this Shape can be rotated. Note that this will be overridden by derived classes.
-	  */
-	//**************************************************************************************************
-	public abstract boolean canRotate();
-
 	//**************************************************************************************************
 	/** Returns the List of Blocks that compose this Shape.
 	  * @return the List of Blocks that compose this Shape
@@ -215,47 +214,41 @@ public abstract class Shape
 	}
 
 	//**************************************************************************************************
-	/** Returns the Board that's associated with this Shape.
-	  * @return the Board that's associated with this Shape
+	/** Returns the BoardModel that's associated with this Shape.
+	  * @return the BoardModel that's associated with this Shape
 	  */
 	//**************************************************************************************************
-	public Board getBoard()
+	public BoardModel getBoard()
 	{
 		// get the associated Board
 		return m_board;
 	}
 
 	//**************************************************************************************************
-	/** Returns a randomly generated Color.
-	  * @return a randomly generated color
+	/** Returns the Color of this Shape.
+	  * @return the Color of this Shape
 	  */
 	//**************************************************************************************************
-	public Color generateColor()
+	public Color getColor()
 	{
-		// generate a random value (between 0 and 255) for the r value
-		int r = (int)(Math.random() * 256);
-
-		// generate a random value (between 0 and 255) for the b value
-		int g = (int)(Math.random() * 256);
-
-		// generate a random value (between 0 and 255) for the g value
-		int b = (int)(Math.random() * 256);
-
-		// generate a random color
-		Color color = new Color(r, g, b);
+		// the Color is only created again once a recycled Shape is asked for it
+		if (m_color.getRGB() != m_rgb)
+		{
+			m_color = new Color(m_rgb);
+		}
 
-		// get the color
-		return color;
+		return m_color;
 	}
+
 	//**************************************************************************************************
-	/** Returns the Color of this Shape.
-	  * @return the Color of this Shape
+	/** Returns the RGB value of the color of this Shape.
+	  * @return the RGB value of the color of this Shape
 	  */
 	//**************************************************************************************************
-	public Color getColor()
+	public int getRGB()
 	{
-		// get the color
-		return m_color;
+		// get the RGB value of the color
+		return m_rgb;
 	}
 
 	//**************************************************************************************************
@@ -271,11 +264,41 @@ public abstract class Shape
 	}
 
 	//**************************************************************************************************
-	/** Initializes the coordinates of this Shape. Note that this method will be overridden in
-	  * derived classes.
+	/** Returns the rotation that this Shape is currently in. Note that rotation 0 is the one that this
+	  * Shape is in when it's first placed on a BoardModel.
+	  * @return the rotation of this Shape
 	  */
 	//**************************************************************************************************
-	protected abstract void initCoordinates();
+	public int getRotation()
+	{
+		// get the rotation
+		return m_rotation;
+	}
+
+	//**************************************************************************************************
+	/** Returns the kind of this Shape (one of the kinds found in the ShapeTable).
+	  * @return the kind of this Shape
+	  */
+	//**************************************************************************************************
+	public int getType()
+	{
+		// get the kind of this Shape
+		return m_type;
+	}
+
+	//**************************************************************************************************
+	/** Initializes the coordinates of this Shape. That is, the Shape goes back to its first rotation
+	  * and the Blocks are placed around the focal Block accordingly.
+	  */
+	//**************************************************************************************************
+	protected void initCoordinates()
+	{
+		// go back to the first rotation
+		m_rotation = 0;
+
+		// place the Blocks around the focal Block
+		placeBlocks();
+	}
 
 	//**************************************************************************************************
 	/** Moves this Shape down one row.
@@ -357,6 +380,34 @@ public abstract class Shape
 		}
 	}
 
+	//**************************************************************************************************
+	/** Returns true if one of the Blocks of this Shape lies at the indicated x and y position.
+	  * @param x the x position to check
+	  * @param y the y position to check
+	  * @return true if one of the Blocks of this Shape lies at the position (false otherwise)
+	  */
+	//**************************************************************************************************
+	public boolean occupies(int x, int y)
+	{
+		// we'll assume that none of the Blocks lies at the position
+		boolean retVal = false;
+
+		for (int i = 0; i < m_blocks.size(); i++)
+		{
+			// get the next Block of this Shape
+			Block block = m_blocks.get(i);
+
+			// check to see if this Block lies at the position
+			if (block.getXPos() == x && block.getYPos() == y)
+			{
+				retVal = true;
+				break;
+			}
+		}
+
+		return retVal;
+	}
+
 	//**************************************************************************************************
 	/** Returns true if any one of this Shape's blocks is on the first column.
 	  * @return true if any one of this Shape's blocks is on the first column (false otherwise)
@@ -481,39 +532,97 @@ public abstract class Shape
 				// get the next Block of the this Shape
 				Block block = m_blocks.get(i);
 
-				// only make changes to the Board if the block is on a valid position
-				if (m_board.validPos(block.getXPos(), block.getYPos()))
-				{
-					// get the BoardCell on which the Block is placed
-					BoardCell boardCell = m_board.getBoardCell(block.getXPos(), block.getYPos());
-
-					// the BoardCell will no longer be occupied by the Block
-					boardCell.setEmpty(true);
+				//***************************************************************************//
+				// NOTE: The cell on which the Block is placed will no longer be occupied by //
+				//       the Block and takes back the color of the BoardModel. Note that the //
+				//       BoardModel ignores any Block that is not on a valid position.       //
+				//***************************************************************************//
+				m_board.clearCell(block.getXPos(), block.getYPos());
+			}
+		}
+	}
 
-					// the color of the BoardCell will now be that of the Board
-					boardCell.setColor(m_board.getColor());
+	//**************************************************************************************************
+	private void placeBlocks()
+	{
+		// place each Block at its offset from the focal Block in the current rotation
+		for (int i = 1; i < ShapeTable.NUM_OF_BLOCKS; i++)
+		{
+			// get the next Block of this Shape
+			Block block = m_blocks.get(i);
 
-					// disable the border paint on the BoardCell
-					boardCell.getCellJButton().setBorderPainted(false);
-				}
-			}
+			// set the new position of the Block
+			block.setXPos(m_focalBlock.getXPos() + ShapeTable.getXOffset(m_type, m_rotation, i));
+			block.setYPos(m_focalBlock.getYPos() + ShapeTable.getYOffset(m_type, m_rotation, i));
 		}
 	}
 
 	//**************************************************************************************************
-	/** Rotates this Shape. Note that this will be overridden by derived classes.
+	/** Resets this Shape so that it can be used again, as if it had just been constructed relative to
+	  * the passed in BoardModel with the indicated color. Note that the Shape is not removed from the
+	  * BoardModel it was on before, so it must no longer be on one (or that BoardModel must have been
+	  * cleared since).
+	  * @param board the BoardModel to which this Shape is now relative
+	  * @param rgb the RGB value of the new color of this Shape
+	  */
+	//**************************************************************************************************
+	public void reset(BoardModel board, int rgb)
+	{
+		// set the Board to which this Shape is now relative
+		m_board = board;
+
+		// set the new color of this Shape (the Color itself is only created when asked for)
+		m_rgb = rgb;
+
+		// position the focal Block on the first row and the middle column of the Board
+		m_focalBlock.setXPos(board.getNumOfCols() / 2);
+		m_focalBlock.setYPos(0);
+
+		// place the rest of the Blocks in the first rotation
+		initCoordinates();
+	}
+
+	//**************************************************************************************************
+	/** Rotates this Shape clockwise.
+	  * @param remove true if this Shape should be remove from the Board prior to rotating it
+	  * @param update true if this Shape should be updated on the Board after it has been rotated
+	  */
+	//**************************************************************************************************
+	public void rotate(boolean remove, boolean update)
+	{
+		// make a single clockwise turn
+		rotate(1, remove, update);
+	}
+
+	//**************************************************************************************************
+	/** Turns this Shape by the indicated number of quarter turns. Note that the focal Block stays put
+	  * while the other Blocks take on the positions found in the ShapeTable for the new rotation.
+	  * @param turns the number of quarter turns (positive is clockwise, negative is counterclockwise)
 	  * @param remove true if this Shape should be remove from the Board prior to rotating it
 	  * @param update true if this Shape should be updated on the Board after it has been rotated
 	  */
 	//**************************************************************************************************
-	public abstract void rotate(boolean remove, boolean update);
+	public void rotate(int turns, boolean remove, boolean update)
+	{
+		// remove this Shape from the Board
+		removeFromBoard(remove);
+
+		// move on to the new rotation
+		m_rotation = ShapeTable.getRotation(m_type, m_rotation, turns);
+
+		// move the Blocks to their new positions
+		placeBlocks();
+
+		// add this Shape back to the Board
+		addToBoard(update);
+	}
 
 	//**************************************************************************************************
-	/** Sets the associated Board of this Shape.
-	  * @param board the associated Board of this Shape
+	/** Sets the associated BoardModel of this Shape.
+	  * @param board the associated BoardModel of this Shape
 	  */
 	//**************************************************************************************************
-	public void setBoard(Board board)
+	public void setBoard(BoardModel board)
 	{
 		// set the associated Board of this Shape
 		m_board = board;
@@ -540,4 +649,28 @@ public abstract class Shape
 		// set the focal Block
 		m_focalBlock = block;
 	}
+
+	//**************************************************************************************************
+	/** Moves this Shape straight to the indicated position and rotation, without checking whether or
+	  * not it fits there. This is how a saved game puts its current Shape back. Note that this Shape
+	  * is taken off the BoardModel and added back at its new position.
+	  * @param x the new x position of the focal Block
+	  * @param y the new y position of the focal Block
+	  * @param rotation the new rotation (as returned by getRotation())
+	  */
+	//**************************************************************************************************
+	public void setPosition(int x, int y, int rotation)
+	{
+		// remove this Shape from the Board
+		removeFromBoard(true);
+
+		// move the focal Block, and the rest of the Blocks around it in the new rotation
+		m_focalBlock.setXPos(x);
+		m_focalBlock.setYPos(y);
+		m_rotation = rotation;
+		placeBlocks();
+
+		// add this Shape back to the Board
+		addToBoard(true);
+	}
 }
\ No newline at end of file
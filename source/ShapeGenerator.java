@@ -0,0 +1,254 @@
+// Author:   Jose Santos
+// FileName: ShapeGenerator.java
+
+import java.awt.Color;
+import java.util.SplittableRandom;
+
+//******************************************************************************************************
+/** This class creates a ShapeGenerator object which hands out the Shapes of a single game. The kind
+  * of each Shape is picked by a Randomizer, and every random number comes from a SplittableRandom that
+  * belongs to this ShapeGenerator alone. Note that a game can therefore be played again Shape for Shape
+  * from its seed, and that games running side by side never wait on each other for random numbers.
+  * Shapes that have landed are handed back to the ShapeGenerator and reused, so once a few Shapes of
+  * each kind exist, generating a Shape creates no objects at all.
+  */
+//******************************************************************************************************
+public class ShapeGenerator
+{
+	// the number of landed Shapes of each kind that are kept for reuse
+	public static final int POOL_SIZE = 4;
+
+	// data members
+	private int              m_numOfGenerated;
+	private int              m_poolSizes[];
+	private Shape            m_pools[][];
+	private SplittableRandom m_random;
+	private Randomizer       m_randomizer;
+	private long             m_seed;
+
+	//**************************************************************************************************
+	/** Creates a ShapeGenerator object that picks its Shapes with the passed in Randomizer, starting
+	  * from the indicated seed.
+	  * @param randomizer the Randomizer that picks the kind of each Shape
+	  * @param seed the seed of the random numbers
+	  */
+	//**************************************************************************************************
+	public ShapeGenerator(Randomizer randomizer, long seed)
+	{
+		// store the Randomizer
+		m_randomizer = randomizer;
+
+		// create an empty pool for each kind of Shape
+		m_pools     = new Shape[ShapeTable.NUM_OF_SHAPES][POOL_SIZE];
+		m_poolSizes = new int[ShapeTable.NUM_OF_SHAPES];
+
+		// start from the seed
+		reset(seed);
+	}
+
+	//**************************************************************************************************
+	/** Returns a new Randomizer of the indicated name. The names are "uniform", "bag" and "history".
+	  * @param name the name of the Randomizer
+	  * @return the Randomizer of the indicated name
+	  * @throws IllegalArgumentException if no Randomizer has the indicated name
+	  */
+	//**************************************************************************************************
+	public static Randomizer createRandomizer(String name)
+	{
+		// will hold the Randomizer
+		Randomizer retVal = null;
+
+		if (name.equalsIgnoreCase("uniform"))
+		{
+			retVal = new UniformRandomizer();
+		}
+		else if (name.equalsIgnoreCase("bag"))
+		{
+			retVal = new BagRandomizer();
+		}
+		else if (name.equalsIgnoreCase("history"))
+		{
+			retVal = new HistoryRandomizer();
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown randomizer: " + name);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private Shape createShape(int type, BoardModel board, Color color)
+	{
+		// will hold the new Shape
+		Shape retVal = null;
+
+		// create the Shape of the indicated kind
+		switch (type)
+		{
+			case ShapeTable.T_SHAPE: retVal = new TShape(board, color); break;
+			case ShapeTable.L_SHAPE: retVal = new LShape(board, color); break;
+			case ShapeTable.J_SHAPE: retVal = new JShape(board, color); break;
+			case ShapeTable.Z_SHAPE: retVal = new ZShape(board, color); break;
+			case ShapeTable.S_SHAPE: retVal = new SShape(board, color); break;
+			case ShapeTable.O_SHAPE: retVal = new OShape(board, color); break;
+			default:                 retVal = new IShape(board, color); break;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the next Shape of the game, relative to the passed in BoardModel. Note that the Shape
+	  * is taken from the pool of its kind whenever one is there, and only created otherwise.
+	  * @param board the BoardModel to which the Shape is relative
+	  * @return the next Shape of the game
+	  */
+	//**************************************************************************************************
+	public Shape generateShape(BoardModel board)
+	{
+		// will hold the Shape
+		Shape retVal = null;
+
+		// have the Randomizer pick the kind of the Shape
+		int type = m_randomizer.nextShape(m_random);
+
+		// pick a random (opaque) color
+		int rgb = 0xFF000000 | m_random.nextInt(1 << 24);
+
+		// get a Shape of that kind and color
+		retVal = restoreShape(board, type, rgb);
+
+		// one more Shape has been generated
+		m_numOfGenerated++;
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of Shapes generated since the last reset.
+	  * @return the number of Shapes generated since the last reset
+	  */
+	//**************************************************************************************************
+	public int getNumOfGenerated()
+	{
+		// get the number of Shapes generated
+		return m_numOfGenerated;
+	}
+
+	//**************************************************************************************************
+	/** Returns the Randomizer that picks the kind of each Shape.
+	  * @return the Randomizer of this ShapeGenerator
+	  */
+	//**************************************************************************************************
+	public Randomizer getRandomizer()
+	{
+		// get the Randomizer
+		return m_randomizer;
+	}
+
+	//**************************************************************************************************
+	/** Returns the seed that this ShapeGenerator was last reset with.
+	  * @return the seed of the random numbers
+	  */
+	//**************************************************************************************************
+	public long getSeed()
+	{
+		// get the seed
+		return m_seed;
+	}
+
+	//**************************************************************************************************
+	/** Hands a Shape back to this ShapeGenerator so that it can be reused. Note that the Shape must no
+	  * longer be the current Shape of a BoardModel, and nothing else may hold on to it. The cells it
+	  * filled are left alone. If the pool of its kind is full, the Shape is simply dropped.
+	  * @param shape the Shape to hand back
+	  */
+	//**************************************************************************************************
+	public void releaseShape(Shape shape)
+	{
+		// get the kind of the Shape
+		int type = shape.getType();
+
+		// keep the Shape only if there is room for it
+		if (m_poolSizes[type] < POOL_SIZE)
+		{
+			m_pools[type][m_poolSizes[type]++] = shape;
+		}
+	}
+
+	//**************************************************************************************************
+	/** Returns a Shape of the indicated kind and color, relative to the passed in BoardModel, without
+	  * using up any random numbers. This is how a saved game gets its Shapes back. Note that the Shape
+	  * is taken from the pool of its kind whenever one is there, and only created otherwise.
+	  * @param board the BoardModel to which the Shape is relative
+	  * @param type the kind of the Shape (one of the kinds found in the ShapeTable)
+	  * @param rgb the RGB value of the color of the Shape
+	  * @return a Shape of the indicated kind and color
+	  */
+	//**************************************************************************************************
+	public Shape restoreShape(BoardModel board, int type, int rgb)
+	{
+		// will hold the Shape
+		Shape retVal = null;
+
+		if (m_poolSizes[type] > 0)
+		{
+			// take a landed Shape out of the pool
+			retVal = m_pools[type][--m_poolSizes[type]];
+			m_pools[type][m_poolSizes[type]] = null;
+
+			// make it look like a new Shape
+			retVal.reset(board, rgb);
+		}
+		else
+		{
+			// the pool is empty, so a Shape has to be created
+			retVal = createShape(type, board, new Color(rgb));
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Resets this ShapeGenerator so that it hands out the Shapes of a new game started from the
+	  * indicated seed. Note that the Shapes kept for reuse are not thrown away.
+	  * @param seed the seed of the random numbers
+	  */
+	//**************************************************************************************************
+	public void reset(long seed)
+	{
+		// store the seed
+		m_seed = seed;
+
+		// start the random numbers over from the seed
+		m_random = new SplittableRandom(seed);
+
+		// the Randomizer starts over as well
+		m_randomizer.reset();
+
+		// no Shapes have been generated yet
+		m_numOfGenerated = 0;
+	}
+
+	//**************************************************************************************************
+	/** Skips the indicated number of Shapes. That is, the random numbers move on exactly as if the
+	  * Shapes had been generated, but no Shape is handed out. Note that resetting a ShapeGenerator and
+	  * then skipping the Shapes a game has generated brings it back to where that game left it.
+	  * @param numOfShapes the number of Shapes to skip
+	  */
+	//**************************************************************************************************
+	public void skip(int numOfShapes)
+	{
+		for (int i = 0; i < numOfShapes; i++)
+		{
+			// use up the random numbers of a Shape (its kind and its color)
+			m_randomizer.nextShape(m_random);
+			m_random.nextInt(1 << 24);
+		}
+
+		// the Shapes count as generated
+		m_numOfGenerated += numOfShapes;
+	}
+}
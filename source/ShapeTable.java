@@ -0,0 +1,163 @@
+// Author:   Jose Santos
+// FileName: ShapeTable.java
+
+//******************************************************************************************************
+/** This class holds the offsets of the Blocks of every kind of Shape in every one of its rotations.
+  * The offsets are the x and y distances of each Block from the focal Block, and they are worked out
+  * once, when this class is loaded. Rotating a Shape (or checking whether it can be rotated) is then
+  * only a matter of looking up the offsets of the next rotation. Note that the tables can't be changed
+  * from the outside since they are only handed out one value at a time.
+  */
+//******************************************************************************************************
+public final class ShapeTable
+{
+	// the kinds of Shapes (note that these index the tables below)
+	public static final int T_SHAPE = 0;
+	public static final int L_SHAPE = 1;
+	public static final int J_SHAPE = 2;
+	public static final int Z_SHAPE = 3;
+	public static final int S_SHAPE = 4;
+	public static final int O_SHAPE = 5;
+	public static final int I_SHAPE = 6;
+
+	// the number of kinds of Shapes
+	public static final int NUM_OF_SHAPES = 7;
+
+	// the number of Blocks composing each Shape
+	public static final int NUM_OF_BLOCKS = 4;
+
+	//**********************************************************************************//
+	// NOTE: This holds the x and y distances from the focal Block of each Shape when   //
+	//       it's first placed on a Board. For example, the second array of the TShape  //
+	//       reads as follows: {-1, 0}. This indicates that a Block exists 1 x position //
+	//       to the left of the focal Block's x position and 0 y positions above the    //
+	//       focal Block's y position. NOTE that the first array is always the focal    //
+	//       Block itself.                                                              //
+	//**********************************************************************************//
+	private static final int SPAWN_POS[][][] = {{{0, 0}, {-1, 0}, {1, 0}, { 0, 1}},   // TShape
+	                                            {{0, 0}, {-1, 0}, {1, 0}, {-1, 1}},   // LShape
+	                                            {{0, 0}, {-1, 0}, {1, 0}, { 1, 1}},   // JShape
+	                                            {{0, 0}, {-1, 0}, {0, 1}, { 1, 1}},   // ZShape
+	                                            {{0, 0}, { 1, 0}, {0, 1}, {-1, 1}},   // SShape
+	                                            {{0, 0}, { 1, 0}, {0, 1}, { 1, 1}},   // OShape
+	                                            {{0, 0}, {-1, 0}, {1, 0}, { 2, 0}}};  // IShape
+
+	//***********************************************************************************//
+	// NOTE: The IShape rotates around a 4 x 4 space, so it only flips between lying     //
+	//       horizontally and standing vertically as follows (where # is the focal Block //
+	//       and the *'s are all the other Blocks):                                      //
+	//                                                                                   //
+	//                                         *                                         //
+	//                       *#**              #                                         //
+	//                                         *                                         //
+	//                                         *                                         //
+	//***********************************************************************************//
+	private static final int I_VERTICAL_POS[][] = {{0, 0}, {0, -1}, {0, 1}, {0, 2}};
+
+	// the number of rotations of each kind of Shape (the OShape is never really rotated)
+	private static final int NUM_OF_ROTATIONS[] = {4, 4, 4, 4, 4, 1, 2};
+
+	// the x and y offsets of the Blocks, indexed by [shape][rotation][block]
+	private static final int X_OFFSETS[][][] = new int[NUM_OF_SHAPES][][];
+	private static final int Y_OFFSETS[][][] = new int[NUM_OF_SHAPES][][];
+
+	static
+	{
+		for (int shape = 0; shape < NUM_OF_SHAPES; shape++)
+		{
+			// create the tables for every rotation of this Shape
+			X_OFFSETS[shape] = new int[NUM_OF_ROTATIONS[shape]][NUM_OF_BLOCKS];
+			Y_OFFSETS[shape] = new int[NUM_OF_ROTATIONS[shape]][NUM_OF_BLOCKS];
+
+			for (int block = 0; block < NUM_OF_BLOCKS; block++)
+			{
+				// get the distance of the Block from the focal Block when the Shape is first placed
+				int dx = SPAWN_POS[shape][block][0];
+				int dy = SPAWN_POS[shape][block][1];
+
+				for (int rotation = 0; rotation < NUM_OF_ROTATIONS[shape]; rotation++)
+				{
+					// store the offsets of the Block in this rotation
+					X_OFFSETS[shape][rotation][block] = dx;
+					Y_OFFSETS[shape][rotation][block] = dy;
+
+					//******************************************************************//
+					// NOTE: Turn the Block clockwise around the focal Block. Note that //
+					//       since the y axis points down, turning the distance (dx,dy) //
+					//       clockwise gives (-dy, dx).                                 //
+					//******************************************************************//
+					int temp = dx;
+					dx = -dy;
+					dy = temp;
+				}
+			}
+		}
+
+		// the IShape flips between lying and standing rather than turning
+		for (int block = 0; block < NUM_OF_BLOCKS; block++)
+		{
+			X_OFFSETS[I_SHAPE][1][block] = I_VERTICAL_POS[block][0];
+			Y_OFFSETS[I_SHAPE][1][block] = I_VERTICAL_POS[block][1];
+		}
+	}
+
+	//**************************************************************************************************
+	private ShapeTable()
+	{
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of distinct rotations of the indicated kind of Shape.
+	  * @param shape the kind of Shape
+	  * @return the number of distinct rotations of the Shape
+	  */
+	//**************************************************************************************************
+	public static int getNumOfRotations(int shape)
+	{
+		// get the number of rotations
+		return NUM_OF_ROTATIONS[shape];
+	}
+
+	//**************************************************************************************************
+	/** Returns the rotation that is reached by turning the indicated kind of Shape from the passed in
+	  * rotation. Positive turns are clockwise while negative turns are counterclockwise.
+	  * @param shape the kind of Shape
+	  * @param rotation the rotation to turn from
+	  * @param turns the number of quarter turns
+	  * @return the rotation that is reached
+	  */
+	//**************************************************************************************************
+	public static int getRotation(int shape, int rotation, int turns)
+	{
+		// wrap around the rotations of the Shape in either direction
+		return Math.floorMod(rotation + turns, NUM_OF_ROTATIONS[shape]);
+	}
+
+	//**************************************************************************************************
+	/** Returns the x distance of the indicated Block from the focal Block.
+	  * @param shape the kind of Shape
+	  * @param rotation the rotation of the Shape
+	  * @param block the index of the Block (0 is the focal Block)
+	  * @return the x distance of the Block from the focal Block
+	  */
+	//**************************************************************************************************
+	public static int getXOffset(int shape, int rotation, int block)
+	{
+		// look up the x offset
+		return X_OFFSETS[shape][rotation][block];
+	}
+
+	//**************************************************************************************************
+	/** Returns the y distance of the indicated Block from the focal Block.
+	  * @param shape the kind of Shape
+	  * @param rotation the rotation of the Shape
+	  * @param block the index of the Block (0 is the focal Block)
+	  * @return the y distance of the Block from the focal Block
+	  */
+	//**************************************************************************************************
+	public static int getYOffset(int shape, int rotation, int block)
+	{
+		// look up the y offset
+		return Y_OFFSETS[shape][rotation][block];
+	}
+}
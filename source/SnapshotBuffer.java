@@ -0,0 +1,96 @@
+// Author:   Jose Santos
+// FileName: SnapshotBuffer.java
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//******************************************************************************************************
+/** This class creates a SnapshotBuffer object which hands the BoardSnapshots of a BoardModel over from
+  * the thread that runs the game to the thread that paints them, without either of them ever waiting
+  * for the other. It holds three BoardSnapshots:
+  *
+  *   back   the one being copied by the game (only ever touched while holding the lock of the
+  *          GameEngine)
+  *   ready  the last one that was published, waiting to be picked up
+  *   front  the one being painted (only ever touched by the thread that paints)
+  *
+  * Publishing a BoardSnapshot swaps the back one with the ready one, and picking it up swaps the ready
+  * one with the front one. Each swap is a single atomic exchange of the index of the ready one (along
+  * with whether or not it's new), so the painting always sees a BoardSnapshot that was copied in full,
+  * and never the one that is being copied. When the game publishes faster than the painting picks
+  * them up, the BoardSnapshots in between are simply skipped.
+  *
+  * Note that a SnapshotBuffer has a single painter. That is, acquire() must only be called by one
+  * thread at a time (such as the event dispatch thread, or a RenderLoop once it takes over).
+  */
+//******************************************************************************************************
+public class SnapshotBuffer
+{
+	// the bits of the state holding the index of the ready BoardSnapshot, and the bit set when it's new
+	private static final int INDEX_MASK = 3;
+	private static final int NEW        = 4;
+
+	// data members
+	private int           m_back;
+	private int           m_front;
+	private AtomicInteger m_ready;
+	private BoardSnapshot m_snapshots[];
+
+	//**************************************************************************************************
+	/** Creates a SnapshotBuffer object for a BoardModel of the indicated dimension. Until a
+	  * BoardSnapshot is published, an empty one is painted.
+	  * @param rows the number of rows of the BoardModel
+	  * @param cols the number of columns of the BoardModel
+	  */
+	//**************************************************************************************************
+	public SnapshotBuffer(int rows, int cols)
+	{
+		// create the three BoardSnapshots
+		m_snapshots = new BoardSnapshot[3];
+		for (int i = 0; i < m_snapshots.length; i++)
+		{
+			m_snapshots[i] = new BoardSnapshot(rows, cols);
+		}
+
+		// the first one is painted, the second one is ready (but not new) and the third one is copied
+		m_front = 0;
+		m_ready = new AtomicInteger(1);
+		m_back  = 2;
+	}
+
+	//**************************************************************************************************
+	/** Returns the last BoardSnapshot that was published. Note that it stays as it is until the next
+	  * call, and that this must only be called by the thread that paints.
+	  * @return the latest BoardSnapshot
+	  */
+	//**************************************************************************************************
+	public BoardSnapshot acquire()
+	{
+		// pick up the ready BoardSnapshot if it's new (handing back the one that was painted)
+		if ((m_ready.get() & NEW) != 0)
+		{
+			m_front = m_ready.getAndSet(m_front) & INDEX_MASK;
+		}
+
+		return m_snapshots[m_front];
+	}
+
+	//**************************************************************************************************
+	/** Copies the passed in BoardModel into a BoardSnapshot (see BoardSnapshot.copy()) and publishes
+	  * it. Note that this must be called while holding the lock of the GameEngine, and that it never
+	  * waits for the painting.
+	  * @param model the BoardModel to copy
+	  * @param fallOffset how far (as a fraction of a row) the current Shape is drawn towards the next
+	  *                   row
+	  * @param engine the GameEngine that runs the game
+	  * @param ghost true to copy the ghost of the current Shape as well
+	  */
+	//**************************************************************************************************
+	public void publish(BoardModel model, double fallOffset, GameEngine engine, boolean ghost)
+	{
+		// copy the BoardModel into the back BoardSnapshot
+		m_snapshots[m_back].copy(model, fallOffset, engine, ghost);
+
+		// make it the ready one (taking the one that was ready, or handed back, as the next back one)
+		m_back = m_ready.getAndSet(m_back | NEW) & INDEX_MASK;
+	}
+}
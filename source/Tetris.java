@@ -0,0 +1,72 @@
+// Author:   Jose Santos
+// FileName: Tetris.java
+
+//******************************************************************************************************
+/** This class starts the game. It opens the window of the game, unless it's told to play a batch of
+  * games without one (--headless), to tune the weights of the bot (--tune), to play a recorded game
+  * (--replay) or to soak test the restarting of games (--soak). Note that the window is only ever
+  * loaded when it's opened, so none of the first three loads any Swing classes.
+  */
+//******************************************************************************************************
+public class Tetris
+{
+	//**************************************************************************************************
+	private Tetris()
+	{
+	}
+
+	//**************************************************************************************************
+	/** Opens the window of the game, plays a batch of games if --headless is among the options (see
+	  * BatchRunner), tunes the weights of the bot if --tune is among them (see WeightTuner), or plays a
+	  * recorded game if --replay is among them (see ReplayPlayer), or restarts games over and over
+	  * again if --soak is among them (see RestartSoak). Note that the window records its games into
+	  * the directory after --record, keeps checkpoints of them in the directory after --checkpoint
+	  * (see CheckpointFile), prints the latencies of the game with --metrics (see GameMetrics),
+	  * records them with Java Flight Recorder into the file after --jfr (see GameEvents), has bots
+	  * play and restart both games on their own with --attract, and renders its Boards on a thread
+	  * of their own with --active, at the frame rate after --fps if there is one (see RenderLoop).
+	  * @param args the options
+	  */
+	//**************************************************************************************************
+	public static void main(String args[])
+	{
+		// find out whether or not a window is wanted
+		boolean headless = false;
+		boolean replay   = false;
+		boolean soak     = false;
+		boolean tune     = false;
+		for (int i = 0; i < args.length; i++)
+		{
+			headless = headless || args[i].equals("--headless");
+			replay   = replay   || args[i].equals("--replay");
+			soak     = soak     || args[i].equals("--soak");
+			tune     = tune     || args[i].equals("--tune");
+		}
+
+		if (replay)
+		{
+			// play a recorded game
+			ReplayPlayer.main(args);
+		}
+		else if (soak)
+		{
+			// soak test the restarting of games
+			RestartSoak.main(args);
+		}
+		else if (tune)
+		{
+			// tune the weights of the bot
+			WeightTuner.main(args);
+		}
+		else if (headless)
+		{
+			// play a batch of games
+			BatchRunner.main(args);
+		}
+		else
+		{
+			// open the window
+			TetrisGUI.main(args);
+		}
+	}
+}
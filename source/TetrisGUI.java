@@ -3,18 +3,26 @@
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
 import java.net.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import javax.swing.*;
 import javax.swing.JOptionPane;
 
 @SuppressWarnings("serial")
 public class TetrisGUI extends JFrame
 {
+	// the time (in milliseconds) that the last board of a game stays up in attract mode
+	public static final int ATTRACT_RESTART_DELAY = 3000;
+
 	// data members
 	private Board        m_opponentBoard;
 	private Board        m_playerBoard;
+	private GameLoop     m_gameLoop;
 	private BoardManager m_opponentBoardManager;
 	private BoardManager m_playerBoardManager;
 	private LevelManager m_opponentLevelManager;
@@ -24,18 +32,66 @@ public class TetrisGUI extends JFrame
 
 	public static void main(String args[])
 	{
-		// create the TetrisGUI
-		TetrisGUI tetrisGUI = new TetrisGUI();
+		// create the TetrisGUI (with both games played by bots when asked to with --attract, and the
+		// boards rendered actively when asked to with --active or --fps)
+		boolean   attract   = Arrays.asList(args).contains("--attract");
+		TetrisGUI tetrisGUI = new TetrisGUI(attract, createRenderLoop(args));
+
+		// record the games into the directory after --record, keep their checkpoints in the one after
+		// --checkpoint, and record them with Java Flight Recorder into the file after --jfr (if any)
+		for (int i = 0; i < args.length - 1; i++)
+		{
+			if (args[i].equals("--record"))
+			{
+				tetrisGUI.m_playerBoardManager.setReplayDirectory(Paths.get(args[i + 1]));
+				tetrisGUI.m_opponentBoardManager.setReplayDirectory(Paths.get(args[i + 1]));
+			}
+			else if (args[i].equals("--checkpoint"))
+			{
+				tetrisGUI.m_playerBoardManager.setCheckpointDirectory(Paths.get(args[i + 1]));
+				tetrisGUI.m_opponentBoardManager.setCheckpointDirectory(Paths.get(args[i + 1]));
+			}
+			else if (args[i].equals("--jfr"))
+			{
+				startFlightRecording(Paths.get(args[i + 1]));
+			}
+		}
+
+		// time the phases of the games when asked to with --metrics (see GameMetrics)
+		if (Arrays.asList(args).contains("--metrics"))
+		{
+			GameMetrics.getInstance().setEnabled(true);
+		}
+
 		tetrisGUI.run();
 	}
 	//**************************************************************************************************
 	public TetrisGUI()
+	{
+		this(false, null);
+	}
+	//**************************************************************************************************
+	/** Creates a TetrisGUI object. In attract mode, both games are played by bots and restart on their
+	  * own (after showing their last board for a while), so the window can run unattended for good.
+	  * When there is a RenderLoop, the Boards are rendered by it rather than painted by Swing.
+	  * @param attract true for attract mode
+	  * @param renderLoop the RenderLoop that renders the Boards (null to have Swing paint them)
+	  */
+	//**************************************************************************************************
+	public TetrisGUI(boolean attract, RenderLoop renderLoop)
 	{
 		// call the base constructor in order to title the window
 		super("Tetris");
 
 		// initialize the BoardManagers
-		initBoardManagers();
+		initBoardManagers(attract);
+
+		// render the Boards actively (if asked to)
+		if (renderLoop != null)
+		{
+			m_playerBoardManager.setRenderLoop(renderLoop);
+			m_opponentBoardManager.setRenderLoop(renderLoop);
+		}
 
 		// initialize the ScoreManagers
 		initScoreManagers();
@@ -59,7 +115,37 @@ public class TetrisGUI extends JFrame
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 	}
 	//**************************************************************************************************
-	private void initBoardManagers()
+	private static RenderLoop createRenderLoop(String args[])
+	{
+		// will hold the RenderLoop (if any)
+		RenderLoop retVal = null;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--active") && retVal == null)
+			{
+				// render at the default frame rate
+				retVal = new RenderLoop();
+			}
+			else if (args[i].equals("--fps") && i + 1 < args.length)
+			{
+				try
+				{
+					// render at the frame rate after --fps
+					retVal = new RenderLoop(Integer.parseInt(args[i + 1]));
+				}
+				catch (IllegalArgumentException e)
+				{
+					// the Boards are painted by Swing
+					System.err.println("Invalid frame rate: " + args[i + 1]);
+				}
+			}
+		}
+
+		return retVal;
+	}
+	//**************************************************************************************************
+	private void initBoardManagers(boolean attract)
 	{
 		// create the Board for the player on this machine
 		m_playerBoard = new Board(16, 10, "Player 1", Color.BLACK);
@@ -70,15 +156,29 @@ public class TetrisGUI extends JFrame
 		// set the content pane to have a 1 x 2 grid layout
 		getContentPane().setLayout(new GridLayout(1, 2));
 
-		// create the two BoardManagers
-		m_playerBoardManager   = new BoardManager(m_playerBoard, this);
-		m_opponentBoardManager = new BoardManager(m_opponentBoard, null);
+		// create the GameLoop that ticks the games of both BoardManagers
+		m_gameLoop = new GameLoop();
+
+		// create the two BoardManagers (the keys are only read when the player isn't a bot)
+		m_playerBoardManager   = new BoardManager(m_playerBoard, attract ? null : this, m_gameLoop);
+		m_opponentBoardManager = new BoardManager(m_opponentBoard, null, m_gameLoop);
+
+		// in attract mode, the player is a bot as well, and the last board of each game stays up
+		if (attract)
+		{
+			m_playerBoardManager.setBot(new HeuristicBot());
+			m_playerBoardManager.setRestartDelay(ATTRACT_RESTART_DELAY);
+			m_opponentBoardManager.setRestartDelay(ATTRACT_RESTART_DELAY);
+		}
 
 		// add the playerBoardManager to the content pane
 		getContentPane().add(m_playerBoardManager);
 
+		// the opponent is played by a bot
+		m_opponentBoardManager.setBot(new HeuristicBot());
+
 		// add the opponentBoardManager to the content pane
-		//getContentPane().add(m_opponentBoardManager);
+		getContentPane().add(m_opponentBoardManager);
 	}
 	//**************************************************************************************************
 	private void initLevelManagers()
@@ -89,11 +189,17 @@ public class TetrisGUI extends JFrame
 		// create the LevelManager that will observe the BoardManager of the opponent
 		m_opponentLevelManager = new LevelManager(m_opponentBoardManager);
 
-		// attach the playerLevelManager to the playerBoardManager
-		m_playerBoardManager.attach(m_playerLevelManager);
+		// the LevelManagers follow the starts of the games and the changes of the levels
+		int types = GameEvent.maskOf(GameEvent.GAME_STARTED) |
+		            GameEvent.maskOf(GameEvent.LEVEL_CHANGED);
+
+		// attach the playerLevelManager to the GameEngine of the playerBoardManager
+		GameEventBus events = m_playerBoardManager.getEngine().getEvents();
+		events.addDeferredListener(m_playerLevelManager, types);
 
-		// attach the opponentLevelManager to the opponentBoardManager
-		m_opponentBoardManager.attach(m_opponentLevelManager);
+		// attach the opponentLevelManager to the GameEngine of the opponentBoardManager
+		events = m_opponentBoardManager.getEngine().getEvents();
+		events.addDeferredListener(m_opponentLevelManager, types);
 	}
 	//**************************************************************************************************
 	private void initScoreManagers()
@@ -104,17 +210,36 @@ public class TetrisGUI extends JFrame
 		// create the ScoreManager that will observe the BoardManager of the opponent
 		m_opponentScoreManager = new ScoreManager(m_opponentBoardManager);
 
-		// attach the playerScoreManager to the playerBoardManager
-		m_playerBoardManager.attach(m_playerScoreManager);
+		// the ScoreManagers follow the starts of the games and the landing Shapes
+		int types = GameEvent.maskOf(GameEvent.GAME_STARTED) | GameEvent.maskOf(GameEvent.PIECE_LOCKED);
 
-		// attach the opponentScoreManager to the opponentBoardManager
-		m_opponentBoardManager.attach(m_opponentScoreManager);
+		// attach the playerScoreManager to the GameEngine of the playerBoardManager
+		GameEventBus events = m_playerBoardManager.getEngine().getEvents();
+		events.addDeferredListener(m_playerScoreManager, types);
+
+		// attach the opponentScoreManager to the GameEngine of the opponentBoardManager
+		events = m_opponentBoardManager.getEngine().getEvents();
+		events.addDeferredListener(m_opponentScoreManager, types);
 	}
 	//**************************************************************************************************
 	public void run()
 	{
 		// start the Tetris game
 		m_playerBoardManager.startGame();
-		//m_opponentBoardManager.startGame();
+		m_opponentBoardManager.startGame();
+	}
+	//**************************************************************************************************
+	private static void startFlightRecording(Path file)
+	{
+		try
+		{
+			// record the game events into the file (it's written when the game is closed)
+			GameEvents.startRecording(file);
+		}
+		catch (IOException e)
+		{
+			// the game is played without being recorded
+			System.err.println("Couldn't start the flight recording: " + e.getMessage());
+		}
 	}
 }
\ No newline at end of file
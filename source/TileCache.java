@@ -0,0 +1,431 @@
+// Author:   Jose Santos
+// FileName: TileCache.java
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.PrintStream;
+
+//******************************************************************************************************
+/** This class creates the TileCache object which holds the images of the cells painted by the
+  * BoardCanvases. Every Shape is given a color of its own (see ShapeGenerator.generateShape()), so
+  * the tiles can't all be drawn up front. Instead, the tile of a color, size and style is drawn the
+  * first time it's painted, and from then on painting a cell takes a single drawImage():
+  *
+  *   tiles.drawTile(g, rgb, x, y, width, height, TileCache.RAISED);
+  *
+  * The tiles are kept until the bytes of their pixels go over a limit, at which point the ones that
+  * were painted the longest time ago are thrown away, so the memory they take stays capped however
+  * long the game is played. Looking up a tile creates nothing, and the hits, misses and evictions are
+  * counted along the way. There is a single TileCache object, shared by every BoardCanvas, and it may
+  * be used from any thread.
+  */
+//******************************************************************************************************
+public class TileCache
+{
+	// the styles of the tiles: flat (an empty cell), with a raised border (a filled cell), and darker
+	// with a sunken border (the ghost of a Shape, in the color of the Shape)
+	public static final int FLAT   = 0;
+	public static final int RAISED = 1;
+	public static final int GHOST  = 2;
+
+	// the default limit (in bytes) of the pixels of the tiles
+	public static final long DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+
+	// the largest width and height of a tile (so that they fit in its key)
+	public static final int MAX_TILE_SIZE = (1 << 14) - 1;
+
+	// the number of bytes of a pixel, and the initial number of buckets
+	private static final int BYTES_PER_PIXEL     = 4;
+	private static final int INITIAL_NUM_BUCKETS = 256;
+
+	// the TileCache object
+	private static final TileCache INSTANCE = new TileCache();
+
+	// data members
+	private Tile m_buckets[];
+	private long m_bytes;
+	private long m_evictions;
+	private Tile m_eldest;
+	private long m_hits;
+	private long m_maxBytes;
+	private long m_misses;
+	private Tile m_newest;
+	private int  m_numOfTiles;
+
+	//**************************************************************************************************
+	private TileCache()
+	{
+		// no tile has been drawn yet
+		m_buckets  = new Tile[INITIAL_NUM_BUCKETS];
+		m_maxBytes = DEFAULT_MAX_BYTES;
+	}
+
+	//**************************************************************************************************
+	private void addNewest(Tile tile)
+	{
+		// the tile goes in front of the one that was painted last
+		tile.m_older = m_newest;
+		tile.m_newer = null;
+		if (m_newest != null)
+		{
+			m_newest.m_newer = tile;
+		}
+		m_newest = tile;
+
+		// it's the eldest as well if it's the only one
+		if (m_eldest == null)
+		{
+			m_eldest = tile;
+		}
+	}
+
+	//**************************************************************************************************
+	/** Throws away every tile (and the counts of the hits, misses and evictions).
+	  */
+	//**************************************************************************************************
+	public synchronized void clear()
+	{
+		// throw away the tiles
+		while (m_eldest != null)
+		{
+			removeEldest();
+		}
+
+		// nothing has been counted
+		m_evictions = 0;
+		m_hits      = 0;
+		m_misses    = 0;
+	}
+
+	//**************************************************************************************************
+	private static Image createImage(Graphics g, int width, int height)
+	{
+		//****************************************************************************************//
+		// NOTE: The tile is made to suit the device that it's first painted on, so that it can   //
+		//       be copied over (by the video card when there is one) without being converted.    //
+		//****************************************************************************************//
+		if (g instanceof Graphics2D)
+		{
+			GraphicsConfiguration config = ((Graphics2D) g).getDeviceConfiguration();
+			if (config != null)
+			{
+				return config.createCompatibleImage(width, height, Transparency.OPAQUE);
+			}
+		}
+
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+	}
+
+	//**************************************************************************************************
+	/** Paints a cell with the tile of the indicated color, size and style, drawing the tile first if
+	  * it isn't in this TileCache yet. Nothing is painted if the cell has no width or height.
+	  * @param g the Graphics to paint with
+	  * @param rgb the color of the cell
+	  * @param x the x position of the cell
+	  * @param y the y position of the cell
+	  * @param width the width of the cell (at most MAX_TILE_SIZE)
+	  * @param height the height of the cell (at most MAX_TILE_SIZE)
+	  * @param style FLAT, RAISED or GHOST
+	  */
+	//**************************************************************************************************
+	public void drawTile(Graphics g, int rgb, int x, int y, int width, int height, int style)
+	{
+		// a cell that takes up no room isn't painted
+		if (width <= 0 || height <= 0)
+		{
+			return;
+		}
+
+		// copy the tile over (a bigger cell is painted with the biggest tile there is)
+		width  = Math.min(width, MAX_TILE_SIZE);
+		height = Math.min(height, MAX_TILE_SIZE);
+		g.drawImage(getTile(g, rgb, width, height, style), x, y, null);
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of bytes taken by the pixels of the tiles.
+	  * @return the number of bytes of the tiles
+	  */
+	//**************************************************************************************************
+	public synchronized long getBytes()
+	{
+		// get the number of bytes
+		return m_bytes;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of tiles thrown away to stay under the limit.
+	  * @return the number of evictions
+	  */
+	//**************************************************************************************************
+	public synchronized long getEvictions()
+	{
+		// get the number of evictions
+		return m_evictions;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of tiles that were painted without having to be drawn.
+	  * @return the number of hits
+	  */
+	//**************************************************************************************************
+	public synchronized long getHits()
+	{
+		// get the number of hits
+		return m_hits;
+	}
+
+	//**************************************************************************************************
+	/** Returns the TileCache object.
+	  * @return the TileCache
+	  */
+	//**************************************************************************************************
+	public static TileCache getInstance()
+	{
+		// get the TileCache
+		return INSTANCE;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of tiles that had to be drawn before they were painted.
+	  * @return the number of misses
+	  */
+	//**************************************************************************************************
+	public synchronized long getMisses()
+	{
+		// get the number of misses
+		return m_misses;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of tiles in this TileCache.
+	  * @return the number of tiles
+	  */
+	//**************************************************************************************************
+	public synchronized int getNumOfTiles()
+	{
+		// get the number of tiles
+		return m_numOfTiles;
+	}
+
+	//**************************************************************************************************
+	private synchronized Image getTile(Graphics g, int rgb, int width, int height, int style)
+	{
+		// the color, size and style of the tile make up its key
+		long key = (rgb & 0xFFFFFFFFL) | (long)width << 32 | (long)height << 46 | (long)style << 60;
+
+		// look for the tile in its bucket
+		Tile tile = m_buckets[indexOf(key, m_buckets.length)];
+		while (tile != null && tile.m_key != key)
+		{
+			tile = tile.m_nextInBucket;
+		}
+
+		if (tile != null)
+		{
+			// the tile is now the one that was painted last
+			m_hits++;
+			if (tile != m_newest)
+			{
+				unlink(tile);
+				addNewest(tile);
+			}
+		}
+		else
+		{
+			// draw the tile, and keep it
+			m_misses++;
+			tile = new Tile(key, renderTile(g, rgb, width, height, style));
+			put(tile);
+
+			// throw away the tiles painted the longest time ago until the rest fit (this one stays)
+			while (m_bytes > m_maxBytes && m_eldest != tile)
+			{
+				removeEldest();
+				m_evictions++;
+			}
+		}
+
+		return tile.m_image;
+	}
+
+	//**************************************************************************************************
+	private static int indexOf(long key, int numOfBuckets)
+	{
+		// spread the bits of the key over the bits of the index
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int)(hash >>> 32) & (numOfBuckets - 1);
+	}
+
+	//**************************************************************************************************
+	/** Prints the number of tiles and the bytes they take, along with the hits, misses and evictions.
+	  * @param out the PrintStream to print to
+	  */
+	//**************************************************************************************************
+	public synchronized void print(PrintStream out)
+	{
+		// work out the share of the tiles that were painted without having to be drawn
+		long   lookups = m_hits + m_misses;
+		double hitRate = (lookups > 0) ? 100.0 * m_hits / lookups : 0.0;
+
+		out.printf("tiles: %d (%.1f KB), hits: %d, misses: %d (%.2f%% hit), evictions: %d%n",
+		           m_numOfTiles, m_bytes / 1024.0, m_hits, m_misses, hitRate, m_evictions);
+	}
+
+	//**************************************************************************************************
+	private void put(Tile tile)
+	{
+		// double the buckets once there are more tiles than buckets
+		if (m_numOfTiles >= m_buckets.length)
+		{
+			resize(m_buckets.length * 2);
+		}
+
+		// put the tile in its bucket
+		int index           = indexOf(tile.m_key, m_buckets.length);
+		tile.m_nextInBucket = m_buckets[index];
+		m_buckets[index]    = tile;
+
+		// the tile is the one that was painted last
+		addNewest(tile);
+		m_numOfTiles++;
+		m_bytes += tile.m_bytes;
+	}
+
+	//**************************************************************************************************
+	private void removeEldest()
+	{
+		// take the tile painted the longest time ago out of its bucket
+		Tile eldest = m_eldest;
+		int  index  = indexOf(eldest.m_key, m_buckets.length);
+		if (m_buckets[index] == eldest)
+		{
+			m_buckets[index] = eldest.m_nextInBucket;
+		}
+		else
+		{
+			Tile tile = m_buckets[index];
+			while (tile.m_nextInBucket != eldest)
+			{
+				tile = tile.m_nextInBucket;
+			}
+			tile.m_nextInBucket = eldest.m_nextInBucket;
+		}
+
+		// and out of the order of painting
+		unlink(eldest);
+		m_numOfTiles--;
+		m_bytes -= eldest.m_bytes;
+
+		// let go of the pixels (including any copy of them on the video card)
+		eldest.m_image.flush();
+	}
+
+	//**************************************************************************************************
+	private static Image renderTile(Graphics g, int rgb, int width, int height, int style)
+	{
+		// will hold the tile
+		Image retVal = createImage(g, width, height);
+
+		// fill the tile with its color (and a raised or sunken border, if it has one)
+		Graphics tileGraphics = retVal.getGraphics();
+		tileGraphics.setColor(new Color(rgb));
+		if (style == RAISED)
+		{
+			tileGraphics.fill3DRect(0, 0, width, height, true);
+		}
+		else if (style == GHOST)
+		{
+			tileGraphics.setColor(new Color(rgb).darker().darker());
+			tileGraphics.fill3DRect(0, 0, width, height, false);
+		}
+		else
+		{
+			tileGraphics.fillRect(0, 0, width, height);
+		}
+		tileGraphics.dispose();
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private void resize(int numOfBuckets)
+	{
+		// put every tile in its bucket among the new ones
+		Tile buckets[] = new Tile[numOfBuckets];
+		for (Tile tile = m_eldest; tile != null; tile = tile.m_newer)
+		{
+			int index           = indexOf(tile.m_key, numOfBuckets);
+			tile.m_nextInBucket = buckets[index];
+			buckets[index]      = tile;
+		}
+
+		// store the buckets
+		m_buckets = buckets;
+	}
+
+	//**************************************************************************************************
+	/** Sets the limit of the bytes taken by the pixels of the tiles, throwing tiles away if they go
+	  * over it. Note that the tile painted last is always kept, however big it is.
+	  * @param maxBytes the limit (in bytes)
+	  */
+	//**************************************************************************************************
+	public synchronized void setMaxBytes(long maxBytes)
+	{
+		// store the limit
+		m_maxBytes = maxBytes;
+
+		// throw away the tiles painted the longest time ago until the rest fit
+		while (m_bytes > m_maxBytes && m_eldest != m_newest)
+		{
+			removeEldest();
+			m_evictions++;
+		}
+	}
+
+	//**************************************************************************************************
+	private void unlink(Tile tile)
+	{
+		// join the tiles painted before and after it
+		if (tile.m_older != null)
+		{
+			tile.m_older.m_newer = tile.m_newer;
+		}
+		else
+		{
+			m_eldest = tile.m_newer;
+		}
+
+		if (tile.m_newer != null)
+		{
+			tile.m_newer.m_older = tile.m_older;
+		}
+		else
+		{
+			m_newest = tile.m_older;
+		}
+	}
+
+	//**************************************************************************************************
+	/** This class holds the image of a tile along with its key, and links it to the next tile in its
+	  * bucket and to the tiles painted right before and after it.
+	  */
+	//**************************************************************************************************
+	private static class Tile
+	{
+		// data members
+		private final long  m_bytes;
+		private final Image m_image;
+		private final long  m_key;
+		private Tile        m_newer;
+		private Tile        m_nextInBucket;
+		private Tile        m_older;
+
+		Tile(long key, Image image)
+		{
+			m_key   = key;
+			m_image = image;
+			m_bytes = (long)image.getWidth(null) * image.getHeight(null) * BYTES_PER_PIXEL;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+// Author:   Jose Santos
+// FileName: TranspositionTable.java
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//******************************************************************************************************
+/** This class creates a TranspositionTable object which remembers the scores of the BoardStates that
+  * have already been judged, looked up by their Zobrist hash. A search reaches the same BoardState over
+  * and over (placing two Shapes in either order, or thinking about the next Shape twice in a row), so
+  * a score only has to be worked out the first time. The table has a fixed size and is shared by every
+  * thread of a search without any locking:
+  *
+  *   - each entry is stored as a check word, a score and a stamp, where the check word is the hash
+  *     exclusive or'ed with the other two. An entry that is torn by two threads writing it at once no
+  *     longer checks out, so it's simply treated as missing.
+  *   - each hash has a bucket of two entries. A new score goes into the entry that already holds the
+  *     hash, or else an empty one, or else the one that was stored during the oldest generation.
+  *
+  * Note that a score can be lost or overwritten at any time, so the table is only ever a shortcut.
+  */
+//******************************************************************************************************
+public class TranspositionTable
+{
+	// the default number of buckets
+	public static final int DEFAULT_NUM_OF_BUCKETS = 1 << 15;
+
+	// the number of entries in a bucket, and the number of words in an entry
+	private static final int ENTRIES_PER_BUCKET = 2;
+	private static final int WORDS_PER_ENTRY    = 3;
+
+	// the words of an entry
+	private static final int CHECK = 0;
+	private static final int SCORE = 1;
+	private static final int STAMP = 2;
+
+	// data members
+	private AtomicLongArray m_entries;
+	private volatile long   m_generation;
+	private int             m_mask;
+
+	//**************************************************************************************************
+	/** Creates a TranspositionTable object with the default number of buckets.
+	  */
+	//**************************************************************************************************
+	public TranspositionTable()
+	{
+		this(DEFAULT_NUM_OF_BUCKETS);
+	}
+
+	//**************************************************************************************************
+	/** Creates a TranspositionTable object with (at least) the indicated number of buckets. Note that
+	  * the number of buckets is rounded up to a power of two.
+	  * @param numOfBuckets the number of buckets
+	  */
+	//**************************************************************************************************
+	public TranspositionTable(int numOfBuckets)
+	{
+		// round the number of buckets up to a power of two, so a hash picks its bucket with a mask
+		int buckets = Integer.highestOneBit(Math.max(1, numOfBuckets - 1)) << 1;
+		m_mask      = buckets - 1;
+
+		// create the entries (all empty, since no entry is ever stamped 0)
+		m_entries = new AtomicLongArray(buckets * ENTRIES_PER_BUCKET * WORDS_PER_ENTRY);
+
+		// the first generation
+		m_generation = 1;
+	}
+
+	//**************************************************************************************************
+	/** Empties this TranspositionTable. Note that this must not be called while a search is using it.
+	  */
+	//**************************************************************************************************
+	public void clear()
+	{
+		// empty every word
+		for (int i = 0; i < m_entries.length(); i++)
+		{
+			m_entries.set(i, 0);
+		}
+	}
+
+	//**************************************************************************************************
+	private int getBucket(long hash)
+	{
+		// spread the high bits of the hash into the bucket index
+		return (int)((hash ^ (hash >>> 32)) & m_mask) * ENTRIES_PER_BUCKET * WORDS_PER_ENTRY;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of entries of this TranspositionTable.
+	  * @return the number of entries
+	  */
+	//**************************************************************************************************
+	public int getNumOfEntries()
+	{
+		// get the number of entries
+		return m_entries.length() / WORDS_PER_ENTRY;
+	}
+
+	//**************************************************************************************************
+	/** Starts a new generation. The scores stored before this are the first to be replaced once their
+	  * buckets fill up, so a new search can push out the BoardStates of the old ones.
+	  */
+	//**************************************************************************************************
+	public void newGeneration()
+	{
+		// move on to the next generation
+		m_generation = m_generation + 1;
+	}
+
+	//**************************************************************************************************
+	/** Returns the score stored for the passed in hash.
+	  * @param hash the Zobrist hash of the BoardState
+	  * @return the score of the BoardState, or Double.NaN if it isn't stored
+	  */
+	//**************************************************************************************************
+	public double probe(long hash)
+	{
+		// will hold the score
+		double retVal = Double.NaN;
+
+		// get the first entry of the bucket
+		int bucket = getBucket(hash);
+
+		for (int i = 0; i < ENTRIES_PER_BUCKET; i++)
+		{
+			// read the words of the entry
+			int  entry = bucket + i * WORDS_PER_ENTRY;
+			long score = m_entries.get(entry + SCORE);
+			long stamp = m_entries.get(entry + STAMP);
+			long check = m_entries.get(entry + CHECK);
+
+			// the entry holds the hash only if it isn't empty and it checks out
+			if (stamp != 0 && (check ^ score ^ stamp) == hash)
+			{
+				retVal = Double.longBitsToDouble(score);
+				break;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Stores the score of the BoardState with the passed in hash.
+	  * @param hash the Zobrist hash of the BoardState
+	  * @param score the score of the BoardState
+	  */
+	//**************************************************************************************************
+	public void store(long hash, double score)
+	{
+		// get the first entry of the bucket
+		int bucket = getBucket(hash);
+
+		// will hold the entry to replace (the one with the oldest stamp unless a better one is found)
+		int  victim      = bucket;
+		long victimStamp = Long.MAX_VALUE;
+
+		for (int i = 0; i < ENTRIES_PER_BUCKET; i++)
+		{
+			// read the words of the entry
+			int  entry = bucket + i * WORDS_PER_ENTRY;
+			long stamp = m_entries.get(entry + STAMP);
+			long check = m_entries.get(entry + CHECK) ^ m_entries.get(entry + SCORE) ^ stamp;
+
+			if (stamp == 0 || check == hash)
+			{
+				// an empty entry, or one that already holds the hash, is always the one to use
+				victim = entry;
+				break;
+			}
+			else if (stamp < victimStamp)
+			{
+				// otherwise, the entry from the oldest generation is replaced
+				victim      = entry;
+				victimStamp = stamp;
+			}
+		}
+
+		// write the entry (the check word ties the words together)
+		long bits  = Double.doubleToRawLongBits(score);
+		long stamp = m_generation;
+		m_entries.set(victim + SCORE, bits);
+		m_entries.set(victim + STAMP, stamp);
+		m_entries.set(victim + CHECK, hash ^ bits ^ stamp);
+	}
+}
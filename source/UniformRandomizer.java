@@ -0,0 +1,43 @@
+// Author:   Jose Santos
+// FileName: UniformRandomizer.java
+
+import java.util.SplittableRandom;
+
+//******************************************************************************************************
+/** This class creates a UniformRandomizer object which picks every Shape independently, with all the
+  * kinds of Shapes being equally likely. Note that this is how Shapes have always been picked.
+  */
+//******************************************************************************************************
+public class UniformRandomizer implements Randomizer
+{
+	//**************************************************************************************************
+	/** Returns the name of this UniformRandomizer.
+	  * @return "uniform"
+	  */
+	//**************************************************************************************************
+	public String getName()
+	{
+		// get the name
+		return "uniform";
+	}
+
+	//**************************************************************************************************
+	/** Returns the kind of the next Shape, picked uniformly at random.
+	  * @param random the source of random numbers of the game
+	  * @return the kind of the next Shape
+	  */
+	//**************************************************************************************************
+	public int nextShape(SplittableRandom random)
+	{
+		// every kind of Shape is equally likely
+		return random.nextInt(ShapeTable.NUM_OF_SHAPES);
+	}
+
+	//**************************************************************************************************
+	/** Resets this UniformRandomizer. Note that there is nothing to reset since no state is kept.
+	  */
+	//**************************************************************************************************
+	public void reset()
+	{
+	}
+}
@@ -0,0 +1,64 @@
+// Author:   Jose Santos
+// FileName: Varint.java
+
+import java.nio.ByteBuffer;
+
+//******************************************************************************************************
+/** This class reads and writes varints. A varint takes a byte for every 7 bits that its value needs
+  * (lowest first, with the top bit of each byte set when another byte follows), so small values take
+  * a single byte. Note that the values are treated as unsigned.
+  */
+//******************************************************************************************************
+public final class Varint
+{
+	// the most bytes taken by a varint (of a long)
+	public static final int MAX_BYTES = 10;
+
+	//**************************************************************************************************
+	private Varint()
+	{
+	}
+
+	//**************************************************************************************************
+	/** Reads a varint from the passed in ByteBuffer.
+	  * @param buffer the ByteBuffer to read from
+	  * @return the value of the varint
+	  * @throws java.nio.BufferUnderflowException if the varint is cut short
+	  */
+	//**************************************************************************************************
+	public static long read(ByteBuffer buffer)
+	{
+		// will hold the value
+		long retVal = 0;
+
+		// add in 7 bits at a time (lowest first) until a byte without its top bit set
+		int shift = 0;
+		int b;
+		do
+		{
+			b       = buffer.get();
+			retVal |= (long)(b & 0x7F) << shift;
+			shift  += 7;
+		}
+		while ((b & 0x80) != 0);
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Writes a varint to the passed in ByteBuffer. Note that it takes at most MAX_BYTES bytes.
+	  * @param buffer the ByteBuffer to write to
+	  * @param value the value to write
+	  */
+	//**************************************************************************************************
+	public static void write(ByteBuffer buffer, long value)
+	{
+		// write 7 bits at a time (lowest first), setting the top bit while more bits follow
+		while ((value & ~0x7FL) != 0)
+		{
+			buffer.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+}
@@ -0,0 +1,662 @@
+// Author:   Jose Santos
+// FileName: WeightTuner.java
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+//******************************************************************************************************
+/** This class creates a WeightTuner object which evolves the BotWeights of a bot. A population of
+  * weights is kept, and on every generation each of them plays the same few headless games (so their
+  * fitness, the average number of rows cleared, can be compared fairly). The fittest weights live on,
+  * and the rest are replaced by children of the fittest, which are a mix of their parents (each parent
+  * counting as much as its fitness) with the odd random change thrown in. Note the following:
+  *
+  *   - all the games of a generation are played at once on a ForkJoinPool, so idle threads steal the
+  *     games (and the searches) of busy ones.
+  *   - every game, and every random choice, follows from the seed of the tuner and the generation, so
+  *     a run can be repeated exactly.
+  *   - the population is written to the checkpoint file after every generation (and the file is only
+  *     ever replaced as a whole), so a run that is stopped can be picked up where it left off.
+  *
+  * The weights are kept at a length of 1, since a bot only compares scores and so plays the same with
+  * any multiple of its weights.
+  */
+//******************************************************************************************************
+public class WeightTuner
+{
+	// the default settings of a run
+	public static final int DEFAULT_GAMES       = 8;
+	public static final int DEFAULT_GENERATIONS = 20;
+	public static final int DEFAULT_MAX_PIECES  = 500;
+	public static final int DEFAULT_POPULATION  = 40;
+
+	// the part of the population that is replaced by children on every generation
+	private static final double OFFSPRING_RATE = 0.3;
+
+	// the part of the population that takes part in each tournament for a parent
+	private static final double TOURNAMENT_RATE = 0.1;
+
+	// the chance of a child having one of its weights changed, and the most it's changed by
+	private static final double MUTATION_RATE = 0.05;
+	private static final double MUTATION_SIZE = 0.2;
+
+	// data members
+	private Path        m_checkpoint;
+	private double      m_fitness[];
+	private int         m_generation;
+	private int         m_maxPieces;
+	private int         m_numOfGames;
+	private int         m_numOfGenerations;
+	private int         m_numOfThreads;
+	private PrintStream m_out;
+	private double      m_population[][];
+	private int         m_populationSize;
+	private long        m_seed;
+
+	//**************************************************************************************************
+	/** Creates a WeightTuner object with the default settings, which prints its progress to the
+	  * standard output. Note that no checkpoint file is written until one is set.
+	  */
+	//**************************************************************************************************
+	public WeightTuner()
+	{
+		// set the default settings
+		m_numOfGames       = DEFAULT_GAMES;
+		m_numOfGenerations = DEFAULT_GENERATIONS;
+		m_maxPieces        = DEFAULT_MAX_PIECES;
+		m_numOfThreads     = Runtime.getRuntime().availableProcessors();
+		m_populationSize   = DEFAULT_POPULATION;
+		m_seed             = 1;
+		m_out              = System.out;
+	}
+
+	//**************************************************************************************************
+	private double[] breed(double mother[], double motherFitness, double father[], double fatherFitness,
+	                       SplittableRandom random)
+	{
+		// each parent counts as much as its fitness (or both count the same if neither is fit at all)
+		double total = motherFitness + fatherFitness;
+		double share = (total > 0.0) ? motherFitness / total : 0.5;
+
+		// mix the weights of the parents
+		double retVal[] = new double[BotWeights.NUM_OF_FEATURES];
+		for (int i = 0; i < retVal.length; i++)
+		{
+			retVal[i] = share * mother[i] + (1.0 - share) * father[i];
+		}
+
+		// every so often, change one of the weights at random
+		if (random.nextDouble() < MUTATION_RATE)
+		{
+			retVal[random.nextInt(retVal.length)] += (random.nextDouble() * 2.0 - 1.0) * MUTATION_SIZE;
+		}
+
+		return normalize(retVal);
+	}
+
+	//**************************************************************************************************
+	private void evaluate(ForkJoinPool pool) throws InterruptedException, ExecutionException
+	{
+		// every member of the population plays the same games
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ForkJoinTask<GameResult> games[][] = new ForkJoinTask[m_populationSize][m_numOfGames];
+
+		for (int i = 0; i < m_populationSize; i++)
+		{
+			// the searches of a member share nothing, since a TranspositionTable holds the scores of
+			// a single set of weights
+			final PlacementSearch search = new PlacementSearch(new BotWeights(m_population[i]), 1,
+			                                                   PlacementSearch.DEFAULT_BEAM_WIDTH, pool, null);
+
+			for (int j = 0; j < m_numOfGames; j++)
+			{
+				// the seeds of the games change with each generation
+				final long seed = getGameSeed(j);
+				games[i][j] = pool.submit(new Callable<GameResult>()
+				{
+					public GameResult call()
+					{
+						// play the game to the end (or to the limit)
+						ShapeGenerator generator = new ShapeGenerator(new UniformRandomizer(), seed);
+						GameEngine     engine    = new GameEngine(BatchRunner.DEFAULT_ROWS,
+						                                          BatchRunner.DEFAULT_COLS, generator);
+						return BatchRunner.playGame(engine, search, seed, m_maxPieces, 0);
+					}
+				});
+			}
+		}
+
+		for (int i = 0; i < m_populationSize; i++)
+		{
+			// the fitness is the average number of rows cleared
+			double lines = 0.0;
+			for (int j = 0; j < m_numOfGames; j++)
+			{
+				lines += games[i][j].get().getLines();
+			}
+			m_fitness[i] = lines / m_numOfGames;
+		}
+	}
+
+	//**************************************************************************************************
+	private long getGameSeed(int game)
+	{
+		// a different set of games for every generation
+		return m_seed + (long)m_generation * m_numOfGames + game;
+	}
+
+	//**************************************************************************************************
+	private static String getArgument(String args[], int i)
+	{
+		// every option but --tune is followed by its value
+		if (i + 1 >= args.length)
+		{
+			throw new IllegalArgumentException("Missing value for " + args[i]);
+		}
+
+		return args[i + 1];
+	}
+
+	//**************************************************************************************************
+	/** Returns the fittest BotWeights of the last generation that was played.
+	  * @return the fittest BotWeights (or null if no generation has been played)
+	  */
+	//**************************************************************************************************
+	public BotWeights getBest()
+	{
+		// will hold the fittest BotWeights
+		BotWeights retVal = null;
+
+		if (m_fitness != null)
+		{
+			// find the fittest member of the population
+			int best = 0;
+			for (int i = 1; i < m_populationSize; i++)
+			{
+				if (m_fitness[i] > m_fitness[best])
+				{
+					best = i;
+				}
+			}
+
+			retVal = new BotWeights(m_population[best]);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the number of generations that have been played (including those of the checkpoint that
+	  * the run was picked up from).
+	  * @return the number of generations played
+	  */
+	//**************************************************************************************************
+	public int getGeneration()
+	{
+		// get the generation
+		return m_generation;
+	}
+
+	//**************************************************************************************************
+	private void initPopulation()
+	{
+		// the first population follows from the seed alone
+		SplittableRandom random = new SplittableRandom(m_seed);
+
+		m_population = new double[m_populationSize][];
+		for (int i = 0; i < m_populationSize; i++)
+		{
+			// the default weights are a member of the population, so the tuner can only do better
+			if (i == 0)
+			{
+				m_population[i] = normalize(new BotWeights().getWeights());
+			}
+			else
+			{
+				// pick every weight at random
+				double weights[] = new double[BotWeights.NUM_OF_FEATURES];
+				for (int j = 0; j < weights.length; j++)
+				{
+					weights[j] = random.nextDouble() * 2.0 - 1.0;
+				}
+				m_population[i] = normalize(weights);
+			}
+		}
+
+		// no generation has been played yet
+		m_generation = 0;
+	}
+
+	//**************************************************************************************************
+	/** Reads the population from the checkpoint file, so the run can carry on from the generation after
+	  * the last one that was played. Note that the size of the population is taken from the file.
+	  * @return true if a checkpoint was read (false if there is no checkpoint file)
+	  * @throws IOException if the checkpoint file can't be read
+	  */
+	//**************************************************************************************************
+	public boolean loadCheckpoint() throws IOException
+	{
+		// will hold whether or not a checkpoint was read
+		boolean retVal = false;
+
+		if (m_checkpoint != null && Files.exists(m_checkpoint))
+		{
+			List<double[]> population = new ArrayList<double[]>();
+			int            generation = 0;
+
+			try (BufferedReader reader = Files.newBufferedReader(m_checkpoint, StandardCharsets.UTF_8))
+			{
+				for (String line = reader.readLine(); line != null; line = reader.readLine())
+				{
+					// each line is a key followed by its value
+					String parts[] = line.trim().split("\\s+", 2);
+					if (parts.length < 2)
+					{
+						throw new IllegalArgumentException("Missing value: " + line);
+					}
+
+					if (parts[0].equals("generation"))
+					{
+						generation = Integer.parseInt(parts[1]);
+					}
+					else if (parts[0].equals("seed"))
+					{
+						m_seed = Long.parseLong(parts[1]);
+					}
+					else if (parts[0].equals("weights"))
+					{
+						population.add(BotWeights.parse(parts[1]).getWeights());
+					}
+				}
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new IOException("Invalid checkpoint " + m_checkpoint + ": " + e.getMessage(), e);
+			}
+
+			// an empty checkpoint is no checkpoint at all
+			if (!population.isEmpty())
+			{
+				m_population     = population.toArray(new double[population.size()][]);
+				m_populationSize = m_population.length;
+				m_generation     = generation;
+				m_fitness        = null;
+				retVal           = true;
+			}
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Tunes the BotWeights as told by the passed in options, and prints the fittest ones.
+	  * @param args the options of the run
+	  */
+	//**************************************************************************************************
+	public static void main(String args[])
+	{
+		// nothing in a run needs a display
+		System.setProperty("java.awt.headless", "true");
+
+		// create the WeightTuner
+		WeightTuner tuner = new WeightTuner();
+
+		try
+		{
+			// read the options
+			tuner.parseArgs(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// tell the user what went wrong, and how it's done right
+			System.err.println(e.getMessage());
+			printUsage(System.err);
+			System.exit(1);
+		}
+
+		try
+		{
+			// tune the weights
+			BotWeights best = tuner.run();
+			System.out.println("best " + best);
+		}
+		catch (IOException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	//**************************************************************************************************
+	private static double max(double values[])
+	{
+		// find the largest value
+		double retVal = values[0];
+		for (int i = 1; i < values.length; i++)
+		{
+			retVal = Math.max(retVal, values[i]);
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	private static double mean(double values[])
+	{
+		// add up the values
+		double sum = 0.0;
+		for (int i = 0; i < values.length; i++)
+		{
+			sum += values[i];
+		}
+
+		return sum / values.length;
+	}
+
+	//**************************************************************************************************
+	private void nextGeneration()
+	{
+		// the random choices of a generation follow from the seed and the generation alone
+		SplittableRandom random = new SplittableRandom(m_seed * 31 + m_generation);
+
+		// rank the population from the fittest down
+		int ranks[] = rankPopulation();
+
+		// the fittest members live on
+		int    numOfChildren  = (int)Math.round(m_populationSize * OFFSPRING_RATE);
+		double population[][] = new double[m_populationSize][];
+		for (int i = 0; i < m_populationSize - numOfChildren; i++)
+		{
+			population[i] = m_population[ranks[i]];
+		}
+
+		// the rest are children of the winners of two tournaments
+		for (int i = m_populationSize - numOfChildren; i < m_populationSize; i++)
+		{
+			int mother    = tournament(random);
+			int father    = tournament(random);
+			population[i] = breed(m_population[mother], m_fitness[mother], m_population[father],
+			                      m_fitness[father], random);
+		}
+
+		// the children are part of the population from now on
+		m_population = population;
+		m_generation++;
+	}
+
+	//**************************************************************************************************
+	private static double[] normalize(double weights[])
+	{
+		// find the length of the weights
+		double length = 0.0;
+		for (int i = 0; i < weights.length; i++)
+		{
+			length += weights[i] * weights[i];
+		}
+		length = Math.sqrt(length);
+
+		// bring them to a length of 1 (unless they're all 0)
+		double retVal[] = weights.clone();
+		for (int i = 0; length > 0.0 && i < retVal.length; i++)
+		{
+			retVal[i] /= length;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Reads the options of a run. The options are:
+	  *
+	  *   --tune              tunes the weights instead of opening the window (see Tetris)
+	  *   --population N      the number of weights kept on every generation
+	  *   --generations G     the number of generations to play (in all, counting a checkpoint)
+	  *   --games K           the number of games each member plays on every generation
+	  *   --max-pieces P      the most Shapes of a game (0 for no limit)
+	  *   --threads T         the number of threads to play the games on
+	  *   --seed S            the seed of the run
+	  *   --checkpoint FILE   the file the population is written to (and picked up from)
+	  *
+	  * @param args the options
+	  * @throws IllegalArgumentException if an option is unknown or its value is invalid
+	  */
+	//**************************************************************************************************
+	public void parseArgs(String args[])
+	{
+		try
+		{
+			for (int i = 0; i < args.length; i++)
+			{
+				// get the option
+				String option = args[i];
+
+				if (option.equals("--tune"))
+				{
+					// this is what got us here, so there is nothing more to do
+					continue;
+				}
+
+				// get the value of the option
+				String value = getArgument(args, i++);
+
+				if (option.equals("--population"))
+				{
+					m_populationSize = Integer.parseInt(value);
+				}
+				else if (option.equals("--generations"))
+				{
+					m_numOfGenerations = Integer.parseInt(value);
+				}
+				else if (option.equals("--games"))
+				{
+					m_numOfGames = Integer.parseInt(value);
+				}
+				else if (option.equals("--max-pieces"))
+				{
+					m_maxPieces = Integer.parseInt(value);
+				}
+				else if (option.equals("--threads"))
+				{
+					m_numOfThreads = Integer.parseInt(value);
+				}
+				else if (option.equals("--seed"))
+				{
+					m_seed = Long.parseLong(value);
+				}
+				else if (option.equals("--checkpoint"))
+				{
+					m_checkpoint = Paths.get(value);
+				}
+				else
+				{
+					throw new IllegalArgumentException("Unknown option: " + option);
+				}
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+		}
+
+		// a run needs at least two members (to breed), one game and one thread
+		if (m_populationSize < 2 || m_numOfGames <= 0 || m_numOfThreads <= 0)
+		{
+			throw new IllegalArgumentException("The population must be at least 2, and the number of games " +
+			                                   "and threads must be positive");
+		}
+	}
+
+	//**************************************************************************************************
+	/** Prints the options of a run.
+	  * @param out the PrintStream to print to
+	  */
+	//**************************************************************************************************
+	public static void printUsage(PrintStream out)
+	{
+		out.println("Usage: java -jar tetris.jar --tune [options]");
+		out.println("  --population N      the number of weights kept (default " + DEFAULT_POPULATION + ")");
+		out.println("  --generations G     the number of generations (default " + DEFAULT_GENERATIONS + ")");
+		out.println("  --games K           the games per member and generation (default " + DEFAULT_GAMES + ")");
+		out.println("  --max-pieces P      the most Shapes of a game (default " + DEFAULT_MAX_PIECES + ")");
+		out.println("  --threads T         the number of threads (default: one per core)");
+		out.println("  --seed S            the seed of the run (default 1)");
+		out.println("  --checkpoint FILE   the file to write the population to and pick it up from");
+	}
+
+	//**************************************************************************************************
+	private int[] rankPopulation()
+	{
+		// will hold the indices of the members of the population, the fittest first
+		int retVal[] = new int[m_populationSize];
+
+		// insert each member after the ones that are at least as fit (so a tie keeps its order)
+		for (int i = 0; i < m_populationSize; i++)
+		{
+			int j = i;
+			while (j > 0 && m_fitness[retVal[j - 1]] < m_fitness[i])
+			{
+				retVal[j] = retVal[j - 1];
+				j--;
+			}
+			retVal[j] = i;
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Plays generations until the indicated number of them have been played, picking up from the
+	  * checkpoint file if there is one. The fitness of each generation is printed as it's played.
+	  * @return the fittest BotWeights of the last generation
+	  * @throws IOException if the checkpoint file can't be read or written
+	  */
+	//**************************************************************************************************
+	public BotWeights run() throws IOException
+	{
+		// pick up from the checkpoint (or start from scratch)
+		if (!loadCheckpoint())
+		{
+			initPopulation();
+		}
+
+		// the games and their searches run on the same pool
+		ForkJoinPool pool = new ForkJoinPool(m_numOfThreads);
+
+		try
+		{
+			// play the generations that are left (a run that is already done still plays its last
+			// generation, in order to find the fittest weights)
+			boolean done = false;
+			while (!done)
+			{
+				// find the fitness of the population
+				m_fitness = new double[m_populationSize];
+				evaluate(pool);
+
+				// print how the generation went
+				m_out.printf("generation %d  best %.1f  mean %.1f  weights %s%n", m_generation,
+				             max(m_fitness), mean(m_fitness), getBest());
+
+				// move on to the next generation (unless this was the last one)
+				done = m_generation + 1 >= m_numOfGenerations;
+				if (!done)
+				{
+					nextGeneration();
+					saveCheckpoint();
+				}
+			}
+
+			return getBest();
+		}
+		catch (InterruptedException e)
+		{
+			// keep the interrupt for the caller
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The run was interrupted", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("A game of the run failed", e.getCause());
+		}
+		finally
+		{
+			// the threads are no longer needed
+			pool.shutdownNow();
+		}
+	}
+
+	//**************************************************************************************************
+	/** Writes the population to the checkpoint file (if there is one). The file is written next to the
+	  * checkpoint and then moved over it, so the checkpoint is never left half written.
+	  * @throws IOException if the checkpoint file can't be written
+	  */
+	//**************************************************************************************************
+	public void saveCheckpoint() throws IOException
+	{
+		if (m_checkpoint != null)
+		{
+			// write the population next to the checkpoint
+			Path temp = m_checkpoint.resolveSibling(m_checkpoint.getFileName() + ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8))
+			{
+				writer.write("generation " + m_generation);
+				writer.newLine();
+				writer.write("seed " + m_seed);
+				writer.newLine();
+				for (int i = 0; i < m_populationSize; i++)
+				{
+					writer.write("weights " + new BotWeights(m_population[i]));
+					writer.newLine();
+				}
+			}
+
+			// replace the checkpoint in one go
+			Files.move(temp, m_checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	//**************************************************************************************************
+	/** Sets the file that the population is written to after every generation (and picked up from).
+	  * @param checkpoint the checkpoint file (null for none)
+	  */
+	//**************************************************************************************************
+	public void setCheckpoint(Path checkpoint)
+	{
+		// set the checkpoint file
+		m_checkpoint = checkpoint;
+	}
+
+	//**************************************************************************************************
+	private int tournament(SplittableRandom random)
+	{
+		// the number of members that take part
+		int size = Math.max(1, (int)Math.round(m_populationSize * TOURNAMENT_RATE));
+
+		// the fittest of the members picked at random wins
+		int retVal = random.nextInt(m_populationSize);
+		for (int i = 1; i < size; i++)
+		{
+			int member = random.nextInt(m_populationSize);
+			if (m_fitness[member] > m_fitness[retVal])
+			{
+				retVal = member;
+			}
+		}
+
+		return retVal;
+	}
+}
@@ -0,0 +1,78 @@
+// Author:   Jose Santos
+// FileName: Zobrist.java
+
+import java.util.SplittableRandom;
+
+//******************************************************************************************************
+/** This class holds the Zobrist keys of the cells of a board. Every cell has a random 64-bit key, and
+  * the hash of a board is the exclusive or of the keys of its filled cells. Filling or emptying a cell
+  * flips its key in or out of the hash, so the hash can be kept up to date as the cells are written
+  * instead of being worked out from scratch. Note that two boards with the same filled cells always
+  * have the same hash (no matter how they got there), while two boards that differ have the same hash
+  * only by a 1 in 2^64 chance. That is why a board has at most MAX_ROWS rows (see BoardModel and
+  * BoardState), since every cell must have a key of its own.
+  */
+//******************************************************************************************************
+public final class Zobrist
+{
+	// the most rows that have keys (and so the most rows of a board)
+	public static final int MAX_ROWS = 64;
+
+	// the keys of the cells (indexed by y * BoardModel.MAX_COLS + x)
+	private static final long KEYS[] = createKeys();
+
+	//**************************************************************************************************
+	private Zobrist()
+	{
+	}
+
+	//**************************************************************************************************
+	private static long[] createKeys()
+	{
+		// the keys are always the same, so a hash means the same thing from one run to the next
+		SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+
+		// create a key for every cell
+		long retVal[] = new long[MAX_ROWS * BoardModel.MAX_COLS];
+		for (int i = 0; i < retVal.length; i++)
+		{
+			retVal[i] = random.nextLong();
+		}
+
+		return retVal;
+	}
+
+	//**************************************************************************************************
+	/** Returns the key of the cell at the indicated x and y position.
+	  * @param x the x position of the cell
+	  * @param y the y position of the cell (below MAX_ROWS)
+	  * @return the key of the cell
+	  */
+	//**************************************************************************************************
+	public static long getKey(int x, int y)
+	{
+		// get the key of the cell
+		return KEYS[y * BoardModel.MAX_COLS + x];
+	}
+
+	//**************************************************************************************************
+	/** Returns the exclusive or of the keys of the filled cells of the indicated row.
+	  * @param y the row
+	  * @param rowBits the bitmask of the row (bit x is set when the cell in column x is filled)
+	  * @return the hash of the row
+	  */
+	//**************************************************************************************************
+	public static long getRowKey(int y, long rowBits)
+	{
+		// will hold the hash of the row
+		long retVal = 0;
+
+		// flip in the key of each filled cell (lowest first)
+		for (long bits = rowBits; bits != 0; bits &= bits - 1)
+		{
+			retVal ^= getKey(Long.numberOfTrailingZeros(bits), y);
+		}
+
+		return retVal;
+	}
+}
@@ -0,0 +1 @@
+ant -f build.xml benchmark
\ No newline at end of file